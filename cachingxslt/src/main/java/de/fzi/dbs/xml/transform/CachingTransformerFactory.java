@@ -9,8 +9,11 @@ import org.fao.geonet.utils.CachedTransformer;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
@@ -23,25 +26,44 @@ import javax.xml.transform.stream.StreamSource;
  * Caching implementation of JAXP transformer factory. This implementation caches templates that
  * were loaded from local files so that consequent calls to local stylesheets require stylesheet
  * reparsing only if stylesheet was changed.
+ * <p>
+ * The cache is a concurrent map, lookups do not lock. When the same stylesheet is requested by
+ * several threads and is not in the cache, it is compiled once and the other threads wait for it.
+ * <p>
+ * The modification date of a cached stylesheet is checked at most once per check interval,
+ * set in milliseconds with the {@value #CHECK_INTERVAL_PROPERTY} system property (default
+ * {@value #DEFAULT_CHECK_INTERVAL}ms). A negative value disables the check, stylesheets are then
+ * only reloaded after {@link #clearCache()}.
  */
 public class CachingTransformerFactory extends TransformerFactoryImpl implements CachedTransformer {
     /**
-     * Factory logger.
+     * System property setting the interval between two checks of a stylesheet modification date.
      */
-    protected static final Logger logger =
-        LogManager.getLogger(CachingTransformerFactory.class);
+    public static final String CHECK_INTERVAL_PROPERTY = "geonetwork.xslt.cache.checkInterval";
     /**
-     * Active readers count.
+     * Default interval between two checks of a stylesheet modification date, in milliseconds.
      */
-    static int activeReaders = 0;
+    public static final long DEFAULT_CHECK_INTERVAL = 1000;
     /**
-     * Active writers count.
+     * Factory logger.
      */
-    static int activeWriters = 0;
+    protected static final Logger logger =
+        LogManager.getLogger(CachingTransformerFactory.class);
     /**
      * Map to hold templates cache.
      */
-    private static Map<String, TemplatesCacheEntry> templatesCache = new HashMap<String, TemplatesCacheEntry>();
+    private static final ConcurrentMap<String, TemplatesCacheEntry> templatesCache = new ConcurrentHashMap<>();
+    /**
+     * Stylesheets being compiled.
+     */
+    private static final ConcurrentMap<String, CompletableFuture<TemplatesCacheEntry>> compiling = new ConcurrentHashMap<>();
+
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+    private static final AtomicLong compileCount = new AtomicLong();
+    private static final AtomicLong compileTimeNanos = new AtomicLong();
+
+    private final long checkIntervalMillis = Long.getLong(CHECK_INTERVAL_PROPERTY, DEFAULT_CHECK_INTERVAL);
 
     /**
      * Clear the stylesheet cache. This is not part of the JAXP TransformerFactoryImpl so users
@@ -49,16 +71,49 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      * broken.
      */
     public void clearCache() {
-        beforeWrite();
         templatesCache.clear();
-        afterWrite();
+    }
+
+    /**
+     * @return the number of transformers created from a cached stylesheet.
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of transformers requiring to compile the stylesheet, because
+     * it was not in the cache or was modified.
+     */
+    public static long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of stylesheets compiled.
+     */
+    public static long getCompileCount() {
+        return compileCount.get();
+    }
+
+    /**
+     * @return the total time spent compiling stylesheets, in milliseconds.
+     */
+    public static long getCompileTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(compileTimeNanos.get());
+    }
+
+    /**
+     * @return the number of stylesheets in the cache.
+     */
+    public static int getCacheSize() {
+        return templatesCache.size();
     }
 
     /**
      * Process the source into a Transformer object. If source is a StreamSource with
      * <code>systemID</code> pointing to a file, transformer is produced from a cached templates
-     * object. Cache is done in soft references; cached objects are reloaded, when file's date of
-     * last modification changes.
+     * object. Cached objects are reloaded, when file's date of last modification changes.
      *
      * @param source An object that holds a URI, input stream, etc.
      * @return A Transformer object that may be used to perform a transformation in a single thread,
@@ -68,8 +123,39 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      */
     public Transformer newTransformer(final Source source)
         throws TransformerConfigurationException {
+        final File file = getFile(source);
+        if (file != null) {
+            return newTransformer(file);
+        }
+        return super.newTransformer(source);
+    }
+
+    /**
+     * Process the source into a Templates object. If source is a StreamSource with
+     * <code>systemID</code> pointing to a file, the cached templates object is returned.
+     *
+     * @param source An object that holds a URI, input stream, etc.
+     * @return A Templates object, never null.
+     * @throws TransformerConfigurationException - May throw this during the parse when it is
+     *                                           constructing the Templates object and fails.
+     */
+    @Override
+    public Templates getTemplates(final Source source)
+        throws TransformerConfigurationException {
+        final File file = getFile(source);
+        if (file != null) {
+            return getTemplates(file);
+        }
+        return newTemplates(source);
+    }
+
+    /**
+     * @return the file of the source if it is a StreamSource with a <code>systemID</code>
+     * pointing to a file, null otherwise.
+     */
+    private File getFile(final Source source) throws TransformerConfigurationException {
         // Check that source in a StreamSource
-        if (source instanceof StreamSource) {
+        if (source instanceof StreamSource && source.getSystemId() != null) {
             try {
                 // Create URI of the source
                 String srcId = source.getSystemId();
@@ -77,12 +163,12 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
                 // If URI points to a file, load transformer from the file
                 // (or from the cache)
                 if ("file".equalsIgnoreCase(uri.getScheme()))
-                    return newTransformer(new File(uri.getPath()));
+                    return new File(uri.getPath());
             } catch (URISyntaxException urise) {
                 throw new TransformerConfigurationException(urise);
             }
         }
-        return super.newTransformer(source);
+        return null;
     }
 
     /**
@@ -95,37 +181,114 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      */
     protected Transformer newTransformer(final File file)
         throws TransformerConfigurationException {
+        return getTemplates(file).newTransformer();
+    }
+
+    /**
+     * Get the cached templates object of a file, compiling it if it is not in the cache
+     * or was modified.
+     *
+     * @param file file to load templates from.
+     * @return Templates, built from given file.
+     * @throws TransformerConfigurationException if there was a problem loading templates from the
+     *                                           file.
+     */
+    protected Templates getTemplates(final File file)
+        throws TransformerConfigurationException {
+        final String absolutePath = file.getAbsolutePath();
         // Search the cache for the templates entry
-        TemplatesCacheEntry templatesCacheEntry = read(file.getAbsolutePath());
+        TemplatesCacheEntry templatesCacheEntry = read(absolutePath);
+
+        // If entry found, check timestamp of modification
+        if (templatesCacheEntry != null && !isUpToDate(templatesCacheEntry)) {
+            templatesCacheEntry = null;
+        }
 
-        // If entry found
         if (templatesCacheEntry != null) {
-            // Check timestamp of modification
-            if (templatesCacheEntry.lastModified
-                < templatesCacheEntry.templatesFile.lastModified())
-                templatesCacheEntry = null;
+            hitCount.incrementAndGet();
+        } else {
+            // If no templatesEntry is found or this entry was obsolete
+            missCount.incrementAndGet();
+            templatesCacheEntry = compile(file);
+        }
+        return templatesCacheEntry.templates;
+    }
+
+    /**
+     * Check the modification date of the file if it was not checked for the check interval.
+     */
+    private boolean isUpToDate(TemplatesCacheEntry templatesCacheEntry) {
+        if (checkIntervalMillis < 0) {
+            return true;
         }
-        // If no templatesEntry is found or this entry was obsolete
-        if (templatesCacheEntry == null) {
-            //System.out.println("Loading transformation [" + file.getAbsolutePath() + "].");
+        final long now = System.currentTimeMillis();
+        if (now - templatesCacheEntry.lastChecked < checkIntervalMillis) {
+            return true;
+        }
+        templatesCacheEntry.lastChecked = now;
+        return templatesCacheEntry.lastModified >= templatesCacheEntry.templatesFile.lastModified();
+    }
+
+    /**
+     * Compile the file and save it to the cache. If the file is already being compiled
+     * by another thread, wait for its result instead.
+     */
+    private TemplatesCacheEntry compile(final File file) throws TransformerConfigurationException {
+        final String absolutePath = file.getAbsolutePath();
+        final CompletableFuture<TemplatesCacheEntry> future = new CompletableFuture<>();
+        final CompletableFuture<TemplatesCacheEntry> running = compiling.putIfAbsent(absolutePath, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof TransformerConfigurationException) {
+                    throw (TransformerConfigurationException) cause;
+                }
+                throw new TransformerConfigurationException(cause != null ? cause : e);
+            }
+        }
+
+        try {
+            // Compiled by another thread since the cache was read
+            final TemplatesCacheEntry cached = read(absolutePath);
+            if (cached != null && cached.lastModified >= file.lastModified()) {
+                future.complete(cached);
+                return cached;
+            }
+
             // If this file does not exists, throw the exception
             if (!file.exists()) {
                 throw new TransformerConfigurationException(
                     "Requested transformation ["
-                        + file.getAbsolutePath()
+                        + absolutePath
                         + "] does not exist.");
             }
 
-            // Create new cache entry
-            templatesCacheEntry =
-                new TemplatesCacheEntry(newTemplates(new StreamSource(file)), file);
+            // Read the modification date before compiling so that a change
+            // while compiling is detected at the next check
+            final long lastModified = file.lastModified();
+            final long start = System.nanoTime();
+            final Templates templates = newTemplates(new StreamSource(file));
+            final long compileTime = System.nanoTime() - start;
+            compileCount.incrementAndGet();
+            compileTimeNanos.addAndGet(compileTime);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Compiled transformation [" + absolutePath + "] in "
+                    + TimeUnit.NANOSECONDS.toMillis(compileTime) + "ms.");
+            }
 
-            // Save this entry to the cache
-            write(file.getAbsolutePath(), templatesCacheEntry);
-        } else {
-            //System.out.println("Using cached transformation [" + file.getAbsolutePath() + "].");
+            // Create new cache entry and save it to the cache
+            final TemplatesCacheEntry templatesCacheEntry = new TemplatesCacheEntry(templates, file, lastModified);
+            write(absolutePath, templatesCacheEntry);
+            future.complete(templatesCacheEntry);
+            return templatesCacheEntry;
+        } catch (TransformerConfigurationException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            compiling.remove(absolutePath, future);
         }
-        return templatesCacheEntry.templates.newTransformer();
     }
 
     /**
@@ -135,10 +298,7 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      * @return Templates cache entry for the specified path.
      */
     protected TemplatesCacheEntry read(String absolutePath) {
-        beforeRead();
-        final TemplatesCacheEntry templatesCacheEntry = templatesCache.get(absolutePath);
-        afterRead();
-        return templatesCacheEntry;
+        return templatesCache.get(absolutePath);
     }
 
     /**
@@ -148,49 +308,7 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
      * @param templatesCacheEntry templates cache entry to save.
      */
     protected void write(String absolutePath, TemplatesCacheEntry templatesCacheEntry) {
-        beforeWrite();
         templatesCache.put(absolutePath, templatesCacheEntry);
-        afterWrite();
-    }
-
-    /**
-     * Invoked just before reading, waits until reading is allowed.
-     */
-    protected synchronized void beforeRead() {
-        while (activeWriters > 0)
-            try {
-                wait();
-            } catch (InterruptedException iex) {
-            }
-        ++activeReaders;
-    }
-
-    /**
-     * Invoked just after reading.
-     */
-    protected synchronized void afterRead() {
-        --activeReaders;
-        notifyAll();
-    }
-
-    /**
-     * Invoked just before writing, waits until writing is allowed.
-     */
-    protected synchronized void beforeWrite() {
-        while (activeReaders > 0 || activeWriters > 0)
-            try {
-                wait();
-            } catch (InterruptedException iex) {
-            }
-        ++activeWriters;
-    }
-
-    /**
-     * Invoked just after writing.
-     */
-    protected synchronized void afterWrite() {
-        --activeWriters;
-        notifyAll();
     }
 
     /**
@@ -200,28 +318,35 @@ public class CachingTransformerFactory extends TransformerFactoryImpl implements
         /**
          * When was the cached entry last modified.
          */
-        private long lastModified;
+        private final long lastModified;
 
         /**
          * Cached templates object.
          */
-        private Templates templates;
+        private final Templates templates;
 
         /**
          * Templates file object.
          */
-        private File templatesFile;
+        private final File templatesFile;
+
+        /**
+         * When was the modification date of the file last checked.
+         */
+        private volatile long lastChecked;
 
         /**
          * Constructs a new cache entry.
          *
          * @param templates     templates to cache.
          * @param templatesFile file, from which this transformer was loaded.
+         * @param lastModified  modification date of the file when it was loaded.
          */
-        private TemplatesCacheEntry(final Templates templates, final File templatesFile) {
+        private TemplatesCacheEntry(final Templates templates, final File templatesFile, final long lastModified) {
             this.templates = templates;
             this.templatesFile = templatesFile;
-            this.lastModified = templatesFile.lastModified();
+            this.lastModified = lastModified;
+            this.lastChecked = System.currentTimeMillis();
         }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package de.fzi.dbs.xml.transform;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachingTransformerFactoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CachingTransformerFactory factory;
+    private File xsl;
+
+    @Before
+    public void setUp() throws Exception {
+        // Always check the modification date
+        System.setProperty(CachingTransformerFactory.CHECK_INTERVAL_PROPERTY, "0");
+        factory = new CachingTransformerFactory();
+        factory.clearCache();
+        xsl = folder.newFile("test.xsl");
+        writeXsl("first");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(CachingTransformerFactory.CHECK_INTERVAL_PROPERTY);
+        factory.clearCache();
+    }
+
+    private void writeXsl(String output) throws Exception {
+        Files.write(xsl.toPath(), ("<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+            + "<xsl:output method=\"text\"/>"
+            + "<xsl:template match=\"/\">" + output + "</xsl:template>"
+            + "</xsl:stylesheet>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String transform() throws Exception {
+        Transformer transformer = factory.newTransformer(new StreamSource(xsl.toURI().toString()));
+        StringWriter result = new StringWriter();
+        transformer.transform(new StreamSource(new StringReader("<root/>")), new StreamResult(result));
+        return result.toString();
+    }
+
+    @Test
+    public void testCompileOnce() throws Exception {
+        long compileCount = CachingTransformerFactory.getCompileCount();
+        long hitCount = CachingTransformerFactory.getHitCount();
+
+        assertEquals("first", transform());
+        assertEquals("first", transform());
+        assertEquals("first", transform());
+
+        assertEquals(compileCount + 1, CachingTransformerFactory.getCompileCount());
+        assertEquals(hitCount + 2, CachingTransformerFactory.getHitCount());
+    }
+
+    @Test
+    public void testReloadModifiedStylesheet() throws Exception {
+        assertEquals("first", transform());
+
+        writeXsl("second");
+        assertEquals(true, xsl.setLastModified(xsl.lastModified() + 10000));
+
+        assertEquals("second", transform());
+    }
+
+    @Test
+    public void testNoCheckWithNegativeInterval() throws Exception {
+        System.setProperty(CachingTransformerFactory.CHECK_INTERVAL_PROPERTY, "-1");
+        factory = new CachingTransformerFactory();
+        assertEquals("first", transform());
+
+        writeXsl("second");
+        assertEquals(true, xsl.setLastModified(xsl.lastModified() + 10000));
+        assertEquals("first", transform());
+
+        factory.clearCache();
+        assertEquals("second", transform());
+    }
+
+    @Test
+    public void testConcurrentRequestsCompileOnce() throws Exception {
+        long compileCount = CachingTransformerFactory.getCompileCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(this::transform));
+            }
+            for (Future<String> result : results) {
+                assertEquals("first", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(compileCount + 1, CachingTransformerFactory.getCompileCount());
+    }
+}
@@ -23,9 +23,19 @@
 
 package org.fao.geonet.utils;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+
 /**
  * User: bloemj Date: 1-7-2015 Time: 17:12
  */
 public interface CachedTransformer {
     void clearCache();
+
+    /**
+     * Get the compiled stylesheet, from the cache if it is up to date. The same
+     * instance is returned until the stylesheet changes or the cache is cleared.
+     */
+    Templates getTemplates(Source source) throws TransformerConfigurationException;
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.utils;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of transformers created from the same compiled stylesheet.
+ *
+ * A transformer is used by one thread at a time. Once released, its parameters and
+ * state are reset so that the next use does not see the values of the previous one.
+ */
+final class TransformerPool {
+    /**
+     * Maximum number of idle transformers kept per stylesheet.
+     */
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final Templates templates;
+    private final Queue<Transformer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    TransformerPool(Templates templates) {
+        this.templates = templates;
+    }
+
+    Templates getTemplates() {
+        return templates;
+    }
+
+    Transformer borrow() throws TransformerConfigurationException {
+        Transformer transformer = idle.poll();
+        if (transformer != null) {
+            idleCount.decrementAndGet();
+            return transformer;
+        }
+        return templates.newTransformer();
+    }
+
+    /**
+     * Give back a transformer after a successful transformation. Transformers
+     * whose output properties were changed must not be released.
+     */
+    void release(Transformer transformer) {
+        transformer.clearParameters();
+        transformer.reset();
+        if (idleCount.incrementAndGet() <= MAX_IDLE) {
+            idle.offer(transformer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
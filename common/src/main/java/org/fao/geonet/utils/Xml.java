@@ -31,6 +31,8 @@ import net.sf.json.xml.XMLSerializer;
 import net.sf.saxon.Configuration;
 import net.sf.saxon.Controller;
 import net.sf.saxon.FeatureKeys;
+import net.sf.saxon.TransformerFactoryImpl;
+import net.sf.saxon.om.NodeInfo;
 import org.apache.fop.apps.Fop;
 import org.apache.fop.apps.FopFactory;
 import org.apache.fop.apps.MimeConstants;
@@ -80,6 +82,10 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -104,6 +110,22 @@ public final class Xml {
         + "]";
     public static final String XML_VERSION_HEADER = "<\\?xml version=['\"]1.0['\"] encoding=['\"].*['\"]\\?>\\s*";
 
+    /**
+     * Transformers of the stylesheets compiled by a caching transformer factory, by stylesheet URI.
+     */
+    private static final Map<String, TransformerPool> TRANSFORMER_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * Compiled XML schemas by .xsd file path. Compiled schemas are thread safe.
+     */
+    private static final ConcurrentMap<Path, CompletableFuture<Schema>> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Schemas used to validate with the schemaLocation hints, by schema plugin name. Each one keeps
+     * the grammars loaded from the hints in its grammar pool so that they are loaded once.
+     */
+    private static final ConcurrentMap<String, Schema> HINT_SCHEMA_CACHE = new ConcurrentHashMap<>();
+
     public static SAXBuilder getSAXBuilder(boolean validate) {
         SAXBuilder builder = getSAXBuilderWithPathXMLResolver(validate, null);
         Resolver resolver = ResolverWrapper.getInstance();
@@ -144,6 +166,8 @@ public final class Xml {
     public static void resetResolver() {
         Resolver resolver = ResolverWrapper.getInstance();
         resolver.reset();
+        // Grammars loaded from schemaLocation hints may resolve differently
+        HINT_SCHEMA_CACHE.clear();
     }
 
     //--------------------------------------------------------------------------
@@ -459,42 +483,136 @@ public final class Xml {
     transform(Element xml, Path styleSheetPath, Result result, Map<String, Object> params) throws Exception {
         NioPathHolder.setBase(styleSheetPath);
         Source srcXml = new JDOMSource(new Document((Element) xml.detach()));
-        try (InputStream in = IO.newInputStream(styleSheetPath)) {
-            Source srcSheet = new StreamSource(in, styleSheetPath.toUri().toASCIIString());
-
-            // Dear old saxon likes to yell loudly about each and every XSLT 1.0
-            // stylesheet so switch it off but trap any exceptions because this
-            // code is run on transformers other than saxon
-            TransformerFactory transFact = TransformerFactoryFactory.getTransformerFactory();
-            transFact.setURIResolver(new JeevesURIResolver());
-            try {
-                transFact.setAttribute(FeatureKeys.VERSION_WARNING, false);
-                transFact.setAttribute(FeatureKeys.LINE_NUMBERING, true);
-                transFact.setAttribute(FeatureKeys.PRE_EVALUATE_DOC_FUNCTION, false);
-                transFact.setAttribute(FeatureKeys.RECOVERY_POLICY, Configuration.RECOVER_SILENTLY);
+        transform(srcXml, styleSheetPath, result, params);
+    }
 
-                // Add the following to get timing info on xslt transformations
-                //transFact.setAttribute(FeatureKeys.TIMING,true);
-            } catch (IllegalArgumentException e) {
-                Log.warning(Log.ENGINE, "WARNING: transformerfactory doesnt like saxon attributes!", e);
+    /**
+     * Transforms a Saxon tree putting the result to a stream with optional parameters.
+     * The tree is used as is, without conversion, so it can be transformed several times.
+     *
+     * @see #toNodeInfo(Element)
+     */
+    public static void
+    transform(NodeInfo xml, Path styleSheetPath, Result result, Map<String, Object> params) throws Exception {
+        NioPathHolder.setBase(styleSheetPath);
+        transform((Source) xml, styleSheetPath, result, params);
+    }
+
+    /**
+     * Transforms a Saxon tree into another using a stylesheet on disk and pass parameters.
+     *
+     * @see #toNodeInfo(Element)
+     */
+    public static Element transform(NodeInfo xml, Path styleSheetPath, Map<String, Object> params) throws Exception {
+        JDOMResult resXml = new JDOMResult();
+        transform(xml, styleSheetPath, resXml, params);
+        if (resXml.getDocument() == null) {
+            throw new NullPointerException("Failed to create a Document for " + resXml.getResult());
+        }
+        return (Element) resXml.getDocument().getRootElement().detach();
+    }
+
+    /**
+     * Converts an xml tree to a Saxon tree which can be transformed several times
+     * without converting the JDOM tree each time. The xml tree is not modified.
+     */
+    public static NodeInfo toNodeInfo(Element xml) throws Exception {
+        TransformerFactory transFact = TransformerFactoryFactory.getTransformerFactory();
+        if (!(transFact instanceof TransformerFactoryImpl)) {
+            throw new IllegalStateException("Saxon tree requires a Saxon transformer factory, not "
+                + transFact.getClass().getName());
+        }
+        // A root element is wrapped as is, other elements are copied to not detach them
+        boolean root = xml.getParent() == null;
+        Document doc = new Document(root ? xml : (Element) xml.clone());
+        try {
+            return ((TransformerFactoryImpl) transFact).getConfiguration().buildDocument(new JDOMSource(doc));
+        } finally {
+            if (root) {
+                doc.removeContent();
+            }
+        }
+    }
+
+    private static void transform(Source srcXml, Path styleSheetPath, Result result, Map<String, Object> params) throws Exception {
+        // Dear old saxon likes to yell loudly about each and every XSLT 1.0
+        // stylesheet so switch it off but trap any exceptions because this
+        // code is run on transformers other than saxon
+        TransformerFactory transFact = TransformerFactoryFactory.getTransformerFactory();
+        transFact.setURIResolver(new JeevesURIResolver());
+        try {
+            transFact.setAttribute(FeatureKeys.VERSION_WARNING, false);
+            transFact.setAttribute(FeatureKeys.LINE_NUMBERING, true);
+            transFact.setAttribute(FeatureKeys.PRE_EVALUATE_DOC_FUNCTION, false);
+            transFact.setAttribute(FeatureKeys.RECOVERY_POLICY, Configuration.RECOVER_SILENTLY);
+
+            // Add the following to get timing info on xslt transformations
+            //transFact.setAttribute(FeatureKeys.TIMING,true);
+        } catch (IllegalArgumentException e) {
+            Log.warning(Log.ENGINE, "WARNING: transformerfactory doesnt like saxon attributes!", e);
+        }
+        transFact.setURIResolver(new JeevesURIResolver());
+
+        final URI styleSheetUri = styleSheetPath.toUri();
+        if (transFact instanceof CachedTransformer && "file".equalsIgnoreCase(styleSheetUri.getScheme())) {
+            // Reuse a transformer of the compiled stylesheet
+            final TransformerPool pool = getTransformerPool((CachedTransformer) transFact, styleSheetUri.toASCIIString());
+            final Transformer t = pool.borrow();
+            boolean reusable = false;
+            try {
+                boolean canBeReused = prepareTransformer(t, params);
+                t.transform(srcXml, result);
+                // A transformer which failed is not reused
+                reusable = canBeReused;
             } finally {
-                transFact.setURIResolver(new JeevesURIResolver());
+                if (reusable) {
+                    pool.release(t);
+                }
+            }
+        } else {
+            try (InputStream in = IO.newInputStream(styleSheetPath)) {
+                Source srcSheet = new StreamSource(in, styleSheetUri.toASCIIString());
                 Transformer t = transFact.newTransformer(srcSheet);
-                if (params != null) {
-                    for (Map.Entry<String, Object> param : params.entrySet()) {
-                        t.setParameter(param.getKey(), param.getValue());
-                    }
+                prepareTransformer(t, params);
+                t.transform(srcXml, result);
+            }
+        }
+    }
 
-                    if (params.containsKey("geonet-force-xml")) {
-                        ((Controller) t).setOutputProperty("indent", "yes");
-                        ((Controller) t).setOutputProperty("method", "xml");
-                        ((Controller) t).setOutputProperty("{http://saxon.sf.net/}indent-spaces", "2");
-                    }
-                }
+    /**
+     * Get the pool of transformers of a stylesheet. A new pool is created when the
+     * stylesheet is compiled again, eg. because it changed.
+     */
+    private static TransformerPool getTransformerPool(CachedTransformer transFact, String styleSheetUri)
+        throws TransformerConfigurationException {
+        final Templates templates = transFact.getTemplates(new StreamSource(styleSheetUri));
+        TransformerPool pool = TRANSFORMER_POOLS.get(styleSheetUri);
+        if (pool == null || pool.getTemplates() != templates) {
+            pool = new TransformerPool(templates);
+            TRANSFORMER_POOLS.put(styleSheetUri, pool);
+        }
+        return pool;
+    }
 
-                t.transform(srcXml, result);
+    /**
+     * Set the parameters of the transformation.
+     *
+     * @return false if the output properties were changed, the transformer can not be reused.
+     */
+    private static boolean prepareTransformer(Transformer t, Map<String, Object> params) {
+        if (params != null) {
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                t.setParameter(param.getKey(), param.getValue());
+            }
+
+            if (params.containsKey("geonet-force-xml")) {
+                ((Controller) t).setOutputProperty("indent", "yes");
+                ((Controller) t).setOutputProperty("method", "xml");
+                ((Controller) t).setOutputProperty("{http://saxon.sf.net/}indent-spaces", "2");
+                return false;
             }
         }
+        return true;
     }
 
     //--------------------------------------------------------------------------
@@ -509,6 +627,7 @@ public final class Xml {
         if (transFact instanceof CachedTransformer) {
             ((CachedTransformer) transFact).clearCache();
         }
+        TRANSFORMER_POOLS.clear();
     }
     //--------------------------------------------------------------------------
 
@@ -889,13 +1008,13 @@ public final class Xml {
     /**
      * Validates an XML document using the hints in the schemaLocation attribute.
      */
-    public synchronized static void validate(Element xml) throws Exception {
+    public static void validate(Element xml) throws Exception {
         String schemaLoc = xml.getAttributeValue("schemaLocation", xsiNS);
         if (schemaLoc == null || schemaLoc.equals("")) {
             throw new IllegalArgumentException("XML document missing/blank schemaLocation hints - cannot validate");
         }
         XmlErrorHandler eh = new XmlErrorHandler();
-        Schema schema = factory().newSchema();
+        Schema schema = getSchemaFromHints(null);
         Element xsdErrors = validateRealGuts(schema, xml, eh, null);
         if (xsdErrors != null) {
             throw new XSDValidationErrorEx("XSD Validation error(s):\n" + getString(xsdErrors), xsdErrors);
@@ -921,7 +1040,7 @@ public final class Xml {
      * Validates an xml document with respect to schemaLocation hints using supplied error handler.
      */
     public static Element validateInfo(Element xml, XmlErrorHandler eh, String schemaName) throws Exception {
-        Schema schema = factory().newSchema();
+        Schema schema = getSchemaFromHints(schemaName);
         return validateRealGuts(schema, xml, eh, schemaName);
     }
 
@@ -938,7 +1057,65 @@ public final class Xml {
 
     //---------------------------------------------------------------------------
 
+    /**
+     * Get the compiled schema of an .xsd file, compiling it if not already in the cache.
+     * A schema is compiled once even if requested by several threads at the same time.
+     */
     private static Schema getSchemaFromPath(Path schemaPath) throws SAXException {
+        CompletableFuture<Schema> future = SCHEMA_CACHE.get(schemaPath);
+        if (future == null) {
+            CompletableFuture<Schema> compiling = new CompletableFuture<>();
+            future = SCHEMA_CACHE.putIfAbsent(schemaPath, compiling);
+            if (future == null) {
+                future = compiling;
+                try {
+                    compiling.complete(compileSchema(schemaPath));
+                } catch (SAXException | RuntimeException e) {
+                    // Do not keep the failure, the schema may be fixed
+                    SCHEMA_CACHE.remove(schemaPath, compiling);
+                    compiling.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SAXException) {
+                throw (SAXException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Schema getSchemaFromHints(String schemaName) {
+        return HINT_SCHEMA_CACHE.computeIfAbsent(schemaName == null ? "" : schemaName, name -> {
+            try {
+                return factory().newSchema();
+            } catch (SAXException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Remove the compiled schemas of the .xsd files in a directory (eg. after a schema plugin
+     * is updated or removed) and the grammars loaded from schemaLocation hints.
+     */
+    public static void clearSchemaCache(Path directory) {
+        SCHEMA_CACHE.keySet().removeIf(schemaPath -> schemaPath.startsWith(directory));
+        HINT_SCHEMA_CACHE.clear();
+    }
+
+    /**
+     * Remove all compiled schemas and the grammars loaded from schemaLocation hints.
+     */
+    public static void clearSchemaCache() {
+        SCHEMA_CACHE.clear();
+        HINT_SCHEMA_CACHE.clear();
+    }
+
+    private static Schema compileSchema(Path schemaPath) throws SAXException {
         PathStreamSource schemaFile = new PathStreamSource(schemaPath);
         schemaFile.setSystemId(schemaPath.toUri().toASCIIString());
 
@@ -25,6 +25,8 @@ package org.fao.geonet.utils;
 
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
+import net.sf.saxon.TransformerFactoryImpl;
+import net.sf.saxon.om.NodeInfo;
 
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.Constants;
@@ -47,10 +49,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 
@@ -140,6 +149,63 @@ public class XmlTest {
         assertEquals(openResources.toString(), 0, OpenResourceTracker.numberOfOpenResources());
     }
 
+    @Test
+    public void testTransformPooledTransformer() throws Exception {
+        final SimpleCachingTransformerFactory factory = new SimpleCachingTransformerFactory();
+        TransformerFactoryFactory.setTransformerFactory(factory);
+        try {
+            Path path = Paths.get(XmlTest.class.getResource("xmltest/xsl/param.xsl").toURI());
+
+            Map<String, Object> params = new HashMap<>();
+            params.put("value", "first");
+            assertEquals("first", Xml.transform(new Element("el"), path, params).getText());
+            // Parameters of the previous transformation are not kept
+            assertEquals("default", Xml.transform(new Element("el"), path, new HashMap<>()).getText());
+            assertEquals(1, factory.compileCount);
+
+            // Recompiled stylesheet
+            factory.clearCache();
+            assertEquals("default", Xml.transform(new Element("el"), path, new HashMap<>()).getText());
+            assertEquals(2, factory.compileCount);
+
+            // Same tree transformed several times
+            Element record = new Element("record");
+            NodeInfo nodeInfo = Xml.toNodeInfo(record);
+            assertNull(record.getParent());
+            params.put("value", "second");
+            Element result = Xml.transform(nodeInfo, path, params);
+            assertEquals("second", result.getText());
+            assertEquals("record", result.getAttributeValue("name"));
+            assertEquals("default", Xml.transform(nodeInfo, path, new HashMap<>()).getText());
+        } finally {
+            TransformerFactoryFactory.init(null);
+        }
+    }
+
+    /**
+     * Caches the compiled stylesheets by system id.
+     */
+    private static class SimpleCachingTransformerFactory extends TransformerFactoryImpl implements CachedTransformer {
+        private final Map<String, Templates> cache = new HashMap<>();
+        private int compileCount = 0;
+
+        @Override
+        public void clearCache() {
+            cache.clear();
+        }
+
+        @Override
+        public synchronized Templates getTemplates(Source source) throws TransformerConfigurationException {
+            Templates templates = cache.get(source.getSystemId());
+            if (templates == null) {
+                templates = newTemplates(source);
+                compileCount++;
+                cache.put(source.getSystemId(), templates);
+            }
+            return templates;
+        }
+    }
+
     @Test
     public void testTransformSaxonTransformer() throws Exception {
         TransformerFactoryFactory.init("net.sf.saxon.TransformerFactoryImpl");
@@ -159,6 +225,34 @@ public class XmlTest {
     }
 
 
+    @Test
+    public void testValidateWithCachedSchema() throws Exception {
+        Path schemaDir = Files.createTempDirectory("xmltest");
+        try {
+            Path xsd = schemaDir.resolve("schema.xsd");
+            writeSchema(xsd, "xs:string");
+
+            Element valid = new Element("record").setText("text");
+            assertNull(Xml.validateInfo(xsd, valid, new XmlErrorHandler(), null));
+
+            // The compiled schema is used until the cache is cleared
+            writeSchema(xsd, "xs:integer");
+            assertNull(Xml.validateInfo(xsd, valid, new XmlErrorHandler(), null));
+
+            Xml.clearSchemaCache(schemaDir);
+            assertNotNull(Xml.validateInfo(xsd, valid, new XmlErrorHandler(), null));
+            assertNull(Xml.validateInfo(xsd, new Element("record").setText("1"), new XmlErrorHandler(), null));
+        } finally {
+            Xml.clearSchemaCache();
+            IO.deleteFileOrDirectory(schemaDir);
+        }
+    }
+
+    private static void writeSchema(Path xsd, String type) throws IOException {
+        Files.write(xsd, ("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+            + "<xs:element name=\"record\" type=\"" + type + "\"/></xs:schema>").getBytes(Constants.CHARSET));
+    }
+
     @Test
     public void testGetXPathExpr() throws Exception {
         final Element charString = TEST_METADATA.getChild("fileIdentifier", GMD).getChild("CharacterString", GCO);
@@ -0,0 +1,10 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+  <xsl:param name="value" select="'default'"/>
+
+  <xsl:template match="/">
+    <root name="{name(*)}">
+      <xsl:value-of select="$value"/>
+    </root>
+  </xsl:template>
+</xsl:stylesheet>
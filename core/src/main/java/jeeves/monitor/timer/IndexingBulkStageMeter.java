@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package jeeves.monitor.timer;
+
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.MetricsRegistry;
+import jeeves.monitor.MetricsFactory;
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.kernel.search.EsSearchManager;
+
+import java.util.concurrent.TimeUnit;
+
+public class IndexingBulkStageMeter implements MetricsFactory<Meter> {
+    public Meter create(MetricsRegistry metricsRegistry, ServiceContext context) {
+        return metricsRegistry.newMeter(EsSearchManager.class, "Indexing_Bulk_Stage_Meter", "Indexing_Bulk_Stage_Meter", TimeUnit.SECONDS);
+    }
+}
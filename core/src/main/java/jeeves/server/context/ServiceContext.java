@@ -36,14 +36,18 @@ import jeeves.transaction.TransactionTask;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.Logger;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
+import org.fao.geonet.kernel.PermissionContext;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.TransactionStatus;
 
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.annotation.CheckForNull;
 import javax.persistence.EntityManager;
@@ -67,6 +71,7 @@ public class ServiceContext extends BasicContext {
     private JeevesServlet _servlet;
     private boolean _startupError = false;
     private Map<String, String> _startupErrors;
+    private volatile PermissionContext _permissionContext;
     /**
      * Property to be able to add custom response headers depending on the code (and not the xml of
      * Jeeves)
@@ -121,6 +126,41 @@ public class ServiceContext extends BasicContext {
         ApplicationContextHolder.set(this.getApplicationContext());
     }
 
+    /**
+     * Wrap a task to run it in another thread (eg. a thread pool worker) with this service context
+     * and the security context of the calling thread. Once the task is done, the previous contexts
+     * of the worker thread are restored, or cleared if it had none.
+     */
+    public <V> Callable<V> inContext(Callable<V> task) {
+        final SecurityContext securityContext = SecurityContextHolder.getContext();
+        return () -> {
+            final ServiceContext previousContext = THREAD_LOCAL_INSTANCE.get();
+            final ConfigurableApplicationContext previousApplicationContext = ApplicationContextHolder.get();
+            final SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+            setAsThreadLocal();
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                return task.call();
+            } finally {
+                if (previousSecurityContext.getAuthentication() != null) {
+                    SecurityContextHolder.setContext(previousSecurityContext);
+                } else {
+                    SecurityContextHolder.clearContext();
+                }
+                if (previousContext != null) {
+                    THREAD_LOCAL_INSTANCE.set(previousContext);
+                } else {
+                    THREAD_LOCAL_INSTANCE.remove();
+                }
+                if (previousApplicationContext != null) {
+                    ApplicationContextHolder.set(previousApplicationContext);
+                } else {
+                    ApplicationContextHolder.clear();
+                }
+            }
+        };
+    }
+
     //--------------------------------------------------------------------------
     //---
     //--- API methods
@@ -175,6 +215,19 @@ public class ServiceContext extends BasicContext {
 
     public void setUserSession(final UserSession session) {
         _userSession = session;
+        _permissionContext = null;
+    }
+
+    /**
+     * @return the groups and profile of the user resolved for this request, or null.
+     * @see org.fao.geonet.kernel.AccessManager#getPermissionContext(ServiceContext)
+     */
+    public PermissionContext getPermissionContext() {
+        return _permissionContext;
+    }
+
+    public void setPermissionContext(final PermissionContext permissionContext) {
+        _permissionContext = permissionContext;
     }
 
     public ProfileManager getProfileManager() {
@@ -175,6 +175,29 @@ public class AccessManager {
         return hs;
     }
 
+    /**
+     * Returns the groups and profile of the user of the request, resolved once per
+     * service context and user session.
+     */
+    public PermissionContext getPermissionContext(ServiceContext context) throws Exception {
+        final UserSession userSession = context.getUserSession();
+        final String ip = context.getIpAddress();
+        PermissionContext permissionContext = context.getPermissionContext();
+        if (permissionContext == null || !permissionContext.isFor(userSession, ip)) {
+            final boolean authenticated = isUserAuthenticated(userSession);
+            permissionContext = new PermissionContext(userSession, ip,
+                authenticated,
+                authenticated ? userSession.getUserIdAsInt() : -1,
+                userSession != null ? userSession.getProfile() : null,
+                getUserGroups(userSession, ip, false),
+                getUserGroups(userSession, ip, true),
+                getReviewerGroups(userSession),
+                settingManager.getValueAsBool(SYSTEM_METADATAPRIVS_PUBLICATIONBYGROUPOWNERONLY, true));
+            context.setPermissionContext(permissionContext);
+        }
+        return permissionContext;
+    }
+
     /**
      *  Retrieves the user's groups ids
      * @param session
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * A set of records identified by their internal (database) id, stored as a bitmap.
+ *
+ * Ids are small positive integers allocated by a sequence, so a bitmap takes one bit per id
+ * up to the highest selected id, whatever the number of selected records. The set operations
+ * are done in place on the bitmap.
+ *
+ * A selection is shared by the requests of a session, all the methods are thread safe.
+ */
+public class MetadataSelection {
+    private final BitSet ids;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public MetadataSelection() {
+        this(new BitSet());
+    }
+
+    private MetadataSelection(BitSet ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * Create a selection from a bitmap, the bitmap is not copied.
+     */
+    public static MetadataSelection of(BitSet ids) {
+        return new MetadataSelection(ids);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.readLock().lock();
+        try {
+            return ids.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the record was not selected.
+     */
+    public boolean add(int id) {
+        lock.writeLock().lock();
+        try {
+            boolean added = !ids.get(id);
+            ids.set(id);
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the record was selected.
+     */
+    public boolean remove(int id) {
+        if (id < 0) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            boolean removed = ids.get(id);
+            ids.clear(id);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add the records of a bitmap to the selection.
+     */
+    public void or(BitSet other) {
+        lock.writeLock().lock();
+        try {
+            ids.or(other);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keep only the selected records which are also in a bitmap.
+     */
+    public void and(BitSet other) {
+        lock.writeLock().lock();
+        try {
+            ids.and(other);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the records of a bitmap from the selection.
+     */
+    public void andNot(BitSet other) {
+        lock.writeLock().lock();
+        try {
+            ids.andNot(other);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the selected records by the records of a bitmap.
+     */
+    public void set(BitSet other) {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            ids.or(other);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the selection, not modified by the later changes of this selection.
+     */
+    public MetadataSelection copy() {
+        lock.readLock().lock();
+        try {
+            return new MetadataSelection((BitSet) ids.clone());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the selected records in ascending order,
+     * read from a copy of the selection.
+     */
+    public IntStream ids() {
+        return copy().ids.stream();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import jeeves.server.UserSession;
+import org.fao.geonet.domain.Profile;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Groups and profile of the user of a request, resolved once per request
+ * (see {@link AccessManager#getPermissionContext(jeeves.server.context.ServiceContext)})
+ * to check the privileges on many records without querying the database for each record.
+ *
+ * The checks use the owner, group owner and editing groups of the records as found in the
+ * index and give the same results as the {@link AccessManager} checks reading the database.
+ */
+public class PermissionContext {
+    private final UserSession userSession;
+    private final String ipAddress;
+    private final boolean authenticated;
+    private final int userId;
+    private final Profile profile;
+    private final Set<Integer> groups;
+    private final Set<Integer> editingGroups;
+    private final Set<Integer> reviewerGroups;
+    private final boolean publicationByGroupOwnerOnly;
+
+    PermissionContext(UserSession userSession, String ipAddress,
+                      boolean authenticated, int userId, Profile profile,
+                      Set<Integer> groups, Set<Integer> editingGroups, Set<Integer> reviewerGroups,
+                      boolean publicationByGroupOwnerOnly) {
+        this.userSession = userSession;
+        this.ipAddress = ipAddress;
+        this.authenticated = authenticated;
+        this.userId = userId;
+        this.profile = profile;
+        this.groups = Collections.unmodifiableSet(groups);
+        this.editingGroups = Collections.unmodifiableSet(editingGroups);
+        this.reviewerGroups = Collections.unmodifiableSet(reviewerGroups);
+        this.publicationByGroupOwnerOnly = publicationByGroupOwnerOnly;
+    }
+
+    /**
+     * @return true if the context was resolved for this user session and address,
+     * false if the user logged in or out since.
+     */
+    boolean isFor(UserSession session, String ip) {
+        if (session != userSession || !Objects.equals(ip, ipAddress)) {
+            return false;
+        }
+        boolean sessionAuthenticated = session != null && session.isAuthenticated();
+        return sessionAuthenticated == authenticated
+            && (!authenticated || (session.getUserIdAsInt() == userId && session.getProfile() == profile));
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    public boolean isAdministrator() {
+        return authenticated && profile == Profile.Administrator;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @see AccessManager#getUserGroups(UserSession, String, boolean)
+     */
+    public Set<Integer> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @see AccessManager#getUserGroups(UserSession, String, boolean)
+     */
+    public Set<Integer> getEditingGroups() {
+        return editingGroups;
+    }
+
+    /**
+     * @see AccessManager#getReviewerGroups(UserSession)
+     */
+    public Set<Integer> getReviewerGroups() {
+        return reviewerGroups;
+    }
+
+    /**
+     * @see AccessManager#isOwner(jeeves.server.context.ServiceContext, org.fao.geonet.domain.MetadataSourceInfo)
+     */
+    public boolean isOwner(Integer owner, Integer groupOwner) {
+        if (!authenticated) {
+            return false;
+        }
+        if (profile == Profile.Administrator) {
+            return true;
+        }
+        if (owner != null && userId == owner) {
+            return true;
+        }
+        if (profile != Profile.Reviewer && profile != Profile.UserAdmin) {
+            return false;
+        }
+        return groupOwner != null && reviewerGroups.contains(groupOwner);
+    }
+
+    /**
+     * @param editingOperationGroups the groups having the editing privilege on the record.
+     * @see AccessManager#hasEditPermission(jeeves.server.context.ServiceContext, String)
+     */
+    public boolean hasEditPermission(Collection<Integer> editingOperationGroups) {
+        return authenticated && !Collections.disjoint(editingGroups, editingOperationGroups);
+    }
+
+    /**
+     * @param editingOperationGroups the groups having the editing privilege on the record.
+     * @see AccessManager#hasReviewPermission(jeeves.server.context.ServiceContext, org.fao.geonet.domain.AbstractMetadata)
+     */
+    public boolean hasReviewPermission(Integer groupOwner, Collection<Integer> editingOperationGroups) {
+        if (!authenticated) {
+            return false;
+        }
+        if (profile == Profile.Administrator) {
+            return true;
+        }
+        boolean isReviewerOfOwnerGroup = groupOwner != null && reviewerGroups.contains(groupOwner);
+        if (publicationByGroupOwnerOnly) {
+            return isReviewerOfOwnerGroup;
+        }
+        return isReviewerOfOwnerGroup || !Collections.disjoint(reviewerGroups, editingOperationGroups);
+    }
+}
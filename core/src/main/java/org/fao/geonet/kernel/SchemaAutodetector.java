@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.apache.commons.lang.StringUtils;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.exceptions.SchemaMatchConflictException;
+import org.fao.geonet.utils.Log;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.filter.ElementFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The autodetect elements of the registered schemas, compiled once for a set of schemas.
+ *
+ * Root elements are indexed by name and namespace so that the root mode is a lookup.
+ * The elements searched in the record are indexed by walking the record once for
+ * all schemas and autodetect elements.
+ */
+final class SchemaAutodetector {
+    static final int MODE_NEEDLE = 0;
+    static final int MODE_ROOT = 1;
+    static final int MODE_NEEDLEWITHVALUE = 2;
+    static final int MODE_ATTRIBUTEWITHVALUE = 3;
+    static final int MODE_NAMESPACE = 4;
+
+    private final List<AttributesEntry> attributesEntries = new ArrayList<>();
+    private final List<NeedlesEntry> needleWithValueEntries = new ArrayList<>();
+    private final List<NeedlesEntry> needleEntries = new ArrayList<>();
+    private final Map<String, Set<String>> rootIndex = new HashMap<>();
+    private final List<NamespacesEntry> namespacesEntries = new ArrayList<>();
+    /**
+     * Keys of the elements searched in the records.
+     */
+    private final Set<String> needleKeys = new HashSet<>();
+
+    /**
+     * Compile the autodetect elements of the schemas. Same as comparing each autodetect element
+     * with the record, the element named attributes is only used by the attribute mode,
+     * the element named namespaces by the namespace mode, the elements of type search
+     * by the element mode, the elements of type root by the root mode and
+     * all elements with children by the element with value mode.
+     */
+    SchemaAutodetector(Map<String, Schema> schemas) {
+        for (Map.Entry<String, Schema> schemaInfo : schemas.entrySet()) {
+            String schemaName = schemaInfo.getKey();
+            List<Element> adElems = schemaInfo.getValue().getAutodetectElements();
+            if (adElems == null) {
+                continue;
+            }
+            for (Element elem : adElems) {
+                Attribute type = elem.getAttribute("type");
+
+                if (elem.getName().equals("attributes")) {
+                    @SuppressWarnings("unchecked")
+                    List<Attribute> atts = elem.getAttributes();
+                    if (!atts.isEmpty()) {
+                        attributesEntries.add(new AttributesEntry(schemaName, atts));
+                    }
+                }
+                if (elem.getName().equals("namespaces")) {
+                    @SuppressWarnings("unchecked")
+                    List<Namespace> nss = elem.getAdditionalNamespaces();
+                    if (!nss.isEmpty()) {
+                        namespacesEntries.add(new NamespacesEntry(schemaName, nss));
+                    }
+                }
+
+                @SuppressWarnings("unchecked")
+                List<Element> elemKids = elem.getChildren();
+                if (elemKids.isEmpty()) {
+                    continue;
+                }
+                if (type != null && "root".equals(type.getValue())) {
+                    for (Element kid : elemKids) {
+                        rootIndex.computeIfAbsent(getKey(kid), k -> new LinkedHashSet<>()).add(schemaName);
+                    }
+                } else if (type != null && "search".equals(type.getValue())) {
+                    needleEntries.add(new NeedlesEntry(schemaName, elemKids));
+                }
+                needleWithValueEntries.add(new NeedlesEntry(schemaName, elemKids));
+                for (Element kid : elemKids) {
+                    needleKeys.add(getKey(kid));
+                }
+            }
+        }
+    }
+
+    /**
+     * Search the schemas matching the record in a mode.
+     *
+     * @param md the XML record whose schema we are trying to find
+     * @return the schema matching the record or null if no schema matches.
+     * @throws SchemaMatchConflictException if more than one schema matches.
+     */
+    String match(Element md, int mode, RecordElements recordElements) throws SchemaMatchConflictException {
+        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+            Log.debug(Geonet.SCHEMA_MANAGER, "Schema autodetection starting on " + md.getName() + " (Namespace: " + md.getNamespace() + ") using mode: " + mode + "...");
+        }
+
+        Set<String> matches = new LinkedHashSet<>();
+        switch (mode) {
+            case MODE_ATTRIBUTEWITHVALUE:
+                for (AttributesEntry entry : attributesEntries) {
+                    if (!matches.contains(entry.schemaName) && entry.matches(md)) {
+                        matches.add(entry.schemaName);
+                    }
+                }
+                break;
+            case MODE_NEEDLEWITHVALUE:
+                for (NeedlesEntry entry : needleWithValueEntries) {
+                    if (!matches.contains(entry.schemaName) && entry.matches(recordElements, true)) {
+                        matches.add(entry.schemaName);
+                    }
+                }
+                break;
+            case MODE_NEEDLE:
+                for (NeedlesEntry entry : needleEntries) {
+                    if (!matches.contains(entry.schemaName) && entry.matches(recordElements, false)) {
+                        matches.add(entry.schemaName);
+                    }
+                }
+                break;
+            case MODE_ROOT:
+                matches.addAll(rootIndex.getOrDefault(getKey(md), Collections.emptySet()));
+                break;
+            case MODE_NAMESPACE:
+                for (NamespacesEntry entry : namespacesEntries) {
+                    if (!matches.contains(entry.schemaName) && entry.matches(md)) {
+                        matches.add(entry.schemaName);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (matches.size() > 1) {
+            throw new SchemaMatchConflictException("Metadata record with " + md.getName() + " (Namespace " + md.getNamespace() + " matches more than one schema - namely: " + new ArrayList<>(matches) + " - during schema autodetection mode " + mode);
+        }
+        return matches.isEmpty() ? null : matches.iterator().next();
+    }
+
+    /**
+     * @return the descendants of the record which may match an autodetect element, collected on first use.
+     */
+    RecordElements getRecordElements(Element md) {
+        return new RecordElements(md, needleKeys);
+    }
+
+    private static String getKey(Element element) {
+        return element.getNamespaceURI() + "#" + element.getName();
+    }
+
+    /**
+     * The descendants of a record, by namespace and name, limited to the elements
+     * searched by the autodetect elements.
+     */
+    static final class RecordElements {
+        private final Element md;
+        private final Set<String> needleKeys;
+        private Map<String, List<Element>> elements;
+
+        private RecordElements(Element md, Set<String> needleKeys) {
+            this.md = md;
+            this.needleKeys = needleKeys;
+        }
+
+        List<Element> get(String key) {
+            if (elements == null) {
+                elements = new HashMap<>();
+                @SuppressWarnings("unchecked")
+                Iterator<Element> haystackIterator = md.getDescendants(new ElementFilter());
+                while (haystackIterator.hasNext()) {
+                    Element tempElement = haystackIterator.next();
+                    String tempKey = getKey(tempElement);
+                    if (needleKeys.contains(tempKey)) {
+                        elements.computeIfAbsent(tempKey, k -> new ArrayList<>()).add(tempElement);
+                    }
+                }
+            }
+            return elements.getOrDefault(key, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Elements which must all be found in the record, with a value matching the pattern
+     * of the autodetect element when the value is checked.
+     */
+    private static final class NeedlesEntry {
+        private final String schemaName;
+        private final List<Needle> needles = new ArrayList<>();
+
+        private NeedlesEntry(String schemaName, List<Element> elemKids) {
+            this.schemaName = schemaName;
+            for (Element kid : elemKids) {
+                needles.add(new Needle(kid));
+            }
+        }
+
+        private boolean matches(RecordElements recordElements, boolean checkValue) {
+            for (Needle needle : needles) {
+                if (!needle.matches(recordElements, checkValue)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Needle {
+        private final String key;
+        private final String value;
+        private volatile Pattern pattern;
+
+        private Needle(Element kid) {
+            this.key = getKey(kid);
+            this.value = StringUtils.deleteWhitespace(kid.getValue());
+        }
+
+        /**
+         * Matching elements have the same name, namespace and a value matching the needle value
+         * when the value is checked.
+         */
+        private boolean matches(RecordElements recordElements, boolean checkValue) {
+            List<Element> elements = recordElements.get(key);
+            if (!checkValue) {
+                return !elements.isEmpty();
+            }
+            for (Element tempElement : elements) {
+                String tempVal = StringUtils.deleteWhitespace(tempElement.getValue());
+                boolean returnVal = getPattern().matcher(tempVal).matches();
+                if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                    Log.debug(Geonet.SCHEMA_MANAGER, "    Pattern " + value + " applied to value " + tempVal + " match: " + returnVal);
+                }
+                if (returnVal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Compiled on first use as invalid patterns are reported when matching a record.
+         */
+        private Pattern getPattern() throws PatternSyntaxException {
+            Pattern p = pattern;
+            if (p == null) {
+                p = Pattern.compile(value);
+                pattern = p;
+            }
+            return p;
+        }
+    }
+
+    private static final class AttributesEntry {
+        private final String schemaName;
+        private final List<Attribute> attributes;
+
+        private AttributesEntry(String schemaName, List<Attribute> attributes) {
+            this.schemaName = schemaName;
+            this.attributes = new ArrayList<>(attributes);
+        }
+
+        private boolean matches(Element md) {
+            for (Attribute searchAtt : attributes) {
+                if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                    Log.debug(Geonet.SCHEMA_MANAGER, "				Finding attribute " + searchAtt.toString());
+                }
+                if (!isMatchingAttributeInMetadata(searchAtt, md)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * This method searches an entire metadata file for an attribute that matches the "needle"
+         * metadata attribute arg - A matching attribute has the same name and value.
+         *
+         * @param needle   the XML attribute we are trying to find
+         * @param haystack the XML metadata record we are searching
+         */
+        private static boolean isMatchingAttributeInMetadata(Attribute needle, Element haystack) {
+            @SuppressWarnings("unchecked")
+            Iterator<Element> haystackIterator = haystack.getDescendants(new ElementFilter());
+            while (haystackIterator.hasNext()) {
+                Element tempElement = haystackIterator.next();
+                Attribute tempAtt = tempElement.getAttribute(needle.getName());
+                if (tempAtt.equals(needle)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class NamespacesEntry {
+        private final String schemaName;
+        private final List<Namespace> namespaces;
+
+        private NamespacesEntry(String schemaName, List<Namespace> namespaces) {
+            this.schemaName = schemaName;
+            this.namespaces = new ArrayList<>(namespaces);
+        }
+
+        private boolean matches(Element md) {
+            for (Namespace ns : namespaces) {
+                if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                    Log.debug(Geonet.SCHEMA_MANAGER, "				Finding namespace " + ns.toString());
+                }
+                if (!isMatchingNamespaceInMetadata(ns, md)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * This method searches all elements of a metadata for a namespace that matches the "needle"
+         * namespace arg. (Note: matching namespaces have the same URI, prefix is ignored).
+         *
+         * @param needle   the XML namespace we are trying to find
+         * @param haystack the XML metadata record we are searching
+         */
+        private static boolean isMatchingNamespaceInMetadata(Namespace needle, Element haystack) {
+            if (checkNamespacesOnElement(needle, haystack)) return true;
+
+            @SuppressWarnings("unchecked")
+            Iterator<Element> haystackIterator = haystack.getDescendants(new ElementFilter());
+            while (haystackIterator.hasNext()) {
+                Element tempElement = haystackIterator.next();
+                if (checkNamespacesOnElement(needle, tempElement)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * This method searches an elements and its namespaces for a match with an input namespace.
+         *
+         * @param ns   the XML namespace we are trying to find
+         * @param elem the XML metadata element whose namespaces are to be searched
+         */
+        private static boolean checkNamespacesOnElement(Namespace ns, Element elem) {
+            if (elem.getNamespace().equals(ns)) return true;
+            @SuppressWarnings("unchecked")
+            List<Namespace> nss = elem.getAdditionalNamespaces();
+            for (Namespace ans : nss) {
+                if (ans.equals(ns)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -58,7 +58,6 @@ import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.Namespace;
-import org.jdom.filter.ElementFilter;
 import org.springframework.context.ApplicationContext;
 
 import java.io.IOException;
@@ -69,13 +68,13 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -88,24 +87,18 @@ import java.util.stream.Collectors;
  */
 public class SchemaManager {
 
-    private static final int MODE_NEEDLE = 0;
-    private static final int MODE_ROOT = 1;
-    private static final int MODE_NEEDLEWITHVALUE = 2;
-    private static final int MODE_ATTRIBUTEWITHVALUE = 3;
-    private static final int MODE_NAMESPACE = 4;
-
     private static final String GEONET_SCHEMA_URI = "http://geonetwork-opensource.org/schemas/schema-ident";
     private static final Namespace GEONET_SCHEMA_PREFIX_NS = Namespace.getNamespace("gns", GEONET_SCHEMA_URI);
     private static final Namespace GEONET_SCHEMA_NS = Namespace.getNamespace(GEONET_SCHEMA_URI);
     /**
-     * Active readers count
+     * Registered schemas, replaced when a schema is added or removed so that
+     * readers never wait for writers.
      */
-    private static int activeReaders = 0;
+    private volatile SchemaRegistry registry = new SchemaRegistry(Collections.emptyMap());
     /**
-     * Active writers count
+     * Serializes the changes of the registered schemas.
      */
-    private static int activeWriters = 0;
-    private Map<String, Schema> hmSchemas = new HashMap<>();
+    private final Object writeLock = new Object();
     private Map<String, Namespace> hmSchemasTypenames = new HashMap<>();
     private Map<String, String> cswOutputSchemas = new HashMap<>();
     private String[] fnames = {"labels.xml", "codelists.xml", "strings.xml"};
@@ -186,8 +179,7 @@ public class SchemaManager {
 
         addResolverRewriteDirectives(dataDir);
 
-        this.hmSchemas.clear();
-        this.hmSchemas.putAll(schemaManager.hmSchemas);
+        this.registry = schemaManager.registry;
 
 
         fnames = new String[schemaManager.fnames.length];
@@ -222,7 +214,7 @@ public class SchemaManager {
                           String defaultSchema,
                           boolean createOrUpdateSchemaCatalog) throws Exception {
 
-        hmSchemas.clear();
+        registry = new SchemaRegistry(Collections.emptyMap());
 
         this.basePath = basePath;
         this.resourcePath = resourcePath;
@@ -278,18 +270,13 @@ public class SchemaManager {
      */
     public MetadataSchema getSchema(String name) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
-
-            if (schema == null) {
-                throw new IllegalArgumentException("Schema not registered : " + name);
-            }
+        Schema schema = registry.getSchemas().get(name);
 
-            return schema.getMetadataSchema();
-        } finally {
-            afterRead();
+        if (schema == null) {
+            throw new IllegalArgumentException("Schema not registered : " + name);
         }
+
+        return schema.getMetadataSchema();
     }
 
     /**
@@ -301,20 +288,15 @@ public class SchemaManager {
 
         Set<String> dependencies = new HashSet<>();
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
-            if (schema != null) { // if it is null then that is a config error
-                List<Element> dependsList = schema.getDependElements();
-                for (Element depends : dependsList) {
-                    String depSchemaName = depends.getText();
-                    dependencies.add(depSchemaName);
-                }
+        Schema schema = registry.getSchemas().get(name);
+        if (schema != null) { // if it is null then that is a config error
+            List<Element> dependsList = schema.getDependElements();
+            for (Element depends : dependsList) {
+                String depSchemaName = depends.getText();
+                dependencies.add(depSchemaName);
             }
-            return dependencies;
-        } finally {
-            afterRead();
         }
+        return dependencies;
     }
 
     /**
@@ -325,17 +307,12 @@ public class SchemaManager {
      */
     public Pair<String, String> getIdVersion(String name) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
-            if (schema == null)
-                throw new IllegalArgumentException("Schema not registered : " + name);
+        if (schema == null)
+            throw new IllegalArgumentException("Schema not registered : " + name);
 
-            return Pair.read(schema.getId(), schema.getVersion());
-        } finally {
-            afterRead();
-        }
+        return Pair.read(schema.getId(), schema.getVersion());
     }
 
     /**
@@ -346,11 +323,8 @@ public class SchemaManager {
      */
     public void addPluginSchema(ApplicationContext applicationContext, String name, FileSystem zipFs) throws Exception {
 
-        beforeWrite();
-        try {
+        synchronized (writeLock) {
             realAddPluginSchema(applicationContext, name, zipFs);
-        } finally {
-            afterWrite();
         }
     }
 
@@ -362,8 +336,7 @@ public class SchemaManager {
      */
     public void updatePluginSchema(ApplicationContext applicationContext, String name, FileSystem zipFs) throws Exception {
 
-        beforeWrite();
-        try {
+        synchronized (writeLock) {
             // -- delete schema, trap any exception here as we need to say
             // -- why the update failed
             try {
@@ -377,8 +350,6 @@ public class SchemaManager {
 
             // -- add the new one
             realAddPluginSchema(applicationContext, name, zipFs);
-        } finally {
-            afterWrite();
         }
     }
 
@@ -389,17 +360,12 @@ public class SchemaManager {
      */
     public Path getSchemaDir(String name) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
-            if (schema == null)
-                throw new IllegalArgumentException("Schema not registered : " + name);
+        if (schema == null)
+            throw new IllegalArgumentException("Schema not registered : " + name);
 
-            return schema.getDir();
-        } finally {
-            afterRead();
-        }
+        return schema.getDir();
     }
 
     /**
@@ -412,38 +378,33 @@ public class SchemaManager {
 
         Attribute out = null;
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
-
-            if (schema == null)
-                throw new IllegalArgumentException("Schema not registered : " + name);
-
-            String nsUri = schema.getMetadataSchema().getPrimeNS();
-            String schemaLoc = schema.getSchemaLocation();
-            Path schemaFile = schema.getDir().resolve("schema.xsd");
-
-            if (schemaLoc.equals("")) {
-                if (Files.exists(schemaFile)) { // build one
-                    String schemaUrl = getSchemaUrl(context, name);
-                    if (nsUri == null || nsUri.equals("")) {
-                        out = new Attribute("noNamespaceSchemaLocation", schemaUrl, Geonet.Namespaces.XSI);
-                    } else {
-                        schemaLoc = nsUri + " " + schemaUrl;
-                        out = new Attribute("schemaLocation", schemaLoc, Geonet.Namespaces.XSI);
-                    }
-                } // else return null - no schema xsd exists - could be dtd
-            } else {
+        Schema schema = registry.getSchemas().get(name);
+
+        if (schema == null)
+            throw new IllegalArgumentException("Schema not registered : " + name);
+
+        String nsUri = schema.getMetadataSchema().getPrimeNS();
+        String schemaLoc = schema.getSchemaLocation();
+        Path schemaFile = schema.getDir().resolve("schema.xsd");
+
+        if (schemaLoc.equals("")) {
+            if (Files.exists(schemaFile)) { // build one
+                String schemaUrl = getSchemaUrl(context, name);
                 if (nsUri == null || nsUri.equals("")) {
-                    out = new Attribute("noNamespaceSchemaLocation", schemaLoc, Geonet.Namespaces.XSI);
+                    out = new Attribute("noNamespaceSchemaLocation", schemaUrl, Geonet.Namespaces.XSI);
                 } else {
+                    schemaLoc = nsUri + " " + schemaUrl;
                     out = new Attribute("schemaLocation", schemaLoc, Geonet.Namespaces.XSI);
                 }
+            } // else return null - no schema xsd exists - could be dtd
+        } else {
+            if (nsUri == null || nsUri.equals("")) {
+                out = new Attribute("noNamespaceSchemaLocation", schemaLoc, Geonet.Namespaces.XSI);
+            } else {
+                out = new Attribute("schemaLocation", schemaLoc, Geonet.Namespaces.XSI);
             }
-            return out;
-        } finally {
-            afterRead();
         }
+        return out;
     }
 
     /**
@@ -453,18 +414,13 @@ public class SchemaManager {
      */
     public Path getSchemaTemplatesDir(String name) {
 
-        beforeRead();
-        try {
-            Path dir = getSchemaDir(name);
+        Path dir = getSchemaDir(name);
 
-            dir = dir.resolve("templates");
-            if (!Files.exists(dir)) {
-                return null;
-            }
-            return dir;
-        } finally {
-            afterRead();
+        dir = dir.resolve("templates");
+        if (!Files.exists(dir)) {
+            return null;
         }
+        return dir;
     }
 
     /**
@@ -474,18 +430,13 @@ public class SchemaManager {
      */
     public Path getSchemaSampleDataDir(String name) {
 
-        beforeRead();
-        try {
-            Path dir = getSchemaDir(name);
+        Path dir = getSchemaDir(name);
 
-            dir = dir.resolve("sample-data");
-            if (!Files.exists(dir)) {
-                return null;
-            }
-            return dir;
-        } finally {
-            afterRead();
+        dir = dir.resolve("sample-data");
+        if (!Files.exists(dir)) {
+            return null;
         }
+        return dir;
     }
 
     /**
@@ -495,16 +446,11 @@ public class SchemaManager {
      */
     public Path getSchemaCSWPresentDir(String name) {
 
-        beforeRead();
-        try {
-            Path dir = getSchemaDir(name);
+        Path dir = getSchemaDir(name);
 
-            dir = dir.resolve("present").resolve("csw");
+        dir = dir.resolve("present").resolve("csw");
 
-            return dir;
-        } finally {
-            afterRead();
-        }
+        return dir;
     }
 
     /**
@@ -514,17 +460,12 @@ public class SchemaManager {
      */
     public Map<String, XmlFile> getSchemaInfo(String name) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
-            if (schema == null)
-                throw new IllegalArgumentException("Schema not registered : " + name);
+        if (schema == null)
+            throw new IllegalArgumentException("Schema not registered : " + name);
 
-            return schema.getInfo();
-        } finally {
-            afterRead();
-        }
+        return schema.getInfo();
     }
 
     /**
@@ -532,12 +473,7 @@ public class SchemaManager {
      */
     public Set<String> getSchemas() {
 
-        beforeRead();
-        try {
-            return hmSchemas.keySet();
-        } finally {
-            afterRead();
-        }
+        return registry.getSchemas().keySet();
     }
 
     /**
@@ -548,18 +484,13 @@ public class SchemaManager {
      */
     public List<Element> getConversionElements(String name) throws Exception {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
-            List<Element> childs = schema.getConversionElements();
-            List<Element> dChilds = new ArrayList<>();
-            for (Element child : childs) {
-                if (child != null) dChilds.add((Element) child.clone());
-            }
-            return dChilds;
-        } finally {
-            afterRead();
+        Schema schema = registry.getSchemas().get(name);
+        List<Element> childs = schema.getConversionElements();
+        List<Element> dChilds = new ArrayList<>();
+        for (Element child : childs) {
+            if (child != null) dChilds.add((Element) child.clone());
         }
+        return dChilds;
     }
 
     /**
@@ -574,23 +505,18 @@ public class SchemaManager {
 
         List<Path> result = new ArrayList<>();
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
-            List<Element> converterElems = schema.getConversionElements();
-            for (Element elem : converterElems) {
-                String nsUri = elem.getAttributeValue("nsUri");
-                if (nsUri != null && nsUri.equals(namespaceUri)) {
-                    String xslt = elem.getAttributeValue("xslt");
-                    if (xslt != null) {
-                        result.add(schema.getDir().resolve(xslt));
-                    }
+        Schema schema = registry.getSchemas().get(name);
+        List<Element> converterElems = schema.getConversionElements();
+        for (Element elem : converterElems) {
+            String nsUri = elem.getAttributeValue("nsUri");
+            if (nsUri != null && nsUri.equals(namespaceUri)) {
+                String xslt = elem.getAttributeValue("xslt");
+                if (xslt != null) {
+                    result.add(schema.getDir().resolve(xslt));
                 }
             }
-            return result;
-        } finally {
-            afterRead();
         }
+        return result;
     }
 
     /**
@@ -600,12 +526,7 @@ public class SchemaManager {
      */
     public boolean existsSchema(String name) {
 
-        beforeRead();
-        try {
-            return hmSchemas.containsKey(name);
-        } finally {
-            afterRead();
-        }
+        return registry.getSchemas().containsKey(name);
     }
 
 
@@ -616,13 +537,10 @@ public class SchemaManager {
      */
     public void deletePluginSchema(String name) throws Exception {
 
-        beforeWrite();
-        try {
+        synchronized (writeLock) {
             boolean doDependencies = true;
             realDeletePluginSchema(name, doDependencies);
 
-        } finally {
-            afterWrite();
         }
     }
 
@@ -633,17 +551,12 @@ public class SchemaManager {
      */
     public SchemaSuggestions getSchemaSuggestions(String name) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
-            if (schema == null)
-                throw new IllegalArgumentException("Schema suggestions not registered : " + name);
+        if (schema == null)
+            throw new IllegalArgumentException("Schema suggestions not registered : " + name);
 
-            return schema.getSuggestions();
-        } finally {
-            afterRead();
-        }
+        return schema.getSuggestions();
     }
 
     /**
@@ -654,18 +567,13 @@ public class SchemaManager {
      */
     public String getNamespaceURI(String name, String prefix) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
-            if (schema == null)
-                throw new IllegalArgumentException("Schema not registered : " + name);
+        if (schema == null)
+            throw new IllegalArgumentException("Schema not registered : " + name);
 
-            MetadataSchema mds = schema.getMetadataSchema();
-            return mds.getNS(prefix);
-        } finally {
-            afterRead();
-        }
+        MetadataSchema mds = schema.getMetadataSchema();
+        return mds.getNS(prefix);
     }
 
     /**
@@ -676,24 +584,19 @@ public class SchemaManager {
      */
     public String getNamespaceString(String name) {
 
-        beforeRead();
-        try {
-            Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
-            if (schema == null)
-                throw new IllegalArgumentException("Schema not registered : " + name);
+        if (schema == null)
+            throw new IllegalArgumentException("Schema not registered : " + name);
 
-            MetadataSchema mds = schema.getMetadataSchema();
-            StringBuilder sb = new StringBuilder();
-            for (Namespace ns : mds.getSchemaNS()) {
-                if (ns.getPrefix().length() != 0 && ns.getURI().length() != 0) {
-                    sb.append("xmlns:" + ns.getPrefix() + "=\"" + ns.getURI() + "\" ");
-                }
+        MetadataSchema mds = schema.getMetadataSchema();
+        StringBuilder sb = new StringBuilder();
+        for (Namespace ns : mds.getSchemaNS()) {
+            if (ns.getPrefix().length() != 0 && ns.getURI().length() != 0) {
+                sb.append("xmlns:" + ns.getPrefix() + "=\"" + ns.getURI() + "\" ");
             }
-            return sb.toString().trim();
-        } finally {
-            afterRead();
         }
+        return sb.toString().trim();
     }
 
     /**
@@ -715,66 +618,65 @@ public class SchemaManager {
      */
     public String autodetectSchema(Element md, String defaultSchema) throws SchemaMatchConflictException, NoSchemaMatchesException {
 
-        beforeRead();
-        try {
-            String schema;
+        String schema;
 
-            // -- check the autodetect elements for all schemas with the most
-            // -- specific test first, then in order of increasing generality,
-            // -- first match wins
-            schema = compareElementsAndAttributes(md, MODE_ATTRIBUTEWITHVALUE);
-            if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(attributes) examination");
-            }
+        // -- the autodetect elements compiled for the registered schemas
+        SchemaAutodetector autodetector = registry.getAutodetector();
+        SchemaAutodetector.RecordElements recordElements = autodetector.getRecordElements(md);
 
-            if (schema == null) {
-                schema = compareElementsAndAttributes(md, MODE_NEEDLEWITHVALUE);
-                if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                    Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(elements with value) examination");
-                }
-            }
+        // -- check the autodetect elements for all schemas with the most
+        // -- specific test first, then in order of increasing generality,
+        // -- first match wins
+        schema = autodetector.match(md, SchemaAutodetector.MODE_ATTRIBUTEWITHVALUE, recordElements);
+        if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+            Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(attributes) examination");
+        }
 
-            if (schema == null) {
-                schema = compareElementsAndAttributes(md, MODE_NEEDLE);
-                if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                    Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(elements) examination");
-                }
+        if (schema == null) {
+            schema = autodetector.match(md, SchemaAutodetector.MODE_NEEDLEWITHVALUE, recordElements);
+            if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(elements with value) examination");
             }
+        }
 
-            if (schema == null) {
-                schema = compareElementsAndAttributes(md, MODE_ROOT);
-                if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                    Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(elements with root) examination");
-                }
+        if (schema == null) {
+            schema = autodetector.match(md, SchemaAutodetector.MODE_NEEDLE, recordElements);
+            if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(elements) examination");
             }
+        }
 
-            if (schema == null) {
-                schema = compareElementsAndAttributes(md, MODE_NAMESPACE);
-                if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                    Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(namespaces) examination");
-                }
+        if (schema == null) {
+            schema = autodetector.match(md, SchemaAutodetector.MODE_ROOT, recordElements);
+            if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(elements with root) examination");
             }
+        }
 
-            // -- If nothing has matched by this point choose defaultSchema supplied
-            // -- as argument to this method as long as its reasonable
-            if (schema == null && defaultSchema != null) {
-                String defaultSchemaOrDependencySchema = checkNamespace(md, defaultSchema);
-                if (defaultSchemaOrDependencySchema != null) {
-                    Log.warning(Geonet.SCHEMA_MANAGER, "  Autodetecting schema failed for " + md.getName() + " in namespace " + md.getNamespace()
-                        + ". Using default schema or one of its dependency: " + defaultSchemaOrDependencySchema);
-                    schema = defaultSchemaOrDependencySchema;
-                }
+        if (schema == null) {
+            schema = autodetector.match(md, SchemaAutodetector.MODE_NAMESPACE, recordElements);
+            if (schema != null && Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
+                Log.debug(Geonet.SCHEMA_MANAGER, "  => Found schema " + schema + " using AUTODETECT(namespaces) examination");
             }
+        }
 
-            // -- if the default schema failed then throw an exception
-            if (schema == null) {
-                throw new NoSchemaMatchesException("Autodetecting schema failed for metadata record with root element " + md.getName() + " in namespace " + md.getNamespace() + ".");
+        // -- If nothing has matched by this point choose defaultSchema supplied
+        // -- as argument to this method as long as its reasonable
+        if (schema == null && defaultSchema != null) {
+            String defaultSchemaOrDependencySchema = checkNamespace(md, defaultSchema);
+            if (defaultSchemaOrDependencySchema != null) {
+                Log.warning(Geonet.SCHEMA_MANAGER, "  Autodetecting schema failed for " + md.getName() + " in namespace " + md.getNamespace()
+                    + ". Using default schema or one of its dependency: " + defaultSchemaOrDependencySchema);
+                schema = defaultSchemaOrDependencySchema;
             }
+        }
 
-            return schema;
-        } finally {
-            afterRead();
+        // -- if the default schema failed then throw an exception
+        if (schema == null) {
+            throw new NoSchemaMatchesException("Autodetecting schema failed for metadata record with root element " + md.getName() + " in namespace " + md.getNamespace() + ".");
         }
+
+        return schema;
     }
 
     //--------------------------------------------------------------------------
@@ -804,7 +706,7 @@ public class SchemaManager {
                     // Check if the metadata could match a schema dependency
                     // (If preferredSchema is an ISO profil a fragment or subtemplate
                     // may match ISO core schema and should not be rejected).
-                    Schema sch = hmSchemas.get(schema);
+                    Schema sch = registry.getSchemas().get(schema);
                     List<Element> dependsList = sch.getDependElements();
                     for (Element depends : dependsList) {
                         if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
@@ -822,47 +724,22 @@ public class SchemaManager {
     }
 
 
-    /**
-     * Invoked just before reading, waits until reading is allowed.
-     */
-    private synchronized void beforeRead() {
-        while (activeWriters > 0) {
-            try {
-                wait();
-            } catch (InterruptedException iex) {
-                // TODO what to do
-            }
+    private void addToRegistry(String name, Schema schema) {
+        synchronized (writeLock) {
+            Map<String, Schema> schemas = new HashMap<>(registry.getSchemas());
+            schemas.put(name, schema);
+            registry = new SchemaRegistry(schemas);
         }
-        ++activeReaders;
     }
 
-    /**
-     * Invoked just after reading.
-     */
-    private synchronized void afterRead() {
-        --activeReaders;
-        notifyAll();
-    }
-
-    /**
-     * Invoked just before writing, waits until writing is allowed.
-     */
-    private synchronized void beforeWrite() {
-        while (activeReaders > 0 || activeWriters > 0) {
-            try {
-                wait();
-            } catch (InterruptedException iex) {
+    private void removeFromRegistry(String name) {
+        synchronized (writeLock) {
+            if (registry.getSchemas().containsKey(name)) {
+                Map<String, Schema> schemas = new HashMap<>(registry.getSchemas());
+                schemas.remove(name);
+                registry = new SchemaRegistry(schemas);
             }
         }
-        ++activeWriters;
-    }
-
-    /**
-     * Invoked just after writing.
-     */
-    private synchronized void afterWrite() {
-        --activeWriters;
-        notifyAll();
     }
 
     /**
@@ -873,7 +750,7 @@ public class SchemaManager {
      */
     private void realDeletePluginSchema(String name, boolean doDependencies) throws Exception {
 
-        Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
         if (schema != null) {
             if (doDependencies) {
                 List<String> dependsOnMe = getSchemasThatDependOnMe(name);
@@ -908,13 +785,13 @@ public class SchemaManager {
             processSchema(applicationContext, schemaDir, schemaPluginCatRoot);
 
             // -- check that dependent schemas are already loaded
-            Schema schema = hmSchemas.get(name);
+            Schema schema = registry.getSchemas().get(name);
             checkDepends(name, schema.getDependElements());
 
             writeSchemaPluginCatalog(schemaPluginCatRoot);
         } catch (Exception e) {
             Log.error(Geonet.SCHEMA_MANAGER, e.getMessage(), e);
-            hmSchemas.remove(name);
+            removeFromRegistry(name);
             IO.deleteFileOrDirectory(schemaDir);
             throw new OperationAbortedEx("Failed to add schema " + name + " : " + e.getMessage(), e);
         }
@@ -1035,13 +912,15 @@ public class SchemaManager {
     /**
      * Reload a schema.
      *
-     * Compile validation rules (conversion from SCH to XSL).
+     * Compile validation rules (conversion from SCH to XSL) and remove
+     * the compiled XML schemas from the validation cache.
      *
      * @param schemaIdentifier The schema identifier.
      */
     public void reloadSchema(String schemaIdentifier) {
         MetadataSchema metadataSchema = this.getSchema(schemaIdentifier);
         metadataSchema.loadSchematronRules(basePath);
+        Xml.clearSchemaCache(getSchemaDir(schemaIdentifier));
     }
 
 
@@ -1238,7 +1117,8 @@ public class SchemaManager {
         schema.setConversionElements(convElems);
         schema.setDependElements(dependElems);
 
-        hmSchemas.put(name, schema);
+        addToRegistry(name, schema);
+        Xml.clearSchemaCache(schemaDir);
     }
 
     /**
@@ -1248,10 +1128,11 @@ public class SchemaManager {
      * @param name schema name
      */
     private void removeSchemaInfo(String name) throws Exception {
-        Schema schema = hmSchemas.get(name);
+        Schema schema = registry.getSchemas().get(name);
 
         removeSchemaDir(schema.getDir(), name);
-        hmSchemas.remove(name);
+        removeFromRegistry(name);
+        Xml.clearSchemaCache(schema.getDir());
 
         Element schemaPluginCatRoot = getSchemaPluginCatalog();
         schemaPluginCatRoot = deleteSchemaFromPluginCatalog(name, schemaPluginCatRoot);
@@ -1312,7 +1193,7 @@ public class SchemaManager {
             Xml.validate(root);
 
             final String schemaName = schemasDir.getFileName().toString();
-            if (hmSchemas.containsKey(schemaName)) { // exists so ignore it
+            if (registry.getSchemas().containsKey(schemaName)) { // exists so ignore it
                 Log.error(Geonet.SCHEMA_MANAGER, "Schema " + schemaName + " already exists - cannot add!");
             } else {
                 stage = "adding the schema information";
@@ -1335,7 +1216,7 @@ public class SchemaManager {
         List<String> removes = new ArrayList<>();
 
         // process each schema to see whether its dependencies are present
-        for (Map.Entry<String, Schema> schemaInfo : hmSchemas.entrySet()) {
+        for (Map.Entry<String, Schema> schemaInfo : registry.getSchemas().entrySet()) {
             Schema schema = schemaInfo.getValue();
             try {
                 checkDepends(schemaInfo.getKey(), schema.getDependElements());
@@ -1348,7 +1229,7 @@ public class SchemaManager {
 
         // now remove any that failed the dependency test
         for (String removeSchema : removes) {
-            hmSchemas.remove(removeSchema);
+            removeFromRegistry(removeSchema);
             deleteSchemaFromPluginCatalog(removeSchema, schemaPluginCatRoot);
         }
 
@@ -1363,7 +1244,7 @@ public class SchemaManager {
         Version appVersion = Version.parseVersionNumber(version);
 
         // process each schema to see whether its dependencies are present
-        for (Map.Entry<String, Schema> schemaInfo : hmSchemas.entrySet()) {
+        for (Map.Entry<String, Schema> schemaInfo : registry.getSchemas().entrySet()) {
             Schema schema = schemaInfo.getValue();
             String minorAppVersionSupported = schema.getMetadataSchema().getAppMinorVersionSupported();
 
@@ -1393,7 +1274,7 @@ public class SchemaManager {
 
         // now remove any that failed the app version test
         for (String removeSchema : removes) {
-            hmSchemas.remove(removeSchema);
+            removeFromRegistry(removeSchema);
             deleteSchemaFromPluginCatalog(removeSchema, schemaPluginCatRoot);
         }
 
@@ -1412,7 +1293,7 @@ public class SchemaManager {
         List<String> myDepends = new ArrayList<>();
 
         // process each schema to see whether its dependencies are present
-        for (Map.Entry<String, Schema> schemaInfoToTest : hmSchemas.entrySet()) {
+        for (Map.Entry<String, Schema> schemaInfoToTest : registry.getSchemas().entrySet()) {
             if (schemaInfoToTest.getKey().equals(schemaName)) continue;
 
             Schema schema = schemaInfoToTest.getValue();
@@ -1438,7 +1319,7 @@ public class SchemaManager {
         for (Element depends : dependsList) {
             String schema = depends.getText();
             if (StringUtils.isNotBlank(schema)) {
-                if (!hmSchemas.containsKey(schema)) {
+                if (!registry.getSchemas().containsKey(schema)) {
                     throw new IllegalArgumentException("Schema " + thisSchema + " depends on " + schema + ", but that schema is not loaded");
                 }
             }
@@ -1615,235 +1496,6 @@ public class SchemaManager {
         return schemaLocElem.getTextNormalize();
     }
 
-    /**
-     * Search all available schemas for one which contains the element(s) or attributes specified in
-     * the autodetect info.
-     *
-     * @param md the XML record whose schema we are trying to find
-     */
-    private String compareElementsAndAttributes(Element md, int mode) throws SchemaMatchConflictException {
-        String returnVal = null;
-        Set<String> allSchemas = getSchemas();
-        List<String> matches = new ArrayList<>();
-
-        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-            Log.debug(Geonet.SCHEMA_MANAGER, "Schema autodetection starting on " + md.getName() + " (Namespace: " + md.getNamespace() + ") using mode: " + mode + "...");
-        }
-
-        for (String schemaName : allSchemas) {
-            if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER))
-                Log.debug(Geonet.SCHEMA_MANAGER, "	Doing schema " + schemaName);
-            Schema schema = hmSchemas.get(schemaName);
-            List<Element> adElems = schema.getAutodetectElements();
-
-            for (Element elem : adElems) {
-                if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                    Log.debug(Geonet.SCHEMA_MANAGER, "		Checking autodetect element " + Xml.getString(elem) + " with name " + elem.getName());
-                }
-
-                @SuppressWarnings("unchecked")
-                List<Element> elemKids = elem.getChildren();
-                boolean match = false;
-
-                Attribute type = elem.getAttribute("type");
-
-                // --- try and find the attribute and value in md
-                if (mode == MODE_ATTRIBUTEWITHVALUE && elem.getName().equals("attributes")) {
-                    @SuppressWarnings("unchecked")
-                    List<Attribute> atts = elem.getAttributes();
-                    for (Attribute searchAtt : atts) {
-                        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                            Log.debug(Geonet.SCHEMA_MANAGER, "				Finding attribute " + searchAtt.toString());
-                        }
-
-                        if (isMatchingAttributeInMetadata(searchAtt, md)) {
-                            match = true;
-                        } else {
-                            match = false;
-                            break;
-                        }
-                    }
-
-                    // --- try and find the namespace in md
-                } else if (mode == MODE_NAMESPACE && elem.getName().equals("namespaces")) {
-                    @SuppressWarnings("unchecked")
-                    List<Namespace> nss = elem.getAdditionalNamespaces();
-                    for (Namespace ns : nss) {
-                        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                            Log.debug(Geonet.SCHEMA_MANAGER, "				Finding namespace " + ns.toString());
-                        }
-
-                        if (isMatchingNamespaceInMetadata(ns, md)) {
-                            match = true;
-                        } else {
-                            match = false;
-                            break;
-                        }
-                    }
-                } else {
-                    for (Element kid : elemKids) {
-
-                        // --- is the kid the same as the root of the md
-                        if (mode == MODE_ROOT && type != null && "root".equals(type.getValue())) {
-                            if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                                Log.debug(Geonet.SCHEMA_MANAGER, "				Comparing " + Xml.getString(kid) + " with " + md.getName() + " with namespace " + md.getNamespace() + " : " + (kid.getName().equals(md.getName()) && kid.getNamespace().equals(md.getNamespace())));
-                            }
-                            if (kid.getName().equals(md.getName()) &&
-                                kid.getNamespace().equals(md.getNamespace())) {
-                                match = true;
-                                break;
-                            } else {
-                                match = false;
-                            }
-                            // --- try and find the kid in the md (kid only, not value)
-                        } else if (mode == MODE_NEEDLE && type != null && "search".equals(type.getValue())) {
-                            if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                                Log.debug(Geonet.SCHEMA_MANAGER, "				Comparing " + Xml.getString(kid) + " with " + md.getName() + " with namespace " + md.getNamespace() + " : " + (kid.getName().equals(md.getName()) && kid.getNamespace().equals(md.getNamespace())));
-                            }
-
-                            if (isMatchingElementInMetadata(kid, md, false)) {
-                                match = true;
-                            } else {
-                                match = false;
-                                break;
-                            }
-                            // --- try and find the kid in the md (kid + value)
-                        } else if (mode == MODE_NEEDLEWITHVALUE) {
-                            if (isMatchingElementInMetadata(kid, md, true)) {
-                                match = true;
-                            } else {
-                                match = false;
-                                break;
-                            }
-                        }
-                    }
-                }
-                if (match && (!matches.contains(schemaName))) matches.add(schemaName);
-            }
-        }
-
-        if (matches.size() > 1) {
-            throw new SchemaMatchConflictException("Metadata record with " + md.getName() + " (Namespace " + md.getNamespace() + " matches more than one schema - namely: " + matches.toString() + " - during schema autodetection mode " + mode);
-        } else if (matches.size() == 1) {
-            returnVal = matches.get(0);
-        }
-
-        return returnVal;
-    }
-
-    /**
-     * This method searches an entire metadata file for an attribute that matches the "needle"
-     * metadata attribute arg - A matching attribute has the same name and value.
-     *
-     * @param needle   the XML attribute we are trying to find
-     * @param haystack the XML metadata record we are searching
-     */
-    private boolean isMatchingAttributeInMetadata(Attribute needle, Element haystack) {
-        boolean returnVal = false;
-        @SuppressWarnings("unchecked")
-        Iterator<Element> haystackIterator = haystack.getDescendants(new ElementFilter());
-
-        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-            Log.debug(Geonet.SCHEMA_MANAGER, "Matching " + needle.toString());
-        }
-
-        while (haystackIterator.hasNext()) {
-            Element tempElement = haystackIterator.next();
-            Attribute tempAtt = tempElement.getAttribute(needle.getName());
-            if (tempAtt.equals(needle)) {
-                returnVal = true;
-                break;
-            }
-        }
-        return returnVal;
-    }
-
-    /**
-     * This method searches all elements of a metadata for a namespace that matches the "needle"
-     * namespace arg. (Note: matching namespaces have the same URI, prefix is ignored).
-     *
-     * @param needle   the XML namespace we are trying to find
-     * @param haystack the XML metadata record we are searching
-     */
-    private boolean isMatchingNamespaceInMetadata(Namespace needle, Element haystack) {
-        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-            Log.debug(Geonet.SCHEMA_MANAGER, "Matching " + needle.toString());
-        }
-
-        if (checkNamespacesOnElement(needle, haystack)) return true;
-
-        @SuppressWarnings("unchecked")
-        Iterator<Element> haystackIterator = haystack.getDescendants(new ElementFilter());
-        while (haystackIterator.hasNext()) {
-            Element tempElement = haystackIterator.next();
-            if (checkNamespacesOnElement(needle, tempElement)) return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * This method searches an elements and its namespaces for a match with an input namespace.
-     *
-     * @param ns   the XML namespace we are trying to find
-     * @param elem the XML metadata element whose namespaces are to be searched
-     */
-    private boolean checkNamespacesOnElement(Namespace ns, Element elem) {
-        if (elem.getNamespace().equals(ns)) return true;
-        @SuppressWarnings("unchecked")
-        List<Namespace> nss = elem.getAdditionalNamespaces();
-        for (Namespace ans : nss) {
-            if (ans.equals(ns)) return true;
-        }
-        return false;
-    }
-
-    /**
-     * This method searches an entire metadata file for an element that matches the "needle"
-     * metadata element arg - A matching element has the same name, namespace and value.
-     *
-     * @param needle     the XML element we are trying to find
-     * @param haystack   the XML metadata record we are searching
-     * @param checkValue compare the value of the needle with the value of the element we find in
-     *                   the md
-     */
-    private boolean isMatchingElementInMetadata(Element needle, Element haystack, boolean checkValue) {
-        boolean returnVal = false;
-        @SuppressWarnings("unchecked")
-        Iterator<Element> haystackIterator = haystack.getDescendants(new ElementFilter());
-
-        String needleName = needle.getName();
-        Namespace needleNS = needle.getNamespace();
-        if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER))
-            Log.debug(Geonet.SCHEMA_MANAGER, "Matching " + Xml.getString(needle));
-
-        while (haystackIterator.hasNext()) {
-            Element tempElement = haystackIterator.next();
-
-            if (tempElement.getName().equals(needleName) && tempElement.getNamespace().equals(needleNS)) {
-                if (checkValue) {
-                    if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                        Log.debug(Geonet.SCHEMA_MANAGER, "  Searching value for element: " + tempElement.getName());
-                    }
-
-                    String needleVal = StringUtils.deleteWhitespace(needle.getValue());
-                    String tempVal = StringUtils.deleteWhitespace(tempElement.getValue());
-                    returnVal = Pattern.matches(needleVal, tempVal);
-                    if (Log.isDebugEnabled(Geonet.SCHEMA_MANAGER)) {
-                        Log.debug(Geonet.SCHEMA_MANAGER, "    Pattern " + needleVal + " applied to value " + tempVal + " match: " + returnVal);
-                    }
-                    if (returnVal) {
-                        break;
-                    }
-                } else {
-                    returnVal = true;
-                    break;
-                }
-            }
-        }
-        return returnVal;
-    }
-
     /**
      * This method deletes all the files and directories inside another the schema dir and then the
      * schema dir itself.
@@ -1953,4 +1605,25 @@ public class SchemaManager {
         }
         return listOfTypenames;
     }
+
+    /**
+     * The registered schemas and their autodetect elements. Never modified once created.
+     */
+    private static final class SchemaRegistry {
+        private final Map<String, Schema> schemas;
+        private final SchemaAutodetector autodetector;
+
+        private SchemaRegistry(Map<String, Schema> schemas) {
+            this.schemas = Collections.unmodifiableMap(new HashMap<>(schemas));
+            this.autodetector = new SchemaAutodetector(this.schemas);
+        }
+
+        Map<String, Schema> getSchemas() {
+            return schemas;
+        }
+
+        SchemaAutodetector getAutodetector() {
+            return autodetector;
+        }
+    }
 }
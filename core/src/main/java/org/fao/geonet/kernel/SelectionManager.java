@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2001-2024 Food and Agriculture Organization of the
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
  * United Nations (FAO-UN), United Nations World Food Programme (WFP)
  * and United Nations Environment Programme (UNEP)
  *
@@ -23,10 +23,10 @@
 
 package org.fao.geonet.kernel;
 
-import co.elastic.clients.elasticsearch.core.SearchResponse;
-import co.elastic.clients.elasticsearch.core.search.Hit;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 
@@ -35,40 +35,54 @@ import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Edit;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.constants.Params;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.domain.Pair;
 import org.fao.geonet.kernel.search.EsSearchManager;
-import org.fao.geonet.kernel.setting.SettingInfo;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
 
-import static org.fao.geonet.kernel.search.EsSearchManager.FIELDLIST_UUID;
-
 /**
  * Manage objects selection for a user session.
+ *
+ * A selection is a {@link MetadataSelection} of the internal ids of the selected records,
+ * the UUIDs used by the API are converted to ids when the selection is updated and
+ * back to UUIDs when it is read. Only the approved version of a record is selected,
+ * the services processing a selection also process the working copy of a selected record.
  */
 public class SelectionManager {
     public static final String SELECTION_METADATA = "metadata";
     // Bucket name used in the search UI to store the selected the metadata
     public static final String SELECTION_BUCKET = "s101";
-    // used to limit select all if get system setting maxrecords fails or contains value we can't parse
-    public static final int DEFAULT_MAXHITS = 1000;
     public static final String ADD_ALL_SELECTED = "add-all";
     public static final String REMOVE_ALL_SELECTED = "remove-all";
     public static final String ADD_SELECTED = "add";
     public static final String REMOVE_SELECTED = "remove";
     public static final String CLEAR_ADD_SELECTED = "clear-add";
-    private Hashtable<String, Set<String>> selections;
+    // Keep only the selected records matching the last search
+    public static final String INTERSECT_SELECTED = "intersect";
 
-    private SelectionManager() {
-        selections = new Hashtable<>(0);
+    // Number of documents read by request when selecting all the records of a search
+    private static final int SELECT_ALL_PAGE_SIZE = 1000;
+    // Number of UUIDs or ids converted by database query
+    private static final int RESOLVE_CHUNK_SIZE = 500;
+    private static final Set<String> SELECT_ALL_FIELDS =
+        ImmutableSet.of(Geonet.IndexFieldNames.ID, Geonet.IndexFieldNames.DRAFT);
+
+    private final Map<String, MetadataSelection> selections = new ConcurrentHashMap<>();
 
-        Set<String> MDSelection = Collections
-            .synchronizedSet(new HashSet<>(0));
-        selections.put(SELECTION_METADATA, MDSelection);
+    private SelectionManager() {
+        selections.put(SELECTION_METADATA, new MetadataSelection());
     }
 
 
@@ -93,32 +107,33 @@ public class SelectionManager {
         @SuppressWarnings("unchecked")
         List<Element> elList = result.getChildren();
 
-        Set<String> selection = manager.getSelection(bucket);
+        MetadataSelection selection = manager.getSelection(bucket);
 
+        Map<Element, String> uuidByInfo = new LinkedHashMap<>();
         for (Element element : elList) {
             if (element.getName().equals(Geonet.Elem.SUMMARY)) {
                 continue;
             }
             Element info = element.getChild(Edit.RootChild.INFO,
                 Edit.NAMESPACE);
-            String uuid = info.getChildText(Edit.Info.Elem.UUID);
-            if (selection.contains(uuid)) {
-                info.addContent(new Element(Edit.Info.Elem.SELECTED)
-                    .setText("true"));
-            } else {
-                info.addContent(new Element(Edit.Info.Elem.SELECTED)
-                    .setText("false"));
-            }
+            uuidByInfo.put(info, info.getChildText(Edit.Info.Elem.UUID));
+        }
+
+        Map<String, Integer> ids = resolveIds(uuidByInfo.values());
+        for (Map.Entry<Element, String> entry : uuidByInfo.entrySet()) {
+            Integer id = ids.get(entry.getValue());
+            entry.getKey().addContent(new Element(Edit.Info.Elem.SELECTED)
+                .setText(Boolean.toString(id != null && selection.contains(id))));
         }
-        result.setAttribute(Edit.Info.Elem.SELECTED,
-            selection == null ? "0" : Integer.toString(selection.size()));
+        result.setAttribute(Edit.Info.Elem.SELECTED, Integer.toString(selection.size()));
     }
 
     /**
      * <p> Updates selected element in session. <ul> <li>[selected=add] : add selected element</li>
      * <li>[selected=remove] : remove non selected element</li> <li>[selected=add-all] : select all
      * elements</li> <li>[selected=remove-all] : clear the selection</li> <li>[selected=clear-add] :
-     * clear the selection and add selected element</li> <li>[selected=status] : number of selected
+     * clear the selection and add selected element</li> <li>[selected=intersect] : keep the
+     * selected elements matching the last search</li> <li>[selected=status] : number of selected
      * elements</li> </ul> </p>
      *
      * @param type    The type of selected element handled in session
@@ -171,7 +186,7 @@ public class SelectionManager {
      *
      * @param type              The type of selected element handled in session
      * @param selected          true, false, single, all, none
-     * @param listOfIdentifiers Array of UUIDs
+     * @param listOfIdentifiers Array of UUIDs, UUIDs of records not in the catalog are ignored
      * @return number of selected element
      */
     public int updateSelection(String type,
@@ -181,76 +196,79 @@ public class SelectionManager {
                                UserSession session) {
 
         // Get the selection manager or create it
-        Set<String> selection = this.getSelection(type);
-        if (selection == null) {
-            selection = Collections.synchronizedSet(new HashSet<>());
-            this.selections.put(type, selection);
-        }
+        MetadataSelection selection = this.getSelection(type);
 
         if (selected != null) {
             if (selected.equals(ADD_ALL_SELECTED))
                 this.selectAll(type, context, session);
             else if (selected.equals(REMOVE_ALL_SELECTED))
                 this.close(type);
+            else if (selected.equals(INTERSECT_SELECTED))
+                this.intersect(type, context, session);
             else if (selected.equals(ADD_SELECTED) && !listOfIdentifiers.isEmpty()) {
                 // TODO ? Should we check that the element exist first ?
-                selection.addAll(listOfIdentifiers);
+                selection.or(toIds(listOfIdentifiers));
             } else if (selected.equals(REMOVE_SELECTED) && !listOfIdentifiers.isEmpty()) {
-                for (String paramid : listOfIdentifiers) {
-                    selection.remove(paramid);
-                }
+                selection.andNot(toIds(listOfIdentifiers));
             } else if (selected.equals(CLEAR_ADD_SELECTED) && !listOfIdentifiers.isEmpty()) {
-                this.close(type);
-                selection.addAll(listOfIdentifiers);
+                selection.set(toIds(listOfIdentifiers));
             }
         }
 
-        // Remove empty/null element from the selection
-        selection.removeIf(Objects::isNull);
-
         return selection.size();
     }
 
     /**
      * <p> Selects all element in the last search
      * which is stored in session based on the bucket name.
-     * Sends the query with a max hits and build a collection of UUIDs.</p>
+     * All the records matching the query are read with a point in time search.</p>
      */
     public void selectAll(String type, ServiceContext context, UserSession session) {
-        Set<String> selection = selections.get(type);
-        int maxhits = DEFAULT_MAXHITS;
-        SettingInfo settingInfo = ApplicationContextHolder.get().getBean(SettingInfo.class);
-        try {
-            maxhits = Integer.parseInt(settingInfo.getSelectionMaxRecords());
-        } catch (Exception e) {
-            Log.error(Geonet.GEONETWORK, "Select all - invalid max hits value, error: " + e.getMessage(), e);
-        }
+        MetadataSelection selection = getSelection(type);
+        BitSet ids = searchIds(type, context, session);
+        selection.set(ids == null ? new BitSet() : ids);
+    }
 
-        if (selection != null) {
-            selection.clear();
+    /**
+     * <p> Keeps only the selected elements matching the last search
+     * which is stored in session based on the bucket name.</p>
+     */
+    public void intersect(String type, ServiceContext context, UserSession session) {
+        BitSet ids = searchIds(type, context, session);
+        if (ids != null) {
+            getSelection(type).and(ids);
         }
+    }
 
-        if (StringUtils.isNotEmpty(type)) {
-            JsonNode request = (JsonNode) session.getProperty(Geonet.Session.SEARCH_REQUEST + type);
-            if (request != null) {
-                final SearchResponse searchResponse;
-                try {
-                    EsSearchManager searchManager = context.getBean(EsSearchManager.class);
-                    searchResponse = searchManager.query(request.get("query"), FIELDLIST_UUID, 0, maxhits);
-                    List<String> uuidList = new ArrayList<>();
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    for (Hit h : (List<Hit>) searchResponse.hits().hits()) {
-                        uuidList.add((String) objectMapper.convertValue(h.source(), Map.class).get(Geonet.IndexFieldNames.UUID));
-                    }
-
-                    if (selection != null) {
-                        selection.addAll(uuidList);
+    /**
+     * @return the ids of the approved records matching the last search of the bucket,
+     * null if there is no search or if the search failed.
+     */
+    private BitSet searchIds(String type, ServiceContext context, UserSession session) {
+        if (StringUtils.isEmpty(type)) {
+            return null;
+        }
+        JsonNode request = (JsonNode) session.getProperty(Geonet.Session.SEARCH_REQUEST + type);
+        if (request == null) {
+            return null;
+        }
+        try {
+            EsSearchManager searchManager = context.getBean(EsSearchManager.class);
+            BitSet ids = new BitSet();
+            searchManager.forEachDocument(request.get("query"), SELECT_ALL_FIELDS, SELECT_ALL_PAGE_SIZE, source -> {
+                // The working copy is selected through its approved version
+                if (!"y".equals(source.path(Geonet.IndexFieldNames.DRAFT).asText())) {
+                    int id = source.path(Geonet.IndexFieldNames.ID).asInt(-1);
+                    if (id >= 0) {
+                        ids.set(id);
                     }
-                } catch (Exception e) {
-                    Log.error(Geonet.GEONETWORK,
-                        "Select all - query error: " + e.getMessage(), e);
                 }
-            }
+            });
+            return ids;
+        } catch (Exception e) {
+            Log.error(Geonet.GEONETWORK,
+                "Select all - query error: " + e.getMessage(), e);
+            return null;
         }
     }
 
@@ -258,7 +276,7 @@ public class SelectionManager {
      * <p> Closes the current selection manager for the given element type. </p>
      */
     public void close(String type) {
-        Set<String> selection = selections.get(type);
+        MetadataSelection selection = selections.get(type);
         if (selection != null)
             selection.clear();
     }
@@ -267,7 +285,7 @@ public class SelectionManager {
      * <p> Close the current selection manager </p>
      */
     public void close() {
-        for (Set<String> selection : selections.values()) {
+        for (MetadataSelection selection : selections.values()) {
             selection.clear();
         }
     }
@@ -276,16 +294,21 @@ public class SelectionManager {
      * <p> Gets selection for given element type. </p>
      *
      * @param type The type of selected element handled in session
-     * @return Set<String>
+     * @return the selection, changes are visible to the session.
      */
-    public Set<String> getSelection(String type) {
-        Set<String> sel = selections.get(type);
-        if (sel == null) {
-            Set<String> MDSelection = Collections
-                .synchronizedSet(new HashSet<>(0));
-            selections.put(type, MDSelection);
-        }
-        return selections.get(type);
+    @Nonnull
+    public MetadataSelection getSelection(String type) {
+        return selections.computeIfAbsent(type, t -> new MetadataSelection());
+    }
+
+    /**
+     * <p> Gets the UUIDs of the selected records for given element type. </p>
+     *
+     * @param type The type of selected element handled in session
+     * @return a copy of the selection.
+     */
+    public Set<String> getSelectedUuids(String type) {
+        return streamUuids(getSelection(type)).collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     /**
@@ -296,7 +319,8 @@ public class SelectionManager {
      * @return boolean
      */
     public boolean addSelection(String type, String uuid) {
-        return selections.get(type).add(uuid);
+        Integer id = resolveIds(Collections.singleton(uuid)).get(uuid);
+        return id != null && getSelection(type).add(id);
     }
 
     /**
@@ -307,7 +331,65 @@ public class SelectionManager {
      * @return boolean
      */
     public boolean addAllSelection(String type, Set<String> uuids) {
-        return selections.get(type).addAll(uuids);
+        MetadataSelection selection = getSelection(type);
+        int size = selection.size();
+        selection.or(toIds(uuids));
+        return selection.size() != size;
+    }
+
+    /**
+     * @return the ids of the records with the UUIDs, UUIDs of records not in the catalog are ignored.
+     */
+    public static BitSet toIds(Collection<String> uuids) {
+        BitSet ids = new BitSet();
+        for (Integer id : resolveIds(uuids).values()) {
+            ids.set(id);
+        }
+        return ids;
     }
 
+    /**
+     * @return the UUIDs of the selected records among the given UUIDs,
+     * resolved with one database query per chunk.
+     */
+    public static Set<String> selectedUuids(MetadataSelection selection, Collection<String> uuids) {
+        if (selection.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return resolveIds(uuids).entrySet().stream()
+            .filter(e -> selection.contains(e.getValue()))
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the UUIDs of the selected records, in the order of their ids.
+     * The UUIDs are read from the database by chunks, when the stream is consumed.
+     */
+    public static Stream<String> streamUuids(MetadataSelection selection) {
+        Iterator<List<Integer>> chunks = Iterators.partition(selection.ids().iterator(), RESOLVE_CHUNK_SIZE);
+        Iterator<String> uuids = Iterators.concat(Iterators.transform(chunks, chunk -> {
+            final MetadataRepository metadataRepository = ApplicationContextHolder.get().getBean(MetadataRepository.class);
+            return metadataRepository.findIdsAndUuidsAfter(
+                    (Specification<Metadata>) MetadataSpecs.hasMetadataIdIn(chunk), -1, chunk.size())
+                .stream().map(Pair::two).iterator();
+        }));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(uuids, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static Map<String, Integer> resolveIds(Collection<String> uuids) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> distinctUuids = uuids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctUuids.isEmpty()) {
+            return ids;
+        }
+        final MetadataRepository metadataRepository = ApplicationContextHolder.get().getBean(MetadataRepository.class);
+        for (List<String> chunk : Lists.partition(distinctUuids, RESOLVE_CHUNK_SIZE)) {
+            for (Pair<Integer, String> idAndUuid : metadataRepository.findIdsAndUuidsAfter(
+                (Specification<Metadata>) MetadataSpecs.hasMetadataUuidIn(chunk), -1, chunk.size())) {
+                ids.put(idAndUuid.two(), idAndUuid.one());
+            }
+        }
+        return ids;
+    }
 }
@@ -32,6 +32,7 @@ import org.fao.geonet.kernel.rdf.Query;
 import org.fao.geonet.kernel.rdf.QueryBuilder;
 import org.fao.geonet.kernel.rdf.Selectors;
 import org.fao.geonet.kernel.rdf.Wheres;
+import org.fao.geonet.kernel.search.keyword.KeywordLabelIndex;
 import org.fao.geonet.kernel.search.keyword.KeywordRelation;
 import org.fao.geonet.languages.IsoLanguagesMapper;
 import org.fao.geonet.util.LangUtils;
@@ -67,8 +68,12 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 public class Thesaurus {
@@ -92,7 +97,13 @@ public class Thesaurus {
 
     private Path thesaurusFile;
 
-    private LocalRepository repository;
+    private volatile LocalRepository repository;
+
+    /**
+     * Queries run concurrently under the read lock, updates of the repository
+     * and of the caches take the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private String title;
 
@@ -123,7 +134,24 @@ public class Thesaurus {
     // see #retrieveDublinCore() for example
     private Map<String, Map<String, String>> dublinCoreMultilingual = new Hashtable<>();
 
-    private Cache<String, Object> THESAURUS_SEARCH_CACHE;
+    /**
+     * Keywords by URI then by requested languages, so that the keywords
+     * of an updated concept can be invalidated.
+     */
+    private Cache<String, ConcurrentMap<String, KeywordBean>> keywordCache;
+
+    /**
+     * Hierarchies by label or URI and language. They depend on the labels and relations
+     * of the broader concepts, so they are invalidated when a concept is updated.
+     */
+    private Cache<String, List<String>> hierarchyCache;
+
+    /**
+     * Built on the first label search after the thesaurus is loaded or updated.
+     */
+    private volatile KeywordLabelIndex labelIndex;
+
+    private final Object labelIndexLock = new Object();
 
 
     /**
@@ -152,7 +180,11 @@ public class Thesaurus {
                      boolean ignoreMissingError, int thesaurusCacheMaxSize) {
         super();
 
-        THESAURUS_SEARCH_CACHE = CacheBuilder.newBuilder()
+        keywordCache = CacheBuilder.newBuilder()
+                .maximumSize(thesaurusCacheMaxSize)
+                .expireAfterAccess(25, TimeUnit.HOURS)
+                .build();
+        hierarchyCache = CacheBuilder.newBuilder()
                 .maximumSize(thesaurusCacheMaxSize)
                 .expireAfterAccess(25, TimeUnit.HOURS)
                 .build();
@@ -318,16 +350,22 @@ public class Thesaurus {
         // needs to have term/concept id tacked onto the end
     }
 
-    public synchronized LocalRepository getRepository() {
+    public LocalRepository getRepository() {
         return repository;
     }
 
-    public synchronized Thesaurus setRepository(LocalRepository repository) {
-        this.repository = repository;
+    public Thesaurus setRepository(LocalRepository repository) {
+        lock.writeLock().lock();
+        try {
+            this.repository = repository;
+            invalidateCaches();
+        } finally {
+            lock.writeLock().unlock();
+        }
         return this;
     }
 
-    public synchronized Thesaurus initRepository() throws ConfigurationException, IOException {
+    public Thesaurus initRepository() throws ConfigurationException, IOException {
         RepositoryConfig repConfig = new RepositoryConfig(getKey());
 
         SailConfig syncSail = new SailConfig("org.openrdf.sesame.sailimpl.sync.SyncRdfSchemaRepository");
@@ -343,12 +381,17 @@ public class Thesaurus {
         return this;
     }
 
-    public synchronized QueryResultsTable performRequest(String query) throws IOException, MalformedQueryException,
+    public QueryResultsTable performRequest(String query) throws IOException, MalformedQueryException,
             QueryEvaluationException, AccessDeniedException {
         if (Log.isDebugEnabled(Geonet.THESAURUS))
             Log.debug(Geonet.THESAURUS, "Query : " + query);
 
-        return repository.performTableQuery(QueryLanguage.SERQL, query);
+        lock.readLock().lock();
+        try {
+            return repository.performTableQuery(QueryLanguage.SERQL, query);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public boolean hasConceptScheme(String uri) {
@@ -393,8 +436,7 @@ public class Thesaurus {
      *
      * @param keyword The keyword to add
      */
-    public synchronized URI addElement(KeywordBean keyword) throws IOException, AccessDeniedException, GraphException {
-        THESAURUS_SEARCH_CACHE.invalidateAll();
+    public URI addElement(KeywordBean keyword) throws IOException, AccessDeniedException, GraphException {
         Graph myGraph = new org.openrdf.model.impl.GraphImpl();
 
         ValueFactory myFactory = myGraph.getValueFactory();
@@ -459,14 +501,23 @@ public class Thesaurus {
             myGraph.add(gmlNode, predicateSrsName, srsNameURI);
         }
 
-        repository.addGraph(myGraph);
+        lock.writeLock().lock();
+        try {
+            repository.addGraph(myGraph);
+            // A new label may be found first when looking up a hierarchy by label
+            keywordCache.invalidate(mySubject.toString());
+            hierarchyCache.invalidateAll();
+            labelIndex = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
         return mySubject;
     }
 
     /**
      * Remove keyword from thesaurus.
      */
-    public synchronized Thesaurus removeElement(KeywordBean keyword) throws AccessDeniedException {
+    public Thesaurus removeElement(KeywordBean keyword) throws AccessDeniedException {
         String namespace = keyword.getNameSpaceCode();
         String code = keyword.getRelativeCode();
 
@@ -476,23 +527,33 @@ public class Thesaurus {
     /**
      * Remove keyword from thesaurus.
      */
-    public synchronized Thesaurus removeElement(String namespace, String code) throws AccessDeniedException {
-        Graph myGraph = repository.getGraph();
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI subject = myFactory.createURI(namespace, code);
+    public Thesaurus removeElement(String namespace, String code) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI subject = myFactory.createURI(namespace, code);
 
-        return removeElement(myGraph, subject);
+            return removeElement(myGraph, subject);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
      * Remove keyword from thesaurus.
      */
-    public synchronized Thesaurus removeElement(String uri) throws AccessDeniedException {
-        Graph myGraph = repository.getGraph();
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI subject = myFactory.createURI(uri);
+    public Thesaurus removeElement(String uri) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI subject = myFactory.createURI(uri);
 
-        return removeElement(myGraph, subject);
+            return removeElement(myGraph, subject);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     private Thesaurus removeElement(Graph myGraph, URI subject)
@@ -506,6 +567,9 @@ public class Thesaurus {
             }
         }
         int removedItems = myGraph.remove(subject, null, null);
+        keywordCache.invalidate(subject.toString());
+        hierarchyCache.invalidateAll();
+        labelIndex = null;
         if (Log.isDebugEnabled(Geonet.THESAURUS)) {
             String msg = "Removed " + removedItems + " elements from thesaurus " + this.title + " with uri: " + subject;
             Log.debug(Geonet.THESAURUS, msg);
@@ -531,12 +595,21 @@ public class Thesaurus {
      *                languages) and the coordinates will only be updated if they are non-empty
      *                strings.
      */
-    public synchronized URI updateElement(KeywordBean keyword, boolean replace) throws AccessDeniedException {
-        THESAURUS_SEARCH_CACHE.invalidateAll();
-
-        // Get thesaurus graph
-        Graph myGraph = repository.getGraph();
+    public URI updateElement(KeywordBean keyword, boolean replace) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            URI subject = updateElement(repository.getGraph(), keyword, replace);
+            keywordCache.invalidate(subject.toString());
+            // the labels may be part of the hierarchies of the narrower concepts
+            hierarchyCache.invalidateAll();
+            labelIndex = null;
+            return subject;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
+    private URI updateElement(Graph myGraph, KeywordBean keyword, boolean replace) {
         // Set namespace skos and predicates
         ValueFactory myFactory = myGraph.getValueFactory();
         URI predicatePrefLabel = myFactory.createURI(SKOS_NAMESPACE, "prefLabel");
@@ -648,18 +721,23 @@ public class Thesaurus {
      * @param namespace Use null, to check a concept identifier not based on thesaurus namespace
      * @param code      The concept identifier
      */
-    public synchronized boolean isFreeCode(String namespace, String code) throws AccessDeniedException {
+    public boolean isFreeCode(String namespace, String code) throws AccessDeniedException {
         boolean res = true;
-        Graph myGraph = repository.getGraph();
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI obj = namespace == null ? myFactory.createURI(code) : myFactory.createURI(namespace, code);
-        Collection<?> statementsCollection = myGraph.getStatementCollection(obj, null, null);
-        if (statementsCollection != null && !statementsCollection.isEmpty()) {
-            res = false;
-        }
-        statementsCollection = myGraph.getStatementCollection(null, null, obj);
-        if (statementsCollection != null && !statementsCollection.isEmpty()) {
-            res = false;
+        lock.readLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI obj = namespace == null ? myFactory.createURI(code) : myFactory.createURI(namespace, code);
+            Collection<?> statementsCollection = myGraph.getStatementCollection(obj, null, null);
+            if (statementsCollection != null && !statementsCollection.isEmpty()) {
+                res = false;
+            }
+            statementsCollection = myGraph.getStatementCollection(null, null, obj);
+            if (statementsCollection != null && !statementsCollection.isEmpty()) {
+                res = false;
+            }
+        } finally {
+            lock.readLock().unlock();
         }
         return res;
     }
@@ -672,16 +750,20 @@ public class Thesaurus {
      * Update concept code by creating URI from namespace and code. This is recommended when
      * thesaurus concept identifiers contains # eg. http://vocab.nerc.ac.uk/collection/P07/current#CFV13N44
      */
-    public synchronized Thesaurus updateCode(String namespace, String oldcode, String newcode) throws AccessDeniedException {
-        Graph myGraph = repository.getGraph();
-
-        ValueFactory myFactory = myGraph.getValueFactory();
+    public Thesaurus updateCode(String namespace, String oldcode, String newcode) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
 
-        URI oldobj = myFactory.createURI(namespace, oldcode);
-        URI newobj = myFactory.createURI(namespace, newcode);
+            ValueFactory myFactory = myGraph.getValueFactory();
 
-        return updateElementCode(myGraph, oldobj, newobj);
+            URI oldobj = myFactory.createURI(namespace, oldcode);
+            URI newobj = myFactory.createURI(namespace, newcode);
 
+            return updateElementCode(myGraph, oldobj, newobj);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -690,15 +772,20 @@ public class Thesaurus {
      * <p>
      * eg. http://vocab.nerc.ac.uk/collection/P07/current/CFV13N44/
      */
-    public synchronized Thesaurus updateCodeByURI(String olduri, String newuri) throws AccessDeniedException {
-        Graph myGraph = repository.getGraph();
+    public Thesaurus updateCodeByURI(String olduri, String newuri) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
 
-        ValueFactory myFactory = myGraph.getValueFactory();
+            ValueFactory myFactory = myGraph.getValueFactory();
 
-        URI oldobj = myFactory.createURI(olduri);
-        URI newobj = myFactory.createURI(newuri);
+            URI oldobj = myFactory.createURI(olduri);
+            URI newobj = myFactory.createURI(newuri);
 
-        return updateElementCode(myGraph, oldobj, newobj);
+            return updateElementCode(myGraph, oldobj, newobj);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     private Thesaurus updateElementCode(Graph myGraph, URI oldobj, URI newobj) {
@@ -715,6 +802,10 @@ public class Thesaurus {
         }
         myGraph.remove(oldobj, null, null);
         myGraph.remove(null, null, oldobj);
+        keywordCache.invalidate(oldobj.toString());
+        keywordCache.invalidate(newobj.toString());
+        hierarchyCache.invalidateAll();
+        labelIndex = null;
         return this;
     }
 
@@ -722,7 +813,7 @@ public class Thesaurus {
     public void writeConceptScheme(String thesaurusTitle, String namespace) throws IOException, AccessDeniedException, GraphException {
         Graph myGraph = new org.openrdf.model.impl.GraphImpl();
         writeConceptScheme(myGraph, thesaurusTitle, null, null, null, null, null, namespace);
-        repository.addGraph(myGraph);
+        addGraph(myGraph);
     }
 
     /**
@@ -747,7 +838,17 @@ public class Thesaurus {
                 type,
                 namespace);
 
-        repository.addGraph(myGraph);
+        addGraph(myGraph);
+    }
+
+    private void addGraph(Graph graph) throws IOException, AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            repository.addGraph(graph);
+            invalidateCaches();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
@@ -761,17 +862,23 @@ public class Thesaurus {
                                     String identifier,
                                     String type,
                                     String namespace) throws AccessDeniedException, GraphException {
-        Graph myGraph = repository.getGraph();
-        removeElement(getConceptSchemes().get(0));
-
-        writeConceptScheme(myGraph,
-                thesaurusTitle,
-                multilingualTitles,
-                thesaurusDescription,
-                multilingualDescriptions,
-                identifier,
-                type,
-                namespace);
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
+            removeElement(getConceptSchemes().get(0));
+
+            writeConceptScheme(myGraph,
+                    thesaurusTitle,
+                    multilingualTitles,
+                    thesaurusDescription,
+                    multilingualDescriptions,
+                    identifier,
+                    type,
+                    namespace);
+            invalidateCaches();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void writeConceptScheme(Graph myGraph, String thesaurusTitle,
@@ -1111,20 +1218,26 @@ public class Thesaurus {
      * @param subject the keyword that is related to the other keyword
      * @param related the relation between the two keywords
      */
-    public synchronized void addRelation(String subject, KeywordRelation related, String relatedSubject) throws AccessDeniedException {
-        THESAURUS_SEARCH_CACHE.invalidateAll();
+    public void addRelation(String subject, KeywordRelation related, String relatedSubject) throws AccessDeniedException {
+        lock.writeLock().lock();
+        try {
+            Graph myGraph = repository.getGraph();
 
-        Graph myGraph = repository.getGraph();
+            // Set namespace skos and predicates
+            ValueFactory myFactory = myGraph.getValueFactory();
+            URI relationURI = myFactory.createURI(SKOS_NAMESPACE, related.name);
+            URI opposteRelationURI = myFactory.createURI(SKOS_NAMESPACE, related.opposite().name);
+            URI subjectURI = myFactory.createURI(subject);
+            URI relatedSubjectURI = myFactory.createURI(relatedSubject);
 
-        // Set namespace skos and predicates
-        ValueFactory myFactory = myGraph.getValueFactory();
-        URI relationURI = myFactory.createURI(SKOS_NAMESPACE, related.name);
-        URI opposteRelationURI = myFactory.createURI(SKOS_NAMESPACE, related.opposite().name);
-        URI subjectURI = myFactory.createURI(subject);
-        URI relatedSubjectURI = myFactory.createURI(relatedSubject);
+            myGraph.add(subjectURI, relationURI, relatedSubjectURI);
+            myGraph.add(relatedSubjectURI, opposteRelationURI, subjectURI);
 
-        myGraph.add(subjectURI, relationURI, relatedSubjectURI);
-        myGraph.add(relatedSubjectURI, opposteRelationURI, subjectURI);
+            // Keywords do not contain their relations, only the hierarchies change
+            hierarchyCache.invalidateAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -1134,32 +1247,42 @@ public class Thesaurus {
      * @return keyword
      */
     public KeywordBean getKeyword(String uri, String... languages) {
-        String cacheKey = "getKeyword" + uri + String.join("", languages);
-        Object cacheValue = THESAURUS_SEARCH_CACHE.getIfPresent(cacheKey);
+        String languagesKey = String.join("", languages);
+        ConcurrentMap<String, KeywordBean> cachedKeywords = keywordCache.getIfPresent(uri);
+        KeywordBean cacheValue = cachedKeywords == null ? null : cachedKeywords.get(languagesKey);
         if (cacheValue != null) {
-            return (KeywordBean) cacheValue;
+            return cacheValue;
         }
 
-        List<KeywordBean> keywords;
-
+        // Hold the read lock until the keyword is cached so that an update
+        // can not invalidate the keyword between the query and the cache update.
+        lock.readLock().lock();
         try {
-            Query<KeywordBean> query = QueryBuilder
-                    .keywordQueryBuilder(getIsoLanguageMapper(), languages)
-                    .where(Wheres.ID(uri))
-                    .build();
+            List<KeywordBean> keywords;
 
-            keywords = query.execute(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+            try {
+                Query<KeywordBean> query = QueryBuilder
+                        .keywordQueryBuilder(getIsoLanguageMapper(), languages)
+                        .where(Wheres.ID(uri))
+                        .build();
 
-        if (keywords.isEmpty()) {
-            throw new TermNotFoundException(getTermNotFoundMessage(uri));
-        }
+                keywords = query.execute(this);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
 
-        KeywordBean keywordBean = keywords.get(0);
-        THESAURUS_SEARCH_CACHE.put(cacheKey, keywordBean);
-        return keywordBean;
+            if (keywords.isEmpty()) {
+                throw new TermNotFoundException(getTermNotFoundMessage(uri));
+            }
+
+            KeywordBean keywordBean = keywords.get(0);
+            keywordCache.asMap()
+                    .computeIfAbsent(uri, k -> new ConcurrentHashMap<>())
+                    .put(languagesKey, keywordBean);
+            return keywordBean;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -1298,9 +1421,48 @@ public class Thesaurus {
         return matchingKeywords.get(0);
     }
 
-    public synchronized void clear() throws IOException, AccessDeniedException {
+    public void clear() throws IOException, AccessDeniedException {
         AdminListener listener = new DummyAdminListener();
-        repository.clear(listener);
+        lock.writeLock().lock();
+        try {
+            repository.clear(listener);
+            invalidateCaches();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void invalidateCaches() {
+        if (keywordCache != null) {
+            keywordCache.invalidateAll();
+            hierarchyCache.invalidateAll();
+        }
+        labelIndex = null;
+    }
+
+    /**
+     * @return the index of the labels of the concepts, or null if label searches
+     * must query the repository.
+     */
+    public KeywordLabelIndex getLabelIndex() throws IOException, MalformedQueryException,
+            QueryEvaluationException, AccessDeniedException {
+        lock.readLock().lock();
+        try {
+            KeywordLabelIndex index = labelIndex;
+            if (index == null) {
+                // Updates wait for the read lock, an index built here is up to date
+                synchronized (labelIndexLock) {
+                    index = labelIndex;
+                    if (index == null) {
+                        index = KeywordLabelIndex.build(this);
+                        labelIndex = index;
+                    }
+                }
+            }
+            return index;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public String getDefaultNamespace() {
@@ -1312,28 +1474,33 @@ public class Thesaurus {
     }
 
     public List<String> getKeywordHierarchy(String keywordLabel, String langCode) {
-        String cacheKey = "getKeywordHierarchy" + keywordLabel + langCode;
-        Object cacheValue = THESAURUS_SEARCH_CACHE.getIfPresent(cacheKey);
+        String cacheKey = keywordLabel + "|" + langCode;
+        List<String> cacheValue = hierarchyCache.getIfPresent(cacheKey);
         if (cacheValue != null) {
-            return (List<String>) cacheValue;
+            return cacheValue;
         }
-        boolean isUri = keywordLabel.startsWith("http");
-        KeywordBean term =
-                isUri
-                        ? this.getKeyword(keywordLabel, langCode)
-                        : this.getKeywordWithLabel(keywordLabel, langCode);
-
-        List<ArrayList<KeywordBean>> result = this.classify(term, langCode);
-
-        List<String> hierarchies = new ArrayList<>();
-        for (List<KeywordBean> hierachy : result) {
-            String path = hierachy.stream()
-                    .map(k -> isUri ? k.getUriCode() : k.getPreferredLabel(langCode))
-                    .collect(Collectors.joining("^"));
-            hierarchies.add(path);
+        lock.readLock().lock();
+        try {
+            boolean isUri = keywordLabel.startsWith("http");
+            KeywordBean term =
+                    isUri
+                            ? this.getKeyword(keywordLabel, langCode)
+                            : this.getKeywordWithLabel(keywordLabel, langCode);
+
+            List<ArrayList<KeywordBean>> result = this.classify(term, langCode);
+
+            List<String> hierarchies = new ArrayList<>();
+            for (List<KeywordBean> hierachy : result) {
+                String path = hierachy.stream()
+                        .map(k -> isUri ? k.getUriCode() : k.getPreferredLabel(langCode))
+                        .collect(Collectors.joining("^"));
+                hierarchies.add(path);
+            }
+            hierarchyCache.put(cacheKey, hierarchies);
+            return hierarchies;
+        } finally {
+            lock.readLock().unlock();
         }
-        THESAURUS_SEARCH_CACHE.put(cacheKey, hierarchies);
-        return hierarchies;
     }
 
     public List<ArrayList<KeywordBean>> classify(KeywordBean term, String langCode) {
@@ -23,8 +23,6 @@
 
 package org.fao.geonet.kernel.backup;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Lists;
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import jeeves.server.dispatchers.ServiceManager;
@@ -33,6 +31,7 @@ import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.Metadata;
 import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.domain.Pair;
 import org.fao.geonet.domain.Profile;
 import org.fao.geonet.domain.User;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
@@ -49,6 +48,7 @@ import org.locationtech.jts.util.Assert;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.data.domain.PageRequest;
@@ -56,13 +56,16 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.quartz.QuartzJobBean;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -83,8 +86,15 @@ public class ArchiveAllMetadataJob extends QuartzJobBean {
     static final String CATALOG_ARCHIVE_BACKUP_FILE_PREFIX = "gn_backup";
     public static final String BACKUP_DIR = "backup_archive";
     public static final String BACKUP_LOG = Geonet.GEONETWORK + ".backup";
+    private static final int UUID_PAGE_SIZE = 1000;
     private AtomicBoolean backupIsRunning = new AtomicBoolean(false);
 
+    /**
+     * Number of records exported in parallel to the backup archive.
+     */
+    @Value("${metadata.backuparchive.threads:2}")
+    private int backupThreads = 2;
+
 
     @Override
     protected void executeInternal(JobExecutionContext jobContext) throws JobExecutionException {
@@ -126,23 +136,20 @@ public class ArchiveAllMetadataJob extends QuartzJobBean {
             loginAsAdmin(serviceContext);
             final Specification<Metadata> harvested = Specification.where((Specification<Metadata>)MetadataSpecs.isHarvested(false)).
                     and((Specification<Metadata>)Specification.not(MetadataSpecs.hasType(MetadataType.SUB_TEMPLATE)));
-            List<String> uuids = Lists.transform(metadataRepository.findAll(harvested), new Function<Metadata,
-                    String>() {
-                @Nullable
-                @Override
-                public String apply(@Nullable Metadata input) {
-                    return input.getUuid();
-                }
-            });
+            final long count = metadataRepository.count(harvested);
 
-            Log.info(BACKUP_LOG, "Backing up " + uuids.size() + " metadata");
+            Log.info(BACKUP_LOG, "Backing up " + count + " metadata");
 
             String format = "full";
             boolean resolveXlink = true;
             boolean removeXlinkAttribute = false;
             boolean skipOnError = true;
-            srcFile = MEFLib.doMEF2Export(serviceContext, new HashSet<>(uuids), format, false, stylePath,
-                    resolveXlink, removeXlinkAttribute, skipOnError, true, true);
+            srcFile = Files.createTempFile(CATALOG_ARCHIVE_BACKUP_FILE_PREFIX, ".zip");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(srcFile))) {
+                MEFLib.doMEF2StreamingExport(serviceContext, new UuidIterator(metadataRepository, harvested), out,
+                    format, false, stylePath, resolveXlink, removeXlinkAttribute, skipOnError, true, true,
+                    backupThreads);
+            }
 
             Path backupDir = dataDirectory.getBackupDir().resolve(BACKUP_DIR);
             String today = new SimpleDateFormat("-yyyy-MM-dd-HH:mm").format(new Date());
@@ -165,6 +172,43 @@ public class ArchiveAllMetadataJob extends QuartzJobBean {
         }
     }
 
+    /**
+     * Iterate over the uuids of the metadata matching a specification in the order of their ids,
+     * reading them from the database one page at a time.
+     */
+    private static final class UuidIterator implements Iterator<String> {
+        private final MetadataRepository metadataRepository;
+        private final Specification<Metadata> spec;
+        private Iterator<Pair<Integer, String>> page = Collections.emptyIterator();
+        private int lastId = -1;
+        private boolean lastPage = false;
+
+        private UuidIterator(MetadataRepository metadataRepository, Specification<Metadata> spec) {
+            this.metadataRepository = metadataRepository;
+            this.spec = spec;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !lastPage) {
+                List<Pair<Integer, String>> ids = metadataRepository.findIdsAndUuidsAfter(spec, lastId, UUID_PAGE_SIZE);
+                lastPage = ids.size() < UUID_PAGE_SIZE;
+                page = ids.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Pair<Integer, String> idAndUuid = page.next();
+            lastId = idAndUuid.one();
+            return idAndUuid.two();
+        }
+    }
+
     private void loginAsAdmin(ServiceContext serviceContext) {
         final User adminUser = userRepository.findAll(
             UserSpecs.hasProfile(Profile.Administrator),
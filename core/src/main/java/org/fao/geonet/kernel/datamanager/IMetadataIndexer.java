@@ -24,6 +24,7 @@
 package org.fao.geonet.kernel.datamanager;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 import org.fao.geonet.domain.AbstractMetadata;
@@ -105,8 +106,26 @@ public interface IMetadataIndexer {
 
     void indexMetadata(String metadataId, boolean forceRefreshReaders, IndexingMode indexingMode) throws Exception;
 
+    /**
+     * Index the list of records passed as parameter in chunks. The database information
+     * of each chunk (owner, group, privileges, status, validation, ...) is loaded with
+     * a few set-based queries instead of querying it for each record.
+     *
+     * @param metadataIds the record ids to index
+     * @param forceRefreshReaders force the index to refresh after each record
+     * @param indexingMode the indexing mode
+     * @throws Exception
+     */
+    void indexMetadataInBatch(List<String> metadataIds, boolean forceRefreshReaders, IndexingMode indexingMode) throws Exception;
+
     void indexMetadataPrivileges(String uuid, int id) throws Exception;
 
+    /**
+     * Update the validation status of records in the index from the saved validations,
+     * without reindexing the records.
+     */
+    void indexMetadataValidation(Collection<? extends AbstractMetadata> records) throws Exception;
+
     /**
      * Start record versioning
      *
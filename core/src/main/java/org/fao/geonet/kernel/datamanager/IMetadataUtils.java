@@ -523,6 +523,17 @@ public interface IMetadataUtils {
     @Nonnull
     Page<Pair<Integer, ISODate>> findAllIdsAndChangeDates(@Nonnull Pageable pageable);
 
+    /**
+     * Find the ids and change dates of the metadata with an id greater than the given one,
+     * ordered by id.
+     *
+     * @param afterId    the last id of the previous page, -1 for the first page.
+     * @param maxResults the maximum number of results.
+     * @return List of &lt;MetadataId, changeDate&gt;
+     */
+    @Nonnull
+    List<Pair<Integer, ISODate>> findAllIdsAndChangeDatesAfter(int afterId, int maxResults);
+
     /**
      * Load the source info objects for all the metadata selected by the spec.
      *
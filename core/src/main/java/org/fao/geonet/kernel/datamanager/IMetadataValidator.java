@@ -82,6 +82,16 @@ public interface IMetadataValidator {
     Pair<Element, String> doValidate(UserSession session, String schema, String metadataId, Element md, String lang, boolean forEditing)
             throws Exception;
 
+    /**
+     * Validates a record of the catalogue against XSD and schematron files. The validation status
+     * is not saved and the report is not stored in the session, used by batch validation which
+     * saves the status of many records at once.
+     *
+     * @param validations the list to which the status of each validation is added
+     * @return the validation report
+     */
+    Element validateRecord(String schema, int metadataId, Element md, String lang, List<MetadataValidation> validations);
+
     /**
      * Creates XML schematron report for each set of rules defined in schema directory. This method assumes that you've run enumerateTree on
      * the metadata
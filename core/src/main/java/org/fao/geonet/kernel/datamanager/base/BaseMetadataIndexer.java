@@ -24,6 +24,7 @@
 package org.fao.geonet.kernel.datamanager.base;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.yammer.metrics.core.TimerContext;
 import jeeves.monitor.MonitorManager;
@@ -46,6 +47,7 @@ import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
 import org.fao.geonet.kernel.datamanager.IMetadataManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.datamanager.draft.DraftMetadataIndexer;
+import org.fao.geonet.kernel.search.CswRenditions;
 import org.fao.geonet.kernel.search.EsSearchManager;
 import org.fao.geonet.kernel.search.IndexFields;
 import org.fao.geonet.kernel.search.IndexingMode;
@@ -60,6 +62,7 @@ import org.jdom.Attribute;
 import org.jdom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.annotation.Lazy;
@@ -69,13 +72,12 @@ import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.fao.geonet.resources.Resources.DEFAULT_LOGO_EXTENSION;
 
@@ -117,6 +119,8 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
     private Store store;
     @Autowired
     private Resources resources;
+    @Autowired
+    private CswRenditions cswRenditions;
 
     // FIXME remove when get rid of Jeeves
     private ServiceContext servContext;
@@ -145,7 +149,21 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
     Set<String> waitForIndexing = new HashSet<String>();
     Set<String> indexing = new HashSet<String>();
-    Set<IndexMetadataTask> batchIndex = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of workers of each stage of the indexing pipeline. 0 to compute it
+     * from the indexing threads setting (fetch) or the number of processors.
+     */
+    @Value("${es.index.pipeline.fetchThreads:0}")
+    private int pipelineFetchThreads;
+    @Value("${es.index.pipeline.transformThreads:0}")
+    private int pipelineTransformThreads;
+    @Value("${es.index.pipeline.jsonThreads:0}")
+    private int pipelineJsonThreads;
+    @Value("${es.index.pipeline.bulkThreads:0}")
+    private int pipelineBulkThreads;
+
+    private volatile IndexingPipeline indexingPipeline;
 
     @Override
     public void forceIndexChanges() throws IOException {
@@ -208,19 +226,9 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
         throws Exception {
 
         // get all metadata ids from selection
-        ArrayList<String> listOfIdsToIndex = new ArrayList<String>();
         UserSession session = context.getUserSession();
         SelectionManager sm = SelectionManager.getManager(session);
-
-        synchronized (sm.getSelection(bucket)) {
-            for (Iterator<String> iter = sm.getSelection(bucket).iterator(); iter.hasNext(); ) {
-                String uuid = (String) iter.next();
-                String id = metadataUtils.getMetadataId(uuid);
-                if (id != null) {
-                    listOfIdsToIndex.add(id);
-                }
-            }
-        }
+        List<Integer> listOfIdsToIndex = sm.getSelection(bucket).ids().boxed().collect(Collectors.toList());
 
         if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
             Log.debug(Geonet.DATA_MANAGER, "Will index " + listOfIdsToIndex.size() + " records from selection.");
@@ -260,48 +268,47 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
                 // not in a transaction so we can go ahead.
             }
         }
-        // split reindexing task according to number of processors we can assign
-        int threadCount = ThreadUtils.getNumberOfThreads();
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-
-        int perThread;
-        if (metadataIds.size() < threadCount)
-            perThread = metadataIds.size();
-        else
-            perThread = metadataIds.size() / threadCount;
-        int index = 0;
         if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
             Log.debug(Geonet.INDEX_ENGINE, "Indexing " + metadataIds.size() + " records.");
             Log.debug(Geonet.INDEX_ENGINE, metadataIds.toString());
         }
-        AtomicInteger numIndexedTracker = new AtomicInteger();
-        while (index < metadataIds.size()) {
-            int start = index;
-            int count = Math.min(perThread, metadataIds.size() - start);
-            int nbRecords = start + count;
-
-            if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
-                Log.debug(Geonet.INDEX_ENGINE, "Indexing records from " + start + " to " + nbRecords);
-            }
+        getIndexingPipeline().submit(context, metadataIds, transactionStatus);
+    }
 
-            List<?> subList = metadataIds.subList(start, nbRecords);
+    /**
+     * @return the indexing pipeline used for batch indexing, created on first use.
+     */
+    public synchronized IndexingPipeline getIndexingPipeline() {
+        if (indexingPipeline == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            indexingPipeline = new IndexingPipeline(this, searchManager, monitorManager,
+                pipelineFetchThreads > 0 ? pipelineFetchThreads : ThreadUtils.getNumberOfThreads(),
+                pipelineTransformThreads > 0 ? pipelineTransformThreads : processors,
+                pipelineJsonThreads > 0 ? pipelineJsonThreads : Math.max(1, processors / 2),
+                pipelineBulkThreads > 0 ? pipelineBulkThreads : 2);
+        }
+        return indexingPipeline;
+    }
 
-            if (Log.isDebugEnabled(Geonet.INDEX_ENGINE)) {
-                Log.debug(Geonet.INDEX_ENGINE, subList.toString());
-            }
+    /**
+     * @return the indexing pipeline or null if no batch indexing was started yet.
+     */
+    public IndexingPipeline findIndexingPipeline() {
+        return indexingPipeline;
+    }
 
-            // create threads to process this chunk of ids
-            Runnable worker = new IndexMetadataTask(context, subList, batchIndex, transactionStatus, numIndexedTracker);
-            executor.execute(worker);
-            index += count;
+    @PreDestroy
+    public synchronized void shutdownIndexingPipeline() {
+        if (indexingPipeline != null) {
+            indexingPipeline.shutdown();
+            indexingPipeline = null;
         }
-
-        executor.shutdown();
     }
 
     @Override
     public boolean isIndexing() {
-        return searchManager.isIndexing();
+        IndexingPipeline pipeline = indexingPipeline;
+        return searchManager.isIndexing() || (pipeline != null && pipeline.isIndexing());
     }
 
     @Override
@@ -311,248 +318,358 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
         }
     }
 
+    @Override
+    public void indexMetadataInBatch(final List<String> metadataIds,
+                                     final boolean forceRefreshReaders,
+                                     final IndexingMode indexingMode)
+        throws Exception {
+        for (List<String> chunk : Lists.partition(metadataIds, IndexingBatchContext.DEFAULT_BATCH_SIZE)) {
+            IndexingBatchContext batch = loadBatchContext(chunk);
+            for (String metadataId : chunk) {
+                indexMetadata(metadataId, forceRefreshReaders, indexingMode, batch);
+            }
+        }
+    }
+
+    /**
+     * Load with set-based queries all the database information
+     * needed to index a chunk of records.
+     *
+     * @param metadataIds the record ids of the chunk
+     */
+    protected IndexingBatchContext loadBatchContext(Collection<String> metadataIds) {
+        IndexingBatchContext batch = new IndexingBatchContext();
+        Set<Integer> ids = metadataIds.stream().map(Integer::valueOf).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return batch;
+        }
+
+        metadataUtils.findAll(ids).forEach(batch::addMetadata);
+
+        Set<Integer> ownerIds = new HashSet<>();
+        Set<Integer> groupIds = new HashSet<>();
+        Set<String> sourceIds = new HashSet<>();
+        Set<String> uuids = new HashSet<>();
+        for (AbstractMetadata md : batch.getMetadata()) {
+            if (md.getSourceInfo().getOwner() != null) {
+                ownerIds.add(md.getSourceInfo().getOwner());
+            }
+            if (md.getSourceInfo().getGroupOwner() != null) {
+                groupIds.add(md.getSourceInfo().getGroupOwner());
+            }
+            if (md.getSourceInfo().getSourceId() != null) {
+                sourceIds.add(md.getSourceInfo().getSourceId());
+            }
+            uuids.add(md.getUuid());
+        }
+
+        for (OperationAllowed operationAllowed : operationAllowedRepository.findAllById_MetadataIdIn(ids)) {
+            batch.addOperationAllowed(operationAllowed);
+            if (operationAllowed.getId().getOperationId() == ReservedOperation.view.getId()) {
+                groupIds.add(operationAllowed.getId().getGroupId());
+            }
+        }
+
+        userRepository.findAllById(ownerIds).forEach(batch::addUser);
+        groupRepository.findAllById(groupIds).forEach(batch::addGroup);
+        sourceRepository.findAllById(sourceIds).forEach(batch::addSource);
+        inspireAtomFeedRepository.findAllByMetadataIdIn(ids).forEach(batch::addAtomFeed);
+
+        Sort statusSort = Sort.by(Sort.Direction.DESC,
+            MetadataStatus_.changeDate.getName());
+        statusRepository.findAllByMetadataIdInAndByType(ids, StatusValueType.workflow, statusSort)
+            .forEach(batch::addWorkflowStatus);
+        metadataValidationRepository.findAllById_MetadataIdIn(ids).forEach(batch::addValidation);
+
+        if (!uuids.isEmpty()) {
+            for (Object[] count : userSavedSelectionRepository.countTimesUserSavedMetadata(uuids, 0)) {
+                batch.setSavedCount((String) count[0], ((Number) count[1]).intValue());
+            }
+            if (RatingsSetting.ADVANCED.equals(settingManager.getValue(Settings.SYSTEM_LOCALRATING_ENABLE))) {
+                for (Object[] count : userFeedbackRepository.countByMetadata_Uuid(uuids)) {
+                    batch.setFeedbackCount((String) count[0], ((Number) count[1]).intValue());
+                }
+            }
+        }
+        return batch;
+    }
+
     @Override
     public void indexMetadata(final String metadataId,
                               final boolean forceRefreshReaders,
                               final IndexingMode indexingMode)
         throws Exception {
+        indexMetadata(metadataId, forceRefreshReaders, indexingMode, null);
+    }
+
+    /**
+     * Index a record.
+     *
+     * @param batch if not null, database information is read from
+     *              the batch context instead of querying the repositories.
+     */
+    private void indexMetadata(final String metadataId,
+                               final boolean forceRefreshReaders,
+                               final IndexingMode indexingMode,
+                               @Nullable final IndexingBatchContext batch) {
         AbstractMetadata fullMd;
         monitorManager.getMeter(IndexingRecordMeter.class).mark();
         TimerContext timerContext = monitorManager.getTimer(IndexingRecordTimer.class).time();
         long start = System.currentTimeMillis();
         try {
-            Multimap<String, Object> fields = ArrayListMultimap.create();
-            int id$ = Integer.parseInt(metadataId);
-
-            // get metadata, extracting and indexing any xlinks
-            Element md = getXmlSerializer().selectNoXLinkResolver(metadataId, true, false);
-            final ServiceContext serviceContext = getServiceContext();
-            if (getXmlSerializer().resolveXLinks()) {
-                List<Attribute> xlinks = Processor.getXLinks(md);
-                if (xlinks.size() > 0) {
-                    fields.put(Geonet.IndexFieldNames.HASXLINKS, true);
-                    for (Attribute xlink : xlinks) {
-                        fields.put(Geonet.IndexFieldNames.XLINK, xlink.getValue());
-                        fields.put(Geonet.IndexFieldNames.XLINK, xlink.getValue().replaceAll("local://srv/api/registries/entries/(.*)\\?.*", "$1"));
-                    }
-                    Processor.detachXLink(md, getServiceContext());
-                } else {
-                    fields.put(Geonet.IndexFieldNames.HASXLINKS, false);
+            IndexingRecord record = prepareRecord(metadataId, batch);
+            fullMd = record.getMetadata();
+            searchManager.index(record.getSchemaDir(), record.getXml(), record.getIndexKey(), record.getFields(),
+                record.getMetadataType(), forceRefreshReaders, indexingMode);
+        } catch (Exception x) {
+            Log.error(Geonet.DATA_MANAGER, "The metadata document index with id=" + metadataId
+                + " is corrupt/invalid - ignoring it. Error: " + x.getMessage(), x);
+            fullMd = null;
+        } finally {
+            timerContext.stop();
+        }
+        if (fullMd != null) {
+            publishIndexCompleted(fullMd);
+        }
+        Log.warning(Geonet.INDEX_ENGINE, String.format("Record #%s (mode: %s) indexed in %dms",
+            metadataId, indexingMode, System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Load a record and build the fields coming from the database.
+     * The record XML and fields are then sent to the search manager
+     * which applies the schema indexing XSLT.
+     *
+     * @param batch if not null, database information is read from
+     *              the batch context instead of querying the repositories.
+     */
+    IndexingRecord prepareRecord(final String metadataId,
+                                 @Nullable final IndexingBatchContext batch) throws Exception {
+        AbstractMetadata fullMd;
+        Multimap<String, Object> fields = ArrayListMultimap.create();
+        int id$ = Integer.parseInt(metadataId);
+
+        // get metadata, extracting and indexing any xlinks
+        Element md;
+        if (batch == null) {
+            md = getXmlSerializer().selectNoXLinkResolver(metadataId, true, false);
+        } else {
+            AbstractMetadata batchMd = batch.getMetadata(id$);
+            md = batchMd == null ? null : getXmlSerializer().removeHiddenElements(true, batchMd, false);
+        }
+        final ServiceContext serviceContext = getServiceContext();
+        if (getXmlSerializer().resolveXLinks()) {
+            List<Attribute> xlinks = Processor.getXLinks(md);
+            if (xlinks.size() > 0) {
+                fields.put(Geonet.IndexFieldNames.HASXLINKS, true);
+                for (Attribute xlink : xlinks) {
+                    fields.put(Geonet.IndexFieldNames.XLINK, xlink.getValue());
+                    fields.put(Geonet.IndexFieldNames.XLINK, xlink.getValue().replaceAll("local://srv/api/registries/entries/(.*)\\?.*", "$1"));
                 }
+                Processor.detachXLink(md, getServiceContext());
             } else {
                 fields.put(Geonet.IndexFieldNames.HASXLINKS, false);
             }
+        } else {
+            fields.put(Geonet.IndexFieldNames.HASXLINKS, false);
+        }
 
-            fullMd = metadataUtils.findOne(id$);
-
-            final String schema = fullMd.getDataInfo().getSchemaId();
-            final String createDate = fullMd.getDataInfo().getCreateDate().getDateAndTime();
-            final String changeDate = fullMd.getDataInfo().getChangeDate().getDateAndTime();
-            final String source = fullMd.getSourceInfo().getSourceId();
-            final MetadataType metadataType = fullMd.getDataInfo().getType();
-            final String uuid = fullMd.getUuid();
-            String indexKey = uuid;
-            if (fullMd instanceof MetadataDraft) {
-                indexKey += "-draft";
-            }
+        fullMd = batch == null ? metadataUtils.findOne(id$) : batch.getMetadata(id$);
+
+        final String schema = fullMd.getDataInfo().getSchemaId();
+        final String createDate = fullMd.getDataInfo().getCreateDate().getDateAndTime();
+        final String changeDate = fullMd.getDataInfo().getChangeDate().getDateAndTime();
+        final String source = fullMd.getSourceInfo().getSourceId();
+        final MetadataType metadataType = fullMd.getDataInfo().getType();
+        final String uuid = fullMd.getUuid();
+        String indexKey = uuid;
+        if (fullMd instanceof MetadataDraft) {
+            indexKey += "-draft";
+        }
 
-            final String extra = fullMd.getDataInfo().getExtra();
-            final boolean isHarvested = fullMd.getHarvestInfo().isHarvested();
-            final String owner = String.valueOf(fullMd.getSourceInfo().getOwner());
-            final Integer groupOwner = fullMd.getSourceInfo().getGroupOwner();
-            final String popularity = String.valueOf(fullMd.getDataInfo().getPopularity());
-            final String rating = String.valueOf(fullMd.getDataInfo().getRating());
-            final String displayOrder = fullMd.getDataInfo().getDisplayOrder() == null ? null
-                : String.valueOf(fullMd.getDataInfo().getDisplayOrder());
-
-            if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
-                Log.debug(Geonet.DATA_MANAGER, "record schema (" + schema + ")"); // DEBUG
-                Log.debug(Geonet.DATA_MANAGER, "record createDate (" + createDate + ")"); // DEBUG
-            }
+        final String extra = fullMd.getDataInfo().getExtra();
+        final boolean isHarvested = fullMd.getHarvestInfo().isHarvested();
+        final String owner = String.valueOf(fullMd.getSourceInfo().getOwner());
+        final Integer groupOwner = fullMd.getSourceInfo().getGroupOwner();
+        final String popularity = String.valueOf(fullMd.getDataInfo().getPopularity());
+        final String rating = String.valueOf(fullMd.getDataInfo().getRating());
+        final String displayOrder = fullMd.getDataInfo().getDisplayOrder() == null ? null
+            : String.valueOf(fullMd.getDataInfo().getDisplayOrder());
 
-            fields.put(Geonet.IndexFieldNames.SCHEMA, schema);
-            fields.put(Geonet.IndexFieldNames.RECORDLINKFLAG, "record");
-            fields.put(Geonet.IndexFieldNames.DATABASE_CREATE_DATE, createDate);
-            fields.put(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE, changeDate);
-            fields.put(Geonet.IndexFieldNames.SOURCE, source);
-            fields.put(Geonet.IndexFieldNames.IS_TEMPLATE, metadataType.codeString);
-            fields.put(Geonet.IndexFieldNames.UUID, uuid);
-            fields.put(Geonet.IndexFieldNames.ID, metadataId);
-            fields.put(Geonet.IndexFieldNames.FEATUREOFRECORD, "record");
-            fields.put(Geonet.IndexFieldNames.IS_HARVESTED, isHarvested);
-            if (isHarvested) {
-                fields.put(Geonet.IndexFieldNames.HARVESTUUID, fullMd.getHarvestInfo().getUuid());
-            }
-            fields.put(Geonet.IndexFieldNames.OWNER, owner);
-
-
-            if (!schemaManager.existsSchema(schema)) {
-                fields.put(IndexFields.DRAFT, "n");
-                fields.put(IndexFields.INDEXING_ERROR_FIELD, true);
-                fields.put(IndexFields.INDEXING_ERROR_MSG,
-                    searchManager.createIndexingErrorMsgObject("indexingErrorMsg-schemaNotRegistered",
-                        "error",
-                        Map.of("record", metadataId, "schema", schema)));
-                searchManager.index(null, md, indexKey, fields, metadataType,
-                    forceRefreshReaders, indexingMode);
-                Log.error(Geonet.DATA_MANAGER, String.format(
-                    "Record %s / Schema '%s' is not registered in this catalog. Install it or remove those records. Record is indexed indexing error flag.",
-                    metadataId, schema));
-            } else {
+        if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
+            Log.debug(Geonet.DATA_MANAGER, "record schema (" + schema + ")"); // DEBUG
+            Log.debug(Geonet.DATA_MANAGER, "record createDate (" + createDate + ")"); // DEBUG
+        }
 
-                fields.put(Geonet.IndexFieldNames.POPULARITY, popularity);
-                fields.put(Geonet.IndexFieldNames.RATING, rating);
+        fields.put(Geonet.IndexFieldNames.SCHEMA, schema);
+        fields.put(Geonet.IndexFieldNames.RECORDLINKFLAG, "record");
+        fields.put(Geonet.IndexFieldNames.DATABASE_CREATE_DATE, createDate);
+        fields.put(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE, changeDate);
+        fields.put(Geonet.IndexFieldNames.SOURCE, source);
+        fields.put(Geonet.IndexFieldNames.IS_TEMPLATE, metadataType.codeString);
+        fields.put(Geonet.IndexFieldNames.UUID, uuid);
+        fields.put(Geonet.IndexFieldNames.ID, metadataId);
+        fields.put(Geonet.IndexFieldNames.FEATUREOFRECORD, "record");
+        fields.put(Geonet.IndexFieldNames.IS_HARVESTED, isHarvested);
+        if (isHarvested) {
+            fields.put(Geonet.IndexFieldNames.HARVESTUUID, fullMd.getHarvestInfo().getUuid());
+        }
+        fields.put(Geonet.IndexFieldNames.OWNER, owner);
+
+
+        if (!schemaManager.existsSchema(schema)) {
+            fields.put(IndexFields.DRAFT, "n");
+            fields.put(IndexFields.INDEXING_ERROR_FIELD, true);
+            fields.put(IndexFields.INDEXING_ERROR_MSG,
+                searchManager.createIndexingErrorMsgObject("indexingErrorMsg-schemaNotRegistered",
+                    "error",
+                    Map.of("record", metadataId, "schema", schema)));
+            Log.error(Geonet.DATA_MANAGER, String.format(
+                "Record %s / Schema '%s' is not registered in this catalog. Install it or remove those records. Record is indexed indexing error flag.",
+                metadataId, schema));
+            return new IndexingRecord(metadataId, fullMd, md, indexKey, fields, metadataType, null);
+        } else {
 
-                if (RatingsSetting.ADVANCED.equals(settingManager.getValue(Settings.SYSTEM_LOCALRATING_ENABLE))) {
-                    int nbOfFeedback = userFeedbackRepository.findByMetadata_Uuid(uuid).size();
-                    fields.put(Geonet.IndexFieldNames.FEEDBACKCOUNT, nbOfFeedback);
-                }
+            fields.put(Geonet.IndexFieldNames.POPULARITY, popularity);
+            fields.put(Geonet.IndexFieldNames.RATING, rating);
 
-                fields.put(Geonet.IndexFieldNames.DISPLAY_ORDER, displayOrder);
-                fields.put(Geonet.IndexFieldNames.EXTRA, extra);
+            if (RatingsSetting.ADVANCED.equals(settingManager.getValue(Settings.SYSTEM_LOCALRATING_ENABLE))) {
+                int nbOfFeedback = batch == null ?
+                    userFeedbackRepository.findByMetadata_Uuid(uuid).size() :
+                    batch.getFeedbackCount(uuid);
+                fields.put(Geonet.IndexFieldNames.FEEDBACKCOUNT, nbOfFeedback);
+            }
 
-                // If the metadata has an atom document, index related information
-                InspireAtomFeed feed = inspireAtomFeedRepository.findByMetadataId(id$);
+            fields.put(Geonet.IndexFieldNames.DISPLAY_ORDER, displayOrder);
+            fields.put(Geonet.IndexFieldNames.EXTRA, extra);
 
-                if ((feed != null) && StringUtils.isNotEmpty(feed.getAtom())) {
-                    fields.put("atomfeed", feed.getAtom());
-                }
+            // If the metadata has an atom document, index related information
+            InspireAtomFeed feed = batch == null ?
+                inspireAtomFeedRepository.findByMetadataId(id$) :
+                batch.getAtomFeed(id$);
 
-                if (owner != null) {
-                    Optional<User> userOpt = userRepository.findById(fullMd.getSourceInfo().getOwner());
-                    if (userOpt.isPresent()) {
-                        User user = userOpt.get();
-                        fields.put(Geonet.IndexFieldNames.USERINFO, user.getUsername() + "|" + user.getSurname() + "|" + user
-                            .getName() + "|" + user.getProfile());
-                        fields.put(Geonet.IndexFieldNames.OWNERNAME, user.getName() + " " + user.getSurname());
-                    }
+            if ((feed != null) && StringUtils.isNotEmpty(feed.getAtom())) {
+                fields.put("atomfeed", feed.getAtom());
+            }
+
+            if (owner != null) {
+                Optional<User> userOpt = batch == null ?
+                    userRepository.findById(fullMd.getSourceInfo().getOwner()) :
+                    batch.getUser(fullMd.getSourceInfo().getOwner());
+                if (userOpt.isPresent()) {
+                    User user = userOpt.get();
+                    fields.put(Geonet.IndexFieldNames.USERINFO, user.getUsername() + "|" + user.getSurname() + "|" + user
+                        .getName() + "|" + user.getProfile());
+                    fields.put(Geonet.IndexFieldNames.OWNERNAME, user.getName() + " " + user.getSurname());
                 }
+            }
 
-                String logoUUID = null;
-                if (groupOwner != null) {
-                    final Optional<Group> groupOpt = groupRepository.findById(groupOwner);
-                    if (groupOpt.isPresent()) {
-                        Group group = groupOpt.get();
-                        fields.put(Geonet.IndexFieldNames.GROUP_OWNER, String.valueOf(groupOwner));
-                        final boolean preferGroup = settingManager.getValueAsBool(Settings.SYSTEM_PREFER_GROUP_LOGO, true);
-                        if (group.getWebsite() != null && !group.getWebsite().isEmpty() && preferGroup) {
-                            fields.put(Geonet.IndexFieldNames.GROUP_WEBSITE, group.getWebsite());
-                        }
-                        if (group.getLogo() != null && preferGroup) {
-                            logoUUID = group.getLogo();
-                        }
+            String logoUUID = null;
+            if (groupOwner != null) {
+                final Optional<Group> groupOpt = findGroup(groupOwner, batch);
+                if (groupOpt.isPresent()) {
+                    Group group = groupOpt.get();
+                    fields.put(Geonet.IndexFieldNames.GROUP_OWNER, String.valueOf(groupOwner));
+                    final boolean preferGroup = settingManager.getValueAsBool(Settings.SYSTEM_PREFER_GROUP_LOGO, true);
+                    if (group.getWebsite() != null && !group.getWebsite().isEmpty() && preferGroup) {
+                        fields.put(Geonet.IndexFieldNames.GROUP_WEBSITE, group.getWebsite());
+                    }
+                    if (group.getLogo() != null && preferGroup) {
+                        logoUUID = group.getLogo();
                     }
                 }
+            }
 
-                // Group logo are in the harvester folder and contains extension in file name
-                boolean added = false;
-                if (StringUtils.isNotEmpty(logoUUID)) {
-                    final Path harvesterLogosDir = resources.locateHarvesterLogosDir(getServiceContext());
-                    try (Resources.ResourceHolder logo = resources.getImage(getServiceContext(), logoUUID, harvesterLogosDir)) {
-                        if (logo != null) {
-                            added = true;
-                            fields.put(Geonet.IndexFieldNames.LOGO,
-                                "/images/harvesting/" + logo.getPath().getFileName());
-                        }
+            // Group logo are in the harvester folder and contains extension in file name
+            boolean added = false;
+            if (StringUtils.isNotEmpty(logoUUID)) {
+                final Path harvesterLogosDir = resources.locateHarvesterLogosDir(getServiceContext());
+                try (Resources.ResourceHolder logo = resources.getImage(getServiceContext(), logoUUID, harvesterLogosDir)) {
+                    if (logo != null) {
+                        added = true;
+                        fields.put(Geonet.IndexFieldNames.LOGO,
+                            "/images/harvesting/" + logo.getPath().getFileName());
                     }
                 }
+            }
 
-                // If not available, use the local catalog logo
-                if (!added) {
-                    Source sourceCatalogue = sourceRepository.findOneByUuid(source);
-                    logoUUID =
-                        sourceCatalogue != null
-                            && StringUtils.isNotEmpty(sourceCatalogue.getLogo())
-                        ? sourceCatalogue.getLogo() : source + DEFAULT_LOGO_EXTENSION;
-                    final Path logosDir = resources.locateLogosDir(getServiceContext());
-                    try (Resources.ResourceHolder image = resources.getImage(getServiceContext(), logoUUID, logosDir)) {
-                        if (image != null) {
-                            fields.put(Geonet.IndexFieldNames.LOGO,
-                                "/images/logos/" + logoUUID);
-                        }
+            // If not available, use the local catalog logo
+            if (!added) {
+                Source sourceCatalogue = batch == null ?
+                    sourceRepository.findOneByUuid(source) :
+                    batch.getSource(source);
+                logoUUID =
+                    sourceCatalogue != null
+                        && StringUtils.isNotEmpty(sourceCatalogue.getLogo())
+                    ? sourceCatalogue.getLogo() : source + DEFAULT_LOGO_EXTENSION;
+                final Path logosDir = resources.locateLogosDir(getServiceContext());
+                try (Resources.ResourceHolder image = resources.getImage(getServiceContext(), logoUUID, logosDir)) {
+                    if (image != null) {
+                        fields.put(Geonet.IndexFieldNames.LOGO,
+                            "/images/logos/" + logoUUID);
                     }
                 }
+            }
 
-                fields.putAll(buildFieldsForPrivileges(id$));
-
-                for (MetadataCategory category : fullMd.getCategories()) {
-                    fields.put(Geonet.IndexFieldNames.CAT, category.getName());
-                }
+            fields.putAll(buildFieldsForPrivileges(id$, batch));
 
-                // get status
-                Sort statusSort = Sort.by(Sort.Direction.DESC,
-                    MetadataStatus_.changeDate.getName());
-                List<MetadataStatus> statuses = statusRepository.findAllByMetadataIdAndByType(id$, StatusValueType.workflow, statusSort);
-                if (!statuses.isEmpty()) {
-                    MetadataStatus stat = statuses.get(0);
-                    String status = String.valueOf(stat.getStatusValue().getId());
-                    fields.put(Geonet.IndexFieldNames.STATUS, status);
-                    String statusChangeDate = stat.getChangeDate().getDateAndTime();
-                    fields.put(Geonet.IndexFieldNames.STATUS_CHANGE_DATE, statusChangeDate);
-                }
+            for (MetadataCategory category : fullMd.getCategories()) {
+                fields.put(Geonet.IndexFieldNames.CAT, category.getName());
+            }
 
-                // getValidationInfo
-                // -1 : not evaluated
-                // 0 : invalid
-                // 1 : valid
-                List<MetadataValidation> validationInfo = metadataValidationRepository.findAllById_MetadataId(id$);
-                if (validationInfo.isEmpty()) {
-                    fields.put(Geonet.IndexFieldNames.VALID, "-1");
-                } else {
-                    String isValid = "1";
-                    boolean hasInspireValidation = false;
-                    for (MetadataValidation vi : validationInfo) {
-                        String type = vi.getId().getValidationType();
-                        MetadataValidationStatus status = vi.getStatus();
-
-                        // TODO: Check if ignore INSPIRE validation?
-                        if (!type.equalsIgnoreCase("inspire")) {
-                            // If never validated and required then set status to never validated.
-                            if (status == MetadataValidationStatus.NEVER_CALCULATED && vi.isRequired()) {
-                                isValid = "-1";
-                            }
-                            if (status == MetadataValidationStatus.INVALID && vi.isRequired() && isValid != "-1") {
-                                isValid = "0";
-                            }
-                        } else {
-                            hasInspireValidation = true;
-                            fields.put(Geonet.IndexFieldNames.INSPIRE_REPORT_URL, vi.getReportUrl());
-                            fields.put(Geonet.IndexFieldNames.INSPIRE_VALIDATION_DATE, vi.getValidationDate().getDateAndTime());
-                        }
-                        fields.put(Geonet.IndexFieldNames.VALID + "_" + type, status.getCode());
-                    }
-                    fields.put(Geonet.IndexFieldNames.VALID, isValid);
+            // get status
+            Sort statusSort = Sort.by(Sort.Direction.DESC,
+                MetadataStatus_.changeDate.getName());
+            List<MetadataStatus> statuses = batch == null ?
+                statusRepository.findAllByMetadataIdAndByType(id$, StatusValueType.workflow, statusSort) :
+                batch.getWorkflowStatus(id$);
+            if (!statuses.isEmpty()) {
+                MetadataStatus stat = statuses.get(0);
+                String status = String.valueOf(stat.getStatusValue().getId());
+                fields.put(Geonet.IndexFieldNames.STATUS, status);
+                String statusChangeDate = stat.getChangeDate().getDateAndTime();
+                fields.put(Geonet.IndexFieldNames.STATUS_CHANGE_DATE, statusChangeDate);
+            }
 
-                    if (!hasInspireValidation) {
-                        fields.put(Geonet.IndexFieldNames.VALID_INSPIRE, "-1");
+            List<MetadataValidation> validationInfo = batch == null ?
+                metadataValidationRepository.findAllById_MetadataId(id$) :
+                batch.getValidations(id$);
+            fields.putAll(buildFieldsForValidation(validationInfo));
+
+            // index the amount of users that have saved this record in the "Preferred Records" list (id=0)
+            int savedCount = batch == null ?
+                userSavedSelectionRepository.countTimesUserSavedMetadata(uuid, 0) :
+                batch.getSavedCount(uuid);
+            fields.put(Geonet.IndexFieldNames.USER_SAVED_COUNT, savedCount);
+
+            if (cswRenditions.isEnabled() && metadataType == MetadataType.METADATA) {
+                try {
+                    String renditions = cswRenditions.build(serviceContext, metadataId, schema, md);
+                    if (renditions != null) {
+                        fields.put(CswRenditions.FIELD, renditions);
                     }
+                } catch (Exception e) {
+                    Log.warning(Geonet.INDEX_ENGINE, String.format(
+                        "Record %s: error while building CSW renditions. Error is: %s", metadataId, e.getMessage()));
                 }
+            }
 
-                // index the amount of users that have saved this record in the "Preferred Records" list (id=0)
-                int savedCount = userSavedSelectionRepository.countTimesUserSavedMetadata(uuid, 0);
-                fields.put(Geonet.IndexFieldNames.USER_SAVED_COUNT, savedCount);
-
-                fields.putAll(addExtraFields(fullMd));
-
-                if (fullMd != null) {
-                    this.publisher.publishEvent(new MetadataIndexStarted(fullMd, fields));
-                }
+            fields.putAll(addExtraFields(fullMd));
 
-                searchManager.index(schemaManager.getSchemaDir(schema), md, indexKey, fields, metadataType,
-                    forceRefreshReaders, indexingMode);
+            if (fullMd != null) {
+                this.publisher.publishEvent(new MetadataIndexStarted(fullMd, fields));
             }
-        } catch (Exception x) {
-            Log.error(Geonet.DATA_MANAGER, "The metadata document index with id=" + metadataId
-                + " is corrupt/invalid - ignoring it. Error: " + x.getMessage(), x);
-            fullMd = null;
-        } finally {
-            timerContext.stop();
-        }
-        if (fullMd != null) {
-            this.publisher.publishEvent(new MetadataIndexCompleted(fullMd));
+
+            return new IndexingRecord(metadataId, fullMd, md, indexKey, fields, metadataType,
+                schemaManager.getSchemaDir(schema));
         }
-        Log.warning(Geonet.INDEX_ENGINE, String.format("Record #%s (mode: %s) indexed in %dms",
-            metadataId, indexingMode, System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Publish the event notifying that a record was indexed.
+     */
+    void publishIndexCompleted(AbstractMetadata fullMd) {
+        this.publisher.publishEvent(new MetadataIndexCompleted(fullMd));
     }
 
 
@@ -563,11 +680,85 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             operationFields.add("op" + o.getId())
         );
 
-        searchManager.updateFields(uuid, buildFieldsForPrivileges(id), operationFields);
+        searchManager.updateFields(uuid, buildFieldsForPrivileges(id, null), operationFields);
+    }
+
+    @Override
+    public void indexMetadataValidation(Collection<? extends AbstractMetadata> records) throws Exception {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<MetadataValidation>> validationsById = metadataValidationRepository
+            .findAllById_MetadataIdIn(records.stream().map(AbstractMetadata::getId).collect(Collectors.toList()))
+            .stream()
+            .collect(Collectors.groupingBy(v -> v.getId().getMetadataId()));
+
+        Map<String, Map<String, Object>> fieldsByIndexKey = new LinkedHashMap<>();
+        for (AbstractMetadata record : records) {
+            String indexKey = record instanceof MetadataDraft ? record.getUuid() + "-draft" : record.getUuid();
+            Map<String, Object> fields = new HashMap<>();
+            buildFieldsForValidation(validationsById.getOrDefault(record.getId(), Collections.emptyList()))
+                .asMap().forEach((field, values) -> fields.put(field, values.size() == 1 ? values.iterator().next() : values.toArray()));
+            fieldsByIndexKey.put(indexKey, fields);
+        }
+        // Remove the status of validations which are not in the database anymore
+        searchManager.updateFields(fieldsByIndexKey, Arrays.asList(Geonet.IndexFieldNames.VALID,
+            Geonet.IndexFieldNames.INSPIRE_REPORT_URL, Geonet.IndexFieldNames.INSPIRE_VALIDATION_DATE));
+    }
+
+    /**
+     * Build the validation status fields.
+     *
+     * <ul>
+     * <li>-1 : not evaluated</li>
+     * <li>0 : invalid</li>
+     * <li>1 : valid</li>
+     * </ul>
+     */
+    private Multimap<String, Object> buildFieldsForValidation(List<MetadataValidation> validationInfo) {
+        Multimap<String, Object> fields = ArrayListMultimap.create();
+        if (validationInfo.isEmpty()) {
+            fields.put(Geonet.IndexFieldNames.VALID, "-1");
+        } else {
+            String isValid = "1";
+            boolean hasInspireValidation = false;
+            for (MetadataValidation vi : validationInfo) {
+                String type = vi.getId().getValidationType();
+                MetadataValidationStatus status = vi.getStatus();
+
+                // TODO: Check if ignore INSPIRE validation?
+                if (!type.equalsIgnoreCase("inspire")) {
+                    // If never validated and required then set status to never validated.
+                    if (status == MetadataValidationStatus.NEVER_CALCULATED && vi.isRequired()) {
+                        isValid = "-1";
+                    }
+                    if (status == MetadataValidationStatus.INVALID && vi.isRequired() && isValid != "-1") {
+                        isValid = "0";
+                    }
+                } else {
+                    hasInspireValidation = true;
+                    fields.put(Geonet.IndexFieldNames.INSPIRE_REPORT_URL, vi.getReportUrl());
+                    fields.put(Geonet.IndexFieldNames.INSPIRE_VALIDATION_DATE, vi.getValidationDate().getDateAndTime());
+                }
+                fields.put(Geonet.IndexFieldNames.VALID + "_" + type, status.getCode());
+            }
+            fields.put(Geonet.IndexFieldNames.VALID, isValid);
+
+            if (!hasInspireValidation) {
+                fields.put(Geonet.IndexFieldNames.VALID_INSPIRE, "-1");
+            }
+        }
+        return fields;
+    }
+
+    private Optional<Group> findGroup(int groupId, @Nullable IndexingBatchContext batch) {
+        return batch == null ? groupRepository.findById(groupId) : batch.getGroup(groupId);
     }
 
-    private Multimap<String, Object> buildFieldsForPrivileges(int recordId) {
-        List<OperationAllowed> operationsAllowed = operationAllowedRepository.findAllById_MetadataId(recordId);
+    private Multimap<String, Object> buildFieldsForPrivileges(int recordId, @Nullable IndexingBatchContext batch) {
+        List<OperationAllowed> operationsAllowed = batch == null ?
+            operationAllowedRepository.findAllById_MetadataId(recordId) :
+            batch.getOperationsAllowed(recordId);
         Multimap<String, Object> privilegesFields = ArrayListMultimap.create();
         boolean isPublishedToAll = false;
         boolean isPublishedToIntranet = false;
@@ -580,7 +771,7 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
             privilegesFields.put(Geonet.IndexFieldNames.OP_PREFIX + operationId, String.valueOf(groupId));
             if (operationId == ReservedOperation.view.getId()) {
-                Optional<Group> g = groupRepository.findById(groupId);
+                Optional<Group> g = findGroup(groupId, batch);
                 if (g.isPresent()) {
                     privilegesFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED, g.get().getName());
                     privilegesFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED + "Id", g.get().getId());
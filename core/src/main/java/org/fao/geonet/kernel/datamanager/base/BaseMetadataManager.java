@@ -54,6 +54,7 @@ import org.fao.geonet.kernel.mef.MEFLib;
 import org.fao.geonet.kernel.schema.MetadataSchema;
 import org.fao.geonet.kernel.schema.SchemaPlugin;
 import org.fao.geonet.kernel.search.EsSearchManager;
+import org.fao.geonet.kernel.search.IndexChangeDates;
 import org.fao.geonet.kernel.search.IndexingMode;
 import org.fao.geonet.kernel.search.index.BatchOpsMetadataReindexer;
 import org.fao.geonet.kernel.setting.SettingManager;
@@ -75,9 +76,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.TransactionStatus;
 
@@ -187,64 +185,77 @@ public class BaseMetadataManager implements IMetadataManager {
     /**
      * Refresh index if needed. Can also be called after GeoNetwork startup in
      * order to rebuild the lucene index
-     * t
+     *
+     * The id and change date of the records in the index and in the database
+     * are merged in id order. Only the records missing in the index or with a
+     * different change date are indexed and only the records not in the
+     * database anymore are removed from the index.
      *
      * @param force        Force reindexing all from scratch
      * @param asynchronous
      **/
     public void synchronizeDbWithIndex(ServiceContext context, Boolean force, Boolean asynchronous) throws Exception {
+        long start = System.currentTimeMillis();
 
-        // get lastchangedate of all metadata in index
-        Map<String, String> docs = searchManager.getDocsChangeDate();
+        // get lastchangedate of all metadata in index, sorted by id
+        IndexChangeDates indexChangeDates = searchManager.getIndexChangeDates();
 
         // set up results HashMap for post processing of records to be indexed
         List<String> toIndex = new ArrayList<String>();
+        List<Integer> toDelete = new ArrayList<>();
 
         LOGGER_DATA_MANAGER.debug("INDEX CONTENT:");
 
-        Sort sortByMetadataChangeDate = SortUtils.createSort(Sort.Direction.DESC, Metadata_.dataInfo, MetadataDataInfo_.changeDate);
-        int currentPage = 0;
-        Page<Pair<Integer, ISODate>> results = metadataUtils.findAllIdsAndChangeDates(
-            PageRequest.of(currentPage, METADATA_BATCH_PAGE_SIZE, sortByMetadataChangeDate));
+        int position = 0;
+        int lastId = -1;
+        List<Pair<Integer, ISODate>> results = metadataUtils.findAllIdsAndChangeDatesAfter(lastId, METADATA_BATCH_PAGE_SIZE);
 
         // index all metadata in DBMS if needed
-        while (results.getNumberOfElements() > 0) {
+        while (!results.isEmpty()) {
             for (Pair<Integer, ISODate> result : results) {
-
-                // get metadata
-                String id = String.valueOf(result.one());
+                int id = result.one();
 
                 LOGGER_DATA_MANAGER.debug("- record ({})", id);
 
-                String idxLastChange = docs.get(id);
+                // records in index before this one are not in DBMS anymore
+                while (position < indexChangeDates.size() && indexChangeDates.getId(position) < id) {
+                    toDelete.add(indexChangeDates.getId(position));
+                    position++;
+                }
 
                 // if metadata is not indexed index it
-                if (idxLastChange == null) {
+                if (position >= indexChangeDates.size() || indexChangeDates.getId(position) != id) {
                     LOGGER_DATA_MANAGER.debug("-  will be indexed");
-                    toIndex.add(id);
+                    toIndex.add(String.valueOf(id));
 
                     // else, if indexed version is not the latest index it
                 } else {
-                    docs.remove(id);
-
-                    String lastChange = result.two().toString();
+                    long idxLastChange = indexChangeDates.getChangeDate(position);
+                    position++;
 
-                    LOGGER_DATA_MANAGER.debug("- lastChange: {}", lastChange);
-                    LOGGER_DATA_MANAGER.debug("- idxLastChange: {}", idxLastChange);
-
-                    // date in index contains 't', date in DBMS contains 'T'
-                    if (force || !idxLastChange.equalsIgnoreCase(lastChange)) {
+                    if (force
+                        || result.two() == null
+                        || idxLastChange == IndexChangeDates.UNKNOWN_CHANGE_DATE
+                        || idxLastChange != IndexChangeDates.toChangeDateKey(result.two().toString())) {
                         LOGGER_DATA_MANAGER.debug("-  will be indexed");
-                        toIndex.add(id);
+                        toIndex.add(String.valueOf(id));
                     }
                 }
+                lastId = id;
             }
 
-            currentPage++;
-            results = metadataRepository.findIdsAndChangeDates(
-                PageRequest.of(currentPage, METADATA_BATCH_PAGE_SIZE, sortByMetadataChangeDate));
+            results = metadataUtils.findAllIdsAndChangeDatesAfter(lastId, METADATA_BATCH_PAGE_SIZE);
+        }
+
+        // anything left is not in DBMS
+        while (position < indexChangeDates.size()) {
+            toDelete.add(indexChangeDates.getId(position));
+            position++;
         }
 
+        LOGGER_DATA_MANAGER.info("Index synchronization: {} records in index, {} to index, {} to remove ({}ms).",
+            indexChangeDates.size(), toIndex.size(), toDelete.size(), System.currentTimeMillis() - start);
+
         // if anything to index then schedule it to be done after servlet is
         // up so that any links to local fragments are resolvable
         if (toIndex.size() > 0) {
@@ -258,14 +269,14 @@ public class BaseMetadataManager implements IMetadataManager {
             }
         }
 
-        if (docs.size() > 0) { // anything left?
+        if (toDelete.size() > 0) { // anything left?
             LOGGER_DATA_MANAGER.debug("INDEX HAS RECORDS THAT ARE NOT IN DB:");
         }
 
         // remove from index metadata not in DBMS
-        for (String id : docs.keySet()) {
-            getSearchManager().delete(String.format("+id:%s", id));
-            LOGGER_DATA_MANAGER.debug("- removed record ({}) from index", id);
+        if (!toDelete.isEmpty()) {
+            getSearchManager().deleteByIds(toDelete);
+            LOGGER_DATA_MANAGER.debug("- removed records ({}) from index", toDelete);
         }
     }
 
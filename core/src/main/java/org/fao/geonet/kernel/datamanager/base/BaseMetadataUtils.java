@@ -1009,6 +1009,11 @@ public class BaseMetadataUtils implements IMetadataUtils {
         return metadataRepository.findIdsAndChangeDates(pageable);
     }
 
+    @Override
+    public List<Pair<Integer, ISODate>> findAllIdsAndChangeDatesAfter(int afterId, int maxResults) {
+        return metadataRepository.findIdsAndChangeDatesAfter(afterId, maxResults);
+    }
+
     @Override
     public Map<Integer, MetadataSourceInfo> findAllSourceInfo(Specification<? extends AbstractMetadata> spec) {
         try {
@@ -0,0 +1,147 @@
+//=============================================================================
+//===	Copyright (C) 2001-2023 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import org.fao.geonet.domain.*;
+
+import java.util.*;
+
+/**
+ * Database information needed to index a chunk of records.
+ *
+ * All the facts are loaded by {@link BaseMetadataIndexer} with a few set-based
+ * queries before the records of the chunk are indexed, instead of
+ * running one query per fact and per record.
+ */
+public class IndexingBatchContext {
+    /**
+     * Default number of records loaded in one batch. Kept below
+     * the 1000 items limit of IN clauses on some databases.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Map<Integer, AbstractMetadata> metadata = new HashMap<>();
+    private final Map<Integer, User> users = new HashMap<>();
+    private final Map<Integer, Group> groups = new HashMap<>();
+    private final Map<String, Source> sources = new HashMap<>();
+    private final Map<Integer, InspireAtomFeed> atomFeeds = new HashMap<>();
+    private final Map<Integer, MetadataStatus> workflowStatus = new HashMap<>();
+    private final Map<Integer, List<MetadataValidation>> validations = new HashMap<>();
+    private final Map<Integer, List<OperationAllowed>> operationsAllowed = new HashMap<>();
+    private final Map<String, Integer> savedCounts = new HashMap<>();
+    private final Map<String, Integer> feedbackCounts = new HashMap<>();
+
+    void addMetadata(AbstractMetadata md) {
+        metadata.putIfAbsent(md.getId(), md);
+    }
+
+    void addUser(User user) {
+        users.put(user.getId(), user);
+    }
+
+    void addGroup(Group group) {
+        groups.put(group.getId(), group);
+    }
+
+    void addSource(Source source) {
+        sources.put(source.getUuid(), source);
+    }
+
+    void addAtomFeed(InspireAtomFeed feed) {
+        atomFeeds.putIfAbsent(feed.getMetadataId(), feed);
+    }
+
+    /**
+     * Statuses are expected to be added most recent first, only the first
+     * one of each record is kept.
+     */
+    void addWorkflowStatus(MetadataStatus status) {
+        workflowStatus.putIfAbsent(status.getMetadataId(), status);
+    }
+
+    void addValidation(MetadataValidation validation) {
+        validations.computeIfAbsent(validation.getId().getMetadataId(), k -> new ArrayList<>()).add(validation);
+    }
+
+    void addOperationAllowed(OperationAllowed operationAllowed) {
+        operationsAllowed.computeIfAbsent(operationAllowed.getId().getMetadataId(), k -> new ArrayList<>())
+            .add(operationAllowed);
+    }
+
+    void setSavedCount(String uuid, int count) {
+        savedCounts.put(uuid, count);
+    }
+
+    void setFeedbackCount(String uuid, int count) {
+        feedbackCounts.put(uuid, count);
+    }
+
+    public Collection<AbstractMetadata> getMetadata() {
+        return metadata.values();
+    }
+
+    public AbstractMetadata getMetadata(int id) {
+        return metadata.get(id);
+    }
+
+    public Optional<User> getUser(int id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    public Optional<Group> getGroup(int id) {
+        return Optional.ofNullable(groups.get(id));
+    }
+
+    public Source getSource(String uuid) {
+        return sources.get(uuid);
+    }
+
+    public InspireAtomFeed getAtomFeed(int metadataId) {
+        return atomFeeds.get(metadataId);
+    }
+
+    /**
+     * @return the most recent workflow status of the record or an empty list.
+     */
+    public List<MetadataStatus> getWorkflowStatus(int metadataId) {
+        MetadataStatus status = workflowStatus.get(metadataId);
+        return status == null ? Collections.emptyList() : Collections.singletonList(status);
+    }
+
+    public List<MetadataValidation> getValidations(int metadataId) {
+        return validations.getOrDefault(metadataId, Collections.emptyList());
+    }
+
+    public List<OperationAllowed> getOperationsAllowed(int metadataId) {
+        return operationsAllowed.getOrDefault(metadataId, Collections.emptyList());
+    }
+
+    public int getSavedCount(String uuid) {
+        return savedCounts.getOrDefault(uuid, 0);
+    }
+
+    public int getFeedbackCount(String uuid) {
+        return feedbackCounts.getOrDefault(uuid, 0);
+    }
+}
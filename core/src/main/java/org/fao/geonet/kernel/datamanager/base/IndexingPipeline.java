@@ -0,0 +1,383 @@
+//=============================================================================
+//===	Copyright (C) 2001-2023 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jeeves.monitor.MonitorManager;
+import jeeves.monitor.timer.IndexingBulkStageMeter;
+import jeeves.monitor.timer.IndexingFetchStageMeter;
+import jeeves.monitor.timer.IndexingJsonStageMeter;
+import jeeves.monitor.timer.IndexingRecordMeter;
+import jeeves.monitor.timer.IndexingTransformStageMeter;
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.Util;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.User;
+import org.fao.geonet.kernel.search.EsSearchManager;
+import org.fao.geonet.kernel.search.IndexDocumentHandler;
+import org.fao.geonet.kernel.search.IndexingMode;
+import org.fao.geonet.utils.Log;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Staged indexing engine used to reindex sets of records.
+ *
+ * Records go through 4 stages:
+ * <ul>
+ *     <li>fetch: load a chunk of records and their database fields,</li>
+ *     <li>transform: apply the schema index.xsl and collect the fields it produces,</li>
+ *     <li>json: write the fields as a JSON document,</li>
+ *     <li>bulk: send documents to Elasticsearch in bulk requests.</li>
+ * </ul>
+ *
+ * Each stage has its own pool of workers pulling from a shared bounded queue,
+ * so that an idle worker always takes the next waiting item (one slow record
+ * does not leave the other workers idle) and a slow stage blocks the
+ * previous one instead of accumulating documents in memory.
+ */
+public class IndexingPipeline {
+    private static final int QUEUE_CAPACITY_PER_WORKER = 50;
+    private static final long BULK_FLUSH_DELAY_MS = 1000;
+
+    private final BaseMetadataIndexer indexer;
+    private final EsSearchManager searchManager;
+    private final MonitorManager monitorManager;
+    private final int bulkSize;
+
+    private final BlockingQueue<Chunk> fetchQueue;
+    private final BlockingQueue<Item> transformQueue;
+    private final BlockingQueue<Item> jsonQueue;
+    private final BlockingQueue<Item> bulkQueue;
+
+    private final ExecutorService feeder;
+    private final List<ExecutorService> stages = new ArrayList<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    IndexingPipeline(BaseMetadataIndexer indexer, EsSearchManager searchManager, MonitorManager monitorManager,
+                     int fetchWorkers, int transformWorkers, int jsonWorkers, int bulkWorkers) {
+        this.indexer = indexer;
+        this.searchManager = searchManager;
+        this.monitorManager = monitorManager;
+        this.bulkSize = searchManager.getCommitInterval();
+
+        this.fetchQueue = new ArrayBlockingQueue<>(fetchWorkers * 2);
+        this.transformQueue = new ArrayBlockingQueue<>(transformWorkers * QUEUE_CAPACITY_PER_WORKER);
+        this.jsonQueue = new ArrayBlockingQueue<>(jsonWorkers * QUEUE_CAPACITY_PER_WORKER);
+        this.bulkQueue = new ArrayBlockingQueue<>(Math.max(bulkWorkers * bulkSize, QUEUE_CAPACITY_PER_WORKER));
+
+        this.feeder = Executors.newCachedThreadPool(threadFactory("feeder"));
+        startStage("fetch", fetchWorkers, fetchQueue, this::fetch);
+        startStage("transform", transformWorkers, transformQueue, this::transform);
+        startStage("json", jsonWorkers, jsonQueue, this::toJson);
+
+        ExecutorService bulkStage = Executors.newFixedThreadPool(bulkWorkers, threadFactory("bulk"));
+        for (int i = 0; i < bulkWorkers; i++) {
+            bulkStage.execute(this::runBulkWorker);
+        }
+        stages.add(bulkStage);
+
+        Log.info(Geonet.INDEX_ENGINE, String.format(
+            "Indexing pipeline started with %d fetch, %d transform, %d json and %d bulk worker(s).",
+            fetchWorkers, transformWorkers, jsonWorkers, bulkWorkers));
+    }
+
+    /**
+     * Queue records for indexing. Returns immediately, records are indexed
+     * once the transaction (if any) is completed.
+     */
+    void submit(ServiceContext context, List<?> metadataIds, TransactionStatus transactionStatus) {
+        if (metadataIds.isEmpty()) {
+            return;
+        }
+        Job job = new Job(context, metadataIds.size());
+        submitted.addAndGet(metadataIds.size());
+        List<String> ids = new ArrayList<>(metadataIds.size());
+        metadataIds.forEach(id -> ids.add(id.toString()));
+
+        feeder.execute(() -> {
+            try {
+                waitForTransactionAndServlet(context, transactionStatus);
+                for (List<String> chunk : Lists.partition(ids, IndexingBatchContext.DEFAULT_BATCH_SIZE)) {
+                    fetchQueue.put(new Chunk(job, chunk));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.warning(Geonet.INDEX_ENGINE, "Indexing interrupted before all records were queued.");
+            }
+        });
+    }
+
+    /**
+     * @return the number of records or chunks waiting in the stage queues.
+     */
+    public int getQueueDepth() {
+        return fetchQueue.size() + transformQueue.size() + jsonQueue.size() + bulkQueue.size();
+    }
+
+    /**
+     * @return the number of records submitted and not yet sent to the index.
+     */
+    public long getPendingRecords() {
+        return submitted.get() - completed.get();
+    }
+
+    public boolean isIndexing() {
+        return getPendingRecords() > 0;
+    }
+
+    void shutdown() {
+        running = false;
+        feeder.shutdownNow();
+        stages.forEach(ExecutorService::shutdownNow);
+    }
+
+    private void waitForTransactionAndServlet(ServiceContext context, TransactionStatus transactionStatus)
+        throws InterruptedException {
+        while (transactionStatus != null && !transactionStatus.isCompleted()) {
+            Thread.sleep(100);
+        }
+        // poll context to see whether servlet is up yet
+        while (!context.isServletInitialized()) {
+            if (Log.isDebugEnabled(Geonet.DATA_MANAGER)) {
+                Log.debug(Geonet.DATA_MANAGER, "Waiting for servlet to finish initializing..");
+            }
+            Thread.sleep(10000);
+        }
+    }
+
+    private void fetch(Chunk chunk) throws InterruptedException {
+        // Records queued to the next stage or already accounted for, so that
+        // an unexpected error does not leave the job waiting forever.
+        int handled = 0;
+        try {
+            chunk.job.context.setAsThreadLocal();
+            IndexingBatchContext batch;
+            try {
+                batch = indexer.loadBatchContext(chunk.ids);
+            } catch (Exception e) {
+                Log.error(Geonet.INDEX_ENGINE, "Error loading batch of metadata " + chunk.ids.get(0) + " to "
+                    + chunk.ids.get(chunk.ids.size() - 1) + ", loading them one by one: " + e.getMessage()
+                    + "\n" + Util.getStackTrace(e));
+                batch = null;
+            }
+            for (String metadataId : chunk.ids) {
+                monitorManager.getMeter(IndexingRecordMeter.class).mark();
+                IndexingRecord record;
+                try {
+                    record = indexer.prepareRecord(metadataId, batch);
+                } catch (Exception e) {
+                    Log.error(Geonet.DATA_MANAGER, "The metadata document index with id=" + metadataId
+                        + " is corrupt/invalid - ignoring it. Error: " + e.getMessage(), e);
+                    done(chunk.job, 1);
+                    handled++;
+                    continue;
+                }
+                monitorManager.getMeter(IndexingFetchStageMeter.class).mark();
+                transformQueue.put(new Item(chunk.job, record));
+                handled++;
+            }
+        } catch (RuntimeException e) {
+            Log.error(Geonet.INDEX_ENGINE, "Error fetching metadata " + chunk.ids.get(handled)
+                + ", ignoring the " + (chunk.ids.size() - handled) + " remaining record(s) of the batch: "
+                + e.getMessage() + "\n" + Util.getStackTrace(e));
+            done(chunk.job, chunk.ids.size() - handled);
+        }
+    }
+
+    private void transform(Item item) throws InterruptedException {
+        IndexingRecord record = item.record;
+        try {
+            item.job.context.setAsThreadLocal();
+            item.fields = searchManager.collectIndexFields(record.getSchemaDir(), record.getXml(),
+                record.getFields(), record.getMetadataType(), IndexingMode.full);
+        } catch (Exception e) {
+            Log.error(Geonet.INDEX_ENGINE, "Error collecting index fields of metadata '" + record.getMetadataId()
+                + "': " + e.getMessage() + "\n" + Util.getStackTrace(e));
+            done(item.job, 1);
+            return;
+        }
+        monitorManager.getMeter(IndexingTransformStageMeter.class).mark();
+        jsonQueue.put(item);
+    }
+
+    private void toJson(Item item) throws InterruptedException {
+        try {
+            item.json = item.fields.toJson();
+        } catch (Exception e) {
+            Log.error(Geonet.INDEX_ENGINE, "Error converting metadata '" + item.record.getMetadataId()
+                + "' to JSON: " + e.getMessage() + "\n" + Util.getStackTrace(e));
+            done(item.job, 1);
+            return;
+        }
+        item.fields = null;
+        monitorManager.getMeter(IndexingJsonStageMeter.class).mark();
+        bulkQueue.put(item);
+    }
+
+    private void runBulkWorker() {
+        List<Item> items = new ArrayList<>(bulkSize);
+        while (running) {
+            Item item;
+            try {
+                item = bulkQueue.poll(BULK_FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (item != null) {
+                items.add(item);
+                bulkQueue.drainTo(items, bulkSize - items.size());
+            }
+            // Send when the bulk is full or when nothing came in for a while
+            if (items.size() >= bulkSize || (item == null && !items.isEmpty())) {
+                sendBulk(items);
+                items = new ArrayList<>(bulkSize);
+            }
+        }
+    }
+
+    private void sendBulk(List<Item> items) {
+        Map<String, byte[]> documents = new LinkedHashMap<>(items.size());
+        items.forEach(i -> documents.put(i.record.getIndexKey(), i.json));
+        try {
+            searchManager.sendDocumentsToIndex(documents);
+            monitorManager.getMeter(IndexingBulkStageMeter.class).mark(items.size());
+        } catch (RuntimeException e) {
+            // Keep the bulk worker alive, the records are accounted for below.
+            Log.error(Geonet.INDEX_ENGINE, "Error sending " + items.size() + " document(s) to the index: "
+                + e.getMessage() + "\n" + Util.getStackTrace(e));
+        } finally {
+            for (Item item : items) {
+                item.job.context.setAsThreadLocal();
+                try {
+                    indexer.publishIndexCompleted(item.record.getMetadata());
+                } catch (Exception e) {
+                    Log.error(Geonet.INDEX_ENGINE, "Error after indexing metadata '" + item.record.getMetadataId()
+                        + "': " + e.getMessage(), e);
+                }
+                done(item.job, 1);
+            }
+        }
+    }
+
+    private void done(Job job, int count) {
+        completed.addAndGet(count);
+        if (job.remaining.addAndGet(-count) == 0) {
+            if (job.user != null && job.context.getUserSession().getUserId() == null) {
+                job.context.getUserSession().loginAs(job.user);
+            }
+            Log.info(Geonet.INDEX_ENGINE, String.format("Indexed %d records in %dms.",
+                job.size, System.currentTimeMillis() - job.start));
+        }
+    }
+
+    private <T> void startStage(String name, int workers, BlockingQueue<T> queue, StageTask<T> task) {
+        ExecutorService stage = Executors.newFixedThreadPool(workers, threadFactory(name));
+        Consumer<T> safeTask = t -> {
+            try {
+                task.run(t);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                Log.error(Geonet.INDEX_ENGINE, "Error in indexing " + name + " stage: " + e.getMessage()
+                    + "\n" + Util.getStackTrace(e));
+            }
+        };
+        for (int i = 0; i < workers; i++) {
+            stage.execute(() -> {
+                while (running && !Thread.currentThread().isInterrupted()) {
+                    try {
+                        safeTask.accept(queue.take());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        stages.add(stage);
+    }
+
+    private static ThreadFactory threadFactory(String stage) {
+        return new ThreadFactoryBuilder()
+            .setNameFormat("gn-indexing-" + stage + "-%d")
+            .setDaemon(true)
+            .build();
+    }
+
+    @FunctionalInterface
+    private interface StageTask<T> {
+        void run(T t) throws Exception;
+    }
+
+    private static class Job {
+        private final ServiceContext context;
+        private final User user;
+        private final int size;
+        private final AtomicInteger remaining;
+        private final long start = System.currentTimeMillis();
+
+        Job(ServiceContext context, int size) {
+            this.context = context;
+            this.size = size;
+            this.remaining = new AtomicInteger(size);
+            this.user = context.getUserSession() != null ? context.getUserSession().getPrincipal() : null;
+        }
+    }
+
+    private static class Chunk {
+        private final Job job;
+        private final List<String> ids;
+
+        Chunk(Job job, List<String> ids) {
+            this.job = job;
+            this.ids = ids;
+        }
+    }
+
+    private static class Item {
+        private final Job job;
+        private final IndexingRecord record;
+        private IndexDocumentHandler fields;
+        private byte[] json;
+
+        Item(Job job, IndexingRecord record) {
+            this.job = job;
+            this.record = record;
+        }
+    }
+}
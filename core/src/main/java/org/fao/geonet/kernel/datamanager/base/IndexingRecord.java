@@ -0,0 +1,87 @@
+//=============================================================================
+//===	Copyright (C) 2001-2023 Food and Agriculture Organization of the
+//===	United Nations (FAO-UN), United Nations World Food Programme (WFP)
+//===	and United Nations Environment Programme (UNEP)
+//===
+//===	This program is free software; you can redistribute it and/or modify
+//===	it under the terms of the GNU General Public License as published by
+//===	the Free Software Foundation; either version 2 of the License, or (at
+//===	your option) any later version.
+//===
+//===	This program is distributed in the hope that it will be useful, but
+//===	WITHOUT ANY WARRANTY; without even the implied warranty of
+//===	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+//===	General Public License for more details.
+//===
+//===	You should have received a copy of the GNU General Public License
+//===	along with this program; if not, write to the Free Software
+//===	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+//===
+//===	Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+//===	Rome - Italy. email: geonetwork@osgeo.org
+//==============================================================================
+
+package org.fao.geonet.kernel.datamanager.base;
+
+import com.google.common.collect.Multimap;
+import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.MetadataType;
+import org.jdom.Element;
+
+import java.nio.file.Path;
+
+/**
+ * A record loaded from the database with its database fields,
+ * ready to be transformed by the schema indexing XSLT.
+ */
+class IndexingRecord {
+    private final String metadataId;
+    private final AbstractMetadata metadata;
+    private final Element xml;
+    private final String indexKey;
+    private final Multimap<String, Object> fields;
+    private final MetadataType metadataType;
+    private final Path schemaDir;
+
+    /**
+     * @param schemaDir null if the schema of the record is not registered in the catalog.
+     */
+    IndexingRecord(String metadataId, AbstractMetadata metadata, Element xml, String indexKey,
+                   Multimap<String, Object> fields, MetadataType metadataType, Path schemaDir) {
+        this.metadataId = metadataId;
+        this.metadata = metadata;
+        this.xml = xml;
+        this.indexKey = indexKey;
+        this.fields = fields;
+        this.metadataType = metadataType;
+        this.schemaDir = schemaDir;
+    }
+
+    String getMetadataId() {
+        return metadataId;
+    }
+
+    AbstractMetadata getMetadata() {
+        return metadata;
+    }
+
+    Element getXml() {
+        return xml;
+    }
+
+    String getIndexKey() {
+        return indexKey;
+    }
+
+    Multimap<String, Object> getFields() {
+        return fields;
+    }
+
+    MetadataType getMetadataType() {
+        return metadataType;
+    }
+
+    Path getSchemaDir() {
+        return schemaDir;
+    }
+}
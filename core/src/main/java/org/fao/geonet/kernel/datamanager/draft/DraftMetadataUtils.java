@@ -375,6 +375,16 @@ public class DraftMetadataUtils extends BaseMetadataUtils {
         return res;
     }
 
+    @Override
+    public List<Pair<Integer, ISODate>> findAllIdsAndChangeDatesAfter(int afterId, int maxResults) {
+        // Merge the two sorted lists and keep the first results,
+        // the next page starts after the last id returned.
+        List<Pair<Integer, ISODate>> list = new ArrayList<>(super.findAllIdsAndChangeDatesAfter(afterId, maxResults));
+        list.addAll(metadataDraftRepository.findIdsAndChangeDatesAfter(afterId, maxResults));
+        list.sort((a, b) -> Integer.compare(a.one(), b.one()));
+        return list.size() > maxResults ? new ArrayList<>(list.subList(0, maxResults)) : list;
+    }
+
     @Override
     public Map<Integer, MetadataSourceInfo> findAllSourceInfo(Specification<? extends AbstractMetadata> spec) {
         Map<Integer, MetadataSourceInfo> map = new LinkedHashMap<Integer, MetadataSourceInfo>();
@@ -26,6 +26,8 @@ package org.fao.geonet.kernel.mef;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.io.FileUtils;
 import org.fao.geonet.Constants;
@@ -44,22 +46,42 @@ import org.fao.geonet.kernel.setting.SettingInfo;
 import org.fao.geonet.lib.Lib;
 import org.fao.geonet.repository.MetadataRelationRepository;
 import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static com.google.common.xml.XmlEscapers.xmlContentEscaper;
 import static org.fao.geonet.Constants.CHARSET;
 import static org.fao.geonet.kernel.mef.MEFConstants.*;
 
 class MEF2Exporter {
+    private static final String INDEX_CSV = "index.csv";
+    private static final String INDEX_HTML = "index.html";
+    private static final String INDEX_CSV_HEADER = "\"schema\";\"uuid\";\"id\";\"type\";\"isHarvested\";\"title\";\"abstract\"\n";
+
     /**
      * Create a MEF2 file in ZIP format.
      *
@@ -91,99 +113,21 @@ class MEF2Exporter {
         try (
             FileSystem zipFs = ZipUtil.createZipFs(file)
         ) {
-            StringBuilder csvBuilder = new StringBuilder("\"schema\";\"uuid\";\"id\";\"type\";\"isHarvested\";\"title\";\"abstract\"\n");
-            Element html = new Element("html").addContent(new Element("head").addContent(Arrays.asList(
-                new Element("title").setText("Export Index"),
-                new Element("link").setAttribute("rel", "stylesheet").
-                    setAttribute("href", "https://maxcdn.bootstrapcdn.com/bootstrap/3.3.4/css/bootstrap.min.css"),
-                new Element("style").setText("body {\n"
-                    + "  padding-left: 10px;\n"
-                    + "}\n"
-                    + "p.abstract {\n"
-                    + "  font-style: italic;\n"
-                    + "}\n"
-                    + ".entry {\n"
-                    + "  padding: 20px;\n"
-                    + "  margin: 20px 0;\n"
-                    + "  border: 1px solid #eee;\n"
-                    + "  border-left-width: 5px;\n"
-                    + "  border-radius: 3px;\n"
-                    + "  border-left-color: #1b809e;\n"
-                    + "}\n"
-                    + ".entry:hover {\n"
-                    + "  background-color: #f5f5f5;\n"
-                    + "}\n")
-            )));
+            StringBuilder csvBuilder = new StringBuilder(INDEX_CSV_HEADER);
+            Element html = new Element("html").addContent(buildIndexHtmlHead());
             Element body = new Element("body");
             html.addContent(body);
             for (String uuid : uuids) {
-                final String cleanUUID = cleanForCsv(uuid);
-
-                AbstractMetadata md = context.getBean(IMetadataUtils.class).findOneByUuid(uuid);
-
-                //Here we just care if we need the approved version explicitly.
-                //IMetadataUtils already filtered draft for non editors.
+                AbstractMetadata md = findMetadata(context, uuid, approved);
+                IndexEntry indexEntry = buildIndexEntry(context, searchManager, uuid, md);
+                csvBuilder.append(indexEntry.csvLine);
+                body.addContent(indexEntry.html);
 
-                if (approved) {
-                    md = context.getBean(MetadataRepository.class).findOneByUuid(uuid);
-                }
-                String id = String.valueOf(md.getId());
-
-                int from = 0;
-                SettingInfo si = context.getBean(SettingInfo.class);
-                int size = Integer.parseInt(si.getSelectionMaxRecords());
-
-                final SearchResponse result = searchManager.query("+id:" + id, null, from, size);
-
-                String mdSchema = null, mdTitle = null, mdAbstract = null, isHarvested = null;
-                MetadataType mdType = null;
-
-                List<Hit> hits = result.hits().hits();
-                ObjectMapper objectMapper = new ObjectMapper();
-                final Map<String, Object> source = objectMapper.convertValue(hits.get(0).source(), Map.class);
-                mdSchema = (String) source.get(Geonet.IndexFieldNames.SCHEMA);
-                mdTitle = (String) source.get(Geonet.IndexFieldNames.RESOURCETITLE);
-                mdAbstract = (String) source.get(Geonet.IndexFieldNames.RESOURCEABSTRACT);
-                isHarvested = (String) source.get(Geonet.IndexFieldNames.IS_HARVESTED);
-                mdType = MetadataType.lookup(((String) source.get(Geonet.IndexFieldNames.IS_TEMPLATE)).charAt(0));
-
-                csvBuilder.append('"').
-                    append(cleanForCsv(mdSchema)).append("\";\"").
-                    append(cleanUUID).append("\";\"").
-                    append(cleanForCsv(id)).append("\";\"").
-                    append(mdType.toString()).append("\";\"").
-                    append(cleanForCsv(isHarvested)).append("\";\"").
-                    append(cleanForCsv(mdTitle)).append("\";\"").
-                    append(cleanForCsv(mdAbstract)).append("\"\n");
-
-                body.addContent(new Element("div").setAttribute("class", "entry").addContent(Arrays.asList(
-                    new Element("h4").setAttribute("class", "title").addContent(
-                        new Element("a").setAttribute("href", uuid).setText(cleanXml(mdTitle))),
-                    new Element("p").setAttribute("class", "abstract").setText(cleanXml(mdAbstract)),
-                    new Element("table").setAttribute("class", "table").addContent(Arrays.asList(
-                        new Element("thead").addContent(
-                            new Element("tr").addContent(Arrays.asList(
-                                new Element("th").setText("Internal ID"),
-                                new Element("th").setText("UUID"),
-                                new Element("th").setText("Type"),
-                                new Element("th").setText("Is harvested?")
-                            ))),
-                        new Element("tbody").addContent(
-                            new Element("tr").addContent(Arrays.asList(
-                                new Element("td").setAttribute("class", "id").setText(id),
-                                new Element("td").setAttribute("class", "uuid").setText(xmlContentEscaper().escape
-                                    (uuid)),
-                                new Element("td").setAttribute("class", "type").setText(mdType.toString()),
-                                new Element("td").setAttribute("class", "isHarvested").setText(isHarvested)
-                            )))
-                    ))
-                )));
-
-                createMetadataFolder(context, md, zipFs, skipUUID, stylePath,
+                createMetadataFolder(context, md, zipFs.getPath(md.getUuid()), skipUUID, stylePath,
                     format, resolveXlink, removeXlinkAttribute, addSchemaLocation);
             }
-            Files.write(zipFs.getPath("/index.csv"), csvBuilder.toString().getBytes(Constants.CHARSET));
-            Files.write(zipFs.getPath("/index.html"), Xml.getString(html).getBytes(Constants.CHARSET));
+            Files.write(zipFs.getPath("/" + INDEX_CSV), csvBuilder.toString().getBytes(Constants.CHARSET));
+            Files.write(zipFs.getPath("/" + INDEX_HTML), Xml.getString(html).getBytes(Constants.CHARSET));
         } catch (Exception e) {
             FileUtils.deleteQuietly(file.toFile());
             throw e;
@@ -191,6 +135,246 @@ class MEF2Exporter {
         return file;
     }
 
+    /**
+     * Write a MEF2 archive in ZIP format to a stream, without holding the archive or its
+     * indexes in memory.
+     *
+     * Records are read from the iterator as they are exported, so that the uuids can be
+     * paged from the database. Each record is exported to a temporary folder by one of
+     * {@code threads} workers, then written to the archive by the calling thread in the
+     * order of the iterator, so the archive does not depend on the number of threads.
+     * At most {@code 2 * threads} records wait to be written. index.csv and index.html are
+     * built in temporary files and written at the end of the archive.
+     *
+     * @param uuids     records to export.
+     * @param out       stream receiving the archive. The archive is finished but the stream
+     *                  is not closed.
+     * @param skipError if true, a record that cannot be exported is logged and left out
+     *                  of the archive.
+     * @param threads   number of records exported in parallel.
+     */
+    public static void doStreamingExport(ServiceContext context, Iterator<String> uuids, OutputStream out,
+                                         Format format, boolean skipUUID, Path stylePath, boolean resolveXlink,
+                                         boolean removeXlinkAttribute, boolean skipError, boolean addSchemaLocation,
+                                         boolean approved, int threads) throws Exception {
+        final EsSearchManager searchManager = context.getBean(EsSearchManager.class);
+        final ExecutorService executor = threads > 1
+            ? Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("gn-mef-export-%d").setDaemon(true).build())
+            : MoreExecutors.newDirectExecutorService();
+        final int maxPending = Math.max(1, threads) * 2;
+        final Deque<Pair<String, Future<IndexEntry>>> pending = new ArrayDeque<>();
+
+        Path workDir = Files.createTempDirectory("mef-");
+        try {
+            Path recordsDir = Files.createDirectories(workDir.resolve("records"));
+            Path csvFile = workDir.resolve(INDEX_CSV);
+            Path htmlFile = workDir.resolve(INDEX_HTML);
+
+            ZipOutputStream zip = new ZipOutputStream(out);
+            try (Writer csv = Files.newBufferedWriter(csvFile, CHARSET);
+                 Writer html = Files.newBufferedWriter(htmlFile, CHARSET)) {
+                csv.write(INDEX_CSV_HEADER);
+                html.write("<html>\n");
+                html.write(Xml.getString(buildIndexHtmlHead()));
+                html.write("<body>\n");
+
+                int counter = 0;
+                while (uuids.hasNext()) {
+                    final String uuid = uuids.next();
+                    final Path recordDir = recordsDir.resolve(String.valueOf(counter++));
+                    pending.add(Pair.read(uuid, executor.submit(context.inContext(() -> {
+                        AbstractMetadata md = findMetadata(context, uuid, approved);
+                        IndexEntry indexEntry = buildIndexEntry(context, searchManager, uuid, md);
+                        createMetadataFolder(context, md, recordDir, skipUUID, stylePath,
+                            format, resolveXlink, removeXlinkAttribute, addSchemaLocation);
+                        indexEntry.folder = recordDir;
+                        return indexEntry;
+                    }))));
+                    if (pending.size() >= maxPending) {
+                        writeRecord(pending.removeFirst(), zip, csv, html, skipError);
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    writeRecord(pending.removeFirst(), zip, csv, html, skipError);
+                }
+
+                html.write("</body>\n</html>\n");
+            }
+
+            addFile(zip, csvFile, INDEX_CSV);
+            addFile(zip, htmlFile, INDEX_HTML);
+            zip.finish();
+        } finally {
+            for (Pair<String, Future<IndexEntry>> record : pending) {
+                record.two().cancel(true);
+            }
+            executor.shutdownNow();
+            FileUtils.deleteQuietly(workDir.toFile());
+        }
+    }
+
+    /**
+     * Write an exported record to the archive and the indexes, then delete its temporary folder.
+     */
+    private static void writeRecord(Pair<String, Future<IndexEntry>> record, ZipOutputStream zip,
+                                    Writer csv, Writer html, boolean skipError) throws Exception {
+        IndexEntry indexEntry;
+        try {
+            indexEntry = record.two().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (skipError) {
+                Log.error(Geonet.MEF, "Error exporting metadata " + record.one() + ", record is skipped. Error: "
+                    + cause.getMessage(), cause);
+                return;
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+
+        try {
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(indexEntry.folder)) {
+                files = paths.sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String relativePath = indexEntry.folder.relativize(file).toString().replace(File.separatorChar, '/');
+                String entryName = relativePath.isEmpty() ? record.one() : record.one() + "/" + relativePath;
+                if (Files.isDirectory(file)) {
+                    zip.putNextEntry(new ZipEntry(entryName + "/"));
+                    zip.closeEntry();
+                } else {
+                    addFile(zip, file, entryName);
+                }
+            }
+            csv.write(indexEntry.csvLine);
+            html.write(Xml.getString(indexEntry.html));
+        } finally {
+            FileUtils.deleteQuietly(indexEntry.folder.toFile());
+        }
+    }
+
+    private static void addFile(ZipOutputStream zip, Path file, String entryName) throws IOException {
+        zip.putNextEntry(new ZipEntry(entryName));
+        Files.copy(file, zip);
+        zip.closeEntry();
+    }
+
+    private static AbstractMetadata findMetadata(ServiceContext context, String uuid, boolean approved) throws Exception {
+        AbstractMetadata md = context.getBean(IMetadataUtils.class).findOneByUuid(uuid);
+
+        //Here we just care if we need the approved version explicitly.
+        //IMetadataUtils already filtered draft for non editors.
+
+        if (approved) {
+            md = context.getBean(MetadataRepository.class).findOneByUuid(uuid);
+        }
+        return md;
+    }
+
+    private static Element buildIndexHtmlHead() {
+        return new Element("head").addContent(Arrays.asList(
+            new Element("title").setText("Export Index"),
+            new Element("link").setAttribute("rel", "stylesheet").
+                setAttribute("href", "https://maxcdn.bootstrapcdn.com/bootstrap/3.3.4/css/bootstrap.min.css"),
+            new Element("style").setText("body {\n"
+                + "  padding-left: 10px;\n"
+                + "}\n"
+                + "p.abstract {\n"
+                + "  font-style: italic;\n"
+                + "}\n"
+                + ".entry {\n"
+                + "  padding: 20px;\n"
+                + "  margin: 20px 0;\n"
+                + "  border: 1px solid #eee;\n"
+                + "  border-left-width: 5px;\n"
+                + "  border-radius: 3px;\n"
+                + "  border-left-color: #1b809e;\n"
+                + "}\n"
+                + ".entry:hover {\n"
+                + "  background-color: #f5f5f5;\n"
+                + "}\n")
+        ));
+    }
+
+    /**
+     * Build the line of index.csv and the entry of index.html of a record from its index document.
+     */
+    private static IndexEntry buildIndexEntry(ServiceContext context, EsSearchManager searchManager,
+                                              String uuid, AbstractMetadata md) throws Exception {
+        final String cleanUUID = cleanForCsv(uuid);
+        String id = String.valueOf(md.getId());
+
+        int from = 0;
+        SettingInfo si = context.getBean(SettingInfo.class);
+        int size = Integer.parseInt(si.getSelectionMaxRecords());
+
+        final SearchResponse result = searchManager.query("+id:" + id, null, from, size);
+
+        String mdSchema = null, mdTitle = null, mdAbstract = null, isHarvested = null;
+        MetadataType mdType = null;
+
+        List<Hit> hits = result.hits().hits();
+        ObjectMapper objectMapper = new ObjectMapper();
+        final Map<String, Object> source = objectMapper.convertValue(hits.get(0).source(), Map.class);
+        mdSchema = (String) source.get(Geonet.IndexFieldNames.SCHEMA);
+        mdTitle = (String) source.get(Geonet.IndexFieldNames.RESOURCETITLE);
+        mdAbstract = (String) source.get(Geonet.IndexFieldNames.RESOURCEABSTRACT);
+        isHarvested = (String) source.get(Geonet.IndexFieldNames.IS_HARVESTED);
+        mdType = MetadataType.lookup(((String) source.get(Geonet.IndexFieldNames.IS_TEMPLATE)).charAt(0));
+
+        String csvLine = new StringBuilder().append('"').
+            append(cleanForCsv(mdSchema)).append("\";\"").
+            append(cleanUUID).append("\";\"").
+            append(cleanForCsv(id)).append("\";\"").
+            append(mdType.toString()).append("\";\"").
+            append(cleanForCsv(isHarvested)).append("\";\"").
+            append(cleanForCsv(mdTitle)).append("\";\"").
+            append(cleanForCsv(mdAbstract)).append("\"\n").toString();
+
+        Element html = new Element("div").setAttribute("class", "entry").addContent(Arrays.asList(
+            new Element("h4").setAttribute("class", "title").addContent(
+                new Element("a").setAttribute("href", uuid).setText(cleanXml(mdTitle))),
+            new Element("p").setAttribute("class", "abstract").setText(cleanXml(mdAbstract)),
+            new Element("table").setAttribute("class", "table").addContent(Arrays.asList(
+                new Element("thead").addContent(
+                    new Element("tr").addContent(Arrays.asList(
+                        new Element("th").setText("Internal ID"),
+                        new Element("th").setText("UUID"),
+                        new Element("th").setText("Type"),
+                        new Element("th").setText("Is harvested?")
+                    ))),
+                new Element("tbody").addContent(
+                    new Element("tr").addContent(Arrays.asList(
+                        new Element("td").setAttribute("class", "id").setText(id),
+                        new Element("td").setAttribute("class", "uuid").setText(xmlContentEscaper().escape
+                            (uuid)),
+                        new Element("td").setAttribute("class", "type").setText(mdType.toString()),
+                        new Element("td").setAttribute("class", "isHarvested").setText(isHarvested)
+                    )))
+            ))
+        ));
+        return new IndexEntry(csvLine, html);
+    }
+
+    /**
+     * A record in index.csv and index.html, and the folder the record was exported to
+     * when the archive is streamed.
+     */
+    private static final class IndexEntry {
+        private final String csvLine;
+        private final Element html;
+        private Path folder;
+
+        private IndexEntry(String csvLine, Element html) {
+            this.csvLine = csvLine;
+            this.html = html;
+        }
+    }
+
     private static String cleanXml(String xmlTextContent) {
         if (xmlTextContent != null) {
             return xmlContentEscaper().escape(xmlTextContent);
@@ -210,15 +394,14 @@ class MEF2Exporter {
      * is based on an ISO profil, the stylesheet /convert/to19139.xsl is used to map to ISO. Both
      * files are included in MEF file. Export relevant information according to format parameter.
      *
-     * @param zipFs Zip file to add new record
+     * @param metadataRootDir folder of the record in the Zip file or in a temporary folder
      */
     private static void createMetadataFolder(ServiceContext context,
-                                             AbstractMetadata metadata, FileSystem zipFs, boolean skipUUID,
+                                             AbstractMetadata metadata, Path metadataRootDir, boolean skipUUID,
                                              Path stylePath, Format format, boolean resolveXlink,
                                              boolean removeXlinkAttribute,
                                              boolean addSchemaLocation) throws Exception {
 
-        final Path metadataRootDir = zipFs.getPath(metadata.getUuid());
         Files.createDirectories(metadataRootDir);
 
         Pair<AbstractMetadata, String> recordAndMetadataForExport =
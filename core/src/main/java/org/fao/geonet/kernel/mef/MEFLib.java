@@ -148,6 +148,23 @@ public class MEFLib {
 
     // --------------------------------------------------------------------------
 
+    /**
+     * Write a MEF2 archive to a stream, exporting the records in parallel.
+     *
+     * @see MEF2Exporter#doStreamingExport
+     */
+    public static void doMEF2StreamingExport(ServiceContext context,
+                                             Iterator<String> uuids, OutputStream out, String format, boolean skipUUID,
+                                             Path stylePath, boolean resolveXlink, boolean removeXlinkAttribute,
+                                             boolean skipError, boolean addSchemaLocation, boolean approved,
+                                             int threads) throws Exception {
+        MEF2Exporter.doStreamingExport(context, uuids, out, Format.parse(format),
+            skipUUID, stylePath, resolveXlink, removeXlinkAttribute,
+            skipError, addSchemaLocation, approved, threads);
+    }
+
+    // --------------------------------------------------------------------------
+
     public static void visit(Path mefFile, IVisitor visitor, IMEFVisitor v)
         throws Exception {
         visitor.visit(mefFile, v);
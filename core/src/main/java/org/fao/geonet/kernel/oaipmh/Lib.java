@@ -23,6 +23,9 @@
 
 package org.fao.geonet.kernel.oaipmh;
 
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -31,14 +34,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 import jeeves.constants.Jeeves;
 import jeeves.server.context.ServiceContext;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.kernel.search.EsSearchManager;
-import static org.fao.geonet.kernel.search.EsSearchManager.FIELDLIST_CORE;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.fao.oaipmh.exceptions.OaiPmhException;
@@ -47,6 +50,12 @@ import org.jdom.Element;
 public class Lib {
     public static final String SESSION_OBJECT = "oai-list-records-result";
 
+    private static final Set<String> SEARCH_FIELDS = Collections.singleton(Geonet.IndexFieldNames.ID);
+
+    private static final List<SortOptions> SEARCH_SORT = Arrays.asList(
+        SortOptions.of(s -> s.field(f -> f.field(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE).order(SortOrder.Asc))),
+        SortOptions.of(s -> s.field(f -> f.field(Geonet.IndexFieldNames.ID).order(SortOrder.Asc))));
+
     private Lib() {
 
     }
@@ -107,32 +116,29 @@ public class Lib {
         return Xml.transform(root, styleSheet);
     }
 
-    public static List<Integer> search(ServiceContext context, Element params) throws Exception {
+    /**
+     * Search a page of the records matching the parameters, sorted by change date and id,
+     * so that the next page can be searched after the last record of a page without keeping
+     * the results between two requests.
+     *
+     * @param afterChangeDate the change date (milliseconds) of the last record of the previous page,
+     *                        null for the first page.
+     * @param afterId         the id of the last record of the previous page, null for the first page.
+     * @return the hits, with the record id in the source and the change date and id as sort values.
+     */
+    public static List<Hit> search(ServiceContext context, Element params, int size,
+                                   Long afterChangeDate, String afterId) throws Exception {
         EsSearchManager searchMan = context.getBean(EsSearchManager.class);
 
         JsonNode esJsonQuery = createSearchQuery(params);
 
-        // Get results count
-        SearchResponse queryResult = searchMan.query(
-            esJsonQuery,
-            FIELDLIST_CORE,
-            0, 1);
-
-        long total = queryResult.hits().total().value();
-
-        queryResult = searchMan.query(
-            esJsonQuery,
-            FIELDLIST_CORE,
-            0, (int) total);
-
-        List<Integer> result;
+        List<FieldValue> searchAfter = null;
+        if (afterChangeDate != null && afterId != null) {
+            searchAfter = Arrays.asList(FieldValue.of(afterChangeDate), FieldValue.of(afterId));
+        }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        result = ((List<Hit>) queryResult.hits().hits())
-            .stream()
-            .map(h -> Integer.parseInt(objectMapper.convertValue(h.source(), Map.class)
-                .get(Geonet.IndexFieldNames.ID).toString())).collect(Collectors.toList());
-        return result;
+        SearchResponse queryResult = searchMan.query(esJsonQuery, SEARCH_FIELDS, size, SEARCH_SORT, searchAfter);
+        return (List<Hit>) queryResult.hits().hits();
     }
 
     public static Element toJeevesException(OaiPmhException e) {
@@ -23,6 +23,7 @@
 
 package org.fao.geonet.kernel.oaipmh;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jeeves.constants.Jeeves;
 import jeeves.server.context.ServiceContext;
 
@@ -51,6 +52,8 @@ import javax.annotation.PreDestroy;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 //=============================================================================
 
@@ -58,7 +61,10 @@ public class OaiPmhDispatcher {
 
     public static final int MODE_MODIFIDATE = 2;
     public static final int MODE_TEMPEXTEND = 1;
-    private ResumptionTokenCache cache;
+    /**
+     * Executor building the records of ListRecords pages in parallel.
+     */
+    private ExecutorService listRecordsExecutor;
 
     //---------------------------------------------------------------------------
     //---
@@ -70,13 +76,14 @@ public class OaiPmhDispatcher {
     //---------------------------------------------------------------------------
 
     public OaiPmhDispatcher(SettingManager sm, SchemaManager scm) {
-        cache = new ResumptionTokenCache(sm);
+        listRecordsExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("gn-oaipmh-listrecords-%d").setDaemon(true).build());
 
         register(new GetRecord());
         register(new Identify());
-        register(new ListIdentifiers(cache, sm, scm));
+        register(new ListIdentifiers(sm, scm));
         register(new ListMetadataFormats());
-        register(new ListRecords(cache, sm, scm));
+        register(new ListRecords(sm, scm, listRecordsExecutor));
         register(new ListSets());
     }
 
@@ -159,8 +166,7 @@ public class OaiPmhDispatcher {
     @PreDestroy
     public void shutdown() {
         Log.info(Log.ENGINE, "OaiPmhDispatcher#shutdown");
-        cache.stopRunning();
-        cache = null;
+        listRecordsExecutor.shutdownNow();
     }
 }
 
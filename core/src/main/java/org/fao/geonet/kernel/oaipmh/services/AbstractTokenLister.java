@@ -23,42 +23,50 @@
 
 package org.fao.geonet.kernel.oaipmh.services;
 
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.ISODate;
 import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.oaipmh.Lib;
 import org.fao.geonet.kernel.oaipmh.OaiPmhDispatcher;
 import org.fao.geonet.kernel.oaipmh.OaiPmhService;
-import org.fao.geonet.kernel.oaipmh.ResumptionTokenCache;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.utils.Log;
 import org.fao.oaipmh.exceptions.BadArgumentException;
-import org.fao.oaipmh.exceptions.BadResumptionTokenException;
 import org.fao.oaipmh.exceptions.NoRecordsMatchException;
 import org.fao.oaipmh.requests.AbstractRequest;
 import org.fao.oaipmh.requests.TokenListRequest;
 import org.fao.oaipmh.responses.AbstractResponse;
 import org.fao.oaipmh.responses.GeonetworkResumptionToken;
 import org.fao.oaipmh.responses.ListResponse;
-import org.fao.oaipmh.util.SearchResult;
 import org.jdom.Element;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import jeeves.server.context.ServiceContext;
 
 
-public abstract class AbstractTokenLister implements OaiPmhService {
-
-    protected ResumptionTokenCache cache;
+/**
+ * Lists records by pages of the maximum number of records.
+ *
+ * Records are listed in the order of their change date and id. The resumption token
+ * holds the arguments of the request and the change date and id of the last record listed,
+ * so nothing is kept on the server between two requests and the next page is searched after
+ * these values. A record changed during a harvest is listed again on a later page.
+ *
+ * @param <T> the type of the items of the response built from a record.
+ */
+public abstract class AbstractTokenLister<T> implements OaiPmhService {
 
     private SettingManager settingMan;
     private SchemaManager schemaMan;
 
-    protected AbstractTokenLister(ResumptionTokenCache cache, SettingManager sm, SchemaManager scm) {
-        this.cache = cache;
+    protected AbstractTokenLister(SettingManager sm, SchemaManager scm) {
         this.settingMan = sm;
         this.schemaMan = scm;
     }
@@ -114,89 +122,95 @@ public abstract class AbstractTokenLister implements OaiPmhService {
 
         TokenListRequest req = (TokenListRequest) request;
 
-        SearchResult result;
-
-        String strToken = req.getResumptionToken();
-        GeonetworkResumptionToken token = null;
+        boolean resumed = req.getResumptionToken() != null;
+        GeonetworkResumptionToken token = new GeonetworkResumptionToken(req);
 
-
-        int pos = 0;
-
-        if (strToken == null) {
+        if (resumed) {
+            if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
+                Log.debug(Geonet.OAI_HARVESTER, "OAI " + this.getClass().getSimpleName() + " : using ResumptionToken :" + req.getResumptionToken());
+        } else {
             if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
                 Log.debug(Geonet.OAI_HARVESTER, "OAI " + this.getClass().getSimpleName() + " : new request (no resumptionToken)");
-            Element params = new Element("request");
 
             ISODate from = req.getFrom();
             ISODate until = req.getUntil();
-            String set = req.getSet();
-            String prefix = req.getMetadataPrefix();
-
-            if (from != null) {
-                String sFrom = from.isDateOnly() ? from.getDateAsString() : from.toString();
-                params.addContent(new Element(getDateFrom()).setText(sFrom));
-            }
-
-            if (until != null) {
-                String sTo = until.isDateOnly() ? until.getDateAsString() : until.toString();
-                params.addContent(new Element(getDateUntil()).setText(sTo));
-            }
 
             if (from != null && until != null && from.timeDifferenceInSeconds(until) > 0)
                 throw new BadArgumentException("From is greater than until");
+        }
 
-            if (set != null)
-                params.addContent(new Element("category").setText(set));
-
-            params.addContent(new Element("_schema").setText(prefix));
-
-            // now do the search
-            result = new SearchResult(prefix);
-            if (schemaMan.existsSchema(prefix)) {
-                result.setIds(Lib.search(context, params));
-            } else {
-                // collect up all the schemas that we can convert to create prefix,
-                // search ids and add to the result set
-                List<String> schemas = getSchemasThatCanConvertTo(prefix);
-                for (String schema : schemas) {
-                    params.removeChild("_schema");
-                    params.addContent(new Element("_schema").setText(schema));
-                    result.addIds(Lib.search(context, (Element) params.clone()));
-                }
-                if (schemas.isEmpty()) result.setIds(new ArrayList<>());
-            }
+        String prefix = token.getPrefix();
+        if (!schemaMan.existsSchema(prefix) && getSchemasThatCanConvertTo(prefix).isEmpty()) {
+            throw new NoRecordsMatchException("No results (or no conversion available for prefix '" + prefix + "')");
+        }
 
-            if (result.getIds().isEmpty()) {
-                throw new NoRecordsMatchException("No results (or no conversion available for prefix '" + req.getMetadataPrefix() + "')");
-            }
+        Element params = new Element("request");
 
-            // we only need a new token if the result set is big enough
-            if (result.getIds().size() > getMaxRecords()) {
-                token = new GeonetworkResumptionToken(req, result);
-                cache.storeResumptionToken(token);
-            }
+        if (token.getFrom() != null) {
+            params.addContent(new Element(getDateFrom()).setText(token.getFrom()));
+        }
 
-        } else {
-            token = cache.getResumptionToken(GeonetworkResumptionToken.buildKey(req));
-            if (Log.isDebugEnabled(Geonet.OAI_HARVESTER))
-                Log.debug(Geonet.OAI_HARVESTER, "OAI ListRecords : using ResumptionToken :" + GeonetworkResumptionToken.buildKey(req));
+        if (token.getUntil() != null) {
+            params.addContent(new Element(getDateUntil()).setText(token.getUntil()));
+        }
+
+        if (token.getSet() != null)
+            params.addContent(new Element("category").setText(token.getSet()));
+
+        params.addContent(new Element("_schema").setText(prefix));
+
+        // search the records after the last record listed until the page is full,
+        // records which cannot be disseminated in the prefix are skipped.
+        int maxRecords = getMaxRecords();
+        Long afterChangeDate = token.getAfterChangeDate();
+        String afterId = token.getAfterId();
+        List<T> items = new ArrayList<>();
+        boolean hasMore = false;
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        while (items.size() < maxRecords) {
+            int needed = maxRecords - items.size();
+            // one more hit to know if there are records after the page
+            List<Hit> hits = search(context, params, needed + 1, afterChangeDate, afterId);
+
+            List<Hit> pageHits = hits.subList(0, Math.min(needed, hits.size()));
+            List<Integer> ids = new ArrayList<>(pageHits.size());
+            for (Hit hit : pageHits) {
+                ids.add(Integer.parseInt(objectMapper.convertValue(hit.source(), Map.class)
+                    .get(Geonet.IndexFieldNames.ID).toString()));
+            }
 
-            if (token == null)
-                throw new BadResumptionTokenException("No session for token : " + GeonetworkResumptionToken.buildKey(req));
+            for (T item : processRecords(ids, prefix, context)) {
+                if (item != null) {
+                    items.add(item);
+                }
+            }
 
-            result = token.getRes();
+            if (!pageHits.isEmpty()) {
+                List<FieldValue> lastSort = pageHits.get(pageHits.size() - 1).sort();
+                afterChangeDate = lastSort.get(0).longValue();
+                afterId = lastSort.get(1).stringValue();
+            }
 
-            pos = GeonetworkResumptionToken.getPos(req);
+            hasMore = hits.size() > needed;
+            if (!hasMore) {
+                break;
+            }
         }
 
-        ListResponse res = processRequest(req, pos, result, context);
-        pos = pos + res.getSize();
-
-        if (token == null && res.getSize() == 0)
+        if (!resumed && items.isEmpty())
             throw new NoRecordsMatchException("No results");
 
-        if (token != null) token.setupToken(pos);
-        res.setResumptionToken(token);
+        ListResponse res = buildResponse(items);
+
+        if (hasMore) {
+            token.setupToken(afterChangeDate, afterId, token.getPos() + items.size());
+            res.setResumptionToken(token);
+        } else if (resumed) {
+            // empty token to indicate the last chunk
+            token.setupLastToken();
+            res.setResumptionToken(token);
+        }
 
         return res;
 
@@ -219,8 +233,25 @@ public abstract class AbstractTokenLister implements OaiPmhService {
         return result;
     }
 
+    /**
+     * Search the records sorted after the change date and id of the last record listed.
+     */
+    protected List<Hit> search(ServiceContext context, Element params, int size,
+                               Long afterChangeDate, String afterId) throws Exception {
+        return Lib.search(context, params, size, afterChangeDate, afterId);
+    }
+
     public abstract String getVerb();
 
-    public abstract ListResponse processRequest(TokenListRequest req, int pos, SearchResult result, ServiceContext context) throws Exception;
+    /**
+     * Build the items of the response for records.
+     *
+     * @param ids the ids of the records, in the order of the list.
+     * @return the items in the order of the ids, null for the records which cannot be listed
+     * in the prefix.
+     */
+    public abstract List<T> processRecords(List<Integer> ids, String prefix, ServiceContext context) throws Exception;
+
+    public abstract ListResponse buildResponse(List<T> items);
 
 }
@@ -31,22 +31,22 @@ import org.fao.geonet.domain.MetadataCategory;
 import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.oaipmh.Lib;
-import org.fao.geonet.kernel.oaipmh.ResumptionTokenCache;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.oaipmh.requests.ListIdentifiersRequest;
-import org.fao.oaipmh.requests.TokenListRequest;
 import org.fao.oaipmh.responses.Header;
 import org.fao.oaipmh.responses.ListIdentifiersResponse;
 import org.fao.oaipmh.responses.ListResponse;
-import org.fao.oaipmh.util.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import jeeves.server.context.ServiceContext;
 
 //=============================================================================
 
-public class ListIdentifiers extends AbstractTokenLister {
-    public ListIdentifiers(ResumptionTokenCache cache, SettingManager sm, SchemaManager scm) {
-        super(cache, sm, scm);
+public class ListIdentifiers extends AbstractTokenLister<Header> {
+    public ListIdentifiers(SettingManager sm, SchemaManager scm) {
+        super(sm, scm);
     }
 
     public String getVerb() {
@@ -59,31 +59,26 @@ public class ListIdentifiers extends AbstractTokenLister {
     //---
     //---------------------------------------------------------------------------
 
-    public ListResponse processRequest(TokenListRequest req, int pos, SearchResult result, ServiceContext context) throws Exception {
+    public List<Header> processRecords(List<Integer> ids, String prefix, ServiceContext context) {
 
         //--- loop to retrieve metadata
-        ListIdentifiersResponse res = new ListIdentifiersResponse();
-
-        int num = 0;
 
-        while (num < getMaxRecords() && pos < result.getIds().size()) {
-            int id = result.getIds().get(pos);
-
-            Header h = buildHeader(context, id, result.prefix);
+        List<Header> headers = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            headers.add(buildHeader(context, id, prefix));
+        }
 
-            if (h != null) {
-                res.addHeader(h);
-                num++;
-            }
+        return headers;
+    }
 
-            pos++;
+    public ListResponse buildResponse(List<Header> headers) {
+        ListIdentifiersResponse res = new ListIdentifiersResponse();
+        for (Header h : headers) {
+            res.addHeader(h);
         }
-
         return res;
-
     }
 
-
     //---------------------------------------------------------------------------
     //---
     //--- Private methods
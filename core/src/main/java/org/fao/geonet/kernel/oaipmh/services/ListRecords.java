@@ -28,26 +28,34 @@ import static org.fao.geonet.repository.specification.MetadataSpecs.hasMetadataI
 
 import org.fao.geonet.domain.Metadata;
 import org.fao.geonet.kernel.SchemaManager;
-import org.fao.geonet.kernel.oaipmh.ResumptionTokenCache;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.oaipmh.exceptions.CannotDisseminateFormatException;
 import org.fao.oaipmh.exceptions.IdDoesNotExistException;
 import org.fao.oaipmh.requests.ListRecordsRequest;
-import org.fao.oaipmh.requests.TokenListRequest;
 import org.fao.oaipmh.responses.ListRecordsResponse;
 import org.fao.oaipmh.responses.Record;
-import org.fao.oaipmh.util.SearchResult;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import jeeves.server.context.ServiceContext;
 
 //=============================================================================
 
-public class ListRecords extends AbstractTokenLister {
+public class ListRecords extends AbstractTokenLister<Record> {
 
+    /**
+     * Executor building the records of a page in parallel.
+     */
+    private final ExecutorService executor;
 
-    public ListRecords(ResumptionTokenCache cache, SettingManager sm, SchemaManager scm) {
-        super(cache, sm, scm);
+    public ListRecords(SettingManager sm, SchemaManager scm, ExecutorService executor) {
+        super(sm, scm);
+        this.executor = executor;
     }
 
     public String getVerb() {
@@ -61,28 +69,34 @@ public class ListRecords extends AbstractTokenLister {
     //---------------------------------------------------------------------------
 
 
-    public ListRecordsResponse processRequest(TokenListRequest req, int pos, SearchResult result, ServiceContext context) throws Exception {
-
-        int num = 0;
-        ListRecordsResponse res = new ListRecordsResponse();
-
-        //--- loop to retrieve metadata
-
-        while (num < getMaxRecords() && pos < result.getIds().size()) {
-            int id = result.getIds().get(pos);
+    public List<Record> processRecords(List<Integer> ids, String prefix, ServiceContext context) throws Exception {
 
-            Record r = buildRecord(context, id, result.prefix);
+        //--- build the records in parallel, results are in the order of the ids
 
-            if (r != null) {
-                res.addRecord(r);
-                num++;
+        List<Future<Record>> futures = new ArrayList<>(ids.size());
+        try {
+            for (int id : ids) {
+                futures.add(executor.submit(context.inContext(() -> buildRecord(context, id, prefix))));
             }
 
-            pos++;
+            List<Record> records = new ArrayList<>(ids.size());
+            for (Future<Record> future : futures) {
+                records.add(getRecord(future));
+            }
+            return records;
+        } finally {
+            for (Future<Record> future : futures) {
+                future.cancel(true);
+            }
         }
+    }
 
+    public ListRecordsResponse buildResponse(List<Record> records) {
+        ListRecordsResponse res = new ListRecordsResponse();
+        for (Record r : records) {
+            res.addRecord(r);
+        }
         return res;
-
     }
 
     //---------------------------------------------------------------------------
@@ -91,6 +105,20 @@ public class ListRecords extends AbstractTokenLister {
     //---
     //---------------------------------------------------------------------------
 
+    private static Record getRecord(Future<Record> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
     private Record buildRecord(ServiceContext context, int id, String prefix) throws Exception {
 
         // have to catch exceptions and return null because this function can
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jeeves.server.context.ServiceContext;
+import org.apache.commons.lang.StringUtils;
+import org.fao.geonet.NodeInfo;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.ReservedOperation;
+import org.fao.geonet.kernel.SchemaManager;
+import org.fao.geonet.kernel.XmlSerializer;
+import org.fao.geonet.kernel.schema.MetadataSchema;
+import org.fao.geonet.kernel.schema.MetadataSchemaOperationFilter;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Brief and summary CSW renditions of the records, built when a record is indexed
+ * and stored in the index document so that GetRecords can return them
+ * without loading the record and applying the CSW stylesheets.
+ *
+ * The renditions are the records as seen by an anonymous user of the main CSW
+ * service, in one language. Records having elements filtered depending on
+ * the download or dynamic privileges have no renditions because privileges
+ * can be updated without rebuilding the index document.
+ */
+public class CswRenditions {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Geonet.INDEX_ENGINE);
+
+    /**
+     * Index field of the renditions, an object stored but not indexed
+     * with the language and a rendition for each output schema and element set.
+     */
+    public static final String FIELD = "cswRenditions";
+
+    public static final String LANGUAGE = "lang";
+
+    public static final List<String> ELEMENT_SETS = Arrays.asList("brief", "summary");
+
+    @Value("${csw.renditions.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${csw.renditions.language:eng}")
+    private String language = "eng";
+
+    @Value("${csw.renditions.outputSchemas:csw,own}")
+    private String outputSchemas = "csw,own";
+
+    @Autowired
+    private SchemaManager schemaManager;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * @return true if a rendition is built for this output schema and element set.
+     */
+    public boolean isRendered(String outputSchema, String elementSet) {
+        return enabled
+            && ELEMENT_SETS.contains(elementSet)
+            && getOutputSchemas().contains(outputSchema);
+    }
+
+    public static String getKey(String outputSchema, String elementSet) {
+        return outputSchema + "-" + elementSet;
+    }
+
+    /**
+     * Build the renditions of a record.
+     *
+     * @param md the record with xlinks resolved
+     * @return the renditions as a JSON object or null if the record can not have renditions.
+     */
+    public String build(ServiceContext context, String metadataId, String schema, Element md) throws Exception {
+        MetadataSchema metadataSchema = schemaManager.getSchema(schema);
+        List<Namespace> namespaces = metadataSchema.getNamespaces();
+        if (hasFilteredElements(md, metadataSchema.getOperationFilter(ReservedOperation.download), namespaces)
+            || hasFilteredElements(md, metadataSchema.getOperationFilter(ReservedOperation.dynamic), namespaces)) {
+            return null;
+        }
+
+        Element record = (Element) md.clone();
+        XmlSerializer.removeFilteredElement(record, metadataSchema.getOperationFilter(ReservedOperation.editing), namespaces);
+        XmlSerializer.removeFilteredElement(record, metadataSchema.getOperationFilter("authenticated"), namespaces);
+
+        Attribute schemaLocation = schemaManager.getSchemaLocation(schema, context);
+        if (schemaLocation != null && record.getAttribute(schemaLocation.getName(), schemaLocation.getNamespace()) == null) {
+            record.setAttribute(schemaLocation);
+            record.removeNamespaceDeclaration(schemaLocation.getNamespace());
+            record.addNamespaceDeclaration(schemaLocation.getNamespace());
+        }
+
+        Path presentDir = schemaManager.getSchemaCSWPresentDir(schema);
+        String nodeId = context.getBean(NodeInfo.class).getId();
+        Map<String, Object> params = new HashMap<>();
+        params.put("lang", language);
+
+        // Converted once and transformed with each stylesheet
+        net.sf.saxon.om.NodeInfo recordTree = Xml.toNodeInfo(record);
+
+        ObjectNode renditions = new ObjectMapper().createObjectNode();
+        renditions.put(LANGUAGE, language);
+        for (String outputSchema : getOutputSchemas()) {
+            Path postProcessing = presentDir.resolve(outputSchema + "-" + nodeId + "-postprocessing.xsl");
+            for (String elementSet : ELEMENT_SETS) {
+                Path styleSheet = presentDir.resolve(outputSchema + "-" + elementSet + ".xsl");
+                if (!Files.exists(styleSheet)) {
+                    styleSheet = presentDir.resolve(outputSchema + ".xsl");
+                }
+                if (!Files.exists(styleSheet)) {
+                    continue;
+                }
+                try {
+                    Element rendition = Xml.transform(recordTree, styleSheet, params);
+                    if (Files.exists(postProcessing)) {
+                        rendition = Xml.transform(rendition, postProcessing, params);
+                    }
+                    renditions.put(getKey(outputSchema, elementSet), Xml.getString(rendition));
+                } catch (Exception e) {
+                    // GetRecords applies the stylesheet and reports the error
+                    LOGGER.debug("Record {}: no {} {} CSW rendition. Error is: {}",
+                        metadataId, outputSchema, elementSet, e.getMessage());
+                }
+            }
+        }
+        return renditions.toString();
+    }
+
+    private List<String> getOutputSchemas() {
+        return Arrays.stream(StringUtils.split(outputSchemas, ','))
+            .map(String::trim)
+            .collect(Collectors.toList());
+    }
+
+    private static boolean hasFilteredElements(Element md, MetadataSchemaOperationFilter filter,
+                                               List<Namespace> namespaces) throws JDOMException {
+        return filter != null && !Xml.selectNodes(md, filter.getXpath(), namespaces).isEmpty();
+    }
+}
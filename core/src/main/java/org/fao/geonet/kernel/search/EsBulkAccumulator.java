@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.elasticsearch.client.ResponseException;
+import org.fao.geonet.constants.Geonet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Accumulates documents to index and sends them in bulk requests.
+ *
+ * Writers add documents to the active buffer without locking. When the buffer
+ * reaches the maximum number of documents or the maximum size, it is atomically
+ * swapped for an empty one and sent asynchronously while writers fill
+ * the new buffer. At most {@code maxInFlight} bulk requests are running at the
+ * same time, the thread triggering a flush waits for a free slot which slows down
+ * indexing when the index does not keep up. Bulk requests or bulk items rejected with
+ * a 429 status (too many requests) are retried with an exponential backoff.
+ */
+public class EsBulkAccumulator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Geonet.INDEX_ENGINE);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Send a set of documents in one bulk request.
+     */
+    public interface BulkSender {
+        CompletableFuture<BulkResponse> send(Map<String, byte[]> documents);
+    }
+
+    /**
+     * Notified once a set of documents is indexed or failed to be indexed.
+     */
+    public interface BulkListener {
+        void onResponse(Map<String, byte[]> documents, BulkResponse response);
+
+        void onFailure(Map<String, byte[]> documents, Throwable error);
+    }
+
+    private static class Buffer {
+        private final Map<String, byte[]> documents = new ConcurrentHashMap<>();
+        private final AtomicLong size = new AtomicLong();
+        private final AtomicInteger writers = new AtomicInteger();
+    }
+
+    private final BulkSender sender;
+    private final BulkListener listener;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final int maxInFlight;
+    private final int maxRetries;
+    private final long retryDelayMs;
+
+    private final AtomicReference<Buffer> current = new AtomicReference<>(new Buffer());
+    private final Semaphore inFlight;
+    private final AtomicInteger inFlightDocuments = new AtomicInteger();
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param maxDocuments number of documents triggering a bulk request.
+     * @param maxBytes     size in bytes of documents triggering a bulk request.
+     * @param maxInFlight  maximum number of bulk requests running at the same time.
+     * @param maxRetries   maximum number of retries of a document rejected with a 429 status.
+     * @param retryDelayMs delay before the first retry, doubled for each retry.
+     */
+    public EsBulkAccumulator(BulkSender sender, BulkListener listener,
+                             int maxDocuments, long maxBytes,
+                             int maxInFlight, int maxRetries, long retryDelayMs) {
+        this.sender = sender;
+        this.listener = listener;
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+        this.maxInFlight = maxInFlight;
+        this.maxRetries = maxRetries;
+        this.retryDelayMs = retryDelayMs;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newScheduledThreadPool(maxInFlight,
+            new ThreadFactoryBuilder().setNameFormat("gn-index-bulk-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Add a document to index. A document with the same id not yet sent is replaced.
+     */
+    public void add(String id, byte[] json) {
+        while (true) {
+            Buffer buffer = current.get();
+            buffer.writers.incrementAndGet();
+            try {
+                if (current.get() != buffer) {
+                    // Buffer swapped by a flush, use the new one
+                    continue;
+                }
+                byte[] previous = buffer.documents.put(id, json);
+                long size = buffer.size.addAndGet(json.length - (previous == null ? 0 : previous.length));
+                if (buffer.documents.size() < maxDocuments && size < maxBytes) {
+                    return;
+                }
+            } finally {
+                buffer.writers.decrementAndGet();
+            }
+            flush(buffer);
+            return;
+        }
+    }
+
+    /**
+     * Send the documents accumulated so far.
+     *
+     * @param waitForCompletion wait until all bulk requests are completed.
+     */
+    public void flush(boolean waitForCompletion) {
+        flush(current.get());
+        if (waitForCompletion) {
+            inFlight.acquireUninterruptibly(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+    }
+
+    /**
+     * @return the number of documents accumulated or being sent.
+     */
+    public int getPendingDocuments() {
+        return current.get().documents.size() + inFlightDocuments.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void flush(Buffer buffer) {
+        if (!current.compareAndSet(buffer, new Buffer())) {
+            // Already flushed by another thread
+            return;
+        }
+        // Wait for writers which got the buffer before the swap
+        while (buffer.writers.get() > 0) {
+            Thread.onSpinWait();
+        }
+        if (buffer.documents.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> documents = new LinkedHashMap<>(buffer.documents);
+        inFlight.acquireUninterruptibly();
+        inFlightDocuments.addAndGet(documents.size());
+        send(documents, 0);
+    }
+
+    /**
+     * Send documents. The in flight permit is released once the documents
+     * are indexed or can not be retried anymore.
+     */
+    private void send(Map<String, byte[]> documents, int attempt) {
+        CompletableFuture<BulkResponse> future;
+        try {
+            future = sender.send(documents);
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenCompleteAsync((response, error) -> {
+            boolean retrying = false;
+            try {
+                if (error != null) {
+                    if (isTooManyRequests(error) && attempt < maxRetries) {
+                        retrying = retry(documents, 0, attempt);
+                    } else {
+                        listener.onFailure(documents, error);
+                    }
+                } else {
+                    Map<String, byte[]> rejected = new LinkedHashMap<>();
+                    if (response.errors() && attempt < maxRetries) {
+                        for (BulkResponseItem item : response.items()) {
+                            if (item.status() == TOO_MANY_REQUESTS && documents.containsKey(item.id())) {
+                                rejected.put(item.id(), documents.get(item.id()));
+                            }
+                        }
+                    }
+                    if (rejected.isEmpty()) {
+                        listener.onResponse(documents, response);
+                    } else {
+                        Map<String, byte[]> indexed = new LinkedHashMap<>(documents);
+                        indexed.keySet().removeAll(rejected.keySet());
+                        listener.onResponse(indexed, response);
+                        retrying = retry(rejected, documents.size() - rejected.size(), attempt);
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error while processing bulk response: {}", e.getMessage(), e);
+            } finally {
+                if (!retrying) {
+                    inFlightDocuments.addAndGet(-documents.size());
+                    inFlight.release();
+                }
+            }
+        }, executor);
+    }
+
+    private boolean retry(Map<String, byte[]> documents, int done, int attempt) {
+        long delay = retryDelayMs << attempt;
+        LOGGER.warn("Index is busy (status 429), retrying {} document(s) in {}ms (attempt {}/{}).",
+            documents.size(), delay, attempt + 1, maxRetries);
+        inFlightDocuments.addAndGet(-done);
+        try {
+            executor.schedule(() -> send(documents, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlightDocuments.addAndGet(done);
+            listener.onFailure(documents, e);
+            return false;
+        }
+    }
+
+    private static boolean isTooManyRequests(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ElasticsearchException) {
+            return ((ElasticsearchException) cause).status() == TOO_MANY_REQUESTS;
+        }
+        if (cause instanceof ResponseException) {
+            return ((ResponseException) cause).getResponse().getStatusLine().getStatusCode() == TOO_MANY_REQUESTS;
+        }
+        return false;
+    }
+}
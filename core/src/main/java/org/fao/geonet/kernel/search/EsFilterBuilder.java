@@ -38,7 +38,7 @@ public class EsFilterBuilder {
             return "*:*";
         } else {
             // op0 (ie. view operation) contains one of the ids of your groups
-            Set<Integer> groups = accessManager.getUserGroups(userSession, context.getIpAddress(), false);
+            Set<Integer> groups = accessManager.getPermissionContext(context).getGroups();
             final String ids = groups.stream()
                 .map(Object::toString)
                 .map(e -> e.replace("-", "\\\\-"))
@@ -23,7 +23,9 @@
 
 package org.fao.geonet.kernel.search;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.SortOptions;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
@@ -31,6 +33,7 @@ import co.elastic.clients.elasticsearch.core.bulk.UpdateOperation;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
 import co.elastic.clients.elasticsearch.indices.*;
+import co.elastic.clients.json.JsonData;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -64,13 +67,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.annotation.PreDestroy;
+import javax.xml.transform.sax.SAXResult;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.fao.geonet.constants.Geonet.IndexFieldNames.IS_TEMPLATE;
 import static org.fao.geonet.kernel.search.IndexFields.*;
@@ -87,6 +94,19 @@ public class EsSearchManager implements ISearchManager {
     public static final String FIELDNAME = "name";
     public static final String FIELDSTRING = "string";
 
+    /**
+     * Remove the fields starting with one of the prefixes and set the new fields.
+     */
+    private static final String REPLACE_FIELDS_SCRIPT =
+        "List toRemove = new ArrayList();" +
+        "for (String key : ctx._source.keySet()) {" +
+        "  for (String prefix : params.prefixes) {" +
+        "    if (key.startsWith(prefix)) { toRemove.add(key); break; }" +
+        "  }" +
+        "}" +
+        "for (String key : toRemove) { ctx._source.remove(key); }" +
+        "ctx._source.putAll(params.fields);";
+
     public static final Map<String, String> RELATED_INDEX_FIELDS;
     public static final Set<String> FIELDLIST_CORE;
     public static final Set<String> FIELDLIST_RELATED;
@@ -177,9 +197,19 @@ public class EsSearchManager implements ISearchManager {
 
     private int commitInterval = 200;
 
-    // public for test, to be private or protected
-    public Map<String, String> listOfDocumentsToIndex =
-        Collections.synchronizedMap(new HashMap<>());
+    @Value("${es.index.bulk.maxBytes:10485760}")
+    private long bulkMaxBytes = 10485760;
+
+    @Value("${es.index.bulk.maxInFlight:2}")
+    private int bulkMaxInFlight = 2;
+
+    @Value("${es.index.bulk.maxRetries:5}")
+    private int bulkMaxRetries = 5;
+
+    @Value("${es.index.bulk.retryDelay:500}")
+    private long bulkRetryDelay = 500;
+
+    private volatile EsBulkAccumulator bulkAccumulator;
     private Map<String, String> indexList;
 
     private Path getXSLTForIndexing(Path schemaDir, MetadataType metadataType) {
@@ -204,7 +234,7 @@ public class EsSearchManager implements ISearchManager {
             Map<String, Object> indexParams = new HashMap<>();
             indexParams.put("fastIndexMode", indexingMode.equals(IndexingMode.core));
 
-            Element fields = Xml.transform(metadata, styleSheet, indexParams);
+            Element fields = Xml.transform(Xml.toNodeInfo(metadata), styleSheet, indexParams);
             /* Generates something like that:
             <doc>
               <field name="toto">Contenu</field>
@@ -220,8 +250,31 @@ public class EsSearchManager implements ISearchManager {
         }
     }
 
+    /**
+     * Same as {@link #addMDFields(Element, Path, Element, MetadataType, IndexingMode)}
+     * but the XSLT output is streamed to the handler.
+     */
+    private void addMDFields(IndexDocumentHandler handler, Path schemaDir,
+                             Element metadata, MetadataType metadataType,
+                             IndexingMode indexingMode) {
+        final Path styleSheet = getXSLTForIndexing(schemaDir, metadataType);
+        try {
+            Map<String, Object> indexParams = new HashMap<>();
+            indexParams.put("fastIndexMode", indexingMode.equals(IndexingMode.core));
+
+            Xml.transform(Xml.toNodeInfo(metadata), styleSheet, new SAXResult(handler), indexParams);
+        } catch (Exception e) {
+            LOGGER.error("Indexing stylesheet contains errors: {} \n  Marking the metadata as _indexingError=1 in index", e.getMessage());
+            // Drop the fields received before the error
+            handler.clear();
+            handler.addField(INDEXING_ERROR_FIELD, "true", false);
+            handler.addField(INDEXING_ERROR_MSG, createIndexingErrorMsgObject("indexingErrorMsg-indexingStyleSheetError", "error",
+                Map.of("message", e.getMessage())).toString(), true);
+        }
+    }
+
     private void addMoreFields(Element doc, Multimap<String, Object> fields) {
-        ArrayList<String> objectFields = Lists.newArrayList(INDEXING_ERROR_MSG);
+        ArrayList<String> objectFields = Lists.newArrayList(INDEXING_ERROR_MSG, CswRenditions.FIELD);
         fields.entries().forEach(e -> {
             Element newElement = new Element(e.getKey())
                 .setText(String.valueOf(e.getValue()));
@@ -232,6 +285,12 @@ public class EsSearchManager implements ISearchManager {
         });
     }
 
+    private void addMoreFields(IndexDocumentHandler handler, Multimap<String, Object> fields) {
+        fields.entries().forEach(e ->
+            handler.addField(e.getKey(), String.valueOf(e.getValue()),
+                INDEXING_ERROR_MSG.equals(e.getKey()) || CswRenditions.FIELD.equals(e.getKey())));
+    }
+
     public Element makeField(String name, String value) {
         Element field = new Element("Field");
         field.setAttribute(EsSearchManager.FIELDNAME, name);
@@ -390,6 +449,54 @@ public class EsSearchManager implements ISearchManager {
         return client.getClient().bulk(bulkRequest);
     }
 
+    /**
+     * Update fields of many documents in one bulk request.
+     * Documents which are not in the index are not created.
+     *
+     * @param fieldsById            the fields to update by document id.
+     * @param fieldPrefixesToRemove fields starting with one of these prefixes are removed
+     *                              from the documents before setting the new values.
+     */
+    public BulkResponse updateFields(Map<String, Map<String, Object>> fieldsById,
+                                     Collection<String> fieldPrefixesToRemove) throws IOException {
+        if (fieldsById.isEmpty()) {
+            return null;
+        }
+        Date indexingDate = new Date();
+        JsonData prefixes = JsonData.of(new ArrayList<>(fieldPrefixesToRemove));
+        List<BulkOperation> bulkOperationList = new ArrayList<>(fieldsById.size());
+        fieldsById.forEach((id, fields) -> {
+            fields.put(Geonet.IndexFieldNames.INDEXING_DATE, indexingDate);
+            UpdateOperation updateOperation = UpdateOperation.of(
+                b -> b.id(id)
+                    .index(defaultIndex)
+                    .action(action -> action
+                        .script(script -> script
+                            .inline(inlineScript -> inlineScript
+                                .lang("painless")
+                                .source(REPLACE_FIELDS_SCRIPT)
+                                .params("prefixes", prefixes)
+                                .params("fields", JsonData.of(fields))
+                            )
+                        )
+                    )
+            );
+            bulkOperationList.add(BulkOperation.of(b -> b.update(updateOperation)));
+        });
+
+        BulkResponse response = client.getClient().bulk(BulkRequest.of(
+            b -> b.index(defaultIndex)
+                .operations(bulkOperationList)
+        ));
+        if (response.errors()) {
+            response.items().stream()
+                .filter(item -> item.error() != null)
+                .forEach(item -> LOGGER.warn("Failed to update fields of document {}: {}",
+                    item.id(), item.error().reason()));
+        }
+        return response;
+    }
+
     public void updateFieldsAsynch(String id, Map<String, Object> fields) {
         fields.put(Geonet.IndexFieldNames.INDEXING_DATE, new Date());
 
@@ -432,12 +539,63 @@ public class EsSearchManager implements ISearchManager {
                       boolean forceRefreshReaders,
                       IndexingMode indexingMode) throws Exception {
 
+        byte[] jsonDocument = collectIndexFields(schemaDir, metadata, dbFields, metadataType, indexingMode).toJson();
+
+        if (forceRefreshReaders) {
+            Map<String, byte[]> document = new HashMap<>();
+            document.put(id, jsonDocument);
+            final BulkResponse bulkItemResponses = client.bulkRequestRaw(defaultIndex, document);
+            checkIndexResponse(bulkItemResponses, document);
+            overviewFieldUpdater.process(id);
+        } else {
+            getBulkAccumulator().add(id, jsonDocument);
+        }
+    }
+
+    /**
+     * Apply the schema indexing XSLT to the record and add the database fields.
+     * The XSLT output is streamed to the returned handler which writes the JSON
+     * document sent to the index with {@link IndexDocumentHandler#toJson()}.
+     *
+     * @param schemaDir the schema directory or null if the schema is not registered,
+     *                  in which case only the database fields are added.
+     */
+    public IndexDocumentHandler collectIndexFields(Path schemaDir, Element metadata,
+                                                   Multimap<String, Object> dbFields,
+                                                   MetadataType metadataType,
+                                                   IndexingMode indexingMode) {
+        IndexDocumentHandler handler = new IndexDocumentHandler();
+        if (schemaDir != null) {
+            addMDFields(handler, schemaDir, metadata, metadataType, indexingMode);
+        }
+        addMoreFields(handler, dbFields);
+        return handler;
+    }
+
+    /**
+     * Apply the schema indexing XSLT to the record and add the database fields.
+     * Prefer {@link #collectIndexFields} which does not build the intermediate documents.
+     *
+     * @param schemaDir the schema directory or null if the schema is not registered,
+     *                  in which case only the database fields are added.
+     * @return the document with one element per field.
+     */
+    public Element buildIndexDocument(Path schemaDir, Element metadata,
+                                      Multimap<String, Object> dbFields,
+                                      MetadataType metadataType,
+                                      IndexingMode indexingMode) {
         Element docs = new Element("doc");
         if (schemaDir != null) {
             addMDFields(docs, schemaDir, metadata, metadataType, indexingMode);
         }
         addMoreFields(docs, dbFields);
+        return docs;
+    }
 
+    /**
+     * Convert the document built by {@link #buildIndexDocument} to the JSON sent to the index.
+     */
+    public String toIndexDocument(Element docs) throws JsonProcessingException {
         ObjectMapper mapper = new ObjectMapper();
         ObjectNode doc = documentToJson(docs);
 
@@ -453,34 +611,80 @@ public class EsSearchManager implements ISearchManager {
             doc.put(INDEXING_ERROR_FIELD, "true");
         }
 
-        String jsonDocument = mapper.writeValueAsString(doc);
+        return mapper.writeValueAsString(doc);
+    }
 
-        if (forceRefreshReaders) {
-            Map<String, String> document = new HashMap<>();
-            document.put(id, jsonDocument);
-            final BulkResponse bulkItemResponses = client.bulkRequest(defaultIndex, document);
-            checkIndexResponse(bulkItemResponses, document);
-            overviewFieldUpdater.process(id);
-        } else {
-            listOfDocumentsToIndex.put(id, jsonDocument);
-            if (listOfDocumentsToIndex.size() == commitInterval) {
-                sendDocumentsToIndex();
+    /**
+     * Send the documents waiting in the bulk accumulator and wait until they are indexed.
+     */
+    private void sendDocumentsToIndex() {
+        EsBulkAccumulator accumulator = bulkAccumulator;
+        if (accumulator != null) {
+            accumulator.flush(true);
+        }
+    }
+
+    private EsBulkAccumulator getBulkAccumulator() {
+        EsBulkAccumulator accumulator = bulkAccumulator;
+        if (accumulator == null) {
+            synchronized (this) {
+                accumulator = bulkAccumulator;
+                if (accumulator == null) {
+                    accumulator = new EsBulkAccumulator(
+                        documents -> client.bulkRequestRawAsync(defaultIndex, documents),
+                        new EsBulkAccumulator.BulkListener() {
+                            @Override
+                            public void onResponse(Map<String, byte[]> documents, BulkResponse response) {
+                                try {
+                                    checkIndexResponse(response, documents);
+                                } catch (Exception e) {
+                                    LOGGER.error("An error occurred while checking the indexing of {} documents. Error is {}.",
+                                        documents.size(), e.getMessage());
+                                } finally {
+                                    documents.keySet().forEach(uuid -> overviewFieldUpdater.process(uuid));
+                                }
+                            }
+
+                            @Override
+                            public void onFailure(Map<String, byte[]> documents, Throwable error) {
+                                LOGGER.error(
+                                    "An error occurred while indexing {} documents in current indexing list. Error is {}.",
+                                    documents.size(), error.getMessage());
+                                documents.keySet().forEach(uuid -> overviewFieldUpdater.process(uuid));
+                            }
+                        },
+                        commitInterval, bulkMaxBytes, bulkMaxInFlight, bulkMaxRetries, bulkRetryDelay);
+                    bulkAccumulator = accumulator;
+                }
             }
         }
+        return accumulator;
     }
 
-    private void sendDocumentsToIndex() {
-        Map<String, String> documents = new HashMap<>(listOfDocumentsToIndex);
-        listOfDocumentsToIndex.clear();
+    @PreDestroy
+    public void shutdownBulkAccumulator() {
+        EsBulkAccumulator accumulator = bulkAccumulator;
+        if (accumulator != null) {
+            accumulator.flush(true);
+            accumulator.shutdown();
+        }
+    }
+
+    /**
+     * Send a set of documents to the index in one bulk request.
+     *
+     * @param documents the UTF-8 encoded JSON documents by index key.
+     */
+    public void sendDocumentsToIndex(Map<String, byte[]> documents) {
         if (!documents.isEmpty()) {
             try {
                 final BulkResponse bulkItemResponses = client
-                    .bulkRequest(defaultIndex, documents);
+                    .bulkRequestRaw(defaultIndex, documents);
                 checkIndexResponse(bulkItemResponses, documents);
             } catch (Exception e) {
                 LOGGER.error(
                     "An error occurred while indexing {} documents in current indexing list. Error is {}.",
-                    listOfDocumentsToIndex.size(), e.getMessage());
+                    documents.size(), e.getMessage());
             } finally {
                 // TODO: Trigger this async ?
                 documents.keySet().forEach(uuid -> overviewFieldUpdater.process(uuid));
@@ -488,14 +692,19 @@ public class EsSearchManager implements ISearchManager {
         }
     }
 
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
     private void checkIndexResponse(BulkResponse bulkItemResponses,
-                                    Map<String, String> documents) throws IOException {
+                                    Map<String, byte[]> documents) throws IOException {
         if (bulkItemResponses.errors()) {
-            Map<String, String> listErrorOfDocumentsToIndex = new HashMap<>(bulkItemResponses.items().size());
+            Map<String, byte[]> listErrorOfDocumentsToIndex = new HashMap<>(bulkItemResponses.items().size());
             List<String> errorDocumentIds = new ArrayList<>();
             // Add information in index that some items were not properly indexed
             bulkItemResponses.items().forEach(e -> {
-                if (e.error() != null) {
+                // Items retried by the bulk accumulator are not part of the documents
+                if (e.error() != null && documents.containsKey(e.id())) {
                     errorDocumentIds.add(e.id());
                     ObjectMapper mapper = new ObjectMapper();
                     ObjectNode docWithErrorInfo = mapper.createObjectNode();
@@ -505,7 +714,7 @@ public class EsSearchManager implements ISearchManager {
                     String isTemplate = "";
                     String isDraft = "";
 
-                    String failureDoc = documents.get(e.id());
+                    byte[] failureDoc = documents.get(e.id());
                     try {
                         JsonNode node = mapper.readTree(failureDoc);
                         resourceTitle = node.get("resourceTitleObject").get("default").asText();
@@ -527,10 +736,10 @@ public class EsSearchManager implements ISearchManager {
 
                     LOGGER.error("Document with error #{}: {}.",
                         e.id(), e.error().reason());
-                    LOGGER.error(failureDoc);
+                    LOGGER.error(new String(failureDoc, StandardCharsets.UTF_8));
 
                     try {
-                        listErrorOfDocumentsToIndex.put(e.id(), mapper.writeValueAsString(docWithErrorInfo));
+                        listErrorOfDocumentsToIndex.put(e.id(), mapper.writeValueAsBytes(docWithErrorInfo));
                     } catch (JsonProcessingException e1) {
                         LOGGER.error("Generated document for the index is not properly formatted. Check document #{}: {}.",
                             e.id(), e1.getMessage());
@@ -539,7 +748,7 @@ public class EsSearchManager implements ISearchManager {
             });
 
             if (!listErrorOfDocumentsToIndex.isEmpty()) {
-                BulkResponse response = client.bulkRequest(defaultIndex, listErrorOfDocumentsToIndex);
+                BulkResponse response = client.bulkRequestRaw(defaultIndex, listErrorOfDocumentsToIndex);
                 if (response.errors()) {
                     LOGGER.error("Failed to save error documents {}.",
                         Arrays.toString(errorDocumentIds.toArray()));
@@ -664,10 +873,7 @@ public class EsSearchManager implements ISearchManager {
             String propertyName = getPropertyName(name);
             List<Element> nodeElements = xml.getChildren(name);
 
-            boolean isArray = nodeElements.size() > 1
-                || arrayFields.contains(propertyName)
-                || propertyName.endsWith("DateForResource")
-                || propertyName.startsWith("cl_");
+            boolean isArray = nodeElements.size() > 1 || isArrayProperty(propertyName);
 
             if (isArray) {
                 ArrayNode arrayNode = doc.putArray(propertyName);
@@ -682,7 +888,7 @@ public class EsSearchManager implements ISearchManager {
                         }
                     } else {
                         arrayNode.add(
-                            booleanFields.contains(propertyName) ?
+                            isBooleanProperty(propertyName) ?
                                 parseBoolean(node.getTextNormalize()) :
                                 node.getText());
 
@@ -701,7 +907,7 @@ public class EsSearchManager implements ISearchManager {
                 }
             } else {
                 doc.put(propertyName,
-                    booleanFields.contains(propertyName) ?
+                    isBooleanProperty(propertyName) ?
                         parseBoolean(nodeElements.get(0).getTextNormalize()) :
                         nodeElements.get(0).getText());
             }
@@ -710,18 +916,28 @@ public class EsSearchManager implements ISearchManager {
     }
 
 
+    static boolean isArrayProperty(String propertyName) {
+        return arrayFields.contains(propertyName)
+            || propertyName.endsWith("DateForResource")
+            || propertyName.startsWith("cl_");
+    }
+
+    static boolean isBooleanProperty(String propertyName) {
+        return booleanFields.contains(propertyName);
+    }
+
     /**
      * Field starting with _ not supported in Kibana
      * Those are usually GN internal fields
      */
-    private String getPropertyName(String name) {
+    static String getPropertyName(String name) {
         return name.startsWith("_") ? name.substring(1) : name;
     }
 
     /*
      * Normalize various GN boolean value to only true/false allowed in boolean fields in ES
      */
-    private String parseBoolean(String value) {
+    static String parseBoolean(String value) {
         return String.valueOf(booleanValues.contains(value));
     }
 
@@ -741,31 +957,16 @@ public class EsSearchManager implements ISearchManager {
         }
 
         if (StringUtils.isNotBlank(bucket)) {
-            ArrayList<String> listOfIdsToIndex = new ArrayList<>();
             UserSession session = context.getUserSession();
             SelectionManager sm = SelectionManager.getManager(session);
 
-            synchronized (sm.getSelection(bucket)) {
-                for (Iterator<String> iter = sm.getSelection(bucket).iterator();
-                     iter.hasNext(); ) {
-                    String uuid = iter.next();
-                    for (AbstractMetadata metadata : metadataRepository.findAllByUuid(uuid)) {
-                        String indexKey = uuid;
-                        if (metadata instanceof MetadataDraft) {
-                            indexKey += "-draft";
-                        }
-
-                        listOfIdsToIndex.add(indexKey);
-                    }
-
-                    if (!metadataRepository.existsMetadataUuid(uuid)) {
-                        LOGGER.warn("Selection contains uuid '{}' not found in database", uuid);
-                    }
+            // Index the selected records and their working copy
+            Iterator<String> uuids = SelectionManager.streamUuids(sm.getSelection(bucket)).iterator();
+            while (uuids.hasNext()) {
+                for (AbstractMetadata metadata : metadataRepository.findAllByUuid(uuids.next())) {
+                    metadataIndexer.indexMetadata(String.valueOf(metadata.getId()), false, IndexingMode.full);
                 }
             }
-            for (String id : listOfIdsToIndex) {
-                metadataIndexer.indexMetadata(id, false, IndexingMode.full);
-            }
         } else {
             final Specification<Metadata> metadataSpec =
                 Specification.where((Specification<Metadata>) MetadataSpecs.isType(MetadataType.METADATA))
@@ -816,6 +1017,31 @@ public class EsSearchManager implements ISearchManager {
         return client.query(defaultIndex, jsonRequest, null, includedFields, from, size);
     }
 
+    /**
+     * Run many queries in one multi search request.
+     *
+     * @param namedQueries queries which do not restrict the hits, a hit matching one of them has its name
+     *                     in its matched queries.
+     * @return the responses in the order of the queries.
+     */
+    public MsearchResponse<ObjectNode> multiQuery(List<String> luceneQueries, String filterQuery,
+                                                  Map<String, String> namedQueries,
+                                                  Set<String> includedFields, Map<String, String> scriptedFields,
+                                                  int from, int size) throws Exception {
+        return client.multiQuery(defaultIndex, luceneQueries, filterQuery, namedQueries,
+            includedFields, scriptedFields, from, size);
+    }
+
+    /**
+     * Query a page of results after the sort values of the last hit of the previous page.
+     *
+     * @param searchAfter the sort values of the last hit of the previous page, null for the first page.
+     */
+    public SearchResponse query(JsonNode jsonRequest, Set<String> includedFields,
+                                int size, List<SortOptions> sort, List<FieldValue> searchAfter) throws Exception {
+        return client.query(defaultIndex, jsonRequest, includedFields, size, sort, searchAfter);
+    }
+
     public Map<String, String> getFieldsValues(String id, Set<String> fields, String language) throws Exception {
         return client.getFieldsValues(defaultIndex, id, fields, language);
     }
@@ -825,6 +1051,10 @@ public class EsSearchManager implements ISearchManager {
         client.deleteByQuery(defaultIndex, "*:*");
     }
 
+    private static final int CHANGE_DATES_PAGE_SIZE = 10000;
+    private static final int DELETE_BATCH_SIZE = 5000;
+    private static final String CHANGE_DATES_KEEP_ALIVE = "1m";
+
     static ImmutableSet<String> docsChangeIncludedFields;
 
     static {
@@ -833,30 +1063,87 @@ public class EsSearchManager implements ISearchManager {
             .add(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE).build();
     }
 
+    /**
+     * Read the id and change date of all the records in the index.
+     */
     @Override
-    public Map<String, String> getDocsChangeDate() throws Exception {
-        // TODO: Response could be large
-        // https://www.elastic.co/guide/en/elasticsearch/client/java-rest/master/java-rest-high-search-scroll.html
-        final Map<String, String> docs = new HashMap<>();
+    public IndexChangeDates getIndexChangeDates() throws Exception {
+        IndexChangeDates changeDates = new IndexChangeDates();
         try {
-            int from = 0;
-            SettingInfo si = ApplicationContextHolder.get().getBean(SettingInfo.class);
-            int size = Integer.parseInt(si.getSelectionMaxRecords());
-
-            final SearchResponse response = client.query(defaultIndex, "*", null, docsChangeIncludedFields, from, size);
-
-            ObjectMapper objectMapper = new ObjectMapper();
-
-            response.hits().hits().forEach(r -> {
-                Hit h = (Hit) r;
-
-                docs.put(h.id(), (String) objectMapper.convertValue(h.source(), Map.class).get(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE));
-            });
+            forEachDocument(null, docsChangeIncludedFields, CHANGE_DATES_PAGE_SIZE, source ->
+                changeDates.add(
+                    source.path(Geonet.IndexFieldNames.ID).asText(null),
+                    source.path(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE).asText(null)));
         } catch (Exception e) {
             LOGGER.error("Error while collecting all documents: {}", e.getMessage(), e);
             throw e;
         }
-        return docs;
+        changeDates.sort();
+        return changeDates;
+    }
+
+    /**
+     * Read the source of all the documents matching a query, without limit on the number of documents.
+     *
+     * Documents are read by pages using a point in time, which gives a consistent view
+     * of the index while reading it, and search_after sorted by shard doc, which
+     * is the cheapest way to go through all the documents of an index.
+     *
+     * @param jsonQuery      the query, null for all the documents.
+     * @param includedFields the fields of the source to read.
+     * @param consumer       receives the source of each document, in no particular order.
+     */
+    public void forEachDocument(JsonNode jsonQuery, Set<String> includedFields, int pageSize,
+                                Consumer<ObjectNode> consumer) throws Exception {
+        ElasticsearchClient esClient = client.getClient();
+        String pitId = esClient.openPointInTime(p -> p
+            .index(defaultIndex)
+            .keepAlive(k -> k.time(CHANGE_DATES_KEEP_ALIVE))).id();
+        try {
+            List<String> fields = new ArrayList<>(includedFields);
+            String wrappedQuery = jsonQuery == null ? null
+                : Base64.getEncoder().encodeToString(String.valueOf(jsonQuery).getBytes(StandardCharsets.UTF_8));
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                final String currentPitId = pitId;
+                final List<FieldValue> currentSearchAfter = searchAfter;
+                SearchResponse<ObjectNode> response = esClient.search(s -> {
+                    s.size(pageSize)
+                        .pit(p -> p.id(currentPitId).keepAlive(k -> k.time(CHANGE_DATES_KEEP_ALIVE)))
+                        .sort(so -> so.field(f -> f.field("_shard_doc")))
+                        .source(sc -> sc.filter(f -> f.includes(fields)))
+                        .trackTotalHits(th -> th.enabled(false));
+                    if (wrappedQuery != null) {
+                        s.query(q -> q.wrapper(w -> w.query(wrappedQuery)));
+                    }
+                    if (currentSearchAfter != null) {
+                        s.searchAfter(currentSearchAfter);
+                    }
+                    return s;
+                }, ObjectNode.class);
+
+                List<Hit<ObjectNode>> hits = response.hits().hits();
+                if (hits.isEmpty()) {
+                    break;
+                }
+                for (Hit<ObjectNode> hit : hits) {
+                    if (hit.source() != null) {
+                        consumer.accept(hit.source());
+                    }
+                }
+                if (response.pitId() != null) {
+                    pitId = response.pitId();
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+        } finally {
+            final String lastPitId = pitId;
+            try {
+                esClient.closePointInTime(c -> c.id(lastPitId));
+            } catch (Exception e) {
+                LOGGER.warn("Error while closing point in time: {}", e.getMessage());
+            }
+        }
     }
 
     @Override
@@ -884,6 +1171,34 @@ public class EsSearchManager implements ISearchManager {
         client.deleteByQuery(defaultIndex, txt);
     }
 
+    /**
+     * Delete the documents of records by internal id.
+     *
+     * The ids are sent in the body of delete by query requests, as terms queries
+     * of {@link #DELETE_BATCH_SIZE} ids, so that the number of ids is not limited
+     * by the length of the request line or the maximum number of clauses of a query.
+     */
+    public void deleteByIds(Collection<Integer> metadataIds) throws Exception {
+        for (List<Integer> ids : Lists.partition(new ArrayList<>(metadataIds), DELETE_BATCH_SIZE)) {
+            List<FieldValue> values = new ArrayList<>(ids.size());
+            ids.forEach(id -> values.add(FieldValue.of(String.valueOf(id))));
+
+            DeleteByQueryResponse response = client.getClient().deleteByQuery(d -> d
+                .index(defaultIndex)
+                .query(q -> q.terms(t -> t
+                    .field(Geonet.IndexFieldNames.ID)
+                    .terms(tf -> tf.value(values))))
+                .refresh(true));
+
+            if (!response.failures().isEmpty()) {
+                StringBuilder stringBuilder = new StringBuilder();
+                response.failures().forEach(f -> stringBuilder.append(f.toString()));
+                throw new IOException(String.format(
+                    "Error during removal. Errors are '%s'.", stringBuilder));
+            }
+        }
+    }
+
     @Override
     public void delete(List<Integer> metadataIds) throws Exception {
         metadataIds.forEach(metadataId -> {
@@ -932,7 +1247,8 @@ public class EsSearchManager implements ISearchManager {
     }
 
     public boolean isIndexing() {
-        return listOfDocumentsToIndex.size() > 0;
+        EsBulkAccumulator accumulator = bulkAccumulator;
+        return accumulator != null && accumulator.getPendingDocuments() > 0;
     }
 
     public boolean isIndexWritable(String indexName) throws IOException, ElasticsearchException {
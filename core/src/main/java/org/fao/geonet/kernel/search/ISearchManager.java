@@ -33,7 +33,6 @@ import org.jdom.Element;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -71,7 +70,10 @@ public interface ISearchManager {
                          boolean reset,
                          String bucket) throws Exception;
 
-    Map<String, String> getDocsChangeDate() throws Exception;
+    /**
+     * @return the database id and change date of all the records in the index, sorted by id.
+     */
+    IndexChangeDates getIndexChangeDates() throws Exception;
 
     ISODate getDocChangeDate(String mdId) throws Exception;
 
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import org.apache.commons.lang.StringUtils;
+import org.fao.geonet.domain.ISODate;
+
+import java.util.Arrays;
+
+/**
+ * Database id and change date of the records in the index, sorted by id.
+ *
+ * The index stores the id as a keyword, so records can only be read in
+ * lexicographic order. They are collected in primitive arrays (12 bytes per record)
+ * and sorted by id so that they can be merged with the records of the database
+ * read in id order.
+ */
+public class IndexChangeDates {
+    /**
+     * Change date of a record which could not be parsed. Never equals a database change date.
+     */
+    public static final long UNKNOWN_CHANGE_DATE = Long.MIN_VALUE;
+
+    private int[] ids = new int[1024];
+    private long[] changeDates = new long[1024];
+    private int size = 0;
+    private boolean sorted = true;
+
+    /**
+     * Add a record. Records without a numeric id are ignored.
+     */
+    public void add(String id, String changeDate) {
+        int intId;
+        try {
+            intId = Integer.parseInt(StringUtils.trimToEmpty(id));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (intId < 0) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            changeDates = Arrays.copyOf(changeDates, size * 2);
+        }
+        if (size > 0 && ids[size - 1] >= intId) {
+            sorted = false;
+        }
+        ids[size] = intId;
+        changeDates[size] = toChangeDateKey(changeDate);
+        size++;
+    }
+
+    /**
+     * Sort the records by id. If a record is in the index more than once,
+     * only one is kept with an unknown change date so that it is reindexed.
+     */
+    public void sort() {
+        if (sorted) {
+            return;
+        }
+        // Sort the id and the position together, ids are positive
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedIds = new int[size];
+        long[] sortedChangeDates = new long[size];
+        int count = 0;
+        for (long key : keys) {
+            int id = (int) (key >>> 32);
+            int position = (int) key;
+            if (count > 0 && sortedIds[count - 1] == id) {
+                sortedChangeDates[count - 1] = UNKNOWN_CHANGE_DATE;
+                continue;
+            }
+            sortedIds[count] = id;
+            sortedChangeDates[count] = changeDates[position];
+            count++;
+        }
+        ids = sortedIds;
+        changeDates = sortedChangeDates;
+        size = count;
+        sorted = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int position) {
+        return ids[position];
+    }
+
+    public long getChangeDate(int position) {
+        return changeDates[position];
+    }
+
+    /**
+     * Convert a change date to a value which can be compared with the change date of
+     * another record. Dates are compared as instants so that the same date
+     * formatted differently is considered equal.
+     */
+    public static long toChangeDateKey(String changeDate) {
+        if (StringUtils.isBlank(changeDate)) {
+            return UNKNOWN_CHANGE_DATE;
+        }
+        try {
+            return new ISODate(changeDate).toDate().getTime();
+        } catch (Exception e) {
+            return UNKNOWN_CHANGE_DATE;
+        }
+    }
+}
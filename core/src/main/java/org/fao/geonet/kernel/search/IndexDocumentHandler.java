@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang.StringUtils;
+import org.fao.geonet.constants.Geonet;
+import org.jdom.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+import static org.fao.geonet.kernel.search.IndexFields.INDEXING_ERROR_FIELD;
+import static org.fao.geonet.kernel.search.IndexFields.INDEXING_ERROR_MSG;
+
+/**
+ * Receives the output of the indexing XSLT as SAX events and writes the
+ * JSON document sent to the index.
+ *
+ * The XSLT output is like:
+ * <pre>
+ * &lt;doc&gt;
+ *   &lt;field&gt;Content&lt;/field&gt;
+ *   &lt;jsonField type="object"&gt;{"key": "value"}&lt;/jsonField&gt;
+ * &lt;/doc&gt;
+ * </pre>
+ *
+ * Only the field names and their text values are kept, the document is then
+ * written with a {@link JsonGenerator} without building the intermediate JDOM
+ * document, Jackson tree and string. The JSON produced is the same as
+ * {@link EsSearchManager#documentToJson(org.jdom.Element)} followed by
+ * {@link EsSearchManager#toIndexDocument(org.jdom.Element)}.
+ *
+ * A handler collects one document and is not thread safe.
+ */
+public class IndexDocumentHandler extends DefaultHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Geonet.INDEX_ENGINE);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String SOURCE = "source";
+    private static final String SOURCE_CATALOGUE = "sourceCatalogue";
+
+    /**
+     * Values of all fields with the same element name.
+     */
+    private static class Field {
+        private final String propertyName;
+        private final boolean object;
+        private final List<String> values = new ArrayList<>(2);
+
+        private Field(String propertyName, boolean object) {
+            this.propertyName = propertyName;
+            this.object = object;
+        }
+    }
+
+    private final Map<String, Field> fieldsByName = new HashMap<>();
+    // Ordered by first occurrence. A field whose name maps to an existing property replaces it.
+    private final Map<String, Field> fieldsByProperty = new LinkedHashMap<>();
+
+    private int depth = 0;
+    private Field currentField;
+    private final StringBuilder currentText = new StringBuilder();
+
+    /**
+     * Add a field which is not part of the XSLT output, eg. database information.
+     *
+     * @param object true if the value is a JSON object.
+     */
+    public void addField(String name, String value, boolean object) {
+        getField(name, object).values.add(value);
+    }
+
+    public boolean hasField(String name) {
+        return fieldsByName.containsKey(name);
+    }
+
+    /**
+     * Remove all fields collected so far, eg. after an error in the XSLT.
+     */
+    public void clear() {
+        fieldsByName.clear();
+        fieldsByProperty.clear();
+        currentField = null;
+        currentText.setLength(0);
+        depth = 0;
+    }
+
+    @Override
+    public void startDocument() {
+        depth = 0;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        depth++;
+        if (depth == 2) {
+            String name = StringUtils.isNotEmpty(localName) ? localName : StringUtils.substringAfter(qName, ":");
+            if (StringUtils.isEmpty(name)) {
+                name = qName;
+            }
+            // JSON object may be generated in the XSL processing.
+            // In such case an object type attribute is set.
+            currentField = getField(name, "object".equals(attributes.getValue("type")));
+            currentText.setLength(0);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        // Only the text of the field, not the text of its children
+        if (depth == 2 && currentField != null) {
+            currentText.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (depth == 2 && currentField != null) {
+            currentField.values.add(currentText.toString());
+            currentField = null;
+        }
+        depth--;
+    }
+
+    /**
+     * @return the JSON document encoded in UTF-8.
+     */
+    public byte[] toJson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        writeTo(out);
+        return out.toByteArray();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        // ES does not allow a _source field
+        Field source = fieldsByProperty.get(SOURCE);
+        String catalog = source != null && !source.object && source.values.size() == 1
+            && !EsSearchManager.isArrayProperty(SOURCE) ? source.values.get(0) : "";
+        boolean hasCatalog = StringUtils.isNotEmpty(catalog);
+        boolean hasErrors = fieldsByProperty.containsKey(INDEXING_ERROR_MSG);
+
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            for (Field field : fieldsByProperty.values()) {
+                String propertyName = field.propertyName;
+                if (SOURCE.equals(propertyName)) {
+                    continue;
+                } else if (hasCatalog && SOURCE_CATALOGUE.equals(propertyName)) {
+                    generator.writeStringField(SOURCE_CATALOGUE, catalog);
+                    hasCatalog = false;
+                } else if (hasErrors && INDEXING_ERROR_FIELD.equals(propertyName)) {
+                    generator.writeStringField(INDEXING_ERROR_FIELD, "true");
+                    hasErrors = false;
+                } else {
+                    writeField(generator, field);
+                }
+            }
+            if (hasCatalog) {
+                generator.writeStringField(SOURCE_CATALOGUE, catalog);
+            }
+            if (hasErrors) {
+                generator.writeStringField(INDEXING_ERROR_FIELD, "true");
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeField(JsonGenerator generator, Field field) throws IOException {
+        String propertyName = field.propertyName;
+        boolean isBoolean = EsSearchManager.isBooleanProperty(propertyName);
+        boolean isArray = field.values.size() > 1 || EsSearchManager.isArrayProperty(propertyName);
+
+        if (isArray) {
+            generator.writeArrayFieldStart(propertyName);
+            for (String value : field.values) {
+                if (field.object) {
+                    JsonNode node = readObject(propertyName, value);
+                    if (node != null) {
+                        generator.writeTree(node);
+                    }
+                } else {
+                    generator.writeString(isBoolean ? EsSearchManager.parseBoolean(Text.normalizeString(value)) : value);
+                }
+            }
+            generator.writeEndArray();
+        } else if (field.object) {
+            JsonNode node = readObject(propertyName, field.values.get(0));
+            if (node != null) {
+                generator.writeFieldName(propertyName);
+                generator.writeTree(node);
+            }
+        } else {
+            String value = field.values.get(0);
+            generator.writeStringField(propertyName,
+                isBoolean ? EsSearchManager.parseBoolean(Text.normalizeString(value)) : value);
+        }
+    }
+
+    private JsonNode readObject(String propertyName, String value) {
+        String json = Text.normalizeString(value);
+        try {
+            JsonNode node = MAPPER.readTree(json);
+            return node == null || node.isMissingNode() ? null : node;
+        } catch (IOException e) {
+            LOGGER.error("Parsing invalid JSON node {} for property {}. Error is: {}",
+                json, propertyName, e.getMessage());
+            return null;
+        }
+    }
+
+    private Field getField(String name, boolean object) {
+        Field field = fieldsByName.get(name);
+        if (field == null) {
+            field = new Field(EsSearchManager.getPropertyName(name), object);
+            fieldsByName.put(name, field);
+            fieldsByProperty.put(field.propertyName, field);
+        }
+        return field;
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.keyword;
+
+import org.fao.geonet.kernel.KeywordBean;
+import org.fao.geonet.kernel.Thesaurus;
+import org.fao.geonet.languages.IsoLanguagesMapper;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Value;
+import org.openrdf.sesame.config.AccessDeniedException;
+import org.openrdf.sesame.query.MalformedQueryException;
+import org.openrdf.sesame.query.QueryEvaluationException;
+import org.openrdf.sesame.query.QueryResultsTable;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In memory index of the preferred labels of the concepts of a thesaurus, to search
+ * keywords by label without evaluating a SeRQL query on all the concepts.
+ *
+ * The labels of each language are sorted so that {@link KeywordSearchType#MATCH} and
+ * {@link KeywordSearchType#STARTS_WITH} searches are binary searches,
+ * {@link KeywordSearchType#CONTAINS} searches scan the labels of the searched languages.
+ * The index also holds the notes and bounding boxes of the concepts to create the
+ * keywords found as the keyword queries of {@link org.fao.geonet.kernel.rdf.QueryBuilder} do.
+ *
+ * An index is immutable, the thesaurus builds a new one after an update.
+ *
+ * @see Thesaurus#getLabelIndex()
+ */
+public final class KeywordLabelIndex {
+    private static final String NAMESPACES = " USING NAMESPACE"
+        + " skos = <http://www.w3.org/2004/02/skos/core#>,"
+        + " gml = <http://www.opengis.net/gml#>";
+
+    private static final String LABELS_QUERY = "SELECT id, value"
+        + " FROM {id} rdf:type {skos:Concept}, {id} skos:prefLabel {value}" + NAMESPACES;
+    private static final String NOTES_QUERY = "SELECT id, value"
+        + " FROM {id} rdf:type {skos:Concept}, {id} skos:scopeNote {value}" + NAMESPACES;
+    private static final String LOWER_CORNERS_QUERY = "SELECT id, value"
+        + " FROM {id} rdf:type {skos:Concept}, {id} gml:BoundedBy {} gml:lowerCorner {value}" + NAMESPACES;
+    private static final String UPPER_CORNERS_QUERY = "SELECT id, value"
+        + " FROM {id} rdf:type {skos:Concept}, {id} gml:BoundedBy {} gml:upperCorner {value}" + NAMESPACES;
+
+    /**
+     * Labels by language (the two letters code of the RDF literals, lower case).
+     */
+    private final Map<String, LabelEntry[]> labels;
+
+    private KeywordLabelIndex(Map<String, LabelEntry[]> labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Read the concepts of a thesaurus.
+     */
+    public static KeywordLabelIndex build(Thesaurus thesaurus) throws IOException, MalformedQueryException,
+        QueryEvaluationException, AccessDeniedException {
+        Map<String, Concept> concepts = new HashMap<>();
+        Map<String, List<LabelEntry>> labels = new HashMap<>();
+
+        QueryResultsTable table = thesaurus.performRequest(LABELS_QUERY);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            Value value = table.getValue(row, 1);
+            String lang = getLanguage(value);
+            if (lang == null) {
+                continue;
+            }
+            Concept concept = concepts.computeIfAbsent(table.getValue(row, 0).toString(), Concept::new);
+            String label = value.toString();
+            // as the SeRQL query, the first label of a language is the preferred label
+            if (concept.labels.putIfAbsent(lang, label) == null) {
+                labels.computeIfAbsent(lang, l -> new ArrayList<>())
+                    .add(new LabelEntry(label.toLowerCase(Locale.ROOT), label, concept));
+            }
+        }
+
+        table = thesaurus.performRequest(NOTES_QUERY);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            Value value = table.getValue(row, 1);
+            String lang = getLanguage(value);
+            Concept concept = concepts.get(table.getValue(row, 0).toString());
+            if (lang != null && concept != null) {
+                concept.notes.putIfAbsent(lang, value.toString());
+            }
+        }
+
+        table = thesaurus.performRequest(LOWER_CORNERS_QUERY);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            Concept concept = concepts.get(table.getValue(row, 0).toString());
+            if (concept != null && concept.lowerCorner == null) {
+                concept.lowerCorner = table.getValue(row, 1).toString();
+            }
+        }
+
+        table = thesaurus.performRequest(UPPER_CORNERS_QUERY);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            Concept concept = concepts.get(table.getValue(row, 0).toString());
+            if (concept != null && concept.upperCorner == null) {
+                concept.upperCorner = table.getValue(row, 1).toString();
+            }
+        }
+
+        Map<String, LabelEntry[]> sortedLabels = new HashMap<>();
+        for (Map.Entry<String, List<LabelEntry>> entry : labels.entrySet()) {
+            LabelEntry[] entries = entry.getValue().toArray(new LabelEntry[0]);
+            Arrays.sort(entries, LabelEntry.ORDER);
+            sortedLabels.put(entry.getKey(), entries);
+        }
+        return new KeywordLabelIndex(sortedLabels);
+    }
+
+    private static String getLanguage(Value value) {
+        if (value instanceof Literal && ((Literal) value).getLanguage() != null) {
+            return ((Literal) value).getLanguage().toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the index gives the same keywords as the SeRQL query
+     * for this search, false if the keyword contains wildcards.
+     */
+    public static boolean supports(KeywordLabelSearchClause clause) {
+        return clause.keyword != null && clause.keyword.indexOf('*') < 0;
+    }
+
+    /**
+     * Search the keywords having a label matching the search clause in one of the languages.
+     *
+     * @param languages the three letters codes of the languages to search and of the translations
+     *                  of the keywords
+     * @return the keywords, created when the list is read. A keyword matching in several languages
+     * is returned once.
+     */
+    public List<KeywordBean> search(final Thesaurus thesaurus, KeywordLabelSearchClause clause,
+                                    final Collection<String> languages) {
+        IsoLanguagesMapper mapper = thesaurus.getIsoLanguageMapper();
+        Set<Concept> found = new LinkedHashSet<>();
+        for (String lang : languages) {
+            String twoCodeLang = mapper.iso639_2_to_iso639_1(lang, lang.substring(0, 2)).toLowerCase(Locale.ROOT);
+            LabelEntry[] entries = labels.get(twoCodeLang);
+            if (entries != null) {
+                search(entries, clause.searchType, clause.keyword, clause.ignoreCase, found);
+            }
+        }
+
+        final List<Concept> concepts = new ArrayList<>(found);
+        final List<String> langs = new ArrayList<>(languages);
+        return new AbstractList<KeywordBean>() {
+            @Override
+            public KeywordBean get(int index) {
+                return concepts.get(index).toKeywordBean(thesaurus, langs, index);
+            }
+
+            @Override
+            public int size() {
+                return concepts.size();
+            }
+        };
+    }
+
+    private static void search(LabelEntry[] entries, KeywordSearchType searchType, String keyword,
+                               boolean ignoreCase, Set<Concept> found) {
+        String normalized = keyword.toLowerCase(Locale.ROOT);
+        if (searchType == KeywordSearchType.CONTAINS) {
+            for (LabelEntry entry : entries) {
+                if (entry.normalized.contains(normalized)
+                    && (ignoreCase || entry.label.contains(keyword))) {
+                    found.add(entry.concept);
+                }
+            }
+            return;
+        }
+
+        for (int i = firstIndex(entries, normalized); i < entries.length; i++) {
+            LabelEntry entry = entries[i];
+            boolean inRange = searchType == KeywordSearchType.MATCH
+                ? entry.normalized.equals(normalized)
+                : entry.normalized.startsWith(normalized);
+            if (!inRange) {
+                break;
+            }
+            boolean matches = ignoreCase
+                || (searchType == KeywordSearchType.MATCH ? entry.label.equals(keyword) : entry.label.startsWith(keyword));
+            if (matches) {
+                found.add(entry.concept);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first label greater or equal to the value.
+     */
+    private static int firstIndex(LabelEntry[] entries, String normalized) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].normalized.compareTo(normalized) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class LabelEntry {
+        private static final Comparator<LabelEntry> ORDER = Comparator.comparing(e -> e.normalized);
+
+        private final String normalized;
+        private final String label;
+        private final Concept concept;
+
+        private LabelEntry(String normalized, String label, Concept concept) {
+            this.normalized = normalized;
+            this.label = label;
+            this.concept = concept;
+        }
+    }
+
+    private static final class Concept {
+        private final String uri;
+        private final Map<String, String> labels = new LinkedHashMap<>();
+        private final Map<String, String> notes = new LinkedHashMap<>();
+        private String lowerCorner;
+        private String upperCorner;
+
+        private Concept(String uri) {
+            this.uri = uri;
+        }
+
+        /**
+         * Same keyword as created by the KeywordResultInterpreter of the rdf package.
+         */
+        private KeywordBean toKeywordBean(Thesaurus thesaurus, List<String> languages, int id) {
+            IsoLanguagesMapper mapper = thesaurus.getIsoLanguageMapper();
+            String[] lowerCorner = parseCorner(this.lowerCorner);
+            String[] upperCorner = parseCorner(this.upperCorner);
+            KeywordBean keywordBean = new KeywordBean(mapper)
+                .setThesaurusInfo(thesaurus)
+                .setId(id)
+                .setUriCode(uri)
+                .setCoordEast(upperCorner[0])
+                .setCoordNorth(upperCorner[1])
+                .setCoordSouth(lowerCorner[1])
+                .setCoordWest(lowerCorner[0])
+                .setDownloadUrl(thesaurus.getDownloadUrl())
+                .setKeywordUrl(thesaurus.getKeywordUrl());
+
+            for (String lang : languages) {
+                String twoCodeLang = mapper.iso639_2_to_iso639_1(lang, lang.substring(0, 2)).toLowerCase(Locale.ROOT);
+                keywordBean.setValue(labels.getOrDefault(twoCodeLang, ""), lang);
+                keywordBean.setDefinition(notes.getOrDefault(twoCodeLang, ""), lang);
+            }
+            return keywordBean;
+        }
+
+        private static String[] parseCorner(String corner) {
+            String[] parts = corner == null ? null : corner.split(" ");
+            if (parts != null && parts.length == 2) {
+                return parts;
+            }
+            return new String[]{"", ""};
+        }
+    }
+}
@@ -61,14 +61,29 @@ public class KeywordSearchParams {
     private final String thesauriDomainName;
     private final Comparator<KeywordBean> comparator;
     private int maxResults;
+    private final KeywordLabelSearchClause labelClause;
+    private final List<String> langs;
 
     public KeywordSearchParams(QueryBuilder<KeywordBean> query, Set<String> thesauriNames, String thesauriDomainName, int maxResults,
                                Comparator<KeywordBean> comparator) {
+        this(query, thesauriNames, thesauriDomainName, maxResults, comparator, null, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param labelClause the label search if it is the only search clause, to search the label index of
+     *                    the thesauri instead of running the query.
+     * @param langs       the languages of the query.
+     */
+    public KeywordSearchParams(QueryBuilder<KeywordBean> query, Set<String> thesauriNames, String thesauriDomainName, int maxResults,
+                               Comparator<KeywordBean> comparator, @Nullable KeywordLabelSearchClause labelClause,
+                               Collection<String> langs) {
         this.queryBuilder = query;
         this.thesauriNames = new LinkedHashSet<>(thesauriNames);
         this.thesauriDomainName = thesauriDomainName;
         this.maxResults = maxResults;
         this.comparator = comparator;
+        this.labelClause = labelClause;
+        this.langs = new ArrayList<>(langs);
     }
 
     /**
@@ -182,7 +197,7 @@ public class KeywordSearchParams {
 
 	private AtomicInteger executeQuery(AtomicInteger id, Collection<KeywordBean> results, Thesaurus thesaurus, Query<KeywordBean> query, Integer maxResults)
 			throws IOException, MalformedQueryException, QueryEvaluationException, AccessDeniedException {
-		for (KeywordBean keywordBean : query.execute(thesaurus)) {
+		for (KeywordBean keywordBean : execute(thesaurus, query)) {
 		    if (maxResults > -1 && results.size() >= maxResults) {
 		        break;
 		    }
@@ -192,6 +207,20 @@ public class KeywordSearchParams {
 		return id;
 	}
 
+    /**
+     * Search the label index of the thesaurus for label searches, run the query otherwise.
+     */
+    private List<KeywordBean> execute(Thesaurus thesaurus, Query<KeywordBean> query)
+        throws IOException, MalformedQueryException, QueryEvaluationException, AccessDeniedException {
+        if (labelClause != null) {
+            KeywordLabelIndex index = thesaurus.getLabelIndex();
+            if (index != null) {
+                return index.search(thesaurus, labelClause, langs);
+            }
+        }
+        return query.execute(thesaurus);
+    }
+
     private List<KeywordBean> executeAllSorted(QueryBuilder<KeywordBean> queryBuilder, ThesaurusFinder finder) throws IOException,
         MalformedQueryException, QueryEvaluationException, AccessDeniedException {
         AtomicInteger id = new AtomicInteger();
@@ -238,7 +238,24 @@ public class KeywordSearchParamsBuilder {
      */
     public KeywordSearchParams build() {
         checkState(false);
-        return new KeywordSearchParams(createQuery(), thesauriNames, thesauriDomainName, maxResults, this.comparator);
+        return new KeywordSearchParams(createQuery(), thesauriNames, thesauriDomainName, maxResults, this.comparator,
+            getIndexedClause(), langs);
+    }
+
+    /**
+     * @return the label search clause if the keywords can be found in the label index
+     * of the thesauri, null if the query must be run.
+     */
+    private KeywordLabelSearchClause getIndexedClause() {
+        if (searchClauses.size() != 1 || !selectClauses.isEmpty() || requireBoundedBy || offset > 0) {
+            return null;
+        }
+        SearchClause clause = searchClauses.getFirst();
+        if (clause instanceof KeywordLabelSearchClause
+            && KeywordLabelIndex.supports((KeywordLabelSearchClause) clause)) {
+            return (KeywordLabelSearchClause) clause;
+        }
+        return null;
     }
 
     private QueryBuilder<KeywordBean> createQuery() {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.url;
+
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.LinkStatus;
+import org.fao.geonet.utils.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.net.URI;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Check many URLs concurrently with the {@link UrlChecker}.
+ *
+ * Each URL is checked once. A host is checked by at most {@link #maxPerHost} threads,
+ * each waiting {@link #hostDelay} milliseconds between two requests, so that the number
+ * of threads can be increased without overloading the servers hosting many links.
+ */
+public class ConcurrentUrlChecker {
+
+    /**
+     * Maximum delay before the checked URLs are reported, even if the batch is not full.
+     */
+    private static final long FLUSH_DELAY_SECONDS = 10;
+
+    /**
+     * Added to the results by each worker when it stops, after the status of its URLs.
+     */
+    private static final Map.Entry<String, LinkStatus> WORKER_DONE = new AbstractMap.SimpleImmutableEntry<>(null, null);
+
+    @Autowired
+    private UrlChecker urlChecker;
+
+    @Value("${urlChecker.threads:10}")
+    private int threads = 10;
+
+    @Value("${urlChecker.maxPerHost:2}")
+    private int maxPerHost = 2;
+
+    /**
+     * Delay in milliseconds between two requests of a thread to the same host.
+     */
+    @Value("${urlChecker.hostDelay:200}")
+    private long hostDelay = 200;
+
+    public ConcurrentUrlChecker() {
+    }
+
+    public ConcurrentUrlChecker(UrlChecker urlChecker, int threads, int maxPerHost, long hostDelay) {
+        this.urlChecker = urlChecker;
+        this.threads = threads;
+        this.maxPerHost = maxPerHost;
+        this.hostDelay = hostDelay;
+    }
+
+    /**
+     * Check the URLs and report the status in batches, from the calling thread
+     * so that the batches can be saved in the transaction of the caller.
+     *
+     * @param batchSize     the maximum number of status in a batch.
+     * @param batchConsumer receives the status by URL.
+     */
+    public void check(Collection<String> urls, int batchSize,
+                      Consumer<Map<String, LinkStatus>> batchConsumer) throws InterruptedException {
+        Set<String> distinctUrls = new LinkedHashSet<>(urls);
+        if (distinctUrls.isEmpty()) {
+            return;
+        }
+
+        Map<String, Queue<String>> urlsByHost = new LinkedHashMap<>();
+        for (String url : distinctUrls) {
+            urlsByHost.computeIfAbsent(getHost(url), host -> new ConcurrentLinkedQueue<>()).add(url);
+        }
+
+        BlockingQueue<Map.Entry<String, LinkStatus>> results = new LinkedBlockingQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, distinctUrls.size())));
+        try {
+            int runningWorkers = 0;
+            for (Queue<String> hostUrls : urlsByHost.values()) {
+                int hostThreads = Math.max(1, Math.min(maxPerHost, hostUrls.size()));
+                for (int i = 0; i < hostThreads; i++) {
+                    executor.execute(() -> {
+                        try {
+                            checkHost(hostUrls, results);
+                        } finally {
+                            results.add(WORKER_DONE);
+                        }
+                    });
+                    runningWorkers++;
+                }
+            }
+            executor.shutdown();
+
+            int remaining = distinctUrls.size();
+            Map<String, LinkStatus> batch = new LinkedHashMap<>();
+            // stop when all the workers are done, even if some of them failed or were interrupted
+            while (remaining > 0 && runningWorkers > 0) {
+                Map.Entry<String, LinkStatus> result = results.poll(FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+                if (result == WORKER_DONE) {
+                    runningWorkers--;
+                    continue;
+                }
+                if (result != null) {
+                    batch.put(result.getKey(), result.getValue());
+                    remaining--;
+                }
+                if (!batch.isEmpty() && (result == null || remaining == 0 || batch.size() >= batchSize)) {
+                    batchConsumer.accept(batch);
+                    batch = new LinkedHashMap<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+            if (remaining > 0) {
+                Log.warning(Geonet.GEONETWORK, String.format(
+                    "%d URL(s) were not checked, the checking threads stopped before.", remaining));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void checkHost(Queue<String> hostUrls, BlockingQueue<Map.Entry<String, LinkStatus>> results) {
+        String url;
+        while ((url = hostUrls.poll()) != null) {
+            LinkStatus status;
+            try {
+                status = urlChecker.getUrlStatus(url);
+            } catch (RuntimeException e) {
+                status = urlChecker.buildExceptionStatus(e);
+            }
+            results.add(new AbstractMap.SimpleImmutableEntry<>(url, status));
+
+            if (hostDelay > 0 && !hostUrls.isEmpty()) {
+                try {
+                    Thread.sleep(hostDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Log.debug(Geonet.GEONETWORK, "URL check interrupted.");
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String getHost(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host == null ? "" : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            // checked with the other invalid URLs, the checker reports the error
+            return "";
+        }
+    }
+}
@@ -40,6 +40,7 @@ import org.springframework.data.jpa.domain.Specification;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
+import java.util.Map;
 import java.util.Optional;
 
 
@@ -129,6 +130,16 @@ public class UrlAnalyzer {
         linkRepository.save(link);
     }
 
+    /**
+     * Add the status of links checked by the {@link ConcurrentUrlChecker}.
+     */
+    public void saveLinkStatus(Map<Link, LinkStatus> linkStatus) {
+        for (Map.Entry<Link, LinkStatus> entry : linkStatus.entrySet()) {
+            entry.getKey().addStatus(entry.getValue());
+        }
+        linkRepository.saveAll(linkStatus.keySet());
+    }
+
     private Specification<MetadataLink> metadatalinksTargetting(Link link) {
         return (root, criteriaQuery, criteriaBuilder) -> criteriaBuilder.equal(root.get(MetadataLink_.link).get(Link_.id), link.getId());
     }
@@ -178,7 +178,7 @@ public class UrlChecker {
         return linkStatus;
     }
 
-    private LinkStatus buildExceptionStatus(Exception e) {
+    LinkStatus buildExceptionStatus(Exception e) {
         LinkStatus linkStatus = new LinkStatus();
         linkStatus.setStatusValue("4XX");
         linkStatus.setStatusInfo(e.getMessage());
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetadataSelectionTest {
+
+    @Test
+    public void testAddAndRemove() {
+        MetadataSelection selection = new MetadataSelection();
+        assertTrue(selection.isEmpty());
+
+        assertTrue(selection.add(3));
+        assertFalse(selection.add(3));
+        assertTrue(selection.add(100000));
+        assertEquals(2, selection.size());
+        assertTrue(selection.contains(100000));
+        assertFalse(selection.contains(4));
+        assertFalse(selection.contains(-1));
+
+        assertTrue(selection.remove(3));
+        assertFalse(selection.remove(3));
+        assertArrayEquals(new int[]{100000}, selection.ids().toArray());
+
+        selection.clear();
+        assertTrue(selection.isEmpty());
+    }
+
+    @Test
+    public void testSetOperations() {
+        MetadataSelection selection = MetadataSelection.of(bitSet(1, 2, 3));
+
+        selection.or(bitSet(5));
+        assertArrayEquals(new int[]{1, 2, 3, 5}, selection.ids().toArray());
+
+        selection.andNot(bitSet(2));
+        assertArrayEquals(new int[]{1, 3, 5}, selection.ids().toArray());
+
+        selection.and(bitSet(3, 5, 8));
+        assertArrayEquals(new int[]{3, 5}, selection.ids().toArray());
+
+        selection.set(bitSet(7));
+        assertArrayEquals(new int[]{7}, selection.ids().toArray());
+    }
+
+    @Test
+    public void testCopyIsNotModified() {
+        MetadataSelection selection = MetadataSelection.of(bitSet(1, 2));
+        MetadataSelection copy = selection.copy();
+
+        selection.add(3);
+        copy.remove(1);
+
+        assertArrayEquals(new int[]{1, 2, 3}, selection.ids().toArray());
+        assertArrayEquals(new int[]{2}, copy.ids().toArray());
+    }
+
+    private static BitSet bitSet(int... ids) {
+        BitSet bitSet = new BitSet();
+        for (int id : ids) {
+            bitSet.set(id);
+        }
+        return bitSet;
+    }
+}
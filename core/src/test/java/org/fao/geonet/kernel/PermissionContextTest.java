@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.domain.Profile;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PermissionContext}.
+ */
+public class PermissionContextTest {
+
+    private static PermissionContext permissions(Profile profile, Set<Integer> editingGroups,
+                                                 Set<Integer> reviewerGroups, boolean groupOwnerOnly) {
+        return new PermissionContext(null, null, true, 10, profile,
+            Set.of(1, 2, 3), editingGroups, reviewerGroups, groupOwnerOnly);
+    }
+
+    @Test
+    public void testAnonymous() {
+        PermissionContext anonymous = new PermissionContext(null, null, false, -1, null,
+            Set.of(1), Collections.emptySet(), Collections.emptySet(), true);
+        assertFalse(anonymous.isOwner(-1, 2));
+        assertFalse(anonymous.hasEditPermission(Set.of(1)));
+        assertFalse(anonymous.hasReviewPermission(2, Set.of(1)));
+    }
+
+    @Test
+    public void testAdministrator() {
+        PermissionContext admin = permissions(Profile.Administrator, Collections.emptySet(), Collections.emptySet(), true);
+        assertTrue(admin.isAdministrator());
+        assertTrue(admin.isOwner(1, null));
+        assertTrue(admin.hasReviewPermission(null, Collections.emptySet()));
+    }
+
+    @Test
+    public void testOwner() {
+        PermissionContext editor = permissions(Profile.Editor, Set.of(2), Collections.emptySet(), true);
+        assertTrue(editor.isOwner(10, 2));
+        assertFalse(editor.isOwner(11, 2));
+        assertTrue(editor.hasEditPermission(Set.of(2, 5)));
+        assertFalse(editor.hasEditPermission(Set.of(5)));
+
+        PermissionContext reviewer = permissions(Profile.Reviewer, Set.of(2), Set.of(2), true);
+        assertTrue(reviewer.isOwner(11, 2));
+        assertFalse(reviewer.isOwner(11, 3));
+        assertFalse(reviewer.isOwner(11, null));
+    }
+
+    @Test
+    public void testReviewPermission() {
+        PermissionContext groupOwnerOnly = permissions(Profile.Reviewer, Set.of(2, 3), Set.of(2), true);
+        assertTrue(groupOwnerOnly.hasReviewPermission(2, Collections.emptySet()));
+        assertFalse(groupOwnerOnly.hasReviewPermission(3, Set.of(2)));
+
+        PermissionContext reviewerInGroup = permissions(Profile.Reviewer, Set.of(2, 3), Set.of(2), false);
+        assertTrue(reviewerInGroup.hasReviewPermission(3, Set.of(2)));
+        assertFalse(reviewerInGroup.hasReviewPermission(3, Set.of(3)));
+    }
+}
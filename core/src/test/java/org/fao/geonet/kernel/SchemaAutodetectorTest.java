@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.exceptions.SchemaMatchConflictException;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SchemaAutodetectorTest {
+    private static final String GMD = "http://www.isotc211.org/2005/gmd";
+    private static final String GCO = "http://www.isotc211.org/2005/gco";
+
+    @SuppressWarnings("unchecked")
+    private static Schema schema(String autodetect) throws Exception {
+        Element root = Xml.loadString(
+            "<autodetect xmlns:gmd=\"" + GMD + "\" xmlns:gco=\"" + GCO + "\">" + autodetect + "</autodetect>", false);
+        Schema schema = new Schema();
+        schema.setAutodetectElements((List<Element>) root.getChildren());
+        return schema;
+    }
+
+    private static String detect(SchemaAutodetector autodetector, Element md, int mode) throws SchemaMatchConflictException {
+        return autodetector.match(md, mode, autodetector.getRecordElements(md));
+    }
+
+    private static SchemaAutodetector iso19139AndProfile() throws Exception {
+        Map<String, Schema> schemas = new LinkedHashMap<>();
+        schemas.put("iso19139", schema(
+            "<elements type=\"root\"><gmd:MD_Metadata/><gmd:CI_ResponsibleParty/></elements>"));
+        schemas.put("iso19139.profile", schema(
+            "<elements><gmd:metadataStandardName><gco:CharacterString>ISO 19115:2003/19139 - Profile.*</gco:CharacterString></gmd:metadataStandardName></elements>"));
+        schemas.put("iso19139.search", schema(
+            "<elements type=\"search\"><gmd:contentInfo/></elements>"));
+        return new SchemaAutodetector(schemas);
+    }
+
+    @Test
+    public void testRootMode() throws Exception {
+        SchemaAutodetector autodetector = iso19139AndProfile();
+        Element md = Xml.loadString("<gmd:MD_Metadata xmlns:gmd=\"" + GMD + "\"><gmd:fileIdentifier/></gmd:MD_Metadata>", false);
+
+        assertEquals("iso19139", detect(autodetector, md, SchemaAutodetector.MODE_ROOT));
+        assertNull(detect(autodetector, md, SchemaAutodetector.MODE_NEEDLEWITHVALUE));
+        assertNull(detect(autodetector, md, SchemaAutodetector.MODE_NEEDLE));
+
+        Element other = Xml.loadString("<MD_Metadata><fileIdentifier/></MD_Metadata>", false);
+        assertNull(detect(autodetector, other, SchemaAutodetector.MODE_ROOT));
+    }
+
+    @Test
+    public void testElementsModes() throws Exception {
+        SchemaAutodetector autodetector = iso19139AndProfile();
+        Element md = Xml.loadString("<gmd:MD_Metadata xmlns:gmd=\"" + GMD + "\" xmlns:gco=\"" + GCO + "\">" +
+            "<gmd:metadataStandardName><gco:CharacterString>ISO 19115:2003/19139 - Profile 1.0</gco:CharacterString></gmd:metadataStandardName>" +
+            "<gmd:contentInfo/>" +
+            "</gmd:MD_Metadata>", false);
+
+        assertEquals("iso19139.profile", detect(autodetector, md, SchemaAutodetector.MODE_NEEDLEWITHVALUE));
+        assertEquals("iso19139.search", detect(autodetector, md, SchemaAutodetector.MODE_NEEDLE));
+    }
+
+    @Test(expected = SchemaMatchConflictException.class)
+    public void testConflict() throws Exception {
+        Map<String, Schema> schemas = new LinkedHashMap<>();
+        schemas.put("iso19139", schema("<elements type=\"root\"><gmd:MD_Metadata/></elements>"));
+        schemas.put("iso19139.copy", schema("<elements type=\"root\"><gmd:MD_Metadata/></elements>"));
+        Element md = Xml.loadString("<gmd:MD_Metadata xmlns:gmd=\"" + GMD + "\"/>", false);
+        detect(new SchemaAutodetector(schemas), md, SchemaAutodetector.MODE_ROOT);
+    }
+}
@@ -47,6 +47,8 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ThesaurusTest extends AbstractThesaurusBasedTest {
@@ -386,6 +388,32 @@ public class ThesaurusTest extends AbstractThesaurusBasedTest {
         assertFalse(result);
     }
 
+    @Test
+    public void testUpdateElementInvalidatesCachedKeyword() throws Exception {
+        Path file = locateThesaurus(ThesaurusTest.class.getSimpleName() + "_cached.rdf");
+        Thesaurus cachedThesaurus = new Thesaurus(isoLangMapper, file.getFileName().toString(), null, null, Geonet.CodeList.LOCAL,
+            file.getFileName().toString(), file, "http://test.com", true, 100);
+        cachedThesaurus.initRepository();
+        try {
+            String otherUri = TEST_KEYWORD + "Other";
+            cachedThesaurus.addElement(new KeywordBean(isoLangMapper).setUriCode(TEST_KEYWORD).setValue("Hello", "eng"));
+            cachedThesaurus.addElement(new KeywordBean(isoLangMapper).setUriCode(otherUri).setValue("Other", "eng"));
+
+            KeywordBean keyword = cachedThesaurus.getKeyword(TEST_KEYWORD, "eng");
+            KeywordBean other = cachedThesaurus.getKeyword(otherUri, "eng");
+            assertSame(keyword, cachedThesaurus.getKeyword(TEST_KEYWORD, "eng"));
+
+            cachedThesaurus.updateElement(new KeywordBean(isoLangMapper).setUriCode(TEST_KEYWORD).setValue("Hello2", "eng"), true);
+
+            KeywordBean updated = cachedThesaurus.getKeyword(TEST_KEYWORD, "eng");
+            assertNotSame(keyword, updated);
+            assertEquals("Hello2", updated.getDefaultValue());
+            assertSame(other, cachedThesaurus.getKeyword(otherUri, "eng"));
+        } finally {
+            cachedThesaurus.getRepository().shutDown();
+        }
+    }
+
     private void addKeywordToWritableThesaurus(String uri)
         throws IOException, AccessDeniedException, GraphException {
         KeywordBean keyword = new KeywordBean(isoLangMapper);
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.mef;
+
+import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.constants.Params;
+import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.domain.ReservedGroup;
+import org.fao.geonet.utils.Xml;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MEF2ExporterIntegrationTest extends AbstractCoreIntegrationTest {
+
+    private ServiceContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = createServiceContext();
+        loginAsAdmin(context);
+    }
+
+    @Test
+    public void testStreamingExportKeepsOrder() throws Exception {
+        List<String> uuids = importRecords(6);
+        Set<Path> workDirs = listWorkDirs();
+
+        Map<String, byte[]> entries = export(uuids, false, 3);
+
+        assertEquals(uuids, recordFolders(entries));
+        assertTrue(entries.containsKey(uuids.get(0) + "/metadata/metadata.xml"));
+        assertTrue(entries.containsKey(uuids.get(0) + "/info.xml"));
+        List<String> names = new ArrayList<>(entries.keySet());
+        assertEquals(Arrays.asList("index.csv", "index.html"), names.subList(names.size() - 2, names.size()));
+        assertEquals(uuids, csvUuids(entries));
+        assertEquals("The temporary folder is removed", workDirs, listWorkDirs());
+    }
+
+    @Test
+    public void testStreamingExportSkipsErrors() throws Exception {
+        List<String> uuids = importRecords(2);
+        String missing = UUID.randomUUID().toString();
+        Set<Path> workDirs = listWorkDirs();
+
+        Map<String, byte[]> entries = export(Arrays.asList(uuids.get(0), missing, uuids.get(1)), true, 2);
+
+        assertEquals(uuids, recordFolders(entries));
+        assertEquals(uuids, csvUuids(entries));
+        String html = new String(entries.get("index.html"), StandardCharsets.UTF_8);
+        assertTrue(html.contains(uuids.get(1)));
+        assertFalse(html.contains(missing));
+        assertEquals("The temporary folder is removed", workDirs, listWorkDirs());
+    }
+
+    @Test
+    public void testStreamingExportFails() throws Exception {
+        List<String> uuids = importRecords(2);
+        Set<Path> workDirs = listWorkDirs();
+
+        try {
+            export(Arrays.asList(uuids.get(0), UUID.randomUUID().toString(), uuids.get(1)), false, 2);
+            fail("The record not found fails the export");
+        } catch (Exception e) {
+            // expected
+        }
+        assertEquals("The temporary folder is removed", workDirs, listWorkDirs());
+    }
+
+    /**
+     * Imports the records in their own transaction: the export workers don't see the data of
+     * the test transaction.
+     */
+    private List<String> importRecords(int count) {
+        return TransactionManager.runInTransaction("import-mef2-records", _applicationContext,
+            TransactionManager.TransactionRequirement.CREATE_NEW, TransactionManager.CommitBehavior.ALWAYS_COMMIT,
+            false, transaction -> {
+                List<String> uuids = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    String uuid = UUID.randomUUID().toString();
+                    byte[] xml = Xml.getString(getSampleMetadataXml()).getBytes(StandardCharsets.UTF_8);
+                    importMetadataXML(context, uuid, new ByteArrayInputStream(xml), MetadataType.METADATA,
+                        ReservedGroup.all.getId(), Params.NOTHING);
+                    uuids.add(uuid);
+                }
+                return uuids;
+            });
+    }
+
+    /**
+     * @return the content of the archive entries, in the order of the archive.
+     */
+    private Map<String, byte[]> export(List<String> uuids, boolean skipError, int threads) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MEF2Exporter.doStreamingExport(context, uuids.iterator(), out, MEFLib.Format.SIMPLE, false, null,
+            false, false, skipError, false, false, threads);
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> recordFolders(Map<String, byte[]> entries) {
+        return entries.keySet().stream()
+            .filter(name -> name.contains("/"))
+            .map(name -> name.substring(0, name.indexOf('/')))
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> csvUuids(Map<String, byte[]> entries) {
+        String[] lines = new String(entries.get("index.csv"), StandardCharsets.UTF_8).split("\n");
+        return Arrays.stream(lines)
+            .skip(1)
+            .map(line -> line.split("\";\"")[1])
+            .collect(Collectors.toList());
+    }
+
+    private static Set<Path> listWorkDirs() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files
+                .filter(file -> file.getFileName().toString().startsWith("mef-") && Files.isDirectory(file))
+                .collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.oaipmh;
+
+import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.utils.GeonetHttpRequestFactory;
+import org.fao.oaipmh.exceptions.BadResumptionTokenException;
+import org.fao.oaipmh.requests.ListRecordsRequest;
+import org.fao.oaipmh.responses.GeonetworkResumptionToken;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GeonetworkResumptionTokenTest {
+
+    private static ListRecordsRequest request(String resumptionToken) {
+        ListRecordsRequest request = new ListRecordsRequest(Mockito.mock(GeonetHttpRequestFactory.class));
+        request.setResumptionToken(resumptionToken);
+        return request;
+    }
+
+    @Test
+    public void testNewRequest() throws Exception {
+        ListRecordsRequest request = request(null);
+        request.setMetadataPrefix("iso19139");
+        GeonetworkResumptionToken token = new GeonetworkResumptionToken(request);
+
+        assertEquals("iso19139", token.getPrefix());
+        assertNull(token.getSet());
+        assertNull(token.getFrom());
+        assertNull(token.getUntil());
+        assertNull(token.getAfterChangeDate());
+        assertNull(token.getAfterId());
+        assertEquals(0, token.getPos());
+    }
+
+    @Test
+    public void testFormatAndParse() throws Exception {
+        ListRecordsRequest request = request(null);
+        request.setMetadataPrefix("iso19139");
+        request.setSet("maps");
+        request.setFrom(new ISODate("2024-01-01"));
+        request.setUntil(new ISODate("2024-06-30T12:00:00"));
+        GeonetworkResumptionToken token = new GeonetworkResumptionToken(request);
+        token.setupToken(1700000000000L, "42", 10);
+
+        GeonetworkResumptionToken resumed = new GeonetworkResumptionToken(request(token.getToken()));
+
+        assertEquals(token.getToken(), resumed.getToken());
+        assertEquals("iso19139", resumed.getPrefix());
+        assertEquals("maps", resumed.getSet());
+        assertEquals(token.getFrom(), resumed.getFrom());
+        assertEquals(token.getUntil(), resumed.getUntil());
+        assertEquals(Long.valueOf(1700000000000L), resumed.getAfterChangeDate());
+        assertEquals("42", resumed.getAfterId());
+        assertEquals(10, resumed.getPos());
+        assertFalse(resumed.isTokenEmpty());
+
+        // Token returned in a response and read back by a harvester
+        GeonetworkResumptionToken fromXml = new GeonetworkResumptionToken(token.toXml());
+        assertEquals(token.getToken(), fromXml.getToken());
+        assertEquals("0", token.toXml().getAttributeValue("cursor"));
+    }
+
+    @Test
+    public void testBadTokens() {
+        String sep = GeonetworkResumptionToken.SEPARATOR;
+        String[] badTokens = {
+            "",
+            "42",
+            "maps" + sep + "iso19139" + sep + sep + sep + "1700000000000" + sep + "42",
+            "maps" + sep + "iso19139" + sep + sep + sep + "1700000000000" + sep + "42" + sep + "10" + sep,
+            // non numeric position or change date
+            "maps" + sep + "iso19139" + sep + sep + sep + "1700000000000" + sep + "42" + sep + "ten",
+            "maps" + sep + "iso19139" + sep + sep + sep + "yesterday" + sep + "42" + sep + "10",
+            // change date without id and id without change date
+            "maps" + sep + "iso19139" + sep + sep + sep + "1700000000000" + sep + sep + "10",
+            "maps" + sep + "iso19139" + sep + sep + sep + sep + "42" + sep + "10",
+            // no prefix or negative position
+            "maps" + sep + sep + sep + sep + "1700000000000" + sep + "42" + sep + "10",
+            "maps" + sep + "iso19139" + sep + sep + sep + "1700000000000" + sep + "42" + sep + "-1"
+        };
+        for (String badToken : badTokens) {
+            try {
+                new GeonetworkResumptionToken(request(badToken));
+                fail("Token '" + badToken + "' should be rejected");
+            } catch (BadResumptionTokenException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLastToken() throws Exception {
+        String sep = GeonetworkResumptionToken.SEPARATOR;
+        GeonetworkResumptionToken token = new GeonetworkResumptionToken(
+            request(sep + "iso19139" + sep + sep + sep + "1700000000000" + sep + "42" + sep + "10"));
+        token.setupLastToken();
+
+        assertTrue(token.isTokenEmpty());
+        assertEquals("", token.getToken());
+        assertEquals("", token.toXml().getText());
+        assertEquals("10", token.toXml().getAttributeValue("cursor"));
+    }
+}
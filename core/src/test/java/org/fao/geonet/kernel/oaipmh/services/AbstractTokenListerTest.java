@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.oaipmh.services;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.kernel.SchemaManager;
+import org.fao.geonet.kernel.setting.SettingManager;
+import org.fao.geonet.kernel.setting.Settings;
+import org.fao.geonet.utils.GeonetHttpRequestFactory;
+import org.fao.oaipmh.exceptions.NoRecordsMatchException;
+import org.fao.oaipmh.requests.ListIdentifiersRequest;
+import org.fao.oaipmh.responses.GeonetworkResumptionToken;
+import org.fao.oaipmh.responses.Header;
+import org.fao.oaipmh.responses.ListIdentifiersResponse;
+import org.fao.oaipmh.responses.ListResponse;
+import org.jdom.Element;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractTokenListerTest {
+
+    private static final String PREFIX = "iso19139";
+
+    /**
+     * Records of the index as id and change date, in the search order.
+     */
+    private final List<long[]> records = new ArrayList<>();
+    private final Set<Integer> notListed = new HashSet<>();
+    private TestTokenLister lister;
+
+    @Before
+    public void setUp() {
+        SettingManager settingManager = Mockito.mock(SettingManager.class);
+        Mockito.when(settingManager.getValueAsInt(Settings.SYSTEM_OAI_MAXRECORDS)).thenReturn(2);
+        SchemaManager schemaManager = Mockito.mock(SchemaManager.class);
+        Mockito.when(schemaManager.existsSchema(PREFIX)).thenReturn(true);
+        lister = new TestTokenLister(settingManager, schemaManager);
+    }
+
+    private static ListIdentifiersRequest request(String resumptionToken) {
+        ListIdentifiersRequest request = new ListIdentifiersRequest(Mockito.mock(GeonetHttpRequestFactory.class));
+        request.setMetadataPrefix(PREFIX);
+        request.setResumptionToken(resumptionToken);
+        return request;
+    }
+
+    private void addRecords(int count) {
+        for (int id = 1; id <= count; id++) {
+            records.add(new long[]{id, 1000L * id});
+        }
+    }
+
+    private static List<String> identifiers(ListResponse response) {
+        List<String> identifiers = new ArrayList<>();
+        for (Header header : ((TestTokenLister.Response) response).headers) {
+            identifiers.add(header.getIdentifier());
+        }
+        return identifiers;
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        addRecords(5);
+
+        ListResponse first = (ListResponse) lister.execute(request(null), null);
+        assertEquals(Arrays.asList("1", "2"), identifiers(first));
+        GeonetworkResumptionToken token = (GeonetworkResumptionToken) first.getResumptionToken();
+        assertEquals(Long.valueOf(2000), token.getAfterChangeDate());
+        assertEquals("2", token.getAfterId());
+        assertEquals(2, token.getPos());
+
+        ListResponse second = (ListResponse) lister.execute(request(token.getToken()), null);
+        assertEquals(Arrays.asList("3", "4"), identifiers(second));
+        token = (GeonetworkResumptionToken) second.getResumptionToken();
+        assertEquals(4, token.getPos());
+
+        // Last page of a resumed request has an empty token
+        ListResponse last = (ListResponse) lister.execute(request(token.getToken()), null);
+        assertEquals(Collections.singletonList("5"), identifiers(last));
+        token = (GeonetworkResumptionToken) last.getResumptionToken();
+        assertTrue(token.isTokenEmpty());
+        assertEquals("", token.getToken());
+    }
+
+    @Test
+    public void testSinglePageHasNoToken() throws Exception {
+        addRecords(2);
+
+        ListResponse response = (ListResponse) lister.execute(request(null), null);
+        assertEquals(Arrays.asList("1", "2"), identifiers(response));
+        assertNull(response.getResumptionToken());
+    }
+
+    @Test
+    public void testRecordsNotListedAreSkipped() throws Exception {
+        addRecords(4);
+        notListed.add(2);
+
+        ListResponse response = (ListResponse) lister.execute(request(null), null);
+        assertEquals(Arrays.asList("1", "3"), identifiers(response));
+        GeonetworkResumptionToken token = (GeonetworkResumptionToken) response.getResumptionToken();
+        assertEquals("3", token.getAfterId());
+        assertEquals(2, token.getPos());
+    }
+
+    @Test
+    public void testLastPageFullOfResumedRequest() throws Exception {
+        addRecords(4);
+
+        ListResponse first = (ListResponse) lister.execute(request(null), null);
+        String token = first.getResumptionToken().getToken();
+        ListResponse last = (ListResponse) lister.execute(request(token), null);
+        assertEquals(Arrays.asList("3", "4"), identifiers(last));
+        assertTrue(((GeonetworkResumptionToken) last.getResumptionToken()).isTokenEmpty());
+    }
+
+    @Test(expected = NoRecordsMatchException.class)
+    public void testNoRecords() throws Exception {
+        lister.execute(request(null), null);
+    }
+
+    /**
+     * Lists the records of the test instead of searching the index.
+     */
+    private class TestTokenLister extends AbstractTokenLister<Header> {
+
+        TestTokenLister(SettingManager sm, SchemaManager scm) {
+            super(sm, scm);
+        }
+
+        @Override
+        protected List<Hit> search(ServiceContext context, Element params, int size,
+                                   Long afterChangeDate, String afterId) {
+            return records.stream()
+                .filter(r -> afterChangeDate == null || r[1] > afterChangeDate
+                    || (r[1] == afterChangeDate && String.valueOf(r[0]).compareTo(afterId) > 0))
+                .limit(size)
+                .<Hit>map(r -> Hit.of(h -> h
+                    .index("records")
+                    .id(String.valueOf(r[0]))
+                    .source(Map.of("id", String.valueOf(r[0])))
+                    .sort(FieldValue.of(r[1]), FieldValue.of(String.valueOf(r[0])))))
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public String getVerb() {
+            return ListIdentifiersRequest.VERB;
+        }
+
+        @Override
+        public List<Header> processRecords(List<Integer> ids, String prefix, ServiceContext context) {
+            List<Header> headers = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                if (notListed.contains(id)) {
+                    headers.add(null);
+                } else {
+                    Header header = new Header();
+                    header.setIdentifier(String.valueOf(id));
+                    headers.add(header);
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public ListResponse buildResponse(List<Header> headers) {
+            Response response = new Response();
+            response.headers.addAll(headers);
+            return response;
+        }
+
+        private class Response extends ListIdentifiersResponse {
+            private final List<Header> headers = new ArrayList<>();
+        }
+    }
+}
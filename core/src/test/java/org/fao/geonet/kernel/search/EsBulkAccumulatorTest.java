@@ -0,0 +1,169 @@
+package org.fao.geonet.kernel.search;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class EsBulkAccumulatorTest {
+
+    private final List<Map<String, byte[]>> sent = new CopyOnWriteArrayList<>();
+    private final Map<String, byte[]> indexed = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> failed = new ConcurrentHashMap<>();
+    private EsBulkAccumulator instance;
+
+    private final EsBulkAccumulator.BulkListener listener = new EsBulkAccumulator.BulkListener() {
+        @Override
+        public void onResponse(Map<String, byte[]> documents, BulkResponse response) {
+            indexed.putAll(documents);
+        }
+
+        @Override
+        public void onFailure(Map<String, byte[]> documents, Throwable error) {
+            failed.putAll(documents);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+    }
+
+    private static byte[] json(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static BulkResponse response(Map<String, byte[]> documents, Set<String> rejected) {
+        List<BulkResponseItem> items = new ArrayList<>();
+        documents.keySet().forEach(id -> items.add(BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Index).index("records").id(id);
+            if (rejected.contains(id)) {
+                i.status(429).error(ErrorCause.of(e -> e.type("es_rejected_execution_exception").reason("busy")));
+            } else {
+                i.status(200);
+            }
+            return i;
+        })));
+        return BulkResponse.of(b -> b.errors(!rejected.isEmpty()).items(items).took(1));
+    }
+
+    @Test
+    public void sendWhenMaxDocumentsIsReached() {
+        instance = new EsBulkAccumulator(documents -> {
+            sent.add(documents);
+            return CompletableFuture.completedFuture(response(documents, Collections.emptySet()));
+        }, listener, 3, Long.MAX_VALUE, 2, 0, 1);
+
+        instance.add("1", json("{}"));
+        instance.add("2", json("{}"));
+        assertEquals(0, sent.size());
+        instance.add("3", json("{}"));
+        instance.add("4", json("{}"));
+        instance.flush(true);
+
+        assertEquals(2, sent.size());
+        assertEquals(3, sent.get(0).size());
+        assertEquals(1, sent.get(1).size());
+        assertEquals(4, indexed.size());
+        assertEquals(0, instance.getPendingDocuments());
+    }
+
+    @Test
+    public void sendWhenMaxBytesIsReached() {
+        instance = new EsBulkAccumulator(documents -> {
+            sent.add(documents);
+            return CompletableFuture.completedFuture(response(documents, Collections.emptySet()));
+        }, listener, 100, 10, 2, 0, 1);
+
+        instance.add("1", json("{\"a\":\"1\"}"));
+        instance.add("2", json("{\"a\":\"2\"}"));
+        instance.flush(true);
+
+        assertEquals(1, sent.size());
+        assertEquals(2, indexed.size());
+    }
+
+    @Test
+    public void retryRejectedDocuments() {
+        instance = new EsBulkAccumulator(documents -> {
+            sent.add(documents);
+            // Reject document 2 on first attempt
+            Set<String> rejected = sent.size() == 1 ? Set.of("2") : Collections.emptySet();
+            return CompletableFuture.completedFuture(response(documents, rejected));
+        }, listener, 100, Long.MAX_VALUE, 1, 3, 1);
+
+        instance.add("1", json("{}"));
+        instance.add("2", json("{}"));
+        instance.flush(true);
+
+        assertEquals(2, sent.size());
+        assertEquals(Set.of("2"), sent.get(1).keySet());
+        assertEquals(Set.of("1", "2"), indexed.keySet());
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void retryRejectedRequest() {
+        instance = new EsBulkAccumulator(documents -> {
+            sent.add(documents);
+            // Reject the whole request on first attempt
+            if (sent.size() == 1) {
+                CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+                future.completeExceptionally(new ElasticsearchException("bulk", ErrorResponse.of(r -> r
+                    .status(429)
+                    .error(ErrorCause.of(e -> e.type("es_rejected_execution_exception").reason("busy"))))));
+                return future;
+            }
+            return CompletableFuture.completedFuture(response(documents, Collections.emptySet()));
+        }, listener, 100, Long.MAX_VALUE, 1, 3, 1);
+
+        instance.add("1", json("{}"));
+        instance.add("2", json("{}"));
+        instance.flush(true);
+
+        assertEquals(2, sent.size());
+        assertEquals(Set.of("1", "2"), sent.get(1).keySet());
+        assertEquals(Set.of("1", "2"), indexed.keySet());
+        assertTrue(failed.isEmpty());
+        assertEquals(0, instance.getPendingDocuments());
+    }
+
+    @Test
+    public void concurrentWritersDoNotLoseDocuments() throws Exception {
+        instance = new EsBulkAccumulator(documents -> {
+            sent.add(documents);
+            return CompletableFuture.supplyAsync(() -> response(documents, Collections.emptySet()));
+        }, listener, 7, Long.MAX_VALUE, 2, 0, 1);
+
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 1000; i++) {
+            String id = String.valueOf(i);
+            writers.submit(() -> instance.add(id, json("{}")));
+        }
+        writers.shutdown();
+        assertTrue(writers.awaitTermination(30, TimeUnit.SECONDS));
+        instance.flush(true);
+
+        assertEquals(1000, indexed.size());
+        assertEquals(1000, sent.stream().mapToInt(Map::size).sum());
+    }
+}
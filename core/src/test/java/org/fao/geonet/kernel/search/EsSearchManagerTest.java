@@ -7,7 +7,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import static org.junit.Assert.assertEquals;
 
+import org.jdom.Document;
 import org.jdom.Element;
+import org.jdom.output.SAXOutputter;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -63,4 +65,30 @@ public class EsSearchManagerTest {
 
         assertEquals(expected, result);
     }
+
+    @Test
+    public void indexDocumentHandlerProducesSameJsonAsDocumentToJson() throws Exception {
+        Element input = new Element("doc");
+        input.addContent(new Element("uuid").setText("abc"));
+        input.addContent(new Element("source").setText("catalog"));
+        input.addContent(new Element("_internal").setText(" kept as is "));
+        input.addContent(new Element("topic").setText("single value array"));
+        input.addContent(new Element("tag").setText("first"));
+        input.addContent(new Element("isHarvested").setText(" y "));
+        input.addContent(new Element("tag").setText("second"));
+        input.addContent(new Element("resourceTitleObject").setAttribute("type", "object")
+            .setText("{\"default\": \"Title\"}"));
+        input.addContent(new Element("invalidObject").setAttribute("type", "object").setText("{invalid"));
+        input.addContent(new Element(IndexFields.INDEXING_ERROR_MSG).setAttribute("type", "object")
+            .setText("{\"type\": \"error\"}")
+            .addContent(new Element("nested").setText("ignored")));
+
+        IndexDocumentHandler handler = new IndexDocumentHandler();
+        new SAXOutputter(handler).output(new Document((Element) input.clone()));
+
+        JsonNode expected = objectMapper.readTree(instance.toIndexDocument(input));
+        JsonNode result = objectMapper.readTree(handler.toJson());
+
+        assertEquals(expected, result);
+    }
 }
@@ -0,0 +1,62 @@
+package org.fao.geonet.kernel.search;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class IndexChangeDatesTest {
+
+    @Test
+    public void sortByIdAndIgnoreInvalidIds() {
+        IndexChangeDates changeDates = new IndexChangeDates();
+        changeDates.add("10", "2024-01-02T10:00:00Z");
+        changeDates.add("9", "2024-01-01T10:00:00Z");
+        changeDates.add("da165110-88fd-11da-a88f-000d939bc5d8", "2024-01-01T10:00:00Z");
+        changeDates.add(null, null);
+        changeDates.add("100", null);
+        changeDates.sort();
+
+        assertEquals(3, changeDates.size());
+        assertEquals(9, changeDates.getId(0));
+        assertEquals(10, changeDates.getId(1));
+        assertEquals(100, changeDates.getId(2));
+        assertEquals(IndexChangeDates.toChangeDateKey("2024-01-01T10:00:00Z"), changeDates.getChangeDate(0));
+        assertEquals(IndexChangeDates.UNKNOWN_CHANGE_DATE, changeDates.getChangeDate(2));
+    }
+
+    @Test
+    public void duplicateIdsHaveUnknownChangeDate() {
+        IndexChangeDates changeDates = new IndexChangeDates();
+        changeDates.add("2", "2024-01-01T10:00:00Z");
+        changeDates.add("1", "2024-01-01T10:00:00Z");
+        changeDates.add("2", "2024-01-01T10:00:00Z");
+        changeDates.sort();
+
+        assertEquals(2, changeDates.size());
+        assertEquals(2, changeDates.getId(1));
+        assertEquals(IndexChangeDates.UNKNOWN_CHANGE_DATE, changeDates.getChangeDate(1));
+    }
+
+    @Test
+    public void growBeyondInitialCapacity() {
+        IndexChangeDates changeDates = new IndexChangeDates();
+        for (int i = 5000; i > 0; i--) {
+            changeDates.add(String.valueOf(i), "2024-01-01T10:00:00Z");
+        }
+        changeDates.sort();
+
+        assertEquals(5000, changeDates.size());
+        assertEquals(1, changeDates.getId(0));
+        assertEquals(5000, changeDates.getId(4999));
+    }
+
+    @Test
+    public void compareChangeDatesAsInstants() {
+        assertEquals(IndexChangeDates.toChangeDateKey("2024-01-01T10:00:00Z"),
+            IndexChangeDates.toChangeDateKey("2024-01-01T10:00:00.000Z"));
+        assertNotEquals(IndexChangeDates.toChangeDateKey("2024-01-01T10:00:00Z"),
+            IndexChangeDates.toChangeDateKey("2024-01-01T10:00:01Z"));
+        assertEquals(IndexChangeDates.UNKNOWN_CHANGE_DATE, IndexChangeDates.toChangeDateKey("not a date"));
+    }
+}
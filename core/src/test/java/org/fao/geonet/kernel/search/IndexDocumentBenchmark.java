@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.fao.geonet.domain.MetadataType;
+import org.jdom.Element;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the time and allocation per record of the two ways to build
+ * the document sent to the index:
+ * <ul>
+ *     <li>tree: XSLT to JDOM, JDOM to Jackson tree, tree to string, string parsed in the bulk request,</li>
+ *     <li>streaming: XSLT to SAX handler, handler to JSON bytes sent as is in the bulk request.</li>
+ * </ul>
+ *
+ * Compile the test sources with the benchmark profile ({@code mvn test-compile -Pbenchmark})
+ * and run the main method with the test classpath. The GC profiler reports the
+ * bytes allocated per record in gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IndexDocumentBenchmark {
+
+    @Param({"50", "500"})
+    public int numberOfFields;
+
+    private EsSearchManager searchManager;
+    private JsonpMapper jsonpMapper;
+    private Path schemaDir;
+    private Element metadata;
+    private Multimap<String, Object> dbFields;
+
+    @Setup
+    public void setup() throws Exception {
+        searchManager = new EsSearchManager();
+        jsonpMapper = new JacksonJsonpMapper();
+        schemaDir = Paths.get(IndexDocumentBenchmark.class.getResource("index-fields/index.xsl").toURI())
+            .getParent().getParent();
+
+        metadata = new Element("record");
+        metadata.addContent(new Element("resourceTitleObject").setAttribute("type", "object")
+            .setText("{\"default\": \"Benchmark record\", \"langeng\": \"Benchmark record\"}"));
+        for (int i = 0; i < numberOfFields; i++) {
+            metadata.addContent(new Element("keyword").setText("Keyword " + i));
+            metadata.addContent(new Element("field" + i).setText("Value of field " + i
+                + " with some text to make it look like an abstract or a lineage."));
+            if (i % 10 == 0) {
+                metadata.addContent(new Element("link").setAttribute("type", "object")
+                    .setText("{\"protocol\": \"OGC:WMS\", \"url\": \"https://example.org/wms?layer=" + i + "\"}"));
+            }
+        }
+
+        dbFields = ArrayListMultimap.create();
+        dbFields.put("id", "1");
+        dbFields.put("uuid", "da165110-88fd-11da-a88f-000d939bc5d8");
+        dbFields.put("source", "7fc45be3-9aba-4198-920c-b8737112d522");
+        dbFields.put("isPublishedToAll", "true");
+        dbFields.put("isHarvested", "n");
+    }
+
+    @Benchmark
+    public Object tree() throws Exception {
+        Element docs = searchManager.buildIndexDocument(schemaDir, metadata, dbFields, MetadataType.METADATA, IndexingMode.full);
+        String json = searchManager.toIndexDocument(docs);
+        // As done by EsRestClient when building the bulk request
+        return JsonData.from(jsonpMapper.jsonProvider().createParser(new StringReader(json)), jsonpMapper);
+    }
+
+    @Benchmark
+    public Object streaming() throws Exception {
+        byte[] json = searchManager.collectIndexFields(schemaDir, metadata, dbFields, MetadataType.METADATA, IndexingMode.full).toJson();
+        return BinaryData.of(json, ContentType.APPLICATION_JSON);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(IndexDocumentBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
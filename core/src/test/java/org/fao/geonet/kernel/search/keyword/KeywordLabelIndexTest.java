@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search.keyword;
+
+import org.fao.geonet.kernel.AbstractThesaurusBasedTest;
+import org.fao.geonet.kernel.KeywordBean;
+import org.fao.geonet.kernel.rdf.QueryBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KeywordLabelIndexTest extends AbstractThesaurusBasedTest {
+
+    public KeywordLabelIndexTest() {
+        super(false);
+    }
+
+    @Test
+    public void testSameKeywordsAsQuery() throws Exception {
+        List<String> langs = Arrays.asList("fre", "eng");
+        assertSameKeywordsAsQuery(new KeywordLabelSearchClause(KeywordSearchType.STARTS_WITH, "1", true), langs, 111);
+        assertSameKeywordsAsQuery(new KeywordLabelSearchClause(KeywordSearchType.CONTAINS, "9_TESTVALUE", true), langs, 100);
+        assertSameKeywordsAsQuery(new KeywordLabelSearchClause(KeywordSearchType.CONTAINS, "9_TESTVALUE", false), langs, 0);
+        assertSameKeywordsAsQuery(new KeywordLabelSearchClause(KeywordSearchType.MATCH, "5_testValue_eng", false), langs, 1);
+        assertSameKeywordsAsQuery(new KeywordLabelSearchClause(KeywordSearchType.MATCH, "5_testvalue_eng", false), langs, 0);
+        assertSameKeywordsAsQuery(new KeywordLabelSearchClause(KeywordSearchType.MATCH, "5_testvalue_ita", true), langs, 0);
+    }
+
+    private void assertSameKeywordsAsQuery(KeywordLabelSearchClause clause, List<String> langs, int expectedSize) throws Exception {
+        List<KeywordBean> expected = QueryBuilder.keywordQueryBuilder(isoLangMapper, langs)
+            .where(clause.toWhere(new LinkedHashSet<>(langs)))
+            .build()
+            .execute(thesaurus);
+        List<KeywordBean> actual = thesaurus.getLabelIndex().search(thesaurus, clause, langs);
+
+        assertEquals(expectedSize, actual.size());
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    private Set<String> describe(List<KeywordBean> keywords) {
+        Set<String> descriptions = new TreeSet<>();
+        for (KeywordBean keyword : keywords) {
+            descriptions.add(keyword.getUriCode()
+                + " " + keyword.getDefaultLang()
+                + " " + new TreeMap<>(keyword.getValues())
+                + " " + new TreeMap<>(keyword.getDefinitions())
+                + " " + keyword.getCoordWest() + " " + keyword.getCoordSouth()
+                + " " + keyword.getCoordEast() + " " + keyword.getCoordNorth()
+                + " " + keyword.getThesaurusKey());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void testIndexIsRebuiltAfterUpdate() throws Exception {
+        KeywordLabelIndex index = thesaurus.getLabelIndex();
+        assertSame(index, thesaurus.getLabelIndex());
+
+        KeywordLabelSearchClause clause = new KeywordLabelSearchClause(KeywordSearchType.MATCH, "newLabel", true);
+        assertTrue(index.search(thesaurus, clause, Arrays.asList("eng")).isEmpty());
+
+        thesaurus.addElement(new KeywordBean(isoLangMapper)
+            .setUriCode(THESAURUS_KEYWORD_NS + "new")
+            .setValue("newLabel", "eng"));
+
+        KeywordLabelIndex updated = thesaurus.getLabelIndex();
+        assertNotSame(index, updated);
+        assertFalse(updated.search(thesaurus, clause, Arrays.asList("eng")).isEmpty());
+    }
+
+    @Test
+    public void testWildcardsAreNotSupported() {
+        assertTrue(KeywordLabelIndex.supports(new KeywordLabelSearchClause(KeywordSearchType.CONTAINS, "value", true)));
+        assertFalse(KeywordLabelIndex.supports(new KeywordLabelSearchClause(KeywordSearchType.MATCH, "val*", true)));
+    }
+}
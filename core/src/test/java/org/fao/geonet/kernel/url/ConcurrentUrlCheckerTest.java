@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.url;
+
+import org.fao.geonet.domain.LinkStatus;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentUrlCheckerTest {
+
+    @Test
+    public void checkEachUrlOnceWithLimitPerHost() throws Exception {
+        CountingUrlChecker urlChecker = new CountingUrlChecker();
+        ConcurrentUrlChecker toTest = new ConcurrentUrlChecker(urlChecker, 8, 2, 0);
+
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            urls.add("http://a.org/" + i);
+            urls.add("http://b.org/" + i);
+        }
+        urls.add("http://a.org/0");
+        urls.add("not a url");
+
+        Map<String, LinkStatus> allStatus = new HashMap<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        toTest.check(urls, 7, batch -> {
+            batchSizes.add(batch.size());
+            allStatus.putAll(batch);
+        });
+
+        assertEquals(41, allStatus.size());
+        assertEquals("200", allStatus.get("http://b.org/19").getStatusValue());
+        assertEquals("4XX", allStatus.get("not a url").getStatusValue());
+        assertEquals(41, urlChecker.checks.get());
+        for (int size : batchSizes) {
+            assertTrue(size <= 7);
+        }
+        for (AtomicInteger max : urlChecker.maxByHost.values()) {
+            assertTrue(max.get() <= 2);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void stopWhenWorkersFail() throws Exception {
+        UrlChecker urlChecker = new UrlChecker() {
+            @Override
+            public LinkStatus getUrlStatus(String url) {
+                if (url.startsWith("http://failing.org")) {
+                    throw new Error("Worker failure");
+                }
+                return new LinkStatus().setStatusValue("200").setFailing(false);
+            }
+        };
+        ConcurrentUrlChecker toTest = new ConcurrentUrlChecker(urlChecker, 4, 1, 0);
+
+        Map<String, LinkStatus> allStatus = new HashMap<>();
+        toTest.check(List.of("http://a.org/1", "http://failing.org/1", "http://failing.org/2", "http://b.org/1"),
+            10, allStatus::putAll);
+
+        assertEquals(Set.of("http://a.org/1", "http://b.org/1"), allStatus.keySet());
+    }
+
+    private static class CountingUrlChecker extends UrlChecker {
+        private final AtomicInteger checks = new AtomicInteger();
+        private final ConcurrentMap<String, AtomicInteger> runningByHost = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, AtomicInteger> maxByHost = new ConcurrentHashMap<>();
+
+        @Override
+        public LinkStatus getUrlStatus(String url) {
+            checks.incrementAndGet();
+            if (!url.startsWith("http")) {
+                throw new IllegalArgumentException("Invalid URL " + url);
+            }
+            String host = url.substring(0, url.lastIndexOf('/'));
+            AtomicInteger running = runningByHost.computeIfAbsent(host, h -> new AtomicInteger());
+            int current = running.incrementAndGet();
+            maxByHost.computeIfAbsent(host, h -> new AtomicInteger()).accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return new LinkStatus().setStatusValue("200").setFailing(false);
+        }
+    }
+}
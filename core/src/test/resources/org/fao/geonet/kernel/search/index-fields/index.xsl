@@ -0,0 +1,22 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<!--
+  Indexing stylesheet used by IndexDocumentBenchmark.
+  Each child of the record is converted to an index field.
+-->
+<xsl:stylesheet version="2.0"
+                xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+  <xsl:output method="xml" indent="no"/>
+
+  <xsl:param name="fastIndexMode" select="false()"/>
+
+  <xsl:template match="/">
+    <doc>
+      <xsl:for-each select="record/*">
+        <xsl:element name="{local-name()}">
+          <xsl:copy-of select="@type"/>
+          <xsl:value-of select="."/>
+        </xsl:element>
+      </xsl:for-each>
+    </doc>
+  </xsl:template>
+</xsl:stylesheet>
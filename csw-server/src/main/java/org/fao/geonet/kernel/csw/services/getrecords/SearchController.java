@@ -29,6 +29,8 @@ import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.TotalHits;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.lang.StringUtils;
 import org.fao.geonet.ApplicationContextHolder;
@@ -49,6 +51,7 @@ import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.csw.services.getrecords.es.CswFilter2Es;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.schema.MetadataSchema;
+import org.fao.geonet.kernel.search.CswRenditions;
 import org.fao.geonet.kernel.search.EsFilterBuilder;
 import org.fao.geonet.kernel.search.EsSearchManager;
 import org.fao.geonet.utils.Log;
@@ -58,10 +61,18 @@ import org.jdom.Content;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class SearchController {
@@ -87,6 +98,36 @@ public class SearchController {
     @Autowired
     private SchemaManager schemaManager;
 
+    @Autowired
+    private CswRenditions cswRenditions;
+
+    /**
+     * Number of records retrieved and converted to the output schema at the same time
+     * for all GetRecords requests. 0 to use the number of processors.
+     */
+    @Value("${csw.getrecords.threads:0}")
+    private int retrievalThreads = 0;
+
+    private ExecutorService retrievalExecutor;
+
+    @PostConstruct
+    public void init() {
+        int threads = retrievalThreads > 0 ? retrievalThreads : Runtime.getRuntime().availableProcessors();
+        if (threads == 1) {
+            retrievalExecutor = MoreExecutors.newDirectExecutorService();
+        } else {
+            retrievalExecutor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("gn-csw-getrecords-%d").setDaemon(true).build());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (retrievalExecutor != null) {
+            retrievalExecutor.shutdownNow();
+        }
+    }
+
     /**
      * Retrieves metadata from the database. Conversion between metadata record and output schema
      * are defined in xml/csw/schemas/ directory.
@@ -485,8 +526,17 @@ public class SearchController {
 
         // TODO: Check to get summary or remove custom summary output
 
+        String displayLanguage = context.getLanguage();
+        boolean useRenditions = canUseRenditions(context, outSchema, setName, elemNames, displayLanguage);
+        String renditionKey = CswRenditions.getKey(outSchema, setName.toString());
+        Set<String> includedFields = new HashSet<>();
+        includedFields.add(Geonet.IndexFieldNames.ID);
+        if (useRenditions) {
+            includedFields.add(CswRenditions.FIELD);
+        }
+
         try {
-            SearchResponse result = searchManager.query(esJsonQuery, new HashSet<>(), startPos - 1, maxRecords, sort);
+            SearchResponse result = searchManager.query(esJsonQuery, includedFields, startPos - 1, maxRecords, sort);
 
             List<Hit> hits = result.hits().hits();
 
@@ -504,24 +554,58 @@ public class SearchController {
 
             ObjectMapper objectMapper = new ObjectMapper();
 
+            List<Integer> ids = new ArrayList<>(hits.size());
+            Map<Integer, Element> renditions = new HashMap<>();
             for (Hit hit : hits) {
-                int mdId = Integer.parseInt((String) objectMapper.convertValue(hit.source(), Map.class).get("id"));
+                Map<?, ?> source = objectMapper.convertValue(hit.source(), Map.class);
+                int mdId = Integer.parseInt((String) source.get("id"));
+                ids.add(mdId);
+                if (useRenditions) {
+                    Element rendition = getRendition(source, renditionKey, displayLanguage);
+                    if (rendition != null) {
+                        renditions.put(mdId, rendition);
+                    }
+                }
+            }
 
-                AbstractMetadata metadata = metadataUtils.findOne(mdId);
+            // Records removed from the database since they were indexed are skipped
+            Set<Integer> toRetrieve = new HashSet<>(ids);
+            toRetrieve.removeAll(renditions.keySet());
+            Set<Integer> existingIds = new HashSet<>();
+            if (!toRetrieve.isEmpty()) {
+                for (AbstractMetadata metadata : metadataUtils.findAll(toRetrieve)) {
+                    existingIds.add(metadata.getId());
+                }
+            }
 
-                String displayLanguage = context.getLanguage();
-                // The query to retrieve GetRecords, filters by portal. No need to re-check again when retrieving each metadata.
-                Element resultMD = retrieveMetadata(context, metadata.getId() + "",
-                    setName, outSchema, elemNames, typeName, resultType, strategy, displayLanguage, false);
+            // Retrieve and convert the records in parallel, results are added in the order of the hits
+            List<Future<Element>> retrievals = new ArrayList<>(ids.size());
+            for (Integer mdId : ids) {
+                if (renditions.containsKey(mdId)) {
+                    retrievals.add(CompletableFuture.completedFuture(renditions.get(mdId)));
+                } else if (existingIds.contains(mdId)) {
+                    // The query to retrieve GetRecords, filters by portal. No need to re-check again when retrieving each metadata.
+                    retrievals.add(retrievalExecutor.submit(context.inContext(() -> retrieveMetadata(context, mdId.toString(),
+                        setName, outSchema, elemNames, typeName, resultType, strategy, displayLanguage, false))));
+                }
+            }
 
-                if (resultMD != null) {
-                    if (resultType == ResultType.RESULTS) {
-                        results.addContent(resultMD);
-                    }
+            try {
+                for (Future<Element> retrieval : retrievals) {
+                    Element resultMD = getRetrievedMetadata(retrieval);
 
-                    counter++;
-                }
+                    if (resultMD != null) {
+                        if (resultType == ResultType.RESULTS) {
+                            results.addContent(resultMD);
+                        }
 
+                        counter++;
+                    }
+                }
+            } finally {
+                for (Future<Element> retrieval : retrievals) {
+                    retrieval.cancel(true);
+                }
             }
 
             results.setAttribute("numberOfRecordsMatched", Long.toString(numMatches));
@@ -544,6 +628,55 @@ public class SearchController {
     }
 
 
+    /**
+     * The renditions built at indexing time are returned to anonymous users of the main CSW
+     * service requesting a brief or summary element set without ElementNames, in the language
+     * of the renditions.
+     */
+    private boolean canUseRenditions(ServiceContext context, String outSchema, ElementSetName setName,
+                                     Set<String> elemNames, String displayLanguage) {
+        return cswRenditions.isRendered(outSchema, setName.toString())
+            && (elemNames == null || elemNames.isEmpty())
+            && "csw".equals(context.getService())
+            && (context.getUserSession() == null || !context.getUserSession().isAuthenticated())
+            && cswRenditions.getLanguage().equals(displayLanguage);
+    }
+
+    /**
+     * @return the rendition of a record from the index document or null if the record has none.
+     */
+    private static Element getRendition(Map<?, ?> source, String renditionKey, String displayLanguage) {
+        Object renditions = source.get(CswRenditions.FIELD);
+        if (!(renditions instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> renditionMap = (Map<?, ?>) renditions;
+        Object rendition = renditionMap.get(renditionKey);
+        if (!displayLanguage.equals(renditionMap.get(CswRenditions.LANGUAGE)) || !(rendition instanceof String)) {
+            return null;
+        }
+        try {
+            return Xml.loadString((String) rendition, false);
+        } catch (Exception e) {
+            Log.warning(Geonet.CSW_SEARCH, "Invalid CSW rendition in the index, the record is retrieved from the database. Error is: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Element getRetrievedMetadata(Future<Element> retrieval) throws Exception {
+        try {
+            return retrieval.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
     /**
      * Applies stylesheet according to ElementSetName and schema.
      *
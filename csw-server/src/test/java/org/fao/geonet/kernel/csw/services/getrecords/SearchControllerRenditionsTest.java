@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.csw.services.getrecords;
+
+import jeeves.server.UserSession;
+import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import jeeves.transaction.TransactionTask;
+import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.csw.common.Csw;
+import org.fao.geonet.csw.common.ElementSetName;
+import org.fao.geonet.csw.common.ResultType;
+import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.domain.ReservedGroup;
+import org.fao.geonet.domain.ReservedOperation;
+import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.search.CswRenditions;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.fao.geonet.constants.Geonet.Namespaces.GCO;
+import static org.fao.geonet.constants.Geonet.Namespaces.GMD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The records are committed as the records returned by a GetRecords request are retrieved by
+ * other threads.
+ */
+public class SearchControllerRenditionsTest extends AbstractCoreIntegrationTest {
+    private static final String INDEXED_TITLE = "Title of the indexed record";
+    private static final String UPDATED_TITLE = "Title of the updated record";
+    private static final List<String> OUTPUT_SCHEMAS = Arrays.asList("csw", "own");
+    private static final List<ElementSetName> ELEMENT_SETS = Arrays.asList(ElementSetName.BRIEF, ElementSetName.SUMMARY);
+
+    @Autowired
+    private SearchController searchController;
+    @Autowired
+    private CswRenditions cswRenditions;
+    @Autowired
+    private DataManager dataManager;
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    private ServiceContext adminContext;
+
+    @Before
+    public void setUp() throws Exception {
+        adminContext = createServiceContext();
+        loginAsAdmin(adminContext);
+        ReflectionTestUtils.setField(cswRenditions, "enabled", true);
+    }
+
+    @After
+    public void tearDown() {
+        ReflectionTestUtils.setField(cswRenditions, "enabled", false);
+    }
+
+    @Test
+    public void renditionsAreTheRetrievedRecords() throws Exception {
+        AbstractMetadata metadata = insertRecord(false);
+        ServiceContext context = createCswContext();
+
+        for (String outSchema : OUTPUT_SCHEMAS) {
+            for (ElementSetName setName : ELEMENT_SETS) {
+                Element retrieved = searchController.retrieveMetadata(context, String.valueOf(metadata.getId()),
+                    setName, outSchema, null, null, ResultType.RESULTS,
+                    SearchController.DEFAULT_ELEMENTNAMES_STRATEGY, "eng", false);
+                assertEquals(outSchema + " " + setName, Xml.getString(retrieved),
+                    Xml.getString(search(context, metadata.getUuid(), outSchema, setName, null)));
+            }
+        }
+
+        // The records are not loaded from the database
+        updateTitle(metadata);
+        for (String outSchema : OUTPUT_SCHEMAS) {
+            for (ElementSetName setName : ELEMENT_SETS) {
+                assertTitle(INDEXED_TITLE, search(context, metadata.getUuid(), outSchema, setName, null));
+            }
+        }
+    }
+
+    @Test
+    public void recordsAreRetrievedWhenRenditionsAreDisabled() throws Exception {
+        AbstractMetadata metadata = insertRecord(false);
+        updateTitle(metadata);
+        ReflectionTestUtils.setField(cswRenditions, "enabled", false);
+
+        assertTitle(UPDATED_TITLE, search(createCswContext(), metadata.getUuid(), "csw", ElementSetName.BRIEF, null));
+    }
+
+    @Test
+    public void recordsWithoutRenditionsAreRetrieved() throws Exception {
+        // The download and dynamic links depend on the privileges of the user
+        AbstractMetadata withLinks = insertRecord(true);
+        AbstractMetadata withoutLinks = insertRecord(false);
+        updateTitle(withLinks);
+        updateTitle(withoutLinks);
+        ServiceContext context = createCswContext();
+
+        assertTitle(UPDATED_TITLE, search(context, withLinks.getUuid(), "csw", ElementSetName.SUMMARY, null));
+        assertTitle(INDEXED_TITLE, search(context, withoutLinks.getUuid(), "csw", ElementSetName.SUMMARY, null));
+    }
+
+    @Test
+    public void recordsAreRetrievedForOtherRequests() throws Exception {
+        AbstractMetadata metadata = insertRecord(false);
+        updateTitle(metadata);
+        String uuid = metadata.getUuid();
+
+        assertTitle(UPDATED_TITLE, search(createCswContext(), uuid, "csw", ElementSetName.FULL, null));
+        assertTitle(UPDATED_TITLE, search(createCswContext(), uuid, "own", ElementSetName.BRIEF,
+            Collections.singleton("gmd:identificationInfo")));
+
+        ServiceContext otherLanguage = createCswContext();
+        otherLanguage.setLanguage("fre");
+        assertTitle(UPDATED_TITLE, search(otherLanguage, uuid, "csw", ElementSetName.BRIEF, null));
+
+        ServiceContext authenticated = createCswContext();
+        loginAsAdmin(authenticated);
+        assertTitle(UPDATED_TITLE, search(authenticated, uuid, "csw", ElementSetName.BRIEF, null));
+
+        ServiceContext subPortal = createCswContext();
+        subPortal.setService("csw-portal");
+        assertTitle(UPDATED_TITLE, search(subPortal, uuid, "csw", ElementSetName.BRIEF, null));
+
+        // The same request is served from the renditions
+        assertTitle(INDEXED_TITLE, search(createCswContext(), uuid, "csw", ElementSetName.BRIEF, null));
+    }
+
+    /**
+     * @return an anonymous request to the main CSW service.
+     */
+    private ServiceContext createCswContext() throws Exception {
+        ServiceContext context = createServiceContext();
+        context.setService("csw");
+        context.setUserSession(new UserSession());
+        return context;
+    }
+
+    /**
+     * Insert a public record with its renditions in the index.
+     *
+     * @param withLinks keep the download and dynamic links of the sample.
+     */
+    private AbstractMetadata insertRecord(boolean withLinks) throws Exception {
+        Element xml = getSampleMetadataXml();
+        if (!withLinks) {
+            for (Object onLine : Xml.selectNodes(xml, ".//gmd:onLine", Arrays.asList(GMD))) {
+                ((Element) onLine).detach();
+            }
+        }
+        setTitle(xml, INDEXED_TITLE);
+
+        return inCommittedTransaction(transaction -> {
+            AbstractMetadata metadata = injectMetadataInDb(xml, adminContext, true);
+            String id = String.valueOf(metadata.getId());
+            dataManager.setOperation(adminContext, id, String.valueOf(ReservedGroup.all.getId()), ReservedOperation.view);
+            dataManager.indexMetadata(id, true);
+            return metadata;
+        });
+    }
+
+    /**
+     * Update the title of the record in the database only.
+     */
+    private void updateTitle(AbstractMetadata record) {
+        inCommittedTransaction(transaction -> {
+            Metadata metadata = metadataRepository.findById(record.getId()).get();
+            Element xml = metadata.getXmlData(false);
+            setTitle(xml, UPDATED_TITLE);
+            metadata.setDataAndFixCR(xml);
+            metadataRepository.save(metadata);
+            return null;
+        });
+        _entityManager.clear();
+    }
+
+    private <T> T inCommittedTransaction(TransactionTask<T> task) {
+        return TransactionManager.runInTransaction("csw-renditions-test", _applicationContext,
+            TransactionManager.TransactionRequirement.CREATE_NEW, TransactionManager.CommitBehavior.ALWAYS_COMMIT,
+            false, task);
+    }
+
+    private Element search(ServiceContext context, String uuid, String outSchema, ElementSetName setName,
+                           Set<String> elemNames) throws Exception {
+        Element filter = new Element("Filter", Csw.NAMESPACE_OGC)
+            .addContent(new Element("PropertyIsEqualTo", Csw.NAMESPACE_OGC)
+                .addContent(new Element("PropertyName", Csw.NAMESPACE_OGC).setText("uuid"))
+                .addContent(new Element("Literal", Csw.NAMESPACE_OGC).setText(uuid)));
+        Element results = searchController.search(context, 1, 10, ResultType.RESULTS, outSchema, setName,
+            filter, Csw.FILTER_VERSION_1_1, null, elemNames, elemNames == null ? null : "gmd:MD_Metadata", 1000,
+            SearchController.DEFAULT_ELEMENTNAMES_STRATEGY);
+
+        assertEquals("1", results.getAttributeValue("numberOfRecordsReturned"));
+        return (Element) results.getChildren().get(0);
+    }
+
+    private static void setTitle(Element xml, String title) throws Exception {
+        Xml.selectElement(xml, "gmd:identificationInfo/*/gmd:citation/*/gmd:title/gco:CharacterString",
+            Arrays.asList(GMD, GCO)).setText(title);
+    }
+
+    private static void assertTitle(String title, Element record) {
+        String xml = Xml.getString(record);
+        assertTrue(xml.contains(title));
+        assertFalse(xml.contains(INDEXED_TITLE.equals(title) ? UPDATED_TITLE : INDEXED_TITLE));
+    }
+}
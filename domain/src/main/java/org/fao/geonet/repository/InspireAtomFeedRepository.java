@@ -26,6 +26,7 @@ package org.fao.geonet.repository;
 import org.fao.geonet.domain.InspireAtomFeed;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -44,6 +45,14 @@ public interface InspireAtomFeedRepository extends GeonetRepository<InspireAtomF
      */
     InspireAtomFeed findByMetadataId(final int metadataId);
 
+    /**
+     * Find the inspire atom feeds related to a set of metadata.
+     *
+     * @param metadataIds metadata identifiers
+     * @return the inspire atom feeds of the metadata
+     */
+    List<InspireAtomFeed> findAllByMetadataIdIn(final Collection<Integer> metadataIds);
+
     /**
      * Find the list of all {@link InspireAtomFeed} with the provided {@code atomDatasetid}.
      *
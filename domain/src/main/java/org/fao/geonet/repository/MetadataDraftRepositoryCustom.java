@@ -66,6 +66,18 @@ public interface MetadataDraftRepositoryCustom<T extends AbstractMetadata> {
     @Nonnull
     Page<Pair<Integer, ISODate>> findIdsAndChangeDates(@Nonnull Pageable pageable);
 
+    /**
+     * Find the ids and change dates of the metadata with an id greater than the given one,
+     * ordered by id. Used to iterate over all the metadata with keyset pagination, which
+     * does not slow down on the last pages like offset pagination.
+     *
+     * @param afterId    the last id of the previous page, -1 for the first page.
+     * @param maxResults the maximum number of results.
+     * @return List of &lt;MetadataId, changeDate&gt;
+     */
+    @Nonnull
+    List<Pair<Integer, ISODate>> findIdsAndChangeDatesAfter(int afterId, int maxResults);
+
     /**
      * Find all ids of metadata that match the specification.
      *
@@ -107,6 +107,28 @@ public class MetadataDraftRepositoryCustomImpl implements MetadataDraftRepositor
         return new PageImpl<Pair<Integer, ISODate>>(finalResults, pageable, total);
     }
 
+    @Override
+    public
+    @Nonnull
+    List<Pair<Integer, ISODate>> findIdsAndChangeDatesAfter(int afterId, int maxResults) {
+        CriteriaBuilder cb = _entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cbQuery = cb.createQuery(Tuple.class);
+        Root<MetadataDraft> root = cbQuery.from(MetadataDraft.class);
+
+        cbQuery.multiselect(root.get(MetadataDraft_.id), root.get(MetadataDraft_.dataInfo).get(MetadataDataInfo_.changeDate));
+        cbQuery.where(cb.greaterThan(root.get(MetadataDraft_.id), afterId));
+        cbQuery.orderBy(cb.asc(root.get(MetadataDraft_.id)));
+
+        TypedQuery<Tuple> query = _entityManager.createQuery(cbQuery);
+        query.setMaxResults(maxResults);
+
+        List<Pair<Integer, ISODate>> finalResults = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            finalResults.add(Pair.read((Integer) tuple.get(0), (ISODate) tuple.get(1)));
+        }
+        return finalResults;
+    }
+
     @Nonnull
     @Override
     public List<Integer> findIdsBy(@Nonnull Specification<MetadataDraft> spec) {
@@ -75,6 +75,31 @@ public interface MetadataRepositoryCustom<T extends AbstractMetadata> {
     @Nonnull
     Page<Pair<Integer, ISODate>> findIdsAndChangeDates(@Nonnull Pageable pageable);
 
+    /**
+     * Find the ids and change dates of the metadata with an id greater than the given one,
+     * ordered by id. Used to iterate over all the metadata with keyset pagination, which
+     * does not slow down on the last pages like offset pagination.
+     *
+     * @param afterId    the last id of the previous page, -1 for the first page.
+     * @param maxResults the maximum number of results.
+     * @return List of &lt;MetadataId, changeDate&gt;
+     */
+    @Nonnull
+    List<Pair<Integer, ISODate>> findIdsAndChangeDatesAfter(int afterId, int maxResults);
+
+    /**
+     * Find the ids and uuids of the metadata matching the specification with an id greater
+     * than the given one, ordered by id. Used to iterate over many metadata with keyset
+     * pagination without loading the entities.
+     *
+     * @param specs      the specification for identifying the metadata.
+     * @param afterId    the last id of the previous page, -1 for the first page.
+     * @param maxResults the maximum number of results.
+     * @return List of &lt;MetadataId, uuid&gt;
+     */
+    @Nonnull
+    List<Pair<Integer, String>> findIdsAndUuidsAfter(@Nonnull Specification<T> specs, int afterId, int maxResults);
+
     /**
      * Find all ids of metadata that match the specification.
      *
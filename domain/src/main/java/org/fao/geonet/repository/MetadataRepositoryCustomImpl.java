@@ -93,6 +93,49 @@ public class MetadataRepositoryCustomImpl implements MetadataRepositoryCustom<Me
         return new PageImpl<Pair<Integer, ISODate>>(finalResults, pageable, total);
     }
 
+    @Override
+    public
+    @Nonnull
+    List<Pair<Integer, ISODate>> findIdsAndChangeDatesAfter(int afterId, int maxResults) {
+        CriteriaBuilder cb = _entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cbQuery = cb.createQuery(Tuple.class);
+        Root<Metadata> root = cbQuery.from(Metadata.class);
+
+        cbQuery.multiselect(root.get(Metadata_.id), root.get(Metadata_.dataInfo).get(MetadataDataInfo_.changeDate));
+        cbQuery.where(cb.greaterThan(root.get(Metadata_.id), afterId));
+        cbQuery.orderBy(cb.asc(root.get(Metadata_.id)));
+
+        TypedQuery<Tuple> query = _entityManager.createQuery(cbQuery);
+        query.setMaxResults(maxResults);
+
+        List<Pair<Integer, ISODate>> finalResults = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            finalResults.add(Pair.read((Integer) tuple.get(0), (ISODate) tuple.get(1)));
+        }
+        return finalResults;
+    }
+
+    @Nonnull
+    @Override
+    public List<Pair<Integer, String>> findIdsAndUuidsAfter(@Nonnull Specification<Metadata> spec, int afterId, int maxResults) {
+        CriteriaBuilder cb = _entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cbQuery = cb.createQuery(Tuple.class);
+        Root<Metadata> root = cbQuery.from(Metadata.class);
+
+        cbQuery.multiselect(root.get(Metadata_.id), root.get(Metadata_.uuid));
+        cbQuery.where(cb.greaterThan(root.get(Metadata_.id), afterId), spec.toPredicate(root, cbQuery, cb));
+        cbQuery.orderBy(cb.asc(root.get(Metadata_.id)));
+
+        TypedQuery<Tuple> query = _entityManager.createQuery(cbQuery);
+        query.setMaxResults(maxResults);
+
+        List<Pair<Integer, String>> finalResults = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            finalResults.add(Pair.read((Integer) tuple.get(0), (String) tuple.get(1)));
+        }
+        return finalResults;
+    }
+
     @Nonnull
     @Override
     public List<Integer> findIdsBy(@Nonnull Specification<Metadata> spec) {
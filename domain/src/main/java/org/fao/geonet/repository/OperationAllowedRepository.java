@@ -23,6 +23,7 @@
 
 package org.fao.geonet.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -55,6 +56,15 @@ public interface OperationAllowedRepository extends GeonetRepository<OperationAl
     @Nonnull
     List<OperationAllowed> findAllById_MetadataId(int metadataId);
 
+    /**
+     * Find all operations allowed entities of a set of metadata.
+     *
+     * @param metadataIds the metadata ids.
+     * @return all operation allowed entities of the given metadata.
+     */
+    @Nonnull
+    List<OperationAllowed> findAllById_MetadataIdIn(Collection<Integer> metadataIds);
+
     /**
      * Find all operations allowed entities with the given groupid.
      *
@@ -22,6 +22,7 @@
  */
 package org.fao.geonet.repository.userfeedback;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -32,6 +33,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -56,6 +58,9 @@ public interface UserFeedbackRepository extends JpaRepository<UserFeedback, UUID
      */
     List<UserFeedback> findByMetadata_Uuid(String metadataUuid);
 
+    @Query("SELECT uf.metadata.uuid, COUNT(uf) FROM GUF_UserFeedback uf WHERE uf.metadata.uuid IN (:uuids) GROUP BY uf.metadata.uuid")
+    List<Object[]> countByMetadata_Uuid(@Param("uuids") Collection<String> metadataUuids);
+
     /**
      * Find by metadata uuid and status order by date desc.
      *
@@ -222,6 +222,47 @@ public class MetadataRepositoryTest extends AbstractSpringDataTest {
         assertEquals(metadata3.getDataInfo().getChangeDate(), secondPage.getContent().get(2).two());
     }
 
+    @Test
+    public void testFindIdsAndChangeDatesAfter() throws Exception {
+        AbstractMetadata metadata = _repo.save(updateChangeDate(newMetadata(), "1990-12-13"));
+        AbstractMetadata metadata2 = _repo.save(updateChangeDate(newMetadata(), "1980-12-13"));
+        AbstractMetadata metadata3 = _repo.save(updateChangeDate(newMetadata(), "1995-12-13"));
+
+        List<Pair<Integer, ISODate>> firstPage = _repo.findIdsAndChangeDatesAfter(-1, 2);
+        assertEquals(2, firstPage.size());
+        assertEquals((Integer) metadata.getId(), firstPage.get(0).one());
+        assertEquals((Integer) metadata2.getId(), firstPage.get(1).one());
+        assertEquals(metadata2.getDataInfo().getChangeDate(), firstPage.get(1).two());
+
+        List<Pair<Integer, ISODate>> secondPage = _repo.findIdsAndChangeDatesAfter(firstPage.get(1).one(), 2);
+        assertEquals(1, secondPage.size());
+        assertEquals((Integer) metadata3.getId(), secondPage.get(0).one());
+
+        assertTrue(_repo.findIdsAndChangeDatesAfter(metadata3.getId(), 2).isEmpty());
+    }
+
+    @Test
+    public void testFindIdsAndUuidsAfter() throws Exception {
+        Metadata metadata = _repo.save(newMetadata());
+        Metadata metadata2 = _repo.save(newMetadata());
+        Metadata metadata3 = _repo.save(newMetadata());
+        Metadata metadata4 = _repo.save(newMetadata());
+
+        Specification<Metadata> spec = Specification.not((Specification<Metadata>) MetadataSpecs.hasMetadataUuid(metadata2.getUuid()));
+        List<Pair<Integer, String>> firstPage = _repo.findIdsAndUuidsAfter(spec, -1, 2);
+        assertEquals(2, firstPage.size());
+        assertEquals((Integer) metadata.getId(), firstPage.get(0).one());
+        assertEquals(metadata.getUuid(), firstPage.get(0).two());
+        assertEquals((Integer) metadata3.getId(), firstPage.get(1).one());
+        assertEquals(metadata3.getUuid(), firstPage.get(1).two());
+
+        List<Pair<Integer, String>> secondPage = _repo.findIdsAndUuidsAfter(spec, firstPage.get(1).one(), 2);
+        assertEquals(1, secondPage.size());
+        assertEquals((Integer) metadata4.getId(), secondPage.get(0).one());
+
+        assertTrue(_repo.findIdsAndUuidsAfter(spec, metadata4.getId(), 2).isEmpty());
+    }
+
     @Test
     public void testFindAllSourceInfo() throws Exception {
         Metadata metadata = _repo.save(newMetadata());
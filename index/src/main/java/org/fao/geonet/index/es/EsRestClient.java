@@ -31,6 +31,8 @@ import co.elastic.clients.elasticsearch._types.query_dsl.QueryStringQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.WrapperQuery;
 import co.elastic.clients.elasticsearch.cluster.HealthResponse;
 import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.msearch.MultisearchBody;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
 import co.elastic.clients.elasticsearch.indices.AnalyzeRequest;
 import co.elastic.clients.elasticsearch.indices.AnalyzeResponse;
 import co.elastic.clients.elasticsearch.indices.analyze.AnalyzeToken;
@@ -39,6 +41,8 @@ import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -69,6 +73,7 @@ import java.io.StringReader;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -81,6 +86,7 @@ public class EsRestClient implements InitializingBean {
 
     private ElasticsearchAsyncClient asyncClient;
 
+    private RestClient restClient;
 
     private String serverUrl;
 
@@ -99,6 +105,12 @@ public class EsRestClient implements InitializingBean {
     @Value("${es.password}")
     private String password;
 
+    @Value("${es.connections.maxTotal:30}")
+    private int maxConnectionsTotal = 30;
+
+    @Value("${es.connections.maxPerRoute:10}")
+    private int maxConnectionsPerRoute = 10;
+
     private boolean activated = false;
 
     public static EsRestClient get() {
@@ -113,6 +125,14 @@ public class EsRestClient implements InitializingBean {
         return asyncClient;
     }
 
+    /**
+     * @return the low level client, with a pool of keep-alive connections,
+     * shared by the clients and the search proxy.
+     */
+    public RestClient getRestClient() {
+        return restClient;
+    }
+
     public String getDashboardAppUrl() {
         return dashboardAppUrl;
     }
@@ -155,9 +175,9 @@ public class EsRestClient implements InitializingBean {
                     credentialsProvider.setCredentials(AuthScope.ANY,
                         new UsernamePasswordCredentials(username, password));
 
-                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setSSLContext(sslContext).setDefaultCredentialsProvider(credentialsProvider));
+                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setMaxConnTotal(maxConnectionsTotal).setMaxConnPerRoute(maxConnectionsPerRoute).setSSLContext(sslContext).setDefaultCredentialsProvider(credentialsProvider));
                 } else {
-                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setSSLContext(sslContext));
+                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setMaxConnTotal(maxConnectionsTotal).setMaxConnPerRoute(maxConnectionsPerRoute).setSSLContext(sslContext));
                 }
             } else {
                 if (StringUtils.isNotEmpty(username) && StringUtils.isNotEmpty(password)) {
@@ -165,13 +185,13 @@ public class EsRestClient implements InitializingBean {
                     credentialsProvider.setCredentials(AuthScope.ANY,
                         new UsernamePasswordCredentials(username, password));
 
-                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setDefaultCredentialsProvider(credentialsProvider));
+                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setMaxConnTotal(maxConnectionsTotal).setMaxConnPerRoute(maxConnectionsPerRoute).setDefaultCredentialsProvider(credentialsProvider));
                 } else {
-                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties());
+                    builder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.useSystemProperties().setMaxConnTotal(maxConnectionsTotal).setMaxConnPerRoute(maxConnectionsPerRoute));
                 }
             }
 
-            RestClient restClient = builder.build();
+            restClient = builder.build();
 
             ElasticsearchTransport transport = new RestClientTransport(restClient, new JacksonJsonpMapper());
 
@@ -224,6 +244,52 @@ public class EsRestClient implements InitializingBean {
             throw new IOException("Index not yet activated.");
         }
 
+        BulkRequest request = buildBulkRequest(index, docs);
+
+        try {
+            return client.bulk(request);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /**
+     * Send a bulk request with documents already serialized as JSON.
+     * The documents are sent as is, without being parsed again by the client,
+     * so they must be on a single line.
+     *
+     * @param docs the UTF-8 encoded JSON documents by id.
+     */
+    public BulkResponse bulkRequestRaw(String index, Map<String, byte[]> docs) throws IOException {
+        if (!activated) {
+            throw new IOException("Index not yet activated.");
+        }
+
+        try {
+            return client.bulk(buildRawBulkRequest(index, docs));
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #bulkRequestRaw(String, Map)} without waiting for the response.
+     *
+     * @return a future completed with the response or
+     * completed exceptionally if the request failed.
+     */
+    public CompletableFuture<BulkResponse> bulkRequestRawAsync(String index, Map<String, byte[]> docs) {
+        if (!activated) {
+            CompletableFuture<BulkResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Index not yet activated."));
+            return failed;
+        }
+        return asyncClient.bulk(buildRawBulkRequest(index, docs));
+    }
+
+    private BulkRequest buildBulkRequest(String index, Map<String, String> docs) {
         BulkRequest.Builder requestBuilder = new BulkRequest.Builder()
             .index(index)
             .refresh(Refresh.True);
@@ -243,14 +309,23 @@ public class EsRestClient implements InitializingBean {
                     .document(jd)));
         }
 
-        BulkRequest request = requestBuilder.build();
+        return requestBuilder.build();
+    }
 
-        try {
-            return client.bulk(request);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw e;
+    private BulkRequest buildRawBulkRequest(String index, Map<String, byte[]> docs) {
+        BulkRequest.Builder requestBuilder = new BulkRequest.Builder()
+            .index(index)
+            .refresh(Refresh.True);
+
+        for (Map.Entry<String, byte[]> entry : docs.entrySet()) {
+            BinaryData data = BinaryData.of(entry.getValue(), ContentType.APPLICATION_JSON);
+            requestBuilder
+                .operations(op -> op.index(idx -> idx.index(index)
+                    .id(entry.getKey())
+                    .document(data)));
         }
+
+        return requestBuilder.build();
     }
 
 //
@@ -323,6 +398,28 @@ public class EsRestClient implements InitializingBean {
     public SearchResponse query(String index, Query.Builder queryBuilder, Query.Builder postFilterBuilder,
                                 Set<String> includedFields, Map<String, String> scriptedFields,
                                 int from, int size, List<SortOptions> sort) throws Exception {
+        return query(index, queryBuilder, postFilterBuilder, includedFields, scriptedFields, from, size, sort, null);
+    }
+
+    /**
+     * Query using JSON elastic query, returning the hits after the sort values of a previous hit.
+     *
+     * @param searchAfter the sort values of the last hit of the previous page, null for the first page.
+     */
+    public SearchResponse query(String index, JsonNode jsonQuery, Set<String> includedFields,
+                                int size, List<SortOptions> sort, List<FieldValue> searchAfter) throws Exception {
+        final Query.Builder query = new Query.Builder();
+
+        WrapperQuery.Builder wrapperQueryBuilder = new WrapperQuery.Builder();
+        wrapperQueryBuilder.query(Base64.getEncoder().encodeToString(String.valueOf(jsonQuery).getBytes()));
+        query.wrapper(wrapperQueryBuilder.build());
+
+        return query(index, query, null, includedFields, new HashMap<>(), 0, size, sort, searchAfter);
+    }
+
+    public SearchResponse query(String index, Query.Builder queryBuilder, Query.Builder postFilterBuilder,
+                                Set<String> includedFields, Map<String, String> scriptedFields,
+                                int from, int size, List<SortOptions> sort, List<FieldValue> searchAfter) throws Exception {
         if (!activated) {
             return null;
         }
@@ -355,6 +452,10 @@ public class EsRestClient implements InitializingBean {
             searchRequestBuilder.sort(sort);
         }
 
+        if (searchAfter != null && !searchAfter.isEmpty()) {
+            searchRequestBuilder.searchAfter(searchAfter);
+        }
+
         SearchRequest searchRequest = searchRequestBuilder.build();
 
         try {
@@ -368,6 +469,70 @@ public class EsRestClient implements InitializingBean {
     }
 
 
+    /**
+     * Run many queries using Lucene query syntax in one multi search request.
+     *
+     * @param filterQuery  filter applied to the hits of all the queries.
+     * @param namedQueries queries added to each query which do not restrict the hits. The names
+     *                     of the named queries matching a hit are in the matched queries of the hit.
+     * @return the responses in the order of the queries.
+     */
+    public MsearchResponse<ObjectNode> multiQuery(String index, List<String> luceneQueries, String filterQuery,
+                                                  Map<String, String> namedQueries,
+                                                  Set<String> includedFields, Map<String, String> scriptedFields,
+                                                  int from, int size) throws Exception {
+        if (!activated) {
+            return null;
+        }
+
+        Query postFilter = StringUtils.isNotEmpty(filterQuery)
+            ? Query.of(q -> q.queryString(qs -> qs.query(filterQuery)))
+            : null;
+        Map<String, ScriptField> scriptFields = new HashMap<>();
+        if (MapUtils.isNotEmpty(scriptedFields)) {
+            scriptedFields.forEach((name, script) -> scriptFields.put(name, ScriptField.of(
+                b -> b.script(sb -> sb.inline(is -> is.source(script))))));
+        }
+
+        List<RequestItem> searches = new ArrayList<>(luceneQueries.size());
+        for (String luceneQuery : luceneQueries) {
+            Query query;
+            if (MapUtils.isEmpty(namedQueries)) {
+                query = Query.of(q -> q.queryString(qs -> qs.query(luceneQuery)));
+            } else {
+                query = Query.of(q -> q.bool(b -> {
+                    b.must(m -> m.queryString(qs -> qs.query(luceneQuery)));
+                    namedQueries.forEach((name, namedQuery) ->
+                        b.should(sh -> sh.queryString(qs -> qs.query(namedQuery).queryName(name))));
+                    return b;
+                }));
+            }
+
+            MultisearchBody.Builder body = new MultisearchBody.Builder()
+                .from(from)
+                .size(size)
+                .query(query)
+                .source(sc -> sc.filter(f -> f.includes(new ArrayList<>(includedFields))));
+            if (postFilter != null) {
+                body.postFilter(postFilter);
+            }
+            if (!scriptFields.isEmpty()) {
+                body.scriptFields(scriptFields);
+            }
+            MultisearchBody searchBody = body.build();
+            searches.add(RequestItem.of(r -> r.header(h -> h.index(index)).body(searchBody)));
+        }
+
+        try {
+            return client.msearch(MsearchRequest.of(b -> b.index(index).searches(searches)), ObjectNode.class);
+        } catch (ElasticsearchException esException) {
+            Log.error("geonetwork.index", String.format(
+                "Error during querying index. %s", esException.error().toString()));
+            throw esException;
+        }
+    }
+
+
     public String deleteByQuery(String index, String query) throws Exception {
         if (!activated) {
             return "";
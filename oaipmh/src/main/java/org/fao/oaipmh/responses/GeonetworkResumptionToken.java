@@ -23,11 +23,7 @@
 
 package org.fao.oaipmh.responses;
 
-import java.math.BigInteger;
-import java.security.SecureRandom;
-
 import org.fao.geonet.domain.ISODate;
-import org.fao.oaipmh.util.SearchResult;
 import org.fao.oaipmh.OaiPmh;
 import org.fao.oaipmh.exceptions.BadResumptionTokenException;
 import org.fao.oaipmh.requests.TokenListRequest;
@@ -35,21 +31,28 @@ import org.jdom.Element;
 
 //=============================================================================
 
-
+/**
+ * Resumption token holding all the state needed to list the next records, so that
+ * the server does not keep anything between two requests.
+ *
+ * The token contains the arguments of the first request and the sort values (change
+ * date and id) of the last record listed. The next records are the records sorted after
+ * these values.
+ */
 public class GeonetworkResumptionToken extends ResumptionToken {
 
     public static final String SEPARATOR = "/-/";
+    private static final int TOKEN_PARTS = 7;
     private Integer listSize;
     private Integer cursor;
-    private Integer pos;
+    private int pos;
     private String set = "";
     private String from = "";
     private String until = "";
     private String prefix = "";
-    private Boolean isReset = false;
-    private String randomid;
-    private SearchResult res;
-    private SecureRandom random = new SecureRandom();
+    private String afterChangeDate = "";
+    private String afterId = "";
+    private boolean isReset = false;
 
     /**
      * Default constructor. Builds a GeonetworkResumptionToken.
@@ -59,7 +62,7 @@ public class GeonetworkResumptionToken extends ResumptionToken {
     }
 
     /**
-     * Default constructor. Builds a GeonetworkResumptionToken.
+     * Builds the token of a request, from its resumption token if any or else from its arguments.
      */
     public GeonetworkResumptionToken(TokenListRequest req) throws BadResumptionTokenException {
 
@@ -68,50 +71,30 @@ public class GeonetworkResumptionToken extends ResumptionToken {
         if (strToken == null) {
 
             if (req.getFrom() != null)
-                from = req.getFrom().toString();
+                from = formatDate(req.getFrom());
             if (req.getUntil() != null)
-                until = req.getUntil().toString();
+                until = formatDate(req.getUntil());
             if (req.getSet() != null)
                 set = req.getSet();
             prefix = req.getMetadataPrefix();
 
-
-            randomid = generateRandomString();
-
         } else {
 
             parseToken(strToken);
         }
     }
 
-    /**
-     * Default constructor. Builds a GeonetworkResumptionToken.
-     */
-    public GeonetworkResumptionToken(TokenListRequest req, SearchResult res) throws BadResumptionTokenException {
-        this(req);
-        this.res = res;
-    }
-
-    public static String buildKey(TokenListRequest req) throws BadResumptionTokenException {
-        GeonetworkResumptionToken temp = new GeonetworkResumptionToken(req);
-        return temp.getKey();
-    }
-
     //---------------------------------------------------------------------------
     //---
     //--- API methods
     //---
     //---------------------------------------------------------------------------
 
-    public static int getPos(TokenListRequest req) throws BadResumptionTokenException {
-        GeonetworkResumptionToken temp = new GeonetworkResumptionToken(req);
-        return temp.getPos();
-    }
-
     public String getToken() {
         if (isReset)
             return ""; // we are at the last chunk
-        return getKey() + SEPARATOR + pos;
+        return set + SEPARATOR + prefix + SEPARATOR + from + SEPARATOR + until
+            + SEPARATOR + afterChangeDate + SEPARATOR + afterId + SEPARATOR + pos;
     }
 
     public void setToken(String token) {
@@ -127,25 +110,50 @@ public class GeonetworkResumptionToken extends ResumptionToken {
         return isReset;
     }
 
+    /**
+     * @return the number of records listed before the records following this token.
+     */
     public int getPos() {
         return pos;
     }
 
-    public void setPos(int pos) {
-        this.pos = pos;
+    /**
+     * @return the set of the request or null.
+     */
+    public String getSet() {
+        return emptyToNull(set);
     }
 
-    public String getKey() {
-        return set + SEPARATOR + prefix + SEPARATOR + from + SEPARATOR + until
-            + SEPARATOR + randomid;
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the from date of the request, formatted as a search parameter, or null.
+     */
+    public String getFrom() {
+        return emptyToNull(from);
+    }
+
+    /**
+     * @return the until date of the request, formatted as a search parameter, or null.
+     */
+    public String getUntil() {
+        return emptyToNull(until);
     }
 
-    public SearchResult getRes() {
-        return res;
+    /**
+     * @return the change date (milliseconds) of the last record listed, or null for the first records.
+     */
+    public Long getAfterChangeDate() {
+        return afterChangeDate.isEmpty() ? null : Long.valueOf(afterChangeDate);
     }
 
-    public void setRes(SearchResult res) {
-        this.res = res;
+    /**
+     * @return the id of the last record listed, or null for the first records.
+     */
+    public String getAfterId() {
+        return emptyToNull(afterId);
     }
 
     public void reset() {
@@ -154,12 +162,26 @@ public class GeonetworkResumptionToken extends ResumptionToken {
 
     //---------------------------------------------------------------------------
 
-    public void setupToken(int newpos) {
-        if (newpos < res.getIds().size()) // update token so that it refers to the next chunk
-            setPos(newpos);
-        else {
-            reset();    // reset token to indicate last chunk
-        }
+    /**
+     * Update the token so that it refers to the records following the last record listed.
+     *
+     * @param lastChangeDate the change date (milliseconds) of the last record listed.
+     * @param lastId         the id of the last record listed.
+     * @param newPos         the number of records listed including the current response.
+     */
+    public void setupToken(long lastChangeDate, String lastId, int newPos) {
+        cursor = pos;
+        afterChangeDate = String.valueOf(lastChangeDate);
+        afterId = lastId;
+        pos = newPos;
+    }
+
+    /**
+     * Mark the token as the last chunk, it is returned empty.
+     */
+    public void setupLastToken() {
+        cursor = pos;
+        reset();
     }
 
     //---------------------------------------------------------------------------
@@ -203,22 +225,36 @@ public class GeonetworkResumptionToken extends ResumptionToken {
 
     private void parseToken(String strToken) throws BadResumptionTokenException {
 
-        String[] temp = strToken.split(SEPARATOR);
+        String[] temp = strToken.split(SEPARATOR, -1);
 
-        if (temp.length != 6)
+        if (temp.length != TOKEN_PARTS)
             throw new BadResumptionTokenException("unknown resumptionToken format: " + strToken);
 
         set = temp[0];
         prefix = temp[1];
         from = temp[2];
         until = temp[3];
-        randomid = temp[4];
+        afterChangeDate = temp[4];
+        afterId = temp[5];
+
+        try {
+            if (!afterChangeDate.isEmpty())
+                Long.parseLong(afterChangeDate);
+            pos = Integer.parseInt(temp[6]);
+        } catch (NumberFormatException e) {
+            throw new BadResumptionTokenException("unknown resumptionToken format: " + strToken);
+        }
+
+        if (prefix.isEmpty() || afterChangeDate.isEmpty() != afterId.isEmpty() || pos < 0)
+            throw new BadResumptionTokenException("unknown resumptionToken format: " + strToken);
+    }
 
-        pos = Integer.parseInt(temp[5]);
+    private static String formatDate(ISODate date) {
+        return date.isDateOnly() ? date.getDateAsString() : date.toString();
     }
 
-    public String generateRandomString() {
-        return new BigInteger(130, random).toString(36);
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
     }
 
 }
@@ -35,6 +35,7 @@ import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.ReservedOperation;
 import org.fao.geonet.kernel.AccessManager;
+import org.fao.geonet.kernel.MetadataSelection;
 import org.fao.geonet.kernel.SelectionManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.setting.SettingManager;
@@ -90,11 +91,7 @@ public class ApiUtils {
             }
             SelectionManager selectionManager =
                 SelectionManager.getManager(session);
-            synchronized (
-                selectionManager.getSelection(bucket)) {
-                final Set<String> selection = selectionManager.getSelection(bucket);
-                setOfUuidsToEdit = Sets.newHashSet(selection);
-            }
+            setOfUuidsToEdit = selectionManager.getSelectedUuids(bucket);
         } else {
             setOfUuidsToEdit = Sets.newHashSet(Arrays.asList(uuids));
         }
@@ -106,6 +103,31 @@ public class ApiUtils {
         return setOfUuidsToEdit;
     }
 
+    /**
+     * Return the records of the input UUIDs array or a copy of the current selection.
+     *
+     * Unlike {@link #getUuidsParameterOrSelection(String[], String, UserSession)} the selection
+     * is not converted to UUIDs, use {@link SelectionManager#streamUuids(MetadataSelection)}
+     * to read them while processing the records.
+     */
+    public static MetadataSelection getRecordsParameterOrSelection(String[] uuids, String bucket, UserSession session) {
+        final MetadataSelection records;
+        if (uuids == null) {
+            if (bucket == null) {
+                bucket = SelectionManager.SELECTION_METADATA;
+            }
+            records = SelectionManager.getManager(session).getSelection(bucket).copy();
+        } else {
+            records = MetadataSelection.of(SelectionManager.toIds(Arrays.asList(uuids)));
+        }
+        if (records.isEmpty()) {
+            // TODO: i18n
+            throw new IllegalArgumentException(
+                "At least one record should be defined or selected for analysis.");
+        }
+        return records;
+    }
+
     /**
      * Search if a record match the UUID on its UUID or an internal identifier
      */
@@ -48,7 +48,20 @@ import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.fao.geonet.Constants;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.fao.geonet.NodeInfo;
 import org.fao.geonet.api.ApiUtils;
 import org.fao.geonet.api.records.MetadataUtils;
@@ -59,7 +72,9 @@ import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.*;
 import org.fao.geonet.index.es.EsRestClient;
 import org.fao.geonet.kernel.AccessManager;
+import org.fao.geonet.kernel.PermissionContext;
 import org.fao.geonet.kernel.SchemaManager;
+import org.fao.geonet.kernel.MetadataSelection;
 import org.fao.geonet.kernel.SelectionManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.schema.MetadataSchema;
@@ -79,13 +94,14 @@ import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 import java.util.zip.DeflaterInputStream;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
@@ -121,6 +137,11 @@ public class EsHTTPProxy {
     private static final String SEARCH_ENDPOINT = "_search";
     private static final String MULTISEARCH_ENDPOINT = "_msearch";
 
+    /**
+     * Size of the buffer between the Elasticsearch client and the thread streaming the response.
+     */
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     AccessManager accessManager;
 
@@ -147,12 +168,24 @@ public class EsHTTPProxy {
      */
     private String[] proxyHeadersIgnoreList =  {"Content-Length"};
 
+    /**
+     * Client's headers which are not copied to the request to the final host
+     * because they are set by the HTTP client.
+     */
+    private static final String[] clientManagedHeaders = {
+        HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE, HttpHeaders.TRANSFER_ENCODING,
+        HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.EXPECT, HttpHeaders.UPGRADE
+    };
+
     @Autowired
     private EsRestClient client;
 
     @Autowired
     private SchemaManager schemaManager;
 
+    @Autowired
+    private EsSearchResponseCache responseCache;
+
     public EsHTTPProxy() {
     }
 
@@ -176,44 +209,84 @@ public class EsHTTPProxy {
         return sub != null ? sub.asInt() : null;
     }
 
-    private static void addSelectionInfo(ObjectNode doc, Set<String> selections) {
-        final String uuid = getSourceString(doc, Geonet.IndexFieldNames.UUID);
-        doc.put(Edit.Info.Elem.SELECTED, selections.contains(uuid));
+    private static void addSelectionInfo(ObjectNode doc, MetadataSelection selection) {
+        boolean selected = false;
+        // Working copies are set by addDraftSelectionInfo
+        if (!selection.isEmpty() && !isDraft(doc)) {
+            final Integer id = getSourceInteger(doc, Geonet.IndexFieldNames.ID);
+            selected = id != null && selection.contains(id);
+        }
+        doc.put(Edit.Info.Elem.SELECTED, selected);
     }
 
-    private static void addRelatedTypes(ObjectNode doc,
+    /**
+     * Working copies are selected through their approved version.
+     * The ids of the approved versions of a page of hits are resolved with one query.
+     */
+    private static void addDraftSelectionInfo(List<ObjectNode> docs, MetadataSelection selection) {
+        List<ObjectNode> drafts = docs.stream()
+            .filter(EsHTTPProxy::isDraft)
+            .collect(Collectors.toList());
+        if (drafts.isEmpty()) {
+            return;
+        }
+        Set<String> selectedUuids = SelectionManager.selectedUuids(selection, drafts.stream()
+            .map(doc -> getSourceString(doc, Geonet.IndexFieldNames.UUID))
+            .collect(Collectors.toList()));
+        for (ObjectNode doc : drafts) {
+            doc.put(Edit.Info.Elem.SELECTED, selectedUuids.contains(getSourceString(doc, Geonet.IndexFieldNames.UUID)));
+        }
+    }
+
+    private static boolean isDraft(ObjectNode doc) {
+        return doc.has("_source") && "y".equals(getSourceString(doc, Geonet.IndexFieldNames.DRAFT));
+    }
+
+    /**
+     * Add the related records of a page of hits, resolved with one multi search request.
+     */
+    private static void addRelatedTypes(List<ObjectNode> docs,
                                         RelatedItemType[] relatedTypes,
                                         ServiceContext context) {
-        Map<RelatedItemType, List<AssociatedRecord>> related = null;
-        try {
-            related = MetadataUtils.getAssociated(
-                context,
-                context.getBean(IMetadataUtils.class)
-                    .findOne(doc.get("_source").get("id").asText()),
-                relatedTypes, 0, 1000);
-        } catch (Exception e) {
-            LOGGER.warn("Failed to load related types for {}. Error is: {}",
-                getSourceString(doc, Geonet.IndexFieldNames.UUID),
-                e.getMessage()
-            );
+        Set<Integer> ids = new HashSet<>();
+        for (ObjectNode doc : docs) {
+            Integer id = getSourceInteger(doc, Geonet.IndexFieldNames.ID);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        Map<Integer, Map<RelatedItemType, List<AssociatedRecord>>> relatedById = Collections.emptyMap();
+        if (!ids.isEmpty()) {
+            try {
+                List<AbstractMetadata> records = new ArrayList<>();
+                context.getBean(IMetadataUtils.class).findAll(ids).forEach(records::add);
+                relatedById = MetadataUtils.getAssociated(context, records, relatedTypes, 0, 1000);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to load related types for {} records. Error is: {}",
+                    ids.size(),
+                    e.getMessage()
+                );
+            }
+        }
+        for (ObjectNode doc : docs) {
+            Integer id = getSourceInteger(doc, Geonet.IndexFieldNames.ID);
+            doc.putPOJO("related", id == null ? null : relatedById.get(id));
         }
-        doc.putPOJO("related", related);
     }
 
+    /**
+     * Add the privileges of the user on the record. The groups of the user are resolved once
+     * per request, privileges are checked using the owner, group owner and operations of the
+     * record in the index.
+     */
     public static void addUserInfo(ObjectNode doc, ServiceContext context) throws Exception {
         final Integer owner = getSourceInteger(doc, Geonet.IndexFieldNames.OWNER);
         final Integer groupOwner = getSourceInteger(doc, Geonet.IndexFieldNames.GROUP_OWNER);
         final String id = getSourceString(doc, Geonet.IndexFieldNames.ID);
 
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        final MetadataSourceInfo sourceInfo = new MetadataSourceInfo();
-        sourceInfo.setOwner(owner);
-        if (groupOwner != null) {
-            sourceInfo.setGroupOwner(groupOwner);
-        }
-        final AccessManager accessManager = context.getBean(AccessManager.class);
-        final boolean isOwner = accessManager.isOwner(context, sourceInfo);
+        final PermissionContext permissions = context.getBean(AccessManager.class).getPermissionContext(context);
+        final Set<Integer> editingOperationGroups = getOperationGroups(doc, ReservedOperation.editing);
+        final boolean isOwner = permissions.isOwner(owner, groupOwner);
         final HashSet<ReservedOperation> operations;
         boolean canEdit = false;
         if (isOwner) {
@@ -222,35 +295,18 @@ public class EsHTTPProxy {
                 doc.put("ownerId", owner.intValue());
             }
         } else {
-            final Collection<Integer> groups =
-                accessManager.getUserGroups(context.getUserSession(), context.getIpAddress(), false);
-            final Collection<Integer> editingGroups =
-                accessManager.getUserGroups(context.getUserSession(), context.getIpAddress(), true);
+            final Collection<Integer> groups = permissions.getGroups();
+            canEdit = permissions.hasEditPermission(editingOperationGroups);
             operations = Sets.newHashSet();
             for (ReservedOperation operation : ReservedOperation.values()) {
-                final JsonNode operationNodes = doc.get("_source").get(Geonet.IndexFieldNames.OP_PREFIX + operation.getId());
-                if (operationNodes != null) {
-                    ArrayNode opFields = operationNodes.isArray() ? (ArrayNode) operationNodes : objectMapper.createArrayNode().add(operationNodes);
-                    if (opFields != null) {
-                        for (JsonNode field : opFields) {
-                            final int groupId = field.asInt();
-                            if (operation == ReservedOperation.editing
-                                && !canEdit
-                                && editingGroups.contains(groupId)) {
-                                canEdit = true;
-                            }
-
-                            if (groups.contains(groupId)) {
-                                operations.add(operation);
-                            }
-                        }
-                    }
+                if (!Collections.disjoint(groups, getOperationGroups(doc, operation))) {
+                    operations.add(operation);
                 }
             }
         }
         doc.put(Edit.Info.Elem.EDIT, isOwner || canEdit);
         doc.put(Edit.Info.Elem.REVIEW,
-            id != null ? accessManager.hasReviewPermission(context, id) : false);
+            id != null && permissions.hasReviewPermission(groupOwner, editingOperationGroups));
         doc.put(Edit.Info.Elem.OWNER, isOwner);
         doc.put(Edit.Info.Elem.IS_PUBLISHED_TO_ALL, hasOperation(doc, ReservedGroup.all, ReservedOperation.view));
         addReservedOperation(doc, operations, ReservedOperation.view);
@@ -264,26 +320,31 @@ public class EsHTTPProxy {
         }
     }
 
+    /**
+     * @return the groups having an operation on the record.
+     */
+    private static Set<Integer> getOperationGroups(ObjectNode doc, ReservedOperation operation) {
+        Set<Integer> groups = new HashSet<>();
+        final JsonNode operationNodes = doc.get("_source").get(Geonet.IndexFieldNames.OP_PREFIX + operation.getId());
+        if (operationNodes != null) {
+            if (operationNodes.isArray()) {
+                for (JsonNode field : operationNodes) {
+                    groups.add(field.asInt());
+                }
+            } else {
+                groups.add(operationNodes.asInt());
+            }
+        }
+        return groups;
+    }
+
     private static void addReservedOperation(ObjectNode doc, HashSet<ReservedOperation> operations,
                                              ReservedOperation kind) {
         doc.put(kind.name(), operations.contains(kind));
     }
 
     private static boolean hasOperation(ObjectNode doc, ReservedGroup group, ReservedOperation operation) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        int groupId = group.getId();
-        final JsonNode operationNodes = doc.get("_source").get(Geonet.IndexFieldNames.OP_PREFIX + operation.getId());
-        if (operationNodes != null) {
-            ArrayNode opFields = operationNodes.isArray() ? (ArrayNode) operationNodes : objectMapper.createArrayNode().add(operationNodes);
-            if (opFields != null) {
-                for (JsonNode field : opFields) {
-                    if (groupId == field.asInt()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return getOperationGroups(doc, operation).contains(group.getId());
     }
 
 
@@ -454,15 +515,40 @@ public class EsHTTPProxy {
                 requestBody.append(node).append(System.lineSeparator());
             }
             handleRequest(context, httpSession, request, response, url, endPoint,
-                requestBody.toString(), true, selectionBucket, relatedTypes);
+                requestBody.toString(), true, selectionBucket, relatedTypes,
+                getCacheKey(context, httpSession, request, endPoint, requestBody.toString(), selectionBucket, relatedTypes));
         } else {
             handleRequest(context, httpSession, request, response, url, endPoint,
-                body, true, selectionBucket, relatedTypes);
+                body, true, selectionBucket, relatedTypes, null);
         }
     }
 
     /**
-     * {@link #addUserInfo(ObjectNode, ServiceContext)}
+     * Anonymous searches without selection give the same response to the same request
+     * which contains the portal and privileges filters.
+     *
+     * @return the key of the response in the cache or null if the response can not be cached.
+     */
+    private String getCacheKey(ServiceContext context, HttpSession httpSession, HttpServletRequest request,
+                               String endPoint, String requestBody,
+                               String selectionBucket, RelatedItemType[] relatedTypes) {
+        if (!responseCache.isEnabled()
+            || !SEARCH_ENDPOINT.equals(endPoint)
+            || !"POST".equals(request.getMethod())
+            || context.getUserSession().isAuthenticated()) {
+            return null;
+        }
+        if (selectionBucket != null && !SelectionManager.getManager(ApiUtils.getUserSession(httpSession))
+            .getSelection(selectionBucket).isEmpty()) {
+            return null;
+        }
+        return context.getLanguage() + "|"
+            + (relatedTypes == null ? "" : Arrays.toString(relatedTypes)) + "|"
+            + requestBody;
+    }
+
+    /**
+     * {@link #addUserInfo(ObjectNode, ServiceContext)} and {@link #addSelectionInfo(ObjectNode, MetadataSelection)}
      * rely on fields from the index. Add them to the source.
      */
     private void addRequiredField(ArrayNode source) {
@@ -471,6 +557,7 @@ public class EsHTTPProxy {
         source.add(Geonet.IndexFieldNames.GROUP_OWNER);
         source.add(Geonet.IndexFieldNames.OWNER);
         source.add(Geonet.IndexFieldNames.ID);
+        source.add(Geonet.IndexFieldNames.DRAFT);
     }
 
     private void addFilterToQuery(ServiceContext context,
@@ -545,124 +632,169 @@ public class EsHTTPProxy {
                                String requestBody,
                                boolean addPermissions,
                                String selectionBucket,
-                               RelatedItemType[] relatedTypes) throws Exception {
-        try {
-            URL url = new URL(sUrl);
+                               RelatedItemType[] relatedTypes,
+                               String cacheKey) throws Exception {
+        final long cacheGeneration = responseCache.getGeneration();
+        if (cacheKey != null) {
+            EsSearchResponseCache.CachedResponse cachedResponse = responseCache.get(cacheKey);
+            if (cachedResponse != null) {
+                cachedResponse.getHeaders().forEach(header -> response.addHeader(header.getName(), header.getValue()));
+                response.setContentType(cachedResponse.getContentType());
+                response.setContentLength(cachedResponse.getBody().length);
+                response.getOutputStream().write(cachedResponse.getBody());
+                return;
+            }
+        }
 
-            // open communication between proxy and final host
-            // all actions before the connection can be taken now
-            HttpURLConnection connectionWithFinalHost = (HttpURLConnection) url.openConnection();
-            try {
-                connectionWithFinalHost.setRequestMethod(request.getMethod());
-
-                // copy headers from client's request to request that will be send to the final host
-                copyHeadersToConnection(request, connectionWithFinalHost);
-                if (StringUtils.isNotEmpty(username) && StringUtils.isNotEmpty(password)) {
-                    String auth = username + ":" + password;
-                    byte[] encodedAuth = Base64.getEncoder().encode(
-                        auth.getBytes(StandardCharsets.UTF_8));
-                    String authHeaderValue = "Basic " + new String(encodedAuth);
-                    connectionWithFinalHost.setRequestProperty("Authorization", authHeaderValue);
-                }
+        // the pooled client keeps the connections to the final host alive between requests
+        Request esRequest = new Request(request.getMethod(), "/" + defaultIndex + "/" + endPoint);
+        RequestOptions.Builder options = RequestOptions.DEFAULT.toBuilder();
+        // copy headers from client's request to request that will be send to the final host
+        // cached responses are stored uncompressed
+        copyHeadersToRequest(request, options, cacheKey == null);
+        // the default consumer holds the whole response in memory, stream it instead
+        CompletableFuture<HttpResponse> responseFuture = new CompletableFuture<>();
+        options.setHttpAsyncResponseConsumerFactory(
+            () -> new StreamingResponseConsumer(responseFuture, RESPONSE_BUFFER_SIZE));
+        esRequest.setOptions(options);
+        String mimeType = StringUtils.isNotEmpty(request.getContentType()) ?
+            request.getContentType().split(";")[0].trim() : MediaType.APPLICATION_JSON_VALUE;
+        esRequest.setEntity(new NStringEntity(requestBody, ContentType.create(mimeType, StandardCharsets.UTF_8)));
+
+        Cancellable esCall = client.getRestClient().performRequestAsync(esRequest, new ResponseListener() {
+            @Override
+            public void onSuccess(Response esResponse) {
+                // no-op if the response is already streamed
+                responseFuture.complete(toHttpResponse(esResponse));
+            }
 
-                connectionWithFinalHost.setDoOutput(true);
-                connectionWithFinalHost.getOutputStream().write(requestBody.getBytes(Constants.ENCODING));
-
-                // connect to remote host
-                // interactions with the resource are enabled now
-                connectionWithFinalHost.connect();
-
-                // send remote host's response to client
-                String contentEncoding = getContentEncoding(connectionWithFinalHost.getHeaderFields());
-
-                int code = connectionWithFinalHost.getResponseCode();
-                if (code != 200) {
-                    InputStream errorDetails = "gzip".equalsIgnoreCase(contentEncoding) ?
-                        new GZIPInputStream(connectionWithFinalHost.getErrorStream()) :
-                        connectionWithFinalHost.getErrorStream();
-
-                    response.sendError(code,
-                        String.format(
-                            "Error is: %s.\nRequest:\n%s.\nError:\n%s.",
-                            connectionWithFinalHost.getResponseMessage(),
-                            requestBody,
-                            IOUtils.toString(errorDetails)
-                        ));
-                    return;
+            @Override
+            public void onFailure(Exception e) {
+                if (e instanceof ResponseException) {
+                    responseFuture.complete(toHttpResponse(((ResponseException) e).getResponse()));
+                } else {
+                    responseFuture.completeExceptionally(e);
                 }
+            }
+        });
 
-                // get content type
-                String contentType = connectionWithFinalHost.getContentType();
-                if (contentType == null) {
-                    response.sendError(HttpServletResponse.SC_FORBIDDEN,
-                        "Host url has been validated by proxy but content type given by remote host is null");
-                    return;
+        HttpResponse esResponse;
+        try {
+            esResponse = responseFuture.get();
+        } catch (InterruptedException e) {
+            esCall.cancel();
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            // connection problem with the host
+            e.getCause().printStackTrace();
+
+            throw new Exception(
+                String.format("Failed to request Es at URL %s. " +
+                        "Check Es configuration.",
+                    sUrl),
+                e.getCause());
+        }
+
+        HttpEntity entity = esResponse.getEntity();
+        try {
+            // send remote host's response to client
+            String contentEncoding = getContentEncoding(esResponse);
+
+            int code = esResponse.getStatusLine().getStatusCode();
+            if (code != 200) {
+                String errorDetails = "";
+                if (entity != null) {
+                    errorDetails = "gzip".equalsIgnoreCase(contentEncoding) ?
+                        IOUtils.toString(new GZIPInputStream(entity.getContent()), StandardCharsets.UTF_8) :
+                        EntityUtils.toString(entity);
                 }
+                response.sendError(code,
+                    String.format(
+                        "Error is: %s.\nRequest:\n%s.\nError:\n%s.",
+                        esResponse.getStatusLine().getReasonPhrase(),
+                        requestBody,
+                        errorDetails
+                    ));
+                return;
+            }
 
-                // content type has to be valid
-                if (!isContentTypeValid(contentType)) {
-                    if (connectionWithFinalHost.getResponseMessage() != null) {
-                        if (connectionWithFinalHost.getResponseMessage().equalsIgnoreCase("Not Found")) {
-                            // content type was not valid because it was a not found page (text/html)
-                            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Remote host not found");
-                            return;
-                        }
-                    }
+            // get content type
+            Header contentTypeHeader = entity == null ? null : entity.getContentType();
+            String contentType = contentTypeHeader == null ? null : contentTypeHeader.getValue();
+            if (contentType == null) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN,
+                    "Host url has been validated by proxy but content type given by remote host is null");
+                return;
+            }
 
-                    response.sendError(HttpServletResponse.SC_FORBIDDEN,
-                        "The content type of the remote host's response \"" + contentType
-                            + "\" is not allowed by the proxy rules");
+            // content type has to be valid
+            if (!isContentTypeValid(contentType)) {
+                if ("Not Found".equalsIgnoreCase(esResponse.getStatusLine().getReasonPhrase())) {
+                    // content type was not valid because it was a not found page (text/html)
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND, "Remote host not found");
                     return;
                 }
 
-                // copy headers from the remote server's response to the response to send to the client
-                copyHeadersFromConnectionToResponse(response, connectionWithFinalHost, proxyHeadersIgnoreList);
+                response.sendError(HttpServletResponse.SC_FORBIDDEN,
+                    "The content type of the remote host's response \"" + contentType
+                        + "\" is not allowed by the proxy rules");
+                return;
+            }
 
-                if (!contentType.split(";")[0].equals("application/json")) {
-                    addPermissions = false;
-                }
+            // copy headers from the remote server's response to the response to send to the client
+            List<Header> proxiedHeaders = copyHeadersFromResponse(response, esResponse, proxyHeadersIgnoreList);
 
-                final InputStream streamFromServer;
-                final OutputStream streamToClient;
-
-                if (contentEncoding == null || !addPermissions) {
-                    // A simple stream can do the job for data that is not in content encoded
-                    // but also for data content encoded with a known charset
-                    streamFromServer = connectionWithFinalHost.getInputStream();
-                    streamToClient = response.getOutputStream();
-                } else if ("gzip".equalsIgnoreCase(contentEncoding)) {
-                    // the charset is unknown and the data are compressed in gzip
-                    // we add the gzip wrapper to be able to read/write the stream content
-                    streamFromServer = new GZIPInputStream(connectionWithFinalHost.getInputStream());
-                    streamToClient = new GZIPOutputStream(response.getOutputStream());
-                } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
-                    // same but with deflate
-                    streamFromServer = new DeflaterInputStream(connectionWithFinalHost.getInputStream());
-                    streamToClient = new DeflaterOutputStream(response.getOutputStream());
-                } else {
-                    throw new UnsupportedOperationException("Please handle the stream when it is encoded in " + contentEncoding);
-                }
+            if (!contentType.split(";")[0].equals("application/json")) {
+                addPermissions = false;
+            }
 
-                try {
-                    processResponse(context, httpSession, streamFromServer, streamToClient, endPoint, selectionBucket, addPermissions, relatedTypes);
-                    streamToClient.flush();
-                } finally {
-                    IOUtils.closeQuietly(streamFromServer);
+            final InputStream streamFromServer;
+            final OutputStream streamToClient;
+            final boolean cacheResponse = cacheKey != null && contentEncoding == null && addPermissions;
+
+            // the response is read as it is received from the final host
+            if (cacheResponse) {
+                streamFromServer = entity.getContent();
+                streamToClient = new ByteArrayOutputStream();
+            } else if (contentEncoding == null || !addPermissions) {
+                // A simple stream can do the job for data that is not in content encoded
+                // but also for data content encoded with a known charset
+                streamFromServer = entity.getContent();
+                streamToClient = response.getOutputStream();
+            } else if ("gzip".equalsIgnoreCase(contentEncoding)) {
+                // the charset is unknown and the data are compressed in gzip
+                // we add the gzip wrapper to be able to read/write the stream content
+                streamFromServer = new GZIPInputStream(entity.getContent());
+                streamToClient = new GZIPOutputStream(response.getOutputStream());
+            } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+                // same but with deflate
+                streamFromServer = new DeflaterInputStream(entity.getContent());
+                streamToClient = new DeflaterOutputStream(response.getOutputStream());
+            } else {
+                throw new UnsupportedOperationException("Please handle the stream when it is encoded in " + contentEncoding);
+            }
+
+            try {
+                processResponse(context, httpSession, streamFromServer, streamToClient, endPoint, selectionBucket, addPermissions, relatedTypes);
+                streamToClient.flush();
+                if (cacheResponse) {
+                    byte[] body = ((ByteArrayOutputStream) streamToClient).toByteArray();
+                    responseCache.put(cacheKey, new EsSearchResponseCache.CachedResponse(contentType, proxiedHeaders, body), cacheGeneration);
+                    response.setContentType(contentType);
+                    response.setContentLength(body.length);
+                    response.getOutputStream().write(body);
                 }
-            } catch (Exception ex) {
-                ex.printStackTrace();
             } finally {
-                connectionWithFinalHost.disconnect();
+                IOUtils.closeQuietly(streamFromServer);
             }
-        } catch (IOException e) {
-            // connection problem with the host
-            e.printStackTrace();
-
-            throw new Exception(
-                String.format("Failed to request Es at URL %s. " +
-                        "Check Es configuration.",
-                    sUrl),
-                e);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            // do not read the rest of the response
+            esCall.cancel();
+        } finally {
+            // release the connection to the pool
+            EntityUtils.consumeQuietly(entity);
         }
     }
 
@@ -676,8 +808,23 @@ public class EsHTTPProxy {
         JsonGenerator generator = JsonStreamUtils.jsonFactory.createGenerator(streamToClient);
         parser.nextToken();  //Go to the first token
 
-        final Set<String> selections = (addPermissions ?
-            SelectionManager.getManager(ApiUtils.getUserSession(httpSession)).getSelection(bucket) : new HashSet<>());
+        final MetadataSelection selections = (addPermissions ?
+            SelectionManager.getManager(ApiUtils.getUserSession(httpSession)).getSelection(bucket) : new MetadataSelection());
+
+        final JsonStreamUtils.TreesFilter relatedFilter = (relatedTypes != null) && (relatedTypes.length > 0)
+            ? docs -> addRelatedTypes(docs, relatedTypes, context)
+            : null;
+        final JsonStreamUtils.TreesFilter hitsFilter;
+        if (addPermissions && !selections.isEmpty()) {
+            hitsFilter = docs -> {
+                addDraftSelectionInfo(docs, selections);
+                if (relatedFilter != null) {
+                    relatedFilter.apply(docs);
+                }
+            };
+        } else {
+            hitsFilter = relatedFilter;
+        }
 
         if (endPoint.equals(SEARCH_ENDPOINT)) {
             JsonStreamUtils.addInfoToDocs(parser, generator, doc -> {
@@ -686,10 +833,6 @@ public class EsHTTPProxy {
                     addSelectionInfo(doc, selections);
                 }
 
-                if ((relatedTypes != null ) && (relatedTypes.length > 0)) {
-                    addRelatedTypes(doc, relatedTypes, context);
-                }
-
                 if (doc.has("_source")) {
                     ObjectNode sourceNode = (ObjectNode) doc.get("_source");
 
@@ -714,7 +857,7 @@ public class EsHTTPProxy {
                     }
 
                 }
-            });
+            }, hitsFilter);
         } else {
             JsonStreamUtils.addInfoToDocsMSearch(parser, generator, doc -> {
                 if (addPermissions) {
@@ -722,10 +865,6 @@ public class EsHTTPProxy {
                     addSelectionInfo(doc, selections);
                 }
 
-                if ((relatedTypes != null ) && (relatedTypes.length > 0)) {
-                    addRelatedTypes(doc, relatedTypes, context);
-                }
-
                 // Remove fields with privileges info
                 if (doc.has("_source")) {
                     ObjectNode sourceNode = (ObjectNode) doc.get("_source");
@@ -734,7 +873,7 @@ public class EsHTTPProxy {
                         sourceNode.remove("op" + o.getId());
                     }
                 }
-            });
+            }, hitsFilter);
         }
 
         generator.flush();
@@ -745,36 +884,33 @@ public class EsHTTPProxy {
      * Gets the encoding of the content sent by the remote host: extracts the
      * content-encoding header
      *
-     * @param headerFields headers of the HttpURLConnection
+     * @param esResponse response of the remote host
      * @return null if not exists otherwise name of the encoding (gzip, deflate...)
      */
-    private String getContentEncoding(Map<String, List<String>> headerFields) {
-        for (String headerName : headerFields.keySet()) {
-            if (headerName != null) {
-                if ("Content-Encoding".equalsIgnoreCase(headerName)) {
-                    List<String> valuesList = headerFields.get(headerName);
-                    StringBuilder sBuilder = new StringBuilder();
-                    valuesList.forEach(sBuilder::append);
-                    return sBuilder.toString().toLowerCase();
-                }
-            }
-        }
-        return null;
+    private String getContentEncoding(HttpResponse esResponse) {
+        Header contentEncoding = esResponse.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        return contentEncoding == null ? null : contentEncoding.getValue().toLowerCase();
+    }
+
+    private static HttpResponse toHttpResponse(Response esResponse) {
+        HttpResponse httpResponse = new BasicHttpResponse(esResponse.getStatusLine());
+        httpResponse.setHeaders(esResponse.getHeaders());
+        httpResponse.setEntity(esResponse.getEntity());
+        return httpResponse;
     }
 
     /**
-     * Copy headers from the connection to the response
+     * Copy headers from the remote host response to the response
      *
      * @param response   to copy headers in
-     * @param uc         contains headers to copy
+     * @param esResponse contains headers to copy
      * @param ignoreList list of headers that mustn't be copied
+     * @return the copied headers
      */
-    private void copyHeadersFromConnectionToResponse(HttpServletResponse response, HttpURLConnection uc, String... ignoreList) {
-        Map<String, List<String>> map = uc.getHeaderFields();
-        for (String headerName : map.keySet()) {
-            if (headerName == null) {
-                continue;
-            }
+    private List<Header> copyHeadersFromResponse(HttpServletResponse response, HttpResponse esResponse, String... ignoreList) {
+        List<Header> copiedHeaders = new ArrayList<>();
+        for (Header header : esResponse.getAllHeaders()) {
+            String headerName = header.getName();
             if (Arrays.stream(ignoreList).anyMatch(headerName::equalsIgnoreCase)) {
                 // Ignore list reflects headers that are handled by ESHTTPProxy directly
                 continue;
@@ -784,28 +920,29 @@ public class EsHTTPProxy {
                 // as Elasticsearch API changes over time.
                 continue;
             }
-            // concatenate all values from the header
-            List<String> valuesList = map.get(headerName);
-            StringBuilder sBuilder = new StringBuilder();
-            valuesList.forEach(sBuilder::append);
-
-            if ("Transfer-Encoding".equalsIgnoreCase(headerName) && "chunked".equalsIgnoreCase(sBuilder.toString())) {
+            if ("Transfer-Encoding".equalsIgnoreCase(headerName) && "chunked".equalsIgnoreCase(header.getValue())) {
                 // do not write this header + value because Tomcat already assembled the chunks itself
                 continue;
             }
             // add header to HttpServletResponse object
-            response.addHeader(headerName, sBuilder.toString());
+            response.addHeader(headerName, header.getValue());
+            copiedHeaders.add(header);
         }
+        return copiedHeaders;
     }
 
     /**
      * Copy client's headers in the request to send to the final host.
      * Trick the host by hiding the proxy indirection and keep useful headers information.
      *
-     * @param uc Contains now headers from client request except Host
+     * Headers describing the body or the connection are set by the client
+     * of the final host. The credentials of the final host, if any, are set by the client too.
+     *
+     * @param options Contains now headers from client request except Host
+     * @param acceptEncoding true to copy the Accept-Encoding header
      */
-    protected void copyHeadersToConnection(HttpServletRequest request, HttpURLConnection uc) {
-
+    protected void copyHeadersToRequest(HttpServletRequest request, RequestOptions.Builder options, boolean acceptEncoding) {
+        boolean hasCredentials = StringUtils.isNotEmpty(username) && StringUtils.isNotEmpty(password);
         for (Enumeration enumHeader = request.getHeaderNames(); enumHeader.hasMoreElements(); ) {
             String headerName = (String) enumHeader.nextElement();
             String headerValue = request.getHeader(headerName);
@@ -813,8 +950,11 @@ public class EsHTTPProxy {
             // copy every header except host
             if (!"host".equalsIgnoreCase(headerName) &&
                 !"X-XSRF-TOKEN".equalsIgnoreCase(headerName) &&
-                !"Cookie".equalsIgnoreCase(headerName)) {
-                uc.setRequestProperty(headerName, headerValue);
+                !"Cookie".equalsIgnoreCase(headerName) &&
+                !(hasCredentials && HttpHeaders.AUTHORIZATION.equalsIgnoreCase(headerName)) &&
+                !(!acceptEncoding && HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(headerName)) &&
+                Arrays.stream(clientManagedHeaders).noneMatch(headerName::equalsIgnoreCase)) {
+                options.addHeader(headerName, headerValue);
             }
         }
     }
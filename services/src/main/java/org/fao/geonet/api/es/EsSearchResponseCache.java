@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.es;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.http.Header;
+import org.fao.geonet.events.group.GroupRemoved;
+import org.fao.geonet.events.group.GroupUpdated;
+import org.fao.geonet.events.md.MetadataIndexCompleted;
+import org.fao.geonet.events.md.MetadataPublished;
+import org.fao.geonet.events.md.MetadataRemove;
+import org.fao.geonet.events.md.MetadataUnpublished;
+import org.fao.geonet.events.md.sharing.MetadataShare;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of the search proxy responses to anonymous users.
+ *
+ * The key is the request sent to Elasticsearch, which contains the portal
+ * and the privileges filters, so that users with the same groups share the responses.
+ * The cache is cleared when a record is indexed, removed or its privileges change.
+ * Privileges of a record are updated in the index after the event, the time to live
+ * bounds the time a response can be out of date.
+ */
+public class EsSearchResponseCache implements ApplicationListener<ApplicationEvent>, InitializingBean {
+
+    /**
+     * Time to live of the responses in seconds. 0 disables the cache.
+     */
+    @Value("${es.proxy.cache.ttl:0}")
+    private int timeToLive = 0;
+
+    @Value("${es.proxy.cache.maxSize:200}")
+    private int maxSize = 200;
+
+    private Cache<String, CachedResponse> responses;
+
+    /**
+     * Incremented when the cache is cleared so that responses computed
+     * before are not added.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public EsSearchResponseCache() {
+    }
+
+    public EsSearchResponseCache(int timeToLive, int maxSize) {
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+        afterPropertiesSet();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (timeToLive > 0 && maxSize > 0) {
+            responses = CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+                .maximumSize(maxSize)
+                .build();
+        }
+    }
+
+    public boolean isEnabled() {
+        return responses != null;
+    }
+
+    /**
+     * @return the current generation, to get before sending the request to Elasticsearch.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public CachedResponse get(String key) {
+        return isEnabled() ? responses.getIfPresent(key) : null;
+    }
+
+    /**
+     * Add a response unless the cache was cleared since the generation was read.
+     */
+    public void put(String key, CachedResponse response, long requestGeneration) {
+        if (isEnabled() && generation.get() == requestGeneration) {
+            responses.put(key, response);
+            if (generation.get() != requestGeneration) {
+                // cleared while adding
+                responses.invalidate(key);
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        if (isEnabled()) {
+            responses.invalidateAll();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof MetadataIndexCompleted
+            || event instanceof MetadataRemove
+            || event instanceof MetadataPublished
+            || event instanceof MetadataUnpublished
+            || event instanceof MetadataShare
+            || event instanceof GroupUpdated
+            || event instanceof GroupRemoved) {
+            clear();
+        }
+    }
+
+    public static class CachedResponse {
+        private final String contentType;
+        private final List<Header> headers;
+        private final byte[] body;
+
+        /**
+         * @param headers the Elasticsearch response headers sent to the client.
+         */
+        public CachedResponse(String contentType, List<Header> headers, byte[] body) {
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public List<Header> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
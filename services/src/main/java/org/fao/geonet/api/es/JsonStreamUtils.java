@@ -32,6 +32,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -97,6 +98,16 @@ public class JsonStreamUtils {
     }
 
     public static void addInfoToDocs(JsonParser parser, JsonGenerator generator, TreeFilter callback) throws Exception {
+        addInfoToDocs(parser, generator, callback, null);
+    }
+
+    /**
+     * @param hitsCallback if not null, the hits of an array of hits are read before being
+     *                     written, and are passed together to this callback after the callback
+     *                     of each hit.
+     */
+    public static void addInfoToDocs(JsonParser parser, JsonGenerator generator, TreeFilter callback,
+                                     TreesFilter hitsCallback) throws Exception {
         /* ES response for hits
             hits
               hits
@@ -104,13 +115,21 @@ public class JsonStreamUtils {
         JsonPathItem hitsItem =  JsonPathItem.create("hits").addSubitem("hits");
 
         JsonStreamUtils.filterObjectInPath(parser, generator,
-            (par, gen) ->
-                JsonStreamUtils.filterArrayElements(par, gen, (par1, gen1) ->
-                    filterTree(parser, generator, callback)),
+            hitsFilter(callback, hitsCallback),
             Collections.singletonList(hitsItem));
     }
 
     public static void addInfoToDocsMSearch(JsonParser parser, JsonGenerator generator, TreeFilter callback) throws Exception {
+        addInfoToDocsMSearch(parser, generator, callback, null);
+    }
+
+    /**
+     * @param hitsCallback if not null, the hits of an array of hits are read before being
+     *                     written, and are passed together to this callback after the callback
+     *                     of each hit.
+     */
+    public static void addInfoToDocsMSearch(JsonParser parser, JsonGenerator generator, TreeFilter callback,
+                                            TreesFilter hitsCallback) throws Exception {
         /* ES response for hits and agreggation hits
          *  responses
          *    hits
@@ -133,12 +152,42 @@ public class JsonStreamUtils {
 
 
         JsonStreamUtils.filterObjectInPath(parser, generator,
-            (par, gen) ->
-                JsonStreamUtils.filterArrayElements(par, gen, (par1, gen1) ->
-                    filterTree(parser, generator, callback)),
+            hitsFilter(callback, hitsCallback),
             Collections.singletonList(responsesItem));
     }
 
+    private static JsonFilter hitsFilter(TreeFilter callback, TreesFilter hitsCallback) {
+        if (hitsCallback == null) {
+            return (parser, generator) ->
+                JsonStreamUtils.filterArrayElements(parser, generator, (par, gen) ->
+                    filterTree(par, gen, callback));
+        }
+        return (parser, generator) -> filterTrees(parser, generator, callback, hitsCallback);
+    }
+
+    private static void filterTrees(JsonParser parser, JsonGenerator generator, TreeFilter callback,
+                                    TreesFilter treesCallback) throws Exception {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new RuntimeException("Expecting an array");
+        }
+        List<ObjectNode> trees = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                throw new RuntimeException("Expecting an object");
+            }
+            final ObjectNode tree = parser.readValueAsTree();
+            callback.apply(tree);
+            trees.add(tree);
+        }
+        treesCallback.apply(trees);
+
+        generator.writeStartArray();
+        for (ObjectNode tree : trees) {
+            generator.writeTree(tree);
+        }
+        generator.writeEndArray();
+    }
+
     private static void filterTree(JsonParser parser, JsonGenerator generator, TreeFilter callback) throws Exception {
         if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
             throw new RuntimeException("Expecting an object");
@@ -155,4 +204,8 @@ public class JsonStreamUtils {
     public interface TreeFilter {
         void apply(ObjectNode doc) throws Exception;
     }
+
+    public interface TreesFilter {
+        void apply(List<ObjectNode> docs) throws Exception;
+    }
 }
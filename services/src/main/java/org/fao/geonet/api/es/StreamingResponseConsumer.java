@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.es;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Response consumer making a successful response available as soon as its
+ * headers are received. The body is read from a bounded buffer filled by the
+ * I/O thread, which is suspended while the buffer is full, so that large
+ * responses are not held in memory.
+ *
+ * Other responses are buffered as usual and are returned by the client once
+ * completed, as the client reads their body to build the error.
+ */
+class StreamingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+    private final CompletableFuture<HttpResponse> streamedResponse;
+    private final int bufferSize;
+
+    private volatile HttpResponse response;
+    private volatile SharedInputBuffer sharedBuffer;
+    private volatile SimpleInputBuffer simpleBuffer;
+    private volatile boolean completed;
+
+    /**
+     * @param streamedResponse completed with the response when its body can be streamed
+     * @param bufferSize       the size of the buffer between the I/O thread and the reader
+     */
+    StreamingResponseConsumer(CompletableFuture<HttpResponse> streamedResponse, int bufferSize) {
+        this.streamedResponse = streamedResponse;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+            sharedBuffer = new SharedInputBuffer(bufferSize);
+            BasicHttpEntity streamedEntity = new BasicHttpEntity();
+            streamedEntity.setContentType(entity.getContentType());
+            streamedEntity.setContentEncoding(entity.getContentEncoding());
+            streamedEntity.setContentLength(entity.getContentLength());
+            streamedEntity.setChunked(entity.isChunked());
+            streamedEntity.setContent(new ContentInputStream(sharedBuffer));
+            response.setEntity(streamedEntity);
+            streamedResponse.complete(response);
+        } else {
+            long length = entity.getContentLength();
+            simpleBuffer = new SimpleInputBuffer(length > 0 && length < bufferSize ? (int) length : bufferSize,
+                HeapByteBufferAllocator.INSTANCE);
+            response.setEntity(new ContentBufferEntity(entity, simpleBuffer));
+        }
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        SharedInputBuffer buffer = sharedBuffer;
+        if (buffer != null) {
+            // Suspends the input when the buffer is full, reading resumes it
+            buffer.consumeContent(decoder, ioControl);
+        } else {
+            simpleBuffer.consumeContent(decoder);
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        completed = true;
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        if (completed) {
+            return;
+        }
+        // Failed or cancelled: complete the future if the headers were not received
+        Exception exception = getException();
+        streamedResponse.completeExceptionally(exception != null ? exception
+            : new CancellationException("Elasticsearch request cancelled"));
+        if (sharedBuffer != null) {
+            // and make the reader fail instead of waiting for more data
+            sharedBuffer.shutdown();
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.fao.geonet.exceptions.OperationNotAllowedEx;
 import org.fao.geonet.kernel.AccessManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.setting.SettingManager;
+import org.fao.geonet.kernel.url.ConcurrentUrlChecker;
 import org.fao.geonet.kernel.url.UrlAnalyzer;
 import org.fao.geonet.repository.LinkRepository;
 import org.fao.geonet.repository.MetadataRepository;
@@ -105,6 +106,8 @@ public class LinksApi {
     @Autowired
     UrlAnalyzer urlAnalyser;
     @Autowired
+    ConcurrentUrlChecker urlChecker;
+    @Autowired
     MBeanExporter mBeanExporter;
     @Autowired
     AccessManager accessManager;
@@ -452,7 +455,7 @@ public class LinksApi {
             settingManager.getSiteId(),
             linkRepository,
             metadataRepository,
-            urlAnalyser, appContext);
+            urlAnalyser, urlChecker, appContext);
         mBeanExporter.registerManagedResource(mAnalyseProcess, mAnalyseProcess.getObjectName());
 
         mAnalyseProcesses.addFirst(mAnalyseProcess);
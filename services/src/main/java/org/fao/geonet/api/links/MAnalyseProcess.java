@@ -26,8 +26,11 @@ package org.fao.geonet.api.links;
 import jeeves.transaction.TransactionManager;
 import jeeves.transaction.TransactionTask;
 import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.ISODate;
 import org.fao.geonet.domain.Link;
+import org.fao.geonet.domain.LinkStatus;
 import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.kernel.url.ConcurrentUrlChecker;
 import org.fao.geonet.kernel.url.UrlAnalyzer;
 import org.fao.geonet.repository.LinkRepository;
 import org.fao.geonet.repository.MetadataRepository;
@@ -40,7 +43,11 @@ import org.springframework.jmx.export.naming.SelfNaming;
 
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -56,9 +63,15 @@ import static jeeves.transaction.TransactionManager.TransactionRequirement.CREAT
 public class MAnalyseProcess implements SelfNaming {
     private static final String LOGGER = Geonet.GEONETWORK + ".metadatalinks";
 
+    /**
+     * Number of link status saved in a transaction.
+     */
+    private static final int LINK_STATUS_BATCH_SIZE = 100;
+
     private final LinkRepository linkRepository;
     private final MetadataRepository metadataRepository;
     private final UrlAnalyzer urlAnalyser;
+    private final ConcurrentUrlChecker urlChecker;
     private final ApplicationContext appContext;
 
     private ObjectName probeName;
@@ -134,8 +147,10 @@ public class MAnalyseProcess implements SelfNaming {
                                           LinkRepository linkRepository,
                                           MetadataRepository metadataRepository,
                                           UrlAnalyzer urlAnalyser,
+                                          ConcurrentUrlChecker urlChecker,
                                           ApplicationContext appContext) {
         this.urlAnalyser = urlAnalyser;
+        this.urlChecker = urlChecker;
         this.linkRepository = linkRepository;
         this.metadataRepository = metadataRepository;
         this.appContext = appContext;
@@ -180,7 +195,7 @@ public class MAnalyseProcess implements SelfNaming {
         @Override
         public void run() {
             try {
-                testLink(links);
+                checkLinks(links);
                 finishDate.set(System.currentTimeMillis());
                 processFinished.set(Boolean.TRUE);
             } catch (Exception ex) {
@@ -188,27 +203,6 @@ public class MAnalyseProcess implements SelfNaming {
                     probeName), ex);
             }
         }
-
-        private void testLink(List<String> links) {
-            List<Link> linkList;
-            if (links == null) {
-                linkList = linkRepository.findAll();
-            } else {
-                linkList = linkRepository.findAllByUrlIn(links);
-            }
-            urlToCheckCount.set(linkList.size());
-
-            for(int i = 0; i < urlToCheckCount.get(); i++) {
-                Link link = linkList.get(i);
-                runInNewTransaction("manalyseprocess-testlink", transaction -> {
-                    testLinkDate.set(System.currentTimeMillis());
-                    urlAnalyser.testLink(link);
-                    urlChecked.getAndIncrement();
-
-                    return null;
-                });
-            }
-        }
     }
 
     /**
@@ -234,7 +228,7 @@ public class MAnalyseProcess implements SelfNaming {
             }
         }
 
-        private void processMetadataAndTestLink(boolean testLink, Set<Integer> ids) {
+        private void processMetadataAndTestLink(boolean testLink, Set<Integer> ids) throws InterruptedException {
             metadataToAnalyseCount.set(ids.size());
             analyseMdDate.set(System.currentTimeMillis());
 
@@ -271,31 +265,46 @@ public class MAnalyseProcess implements SelfNaming {
             }
 
             if (testLink) {
-                testLink(null);
+                checkLinks(null);
             }
         }
+    }
 
-        private void testLink(List<String> links) {
-            List<Link> linkList;
-            if (links == null) {
-                linkList = linkRepository.findAll();
-            } else {
-                linkList = linkRepository.findAllByUrlIn(links);
-            }
-
-            urlToCheckCount.set(linkList.size());
-
-            for(int i = 0; i < urlToCheckCount.get(); i++) {
-                Link link = linkList.get(i);
-                runInNewTransaction("manalyseprocess-testlink", transaction -> {
-                    testLinkDate.set(System.currentTimeMillis());
-                    urlAnalyser.testLink(link);
-                    urlChecked.getAndIncrement();
+    /**
+     * Check the links concurrently and save their status in batches.
+     *
+     * Links never checked or checked the longest time ago are checked first,
+     * so that running the check again after an interruption continues
+     * with the links which were not checked.
+     *
+     * @param links the URLs to check, null for all links.
+     */
+    private void checkLinks(List<String> links) throws InterruptedException {
+        List<Link> linkList;
+        if (links == null) {
+            linkList = new ArrayList<>(linkRepository.findAll());
+        } else {
+            linkList = new ArrayList<>(linkRepository.findAllByUrlIn(links));
+        }
+        linkList.sort(Comparator.comparing(Link::getLastCheck, Comparator.nullsFirst(Comparator.<ISODate>naturalOrder())));
 
-                    return null;
-                });
-            }
+        Map<String, Link> linksByUrl = new LinkedHashMap<>();
+        for (Link link : linkList) {
+            linksByUrl.putIfAbsent(link.getUrl(), link);
         }
+        urlToCheckCount.set(linksByUrl.size());
+        testLinkDate.set(System.currentTimeMillis());
+
+        urlChecker.check(linksByUrl.keySet(), LINK_STATUS_BATCH_SIZE, statusByUrl -> {
+            Map<Link, LinkStatus> linkStatus = new LinkedHashMap<>();
+            statusByUrl.forEach((url, status) -> linkStatus.put(linksByUrl.get(url), status));
+            runInNewTransaction("manalyseprocess-testlink", transaction -> {
+                urlAnalyser.saveLinkStatus(linkStatus);
+                return null;
+            });
+            urlChecked.addAndGet(linkStatus.size());
+            testLinkDate.set(System.currentTimeMillis());
+        });
     }
 
     private void runInNewTransaction(String name, TransactionTask<Object> transactionTask) {
@@ -23,7 +23,6 @@
 
 package org.fao.geonet.api.processing;
 
-import java.util.ArrayList;
 import java.util.List;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -32,20 +31,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.lang.StringUtils;
-import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.api.ApiParams;
 import org.fao.geonet.api.ApiUtils;
 import org.fao.geonet.api.processing.report.SimpleMetadataProcessingReport;
 import org.fao.geonet.api.processing.report.registry.IProcessingReportRegistry;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.MetadataValidation;
-import org.fao.geonet.domain.Pair;
-import org.fao.geonet.domain.SchematronRequirement;
-import org.fao.geonet.events.history.RecordValidationTriggeredEvent;
 import org.fao.geonet.inspire.validator.MInspireEtfValidateProcess;
 import org.fao.geonet.kernel.AccessManager;
 import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.MetadataSelection;
 import org.fao.geonet.kernel.SchemaManager;
+import org.fao.geonet.kernel.SelectionManager;
 import org.fao.geonet.kernel.XmlSerializer;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.datamanager.IMetadataValidator;
@@ -53,11 +50,10 @@ import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.repository.MetadataValidationRepository;
 import org.fao.geonet.kernel.search.index.BatchOpsMetadataReindexer;
-import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
-import org.jdom.Namespace;
 import org.jdom.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -73,6 +69,7 @@ import javax.management.MalformedObjectNameException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.Set;
 
 import static org.fao.geonet.api.ApiParams.*;
@@ -112,6 +109,18 @@ public class ValidateApi {
     @Autowired
     protected XmlSerializer xmlSerializer;
 
+    /**
+     * Number of records validated in parallel by a batch validation, 0 for the number of processors.
+     */
+    @Value("${validation.batch.threads:0}")
+    private int validationThreads;
+
+    /**
+     * Number of records whose validation status is saved in a transaction.
+     */
+    @Value("${validation.batch.size:100}")
+    private int validationBatchSize;
+
     private final ArrayDeque<SelfNaming> mAnalyseProcesses = new ArrayDeque<>(NUMBER_OF_SUBSEQUENT_PROCESS_MBEAN_TO_KEEP);
 
     @PostConstruct
@@ -171,72 +180,15 @@ public class ValidateApi {
         SimpleMetadataProcessingReport report =
             new SimpleMetadataProcessingReport();
         try {
-            ApplicationContext applicationContext = ApplicationContextHolder.get();
             ServiceContext serviceContext = ApiUtils.createServiceContext(request);
 
-            Set<String> records = ApiUtils.getUuidsParameterOrSelection(uuids, bucket, userSession);
+            MetadataSelection records = ApiUtils.getRecordsParameterOrSelection(uuids, bucket, userSession);
             report.setTotalRecords(records.size());
 
-            for (String uuid : records) {
-                int loopConditionCount = 0;
-                for (AbstractMetadata record : metadataRepository.findAllByUuid(uuid)) {
-                    //determine if this is an approved record.
-                    Boolean isMetadataApproved = metadataUtils.isMetadataApproved(record.getId());
-
-                    if (approved == null ||
-                        (approved == true && isMetadataApproved) ||
-                        (approved == false && !isMetadataApproved)) {
-                        loopConditionCount++;
-                        // If we processed more than one record in this loop then we will also increase the total records
-                        // as it means that we are processing both and approved and draft and that was not calculated in the original total.
-                        if (loopConditionCount > 1) {
-                            report.setTotalRecords(report.getNumberOfRecords() + 1);
-                        }
-                        if (!accessMan.canEdit(serviceContext, String.valueOf(record.getId()))) {
-                            report.addNotEditableMetadataId(record.getId());
-                        } else {
-                            Pair<Element, String> validationPair = validator.doValidate(userSession, record.getDataInfo().getSchemaId(), Integer.toString(record.getId()), xmlSerializer.select(serviceContext, String.valueOf(record.getId())), serviceContext.getLanguage(), false);
-                            boolean isValid = !validationPair.one().getDescendants(ErrorFinder).hasNext();
-                            if (isValid) {
-                                report.addMetadataInfos(record, "Is valid");
-                                new RecordValidationTriggeredEvent(record.getId(), ApiUtils.getUserSession(request.getSession()).getUserIdAsInt(), "1").publish(applicationContext);
-                            } else {
-                                report.addMetadataError(record, "(" + record.getUuid() + ") Is invalid");
-                                Element schemaTronReport = validationPair.one();
-                                if (schemaTronReport != null) {
-                                    List<Namespace> theNSs = new ArrayList<Namespace>();
-                                    theNSs.add(Namespace.getNamespace("geonet", "http://www.fao.org/geonetwork"));
-                                    theNSs.add(Namespace.getNamespace("svrl", "http://purl.oclc.org/dsdl/svrl"));
-
-                                    // Extract all the know errors that exists in the report as List of Text
-                                    List<?> schemaTronReportErrors = Xml.selectNodes(schemaTronReport,
-                                        "geonet:xsderrors/geonet:error/geonet:message[normalize-space(.) != '']" +
-                                            "| geonet:schematronerrors/geonet:report[@geonet:required = '" + SchematronRequirement.REQUIRED + "']/svrl:schematron-output/svrl:failed-assert/svrl:text[normalize-space(.) != '']" +
-                                            "| geonet:schematronerrors/geonet:report[@geonet:required = '" + SchematronRequirement.REQUIRED + "']/geonet:schematronVerificationError[normalize-space(.) != '']",
-                                        theNSs);
-
-                                    for (Object schemaTronReportError :schemaTronReportErrors) {
-                                        // Add normalized string to the report.
-                                        report.addMetadataError(record, Xml.selectString((Element) schemaTronReportError, "normalize-space(.)",  theNSs));
-                                    }
-                                }
-
-                                new RecordValidationTriggeredEvent(record.getId(), ApiUtils.getUserSession(request.getSession()).getUserIdAsInt(), "0").publish(applicationContext);
-                            }
-                            report.addMetadataId(record.getId());
-                            report.incrementProcessedRecords();
-                        }
-                    }
-                }
-                // If loopConditionCount is 0 then no data was identified for that uuid.
-                if (loopConditionCount == 0) {
-                    report.incrementNullRecords();
-                }
-            }
-
-            // index records
-            BatchOpsMetadataReindexer r = new BatchOpsMetadataReindexer(dataMan, report.getMetadata());
-            r.process(settingManager.getSiteId(), true);
+            new ValidateBatchProcessor(serviceContext, dataMan, records, approved, report,
+                validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors(),
+                validationBatchSize)
+                .process(settingManager.getSiteId());
         } catch (Exception e) {
             throw e;
         } finally {
@@ -287,9 +239,11 @@ public class ValidateApi {
         try {
             ServiceContext serviceContext = ApiUtils.createServiceContext(request);
 
-            Set<String> records = ApiUtils.getUuidsParameterOrSelection(uuids, bucket, userSession);
+            MetadataSelection records = ApiUtils.getRecordsParameterOrSelection(uuids, bucket, userSession);
 
-            for (String uuid : records) {
+            Iterator<String> recordUuids = SelectionManager.streamUuids(records).iterator();
+            while (recordUuids.hasNext()) {
+                String uuid = recordUuids.next();
                 if (!metadataRepository.existsMetadataUuid(uuid)) {
                     report.incrementNullRecords();
                 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.processing;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jeeves.server.UserSession;
+import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import org.fao.geonet.ApplicationContextHolder;
+import org.fao.geonet.api.processing.report.SimpleMetadataProcessingReport;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.MetadataValidation;
+import org.fao.geonet.domain.SchematronRequirement;
+import org.fao.geonet.events.history.RecordValidationTriggeredEvent;
+import org.fao.geonet.kernel.AccessManager;
+import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.MetadataIndexerProcessor;
+import org.fao.geonet.kernel.MetadataSelection;
+import org.fao.geonet.kernel.SelectionManager;
+import org.fao.geonet.kernel.XmlSerializer;
+import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.kernel.datamanager.IMetadataValidator;
+import org.fao.geonet.repository.MetadataValidationRepository;
+import org.fao.geonet.utils.Log;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static jeeves.transaction.TransactionManager.CommitBehavior.ALWAYS_COMMIT;
+import static jeeves.transaction.TransactionManager.TransactionRequirement.CREATE_NEW;
+
+/**
+ * Validate many records.
+ *
+ * Records are read and validated against XSD and schematron files by a pool of workers. The
+ * validation status of the records is saved by the calling thread, in transactions of
+ * {@link #batchSize} records, then the validation fields of the saved records are updated in
+ * the index without reindexing the records. The report is updated as the records are saved.
+ */
+public class ValidateBatchProcessor extends MetadataIndexerProcessor {
+    private static final String LOGGER = Geonet.DATA_MANAGER;
+
+    private static final List<Namespace> REPORT_NAMESPACES = Arrays.asList(
+        Namespace.getNamespace("geonet", "http://www.fao.org/geonetwork"),
+        Namespace.getNamespace("svrl", "http://purl.oclc.org/dsdl/svrl"));
+
+    private static final String REPORT_ERRORS_XPATH =
+        "geonet:xsderrors/geonet:error/geonet:message[normalize-space(.) != '']" +
+            "| geonet:schematronerrors/geonet:report[@geonet:required = '" + SchematronRequirement.REQUIRED + "']/svrl:schematron-output/svrl:failed-assert/svrl:text[normalize-space(.) != '']" +
+            "| geonet:schematronerrors/geonet:report[@geonet:required = '" + SchematronRequirement.REQUIRED + "']/geonet:schematronVerificationError[normalize-space(.) != '']";
+
+    private final ServiceContext context;
+    private final MetadataSelection records;
+    private final Boolean approved;
+    private final SimpleMetadataProcessingReport report;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * @param approved  validate the approved records if true, the working copies if false
+     *                  and both if null.
+     * @param threads   number of records validated in parallel.
+     * @param batchSize number of records whose validation status is saved in a transaction.
+     */
+    public ValidateBatchProcessor(ServiceContext context,
+                                  DataManager dm,
+                                  MetadataSelection records,
+                                  Boolean approved,
+                                  SimpleMetadataProcessingReport report,
+                                  int threads, int batchSize) {
+        super(dm);
+        this.context = context;
+        this.records = records;
+        this.approved = approved;
+        this.report = report;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void process(String catalogueId) throws Exception {
+        final ExecutorService executor = threads > 1
+            ? Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("gn-validate-%d").setDaemon(true).build())
+            : MoreExecutors.newDirectExecutorService();
+        final int maxPending = threads * 2;
+        final Deque<Future<List<ValidatedRecord>>> pending = new ArrayDeque<>();
+        final List<ValidatedRecord> batch = new ArrayList<>();
+
+        try {
+            Iterator<String> recordUuids = SelectionManager.streamUuids(records).iterator();
+            while (recordUuids.hasNext()) {
+                final String uuid = recordUuids.next();
+                pending.add(executor.submit(context.inContext(() -> validateRecords(uuid))));
+                if (pending.size() >= maxPending) {
+                    addToBatch(pending.removeFirst(), batch);
+                }
+            }
+            while (!pending.isEmpty()) {
+                addToBatch(pending.removeFirst(), batch);
+            }
+            saveBatch(batch);
+        } finally {
+            for (Future<List<ValidatedRecord>> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Validate the approved record and/or the working copy with the UUID.
+     */
+    private List<ValidatedRecord> validateRecords(String uuid) throws Exception {
+        IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
+        AccessManager accessManager = context.getBean(AccessManager.class);
+
+        List<ValidatedRecord> validated = new ArrayList<>();
+        int matchingRecords = 0;
+        for (AbstractMetadata record : metadataUtils.findAllByUuid(uuid)) {
+            boolean isMetadataApproved = metadataUtils.isMetadataApproved(record.getId());
+            if (approved != null && approved != isMetadataApproved) {
+                continue;
+            }
+            matchingRecords++;
+            // If more than one record matches then both an approved record and a working copy are
+            // validated, which was not counted in the total.
+            if (matchingRecords > 1) {
+                synchronized (report) {
+                    report.setTotalRecords(report.getNumberOfRecords() + 1);
+                }
+            }
+            if (!accessManager.canEdit(context, String.valueOf(record.getId()))) {
+                report.addNotEditableMetadataId(record.getId());
+            } else {
+                validated.add(validateRecord(record));
+            }
+        }
+        // No record was identified for that uuid.
+        if (matchingRecords == 0) {
+            report.incrementNullRecords();
+        }
+        return validated;
+    }
+
+    private ValidatedRecord validateRecord(AbstractMetadata record) throws Exception {
+        Element md = context.getBean(XmlSerializer.class).select(context, String.valueOf(record.getId()));
+        List<MetadataValidation> validations = new ArrayList<>();
+        Element validationReport = context.getBean(IMetadataValidator.class).validateRecord(
+            record.getDataInfo().getSchemaId(), record.getId(), md, context.getLanguage(), validations);
+
+        List<String> errors = new ArrayList<>();
+        boolean isValid = !validationReport.getDescendants(ValidateApi.ErrorFinder).hasNext();
+        if (!isValid) {
+            errors.add("(" + record.getUuid() + ") Is invalid");
+            // Extract all the know errors that exists in the report as List of Text
+            for (Object error : Xml.selectNodes(validationReport, REPORT_ERRORS_XPATH, REPORT_NAMESPACES)) {
+                errors.add(Xml.selectString((Element) error, "normalize-space(.)", REPORT_NAMESPACES));
+            }
+        }
+        return new ValidatedRecord(record, validations, isValid, errors);
+    }
+
+    private void addToBatch(Future<List<ValidatedRecord>> future, List<ValidatedRecord> batch)
+        throws InterruptedException {
+        try {
+            batch.addAll(future.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Log.error(LOGGER, "Validation failed with error " + cause.getMessage(), cause);
+            report.addError(cause instanceof Exception ? (Exception) cause : e);
+        }
+        if (batch.size() >= batchSize) {
+            saveBatch(batch);
+        }
+    }
+
+    /**
+     * Save the validation status of the records of the batch in one transaction, update the
+     * index and the report then clear the batch.
+     */
+    private void saveBatch(List<ValidatedRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<ValidatedRecord> toSave = new ArrayList<>(batch);
+        batch.clear();
+
+        final MetadataValidationRepository validationRepository = context.getBean(MetadataValidationRepository.class);
+        try {
+            TransactionManager.runInTransaction("validate-save", ApplicationContextHolder.get(),
+                CREATE_NEW, ALWAYS_COMMIT, false, transaction -> {
+                    validationRepository.deleteAllInternalValidationById_MetadataIdIn(
+                        toSave.stream().map(r -> r.record.getId()).collect(Collectors.toList()));
+                    List<MetadataValidation> validations = new ArrayList<>();
+                    for (ValidatedRecord validatedRecord : toSave) {
+                        validations.addAll(validatedRecord.validations);
+                    }
+                    validationRepository.saveAll(validations);
+                    // Write the changes now, as commit errors are only logged by the transaction manager
+                    validationRepository.flush();
+                    return null;
+                });
+        } catch (RuntimeException e) {
+            Log.error(LOGGER, "Could not save validation status, exception: " + e.getMessage(), e);
+            for (ValidatedRecord validatedRecord : toSave) {
+                report.addMetadataError(validatedRecord.record, e);
+            }
+            return;
+        }
+
+        List<AbstractMetadata> saved = toSave.stream().map(r -> r.record).collect(Collectors.toList());
+        try {
+            context.getBean(IMetadataIndexer.class).indexMetadataValidation(saved);
+        } catch (Exception e) {
+            Log.error(LOGGER, "Could not update the validation status in the index, exception: " + e.getMessage(), e);
+            report.addError(e);
+        }
+
+        ApplicationContext appContext = ApplicationContextHolder.get();
+        UserSession userSession = context.getUserSession();
+        for (ValidatedRecord validatedRecord : toSave) {
+            AbstractMetadata record = validatedRecord.record;
+            if (validatedRecord.valid) {
+                report.addMetadataInfos(record, "Is valid");
+            } else {
+                for (String error : validatedRecord.errors) {
+                    report.addMetadataError(record, error);
+                }
+            }
+            // The report stored in the session by the editor is outdated
+            if (userSession != null) {
+                userSession.removeProperty(Geonet.Session.VALIDATION_REPORT + record.getId());
+            }
+            new RecordValidationTriggeredEvent(record.getId(), userSession == null ? -1 : userSession.getUserIdAsInt(),
+                validatedRecord.valid ? "1" : "0").publish(appContext);
+            report.addMetadataId(record.getId());
+            report.incrementProcessedRecords();
+        }
+    }
+
+    private static final class ValidatedRecord {
+        private final AbstractMetadata record;
+        private final List<MetadataValidation> validations;
+        private final boolean valid;
+        private final List<String> errors;
+
+        private ValidatedRecord(AbstractMetadata record, List<MetadataValidation> validations,
+                                boolean valid, List<String> errors) {
+            this.record = record;
+            this.validations = validations;
+            this.valid = valid;
+            this.errors = errors;
+        }
+    }
+}
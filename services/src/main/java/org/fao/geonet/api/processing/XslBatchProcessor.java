@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.processing;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import org.fao.geonet.ApplicationContextHolder;
+import org.fao.geonet.api.processing.XslProcessUtils.ProcessedRecord;
+import org.fao.geonet.api.processing.report.XsltMetadataProcessingReport;
+import org.fao.geonet.events.history.RecordProcessingChangeEvent;
+import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.MetadataIndexerProcessor;
+import org.fao.geonet.kernel.MetadataSelection;
+import org.fao.geonet.kernel.SelectionManager;
+import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.repository.specification.MetadataSpecs;
+import org.fao.geonet.utils.Log;
+import org.jdom.output.XMLOutputter;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jeeves.transaction.TransactionManager.CommitBehavior.ALWAYS_COMMIT;
+import static jeeves.transaction.TransactionManager.TransactionRequirement.CREATE_NEW;
+
+/**
+ * Apply a process to many records.
+ *
+ * Records are read and transformed by a pool of workers. The transformed records are saved
+ * by the calling thread, in the order of the selection, in transactions of {@link #batchSize}
+ * records. If a transaction fails, its records are saved one by one so that an invalid record
+ * does not prevent saving the others. The saved records are indexed in one batch at the end,
+ * by the indexing pipeline.
+ */
+public class XslBatchProcessor extends MetadataIndexerProcessor {
+    private static final String LOGGER = "org.fao.geonet.services.metadata";
+
+    private final ServiceContext context;
+    private final MetadataSelection records;
+    private final String process;
+    private final String siteURL;
+    private final Map<String, String[]> params;
+    private final XsltMetadataProcessingReport xslProcessingReport;
+    private final boolean index;
+    private final boolean updateDateStamp;
+    private final int userId;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * @param threads   number of records transformed in parallel.
+     * @param batchSize number of records saved in a transaction.
+     */
+    public XslBatchProcessor(ServiceContext context,
+                             DataManager dm,
+                             MetadataSelection records,
+                             String process,
+                             String siteURL,
+                             Map<String, String[]> params,
+                             XsltMetadataProcessingReport xslProcessingReport,
+                             boolean index,
+                             boolean updateDateStamp, int userId,
+                             int threads, int batchSize) {
+        super(dm);
+        this.context = context;
+        this.records = records;
+        this.process = process;
+        this.siteURL = siteURL;
+        this.params = new HashMap<>(params);
+        this.xslProcessingReport = xslProcessingReport;
+        this.index = index;
+        this.updateDateStamp = updateDateStamp;
+        this.userId = userId;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void process(String catalogueId) throws Exception {
+        final IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
+        final ExecutorService executor = threads > 1
+            ? Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("gn-xslprocess-%d").setDaemon(true).build())
+            : MoreExecutors.newDirectExecutorService();
+        final int maxPending = threads * 2;
+        final Deque<Future<List<PendingRecord>>> pending = new ArrayDeque<>();
+        final List<PendingRecord> batch = new ArrayList<>();
+        final Set<Integer> savedIds = new LinkedHashSet<>();
+
+        try {
+            Iterator<String> recordUuids = SelectionManager.streamUuids(records).iterator();
+            while (recordUuids.hasNext()) {
+                final String uuid = recordUuids.next();
+                pending.add(executor.submit(context.inContext(() -> transformRecord(metadataUtils, uuid))));
+                if (pending.size() >= maxPending) {
+                    addToBatch(pending.removeFirst(), batch, savedIds);
+                }
+            }
+            while (!pending.isEmpty()) {
+                addToBatch(pending.removeFirst(), batch, savedIds);
+            }
+            saveBatch(batch, savedIds);
+        } finally {
+            for (Future<List<PendingRecord>> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+
+        if (index && !savedIds.isEmpty()) {
+            context.getBean(IMetadataIndexer.class).batchIndexInThreadPool(context, new ArrayList<>(savedIds));
+        }
+    }
+
+    /**
+     * Transform the approved record and the working copy with the UUID.
+     */
+    private List<PendingRecord> transformRecord(IMetadataUtils metadataUtils, String uuid) throws Exception {
+        List<Integer> idList = metadataUtils.findAllIdsBy(MetadataSpecs.hasMetadataUuid(uuid));
+
+        // Increase the total records counter when processing a metadata with approved and working copies
+        // as the initial counter doesn't take in account this case
+        if (idList.size() > 1) {
+            synchronized (xslProcessingReport) {
+                xslProcessingReport.setTotalRecords(xslProcessingReport.getNumberOfRecords() + idList.size() - 1);
+            }
+        }
+
+        List<PendingRecord> transformed = new ArrayList<>(idList.size());
+        for (Integer id : idList) {
+            Log.info(LOGGER, "Processing metadata with id:" + id);
+
+            ProcessedRecord processedRecord = XslProcessUtils.transform(context, String.valueOf(id), process,
+                xslProcessingReport, siteURL, params);
+            if (processedRecord != null) {
+                String xmlBefore = new XMLOutputter().outputString(
+                    dm.getMetadata(context, String.valueOf(id), false, false, false));
+                transformed.add(new PendingRecord(processedRecord, xmlBefore));
+            }
+        }
+        return transformed;
+    }
+
+    private void addToBatch(Future<List<PendingRecord>> future, List<PendingRecord> batch,
+                            Set<Integer> savedIds) throws InterruptedException {
+        try {
+            batch.addAll(future.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Log.error(LOGGER, "Processing failed with error " + cause.getMessage(), cause);
+            xslProcessingReport.addError(cause instanceof Exception ? (Exception) cause : e);
+        }
+        if (batch.size() >= batchSize) {
+            saveBatch(batch, savedIds);
+        }
+    }
+
+    /**
+     * Save the records of the batch in one transaction then clear the batch.
+     */
+    private void saveBatch(List<PendingRecord> batch, Set<Integer> savedIds) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<PendingRecord> toSave = new ArrayList<>(batch);
+        batch.clear();
+
+        try {
+            saveInTransaction(toSave);
+        } catch (RuntimeException e) {
+            if (toSave.size() > 1) {
+                Log.warning(LOGGER, String.format(
+                    "Saving %d processed records failed (%s). Saving them one by one.", toSave.size(), e.getMessage()));
+                for (PendingRecord pendingRecord : toSave) {
+                    saveBatch(new ArrayList<>(Collections.singletonList(pendingRecord)), savedIds);
+                }
+            } else {
+                Throwable cause = e.getCause() instanceof Exception ? e.getCause() : e;
+                xslProcessingReport.addMetadataError(toSave.get(0).processedRecord.getInfo(), (Exception) cause);
+                context.error("  Processing failed with error " + cause.getMessage());
+                context.error(cause);
+            }
+            return;
+        }
+
+        ApplicationContext appContext = ApplicationContextHolder.get();
+        for (PendingRecord pendingRecord : toSave) {
+            int id = pendingRecord.processedRecord.getInfo().getId();
+            xslProcessingReport.addMetadataId(id);
+            savedIds.add(id);
+            new RecordProcessingChangeEvent(id, userId, pendingRecord.xmlBefore, pendingRecord.xmlAfter, process)
+                .publish(appContext);
+        }
+    }
+
+    private void saveInTransaction(List<PendingRecord> toSave) {
+        TransactionManager.runInTransaction("xslprocess-save", ApplicationContextHolder.get(),
+            CREATE_NEW, ALWAYS_COMMIT, false, transaction -> {
+                for (PendingRecord pendingRecord : toSave) {
+                    String id = String.valueOf(pendingRecord.processedRecord.getInfo().getId());
+                    XslProcessUtils.save(context, pendingRecord.processedRecord, updateDateStamp);
+                    pendingRecord.xmlAfter = new XMLOutputter().outputString(
+                        dm.getMetadata(context, id, false, false, false));
+                }
+                // Write the changes now, as commit errors are only logged by the transaction manager
+                context.getBean(MetadataRepository.class).flush();
+                return null;
+            });
+    }
+
+    private static final class PendingRecord {
+        private final ProcessedRecord processedRecord;
+        private final String xmlBefore;
+        private String xmlAfter;
+
+        private PendingRecord(ProcessedRecord processedRecord, String xmlBefore) {
+            this.processedRecord = processedRecord;
+            this.xmlBefore = xmlBefore;
+        }
+    }
+}
@@ -33,28 +33,25 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import jeeves.services.ReadWriteController;
-import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.api.ApiParams;
 import org.fao.geonet.api.ApiUtils;
 import org.fao.geonet.api.processing.report.XsltMetadataProcessingReport;
 import org.fao.geonet.domain.AbstractMetadata;
-import org.fao.geonet.events.history.RecordProcessingChangeEvent;
 import org.fao.geonet.kernel.DataManager;
-import org.fao.geonet.kernel.MetadataIndexerProcessor;
+import org.fao.geonet.kernel.MetadataSelection;
 import org.fao.geonet.kernel.SchemaManager;
+import org.fao.geonet.kernel.SelectionManager;
 import org.fao.geonet.kernel.UpdateDatestamp;
 import org.fao.geonet.kernel.datamanager.IMetadataManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.setting.SettingManager;
-import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.utils.Diff;
 import org.fao.geonet.utils.DiffType;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
-import org.jdom.output.XMLOutputter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -67,8 +64,7 @@ import javax.servlet.http.HttpSession;
 import javax.xml.transform.stream.StreamResult;
 import java.io.StringWriter;
 import java.nio.file.Path;
-import java.util.List;
-import java.util.Set;
+import java.util.Iterator;
 
 import static org.fao.geonet.api.ApiParams.API_PARAM_RECORD_UUIDS_OR_SELECTION;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
@@ -109,6 +105,18 @@ public class XslProcessApi {
     @Autowired
     SettingManager settingManager;
 
+    /**
+     * Number of records transformed in parallel by a batch process, 0 for the number of processors.
+     */
+    @Value("${xslprocess.batch.threads:0}")
+    private int batchThreads;
+
+    /**
+     * Number of processed records saved in a transaction.
+     */
+    @Value("${xslprocess.batch.size:50}")
+    private int batchSize;
+
     @io.swagger.v3.oas.annotations.Operation(
         summary = "Preview process result applied to one or more records",
         description = ApiParams.API_OP_NOTE_PROCESS_PREVIEW +
@@ -185,12 +193,14 @@ public class XslProcessApi {
         response.setHeader(CONTENT_TYPE, isText ? MediaType.TEXT_PLAIN_VALUE : MediaType.APPLICATION_XML_VALUE);
 
         try {
-            Set<String> records = ApiUtils.getUuidsParameterOrSelection(uuids, bucket, session);
+            MetadataSelection records = ApiUtils.getRecordsParameterOrSelection(uuids, bucket, session);
 
             final String siteURL = request.getRequestURL().toString() + "?" + request.getQueryString();
             Element mergedDocuments = new Element("records");
             String schema = null;
-            for (String uuid : records) {
+            Iterator<String> recordUuids = SelectionManager.streamUuids(records).iterator();
+            while (recordUuids.hasNext()) {
+                String uuid = recordUuids.next();
                 String id = dataMan.getMetadataId(uuid);
                 Log.info("org.fao.geonet.services.metadata",
                     "Processing metadata for preview with id:" + id);
@@ -328,17 +338,19 @@ public class XslProcessApi {
             new XsltMetadataProcessingReport(process);
 
         try {
-            Set<String> records = ApiUtils.getUuidsParameterOrSelection(uuids, bucket, session);
+            MetadataSelection records = ApiUtils.getRecordsParameterOrSelection(uuids, bucket, session);
             UserSession userSession = ApiUtils.getUserSession(httpSession);
 
             final String siteURL = request.getRequestURL().toString() + "?" + request.getQueryString();
 
             xslProcessingReport.setTotalRecords(records.size());
 
-            BatchXslMetadataReindexer m = new BatchXslMetadataReindexer(
+            XslBatchProcessor m = new XslBatchProcessor(
                 ApiUtils.createServiceContext(request),
-                dataMan, records, process, httpSession, siteURL,
-                xslProcessingReport, request, index, updateDateStamp, userSession.getUserIdAsInt());
+                dataMan, records, process, siteURL, request.getParameterMap(),
+                xslProcessingReport, index, updateDateStamp, userSession.getUserIdAsInt(),
+                batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors(),
+                batchSize);
             m.process(settingManager.getSiteId());
 
         } catch (Exception exception) {
@@ -349,75 +361,4 @@ public class XslProcessApi {
 
         return xslProcessingReport;
     }
-
-    static final class BatchXslMetadataReindexer extends
-        MetadataIndexerProcessor {
-        private final boolean index;
-        private final boolean updateDateStamp;
-        Set<String> records;
-        String process;
-        String siteURL;
-        HttpSession session;
-        XsltMetadataProcessingReport xslProcessingReport;
-        HttpServletRequest request;
-        ServiceContext context;
-        int userId;
-
-        public BatchXslMetadataReindexer(ServiceContext context,
-                                         DataManager dm,
-                                         Set<String> records,
-                                         String process,
-                                         HttpSession session,
-                                         String siteURL,
-                                         XsltMetadataProcessingReport xslProcessingReport,
-                                         HttpServletRequest request, boolean index,
-                                         boolean updateDateStamp, int userId) {
-            super(dm);
-            this.records = records;
-            this.process = process;
-            this.session = session;
-            this.index = index;
-            this.updateDateStamp = updateDateStamp;
-            this.siteURL = siteURL;
-            this.request = request;
-            this.xslProcessingReport = xslProcessingReport;
-            this.context = context;
-            this.userId = userId;
-        }
-
-        @Override
-        public void process(String catalogueId) throws Exception {
-            DataManager dataMan = context.getBean(DataManager.class);
-            IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
-
-            ApplicationContext appContext = ApplicationContextHolder.get();
-            for (String uuid : this.records) {
-                List<Integer> idList = metadataUtils.findAllIdsBy(MetadataSpecs.hasMetadataUuid(uuid));
-
-                // Increase the total records counter when processing a metadata with approved and working copies
-                // as the initial counter doesn't take in account this case
-                if (idList.size() > 1) {
-                    xslProcessingReport.setTotalRecords(xslProcessingReport.getNumberOfRecords() + 1);
-                }
-
-                for (Integer id : idList) {
-                    Log.info("org.fao.geonet.services.metadata",
-                        "Processing metadata with id:" + id);
-
-                    Element beforeMetadata = dataMan.getMetadata(context, String.valueOf(id), false, false, false);
-
-                    XslProcessUtils.process(context, String.valueOf(id), process,
-                        true, index, updateDateStamp, xslProcessingReport,
-                        siteURL, request.getParameterMap());
-
-                    Element afterMetadata = dataMan.getMetadata(context, String.valueOf(id), false, false, false);
-
-                    XMLOutputter outp = new XMLOutputter();
-                    String xmlAfter = outp.outputString(afterMetadata);
-                    String xmlBefore = outp.outputString(beforeMetadata);
-                    new RecordProcessingChangeEvent(id, this.userId, xmlBefore, xmlAfter, process).publish(appContext);
-                }
-            }
-        }
-    }
 }
@@ -74,14 +74,55 @@ public class XslProcessUtils {
                                   XsltMetadataProcessingReport report,
                                   String siteUrl,
                                   Map<String, String[]> params) throws Exception {
+        DataManager dataMan = context.getBean(DataManager.class);
+
+        ProcessedRecord processedRecord = transform(context, id, process, report, siteUrl, params);
+        if (processedRecord == null) {
+            return null;
+        }
+
+        try {
+            // --- save metadata and return status
+            if (save) {
+                save(context, processedRecord, updateDateStamp);
+                if (index) {
+                    dataMan.indexMetadata(id, true);
+                }
+            }
+
+            report.addMetadataId(processedRecord.getInfo().getId());
+            // TODO : it could be relevant to list at least
+            // if there was any change in the record or not.
+            // Using hash on processMd and metadata ?
+        } catch (Exception e) {
+            report.addMetadataError(processedRecord.getInfo(), e);
+            context.error("  Processing failed with error " + e.getMessage());
+            context.error(e);
+        }
+        return processedRecord.getProcessedMetadata();
+    }
+
+    /**
+     * Apply the process to a metadata record without saving it.
+     *
+     * The record is counted as processed in the report. If it cannot be processed,
+     * the reason is added to the report.
+     *
+     * @param id      The metadata identifier corresponding to the metadata record to process
+     * @param process The process name
+     * @return the processed record to save, or null if the record was not processed.
+     */
+    public static ProcessedRecord transform(ServiceContext context, String id,
+                                            String process,
+                                            XsltMetadataProcessingReport report,
+                                            String siteUrl,
+                                            Map<String, String[]> params) throws Exception {
         SchemaManager schemaMan = context.getBean(SchemaManager.class);
         AccessManager accessMan = context.getBean(AccessManager.class);
         DataManager dataMan = context.getBean(DataManager.class);
         SettingManager settingsMan = context.getBean(SettingManager.class);
         IMetadataUtils metadataRepository = context.getBean(IMetadataUtils.class);
         IMetadataManager metadataManager = context.getBean(IMetadataManager.class);
-        IMetadataSchemaUtils metadataSchemaUtils = context.getBean(IMetadataSchemaUtils.class);
-        MetadataValidationRepository metadataValidationRepository = context.getBean(MetadataValidationRepository.class);
 
         report.incrementProcessedRecords();
 
@@ -119,7 +160,6 @@ public class XslProcessUtils {
             boolean schemaUpgradeProcess = process.endsWith(SCHEMA_UPGRADE_PROCESS_SUFFIX);
 
             // --- Process metadata
-            Element processedMetadata = null;
             try {
                 boolean forEditing = false, withValidationErrors = false, keepXlinkAttributes = true;
                 Lib.resource.checkEditPrivilege(context, id);
@@ -152,48 +192,78 @@ public class XslProcessUtils {
 
                 xslParameter.put("siteUrl", siteUrl);
 
-                processedMetadata = Xml.transform(md, xslProcessing, xslParameter);
+                Element processedMetadata = Xml.transform(md, xslProcessing, xslParameter);
+                return new ProcessedRecord(info, processedMetadata, schemaUpgradeProcess);
+            } catch (Exception e) {
+                report.addMetadataError(info, e);
+                context.error("  Processing failed with error " + e.getMessage());
+                context.error(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Save a processed record. The record is not indexed.
+     */
+    public static void save(ServiceContext context, ProcessedRecord processedRecord,
+                            boolean updateDateStamp) throws Exception {
+        DataManager dataMan = context.getBean(DataManager.class);
+        IMetadataManager metadataManager = context.getBean(IMetadataManager.class);
+        IMetadataSchemaUtils metadataSchemaUtils = context.getBean(IMetadataSchemaUtils.class);
+        MetadataValidationRepository metadataValidationRepository = context.getBean(MetadataValidationRepository.class);
 
-                // --- save metadata and return status
-                if (save) {
-                    boolean validate = false;
-                    boolean ufo = true;
-                    String language = context.getLanguage();
+        AbstractMetadata info = processedRecord.getInfo();
+        Element processedMetadata = processedRecord.getProcessedMetadata();
+        boolean validate = false;
+        boolean ufo = true;
+        String language = context.getLanguage();
+
+        // If it's an upgrade process, update the schema id and remove validation info in the database, .
+        if (processedRecord.isSchemaUpgrade()) {
+            String newSchema = metadataSchemaUtils.autodetectSchema(processedMetadata);
+
+            if (!newSchema.equalsIgnoreCase(info.getDataInfo().getSchemaId())) {
+                metadataManager.update(info.getId(), new Updater<AbstractMetadata>() {
+                    @Override
+                    public void apply(@Nonnull AbstractMetadata entity) {
+                        entity.getDataInfo().setSchemaId(newSchema);
+                    }
+                });
 
-                    // If it's an upgrade process, update the schema id and remove validation info in the database, .
-                    if (schemaUpgradeProcess) {
-                        String newSchema = metadataSchemaUtils.autodetectSchema(processedMetadata);
+                metadataValidationRepository.deleteAll(MetadataValidationSpecs.hasMetadataId(info.getId()));
+            }
+        }
 
-                        if (!newSchema.equalsIgnoreCase(info.getDataInfo().getSchemaId())) {
-                            metadataManager.update(info.getId(), new Updater<AbstractMetadata>() {
-                                @Override
-                                public void apply(@Nonnull AbstractMetadata entity) {
-                                    entity.getDataInfo().setSchemaId(newSchema);
-                                }
-                            });
+        dataMan.updateMetadata(context, String.valueOf(info.getId()), processedMetadata, validate, ufo, language,
+            new ISODate().toString(), updateDateStamp, IndexingMode.none);
+    }
 
-                            metadataValidationRepository.deleteAll(MetadataValidationSpecs.hasMetadataId(info.getId()));
-                        }
-                    }
+    /**
+     * A record transformed by a process, not saved yet.
+     */
+    public static final class ProcessedRecord {
+        private final AbstractMetadata info;
+        private final Element processedMetadata;
+        private final boolean schemaUpgrade;
+
+        private ProcessedRecord(AbstractMetadata info, Element processedMetadata, boolean schemaUpgrade) {
+            this.info = info;
+            this.processedMetadata = processedMetadata;
+            this.schemaUpgrade = schemaUpgrade;
+        }
 
-                    dataMan.updateMetadata(context, id, processedMetadata, validate, ufo, language, new ISODate().toString(), updateDateStamp, IndexingMode.none);
-                    if (index) {
-                        dataMan.indexMetadata(id, true);
-                    }
-                }
+        public AbstractMetadata getInfo() {
+            return info;
+        }
 
-                report.addMetadataId(iId);
-                // TODO : it could be relevant to list at least
-                // if there was any change in the record or not.
-                // Using hash on processMd and metadata ?
-            } catch (Exception e) {
-                report.addMetadataError(info, e);
-                context.error("  Processing failed with error " + e.getMessage());
-                context.error(e);
-            }
+        public Element getProcessedMetadata() {
             return processedMetadata;
         }
-        return null;
+
+        public boolean isSchemaUpgrade() {
+            return schemaUpgrade;
+        }
     }
 
     private static Map<String, Object> getDefaultXslParameters(ServiceContext context, SettingManager settingsMan) {
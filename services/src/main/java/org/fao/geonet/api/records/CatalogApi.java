@@ -27,6 +27,7 @@ import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -48,6 +49,7 @@ import org.fao.geonet.api.records.model.related.AssociatedRecord;
 import org.fao.geonet.api.records.model.related.RelatedItemType;
 import org.fao.geonet.api.tools.i18n.LanguageUtils;
 import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.Metadata;
 import org.fao.geonet.guiapi.search.XsltResponseWriter;
 import org.fao.geonet.kernel.*;
@@ -96,6 +98,11 @@ import static org.fao.geonet.kernel.search.IndexFields.SOURCE_CATALOGUE;
 @ReadWriteController
 public class CatalogApi {
 
+    /**
+     * Number of records whose associated records are searched in one request.
+     */
+    private static final int RELATED_BATCH_SIZE = 20;
+
     private static final Set<String> searchFieldsForPdf;
 
     static {
@@ -255,21 +262,23 @@ public class CatalogApi {
                 int maxhits = Integer.parseInt(settingInfo.getSelectionMaxRecords());
 
                 Set<String> tmpUuid = new HashSet<>();
-                for (String uuid : allowedUuid) {
-                    Map<RelatedItemType, List<AssociatedRecord>> associated =
-                        MetadataUtils.getAssociated(context,
-                            metadataRepository.findOneByUuid(uuid),
-                            RelatedItemType.values(), 0, maxhits);
+                for (List<String> uuids : Iterables.partition(allowedUuid, RELATED_BATCH_SIZE)) {
+                    List<AbstractMetadata> records = new ArrayList<>(uuids.size());
+                    for (String uuid : uuids) {
+                        records.add(metadataRepository.findOneByUuid(uuid));
+                    }
+                    Map<Integer, Map<RelatedItemType, List<AssociatedRecord>>> associated =
+                        MetadataUtils.getAssociated(context, records, RelatedItemType.values(), 0, maxhits);
 
-                    associated.forEach(
+                    associated.values().forEach(byType -> byType.forEach(
                         (type, list) -> list.forEach(
-                            r -> tmpUuid.add(r.getUuid())));
+                            r -> tmpUuid.add(r.getUuid()))));
                 }
 
                 if (selectionManger.addAllSelection(SelectionManager.SELECTION_METADATA, tmpUuid)) {
                     Log.info(Geonet.MEF, "Child and services added into the selection");
                 }
-                allowedUuid = selectionManger.getSelection(SelectionManager.SELECTION_METADATA);
+                allowedUuid = selectionManger.getSelectedUuids(SelectionManager.SELECTION_METADATA);
             }
 
             Log.info(Geonet.MEF, "Building MEF2 file with " + uuidList.size()
@@ -33,6 +33,7 @@ import org.fao.geonet.api.API;
 import org.fao.geonet.api.ApiParams;
 import org.fao.geonet.api.ApiUtils;
 import org.fao.geonet.api.exception.NotAllowedException;
+import org.fao.geonet.api.exception.ResourceNotFoundException;
 import org.fao.geonet.api.records.model.related.*;
 import org.fao.geonet.api.tools.i18n.LanguageUtils;
 import org.fao.geonet.domain.AbstractMetadata;
@@ -144,4 +145,68 @@ public class MetadataAssociatedApi {
         }
         return MetadataUtils.getAssociated(context, md, type, start, start + rows);
     }
+
+
+    @io.swagger.v3.oas.annotations.Operation(
+        summary = "Get associated resources of many records",
+        description = "Retrieve related services, datasets, sources, ... " +
+            "to many records, eg. the records of a search page, in one call. " +
+            "Records not found or which the user can't view are not in the response.")
+    @RequestMapping(value = "/associated",
+        method = RequestMethod.GET,
+        produces = {
+            MediaType.APPLICATION_JSON_VALUE
+        })
+    @ResponseStatus(HttpStatus.OK)
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Return the associated resources by record UUID.")
+    })
+    @ResponseBody
+    public Map<String, Map<RelatedItemType, List<AssociatedRecord>>> getAssociatedResourcesOfRecords(
+        @Parameter(
+            description = API_PARAM_RECORD_UUIDS,
+            required = true)
+        @RequestParam
+            String[] uuids,
+        @Parameter(description = "Type of related resource. If none, all resources are returned.",
+            required = false
+        )
+        @RequestParam(defaultValue = "")
+            RelatedItemType[] type,
+        @Parameter(description = "Use approved version or not", example = "true")
+        @RequestParam(required = false, defaultValue = "true")
+            Boolean approved,
+        @Parameter(description = "Start offset for paging. Default 1. Only applies to related metadata records (ie. not for thumbnails).",
+            required = false
+        )
+        @RequestParam(defaultValue = "0")
+            int start,
+        @Parameter(description = "Number of rows returned for each record. Default 100.")
+        @RequestParam(defaultValue = "100")
+            int rows,
+        HttpServletRequest request) throws Exception {
+
+        List<AbstractMetadata> records = new ArrayList<>();
+        for (String uuid : new LinkedHashSet<>(Arrays.asList(uuids))) {
+            try {
+                records.add(ApiUtils.canViewRecord(uuid, approved, request));
+            } catch (SecurityException | ResourceNotFoundException e) {
+                Log.debug(API.LOG_MODULE_NAME, e.getMessage(), e);
+            }
+        }
+
+        final ServiceContext context = ApiUtils.createServiceContext(request);
+
+        if (type.length == 0) {
+            type = RelatedItemType.values();
+        }
+        Map<Integer, Map<RelatedItemType, List<AssociatedRecord>>> associatedById =
+            MetadataUtils.getAssociated(context, records, type, start, start + rows);
+
+        Map<String, Map<RelatedItemType, List<AssociatedRecord>>> associated = new LinkedHashMap<>();
+        for (AbstractMetadata record : records) {
+            associated.put(record.getUuid(), associatedById.get(record.getId()));
+        }
+        return associated;
+    }
 }
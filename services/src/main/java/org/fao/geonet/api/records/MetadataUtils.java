@@ -23,7 +23,9 @@
 
 package org.fao.geonet.api.records;
 
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.json.JsonData;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -90,6 +92,11 @@ public class MetadataUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Geonet.SEARCH_ENGINE);
 
+    /**
+     * Name of the query matching the associated records which are in the current portal.
+     */
+    private static final String PORTAL_QUERY_NAME = "portal";
+
     public static class RelatedTypeDetails {
         private String query;
         private Set<String> expectedRecords = new HashSet<>();
@@ -196,12 +203,83 @@ public class MetadataUtils {
         ServiceContext context,
         AbstractMetadata md, RelatedItemType[] types, int start, int size)
         throws Exception  {
+        return getAssociated(context, Collections.singletonList(md), types, start, size).get(md.getId());
+    }
+
+    /**
+     * Get the records associated to many records, eg. the hits of a search page.
+     *
+     * The queries for all the records and types of association are sent in one
+     * multi search request. When the current portal has a filter, it is added to each
+     * query as a named query to set the origin of the records found in the portal.
+     *
+     * @return the associated records by type for each record id.
+     */
+    public static Map<Integer, Map<RelatedItemType, List<AssociatedRecord>>> getAssociated(
+        ServiceContext context,
+        List<? extends AbstractMetadata> mds, RelatedItemType[] types, int start, int size)
+        throws Exception  {
 
         GeonetContext gc = (GeonetContext) context.getHandlerContext(Geonet.CONTEXT_NAME);
-        DataManager dm = gc.getBean(DataManager.class);
-        SettingManager settingManager = gc.getBean(SettingManager.class);
         EsSearchManager searchMan = gc.getBean(EsSearchManager.class);
 
+        Map<Integer, Map<RelatedItemType, List<AssociatedRecord>>> associatedById = new LinkedHashMap<>();
+        List<Integer> queryRecordIds = new ArrayList<>();
+        List<RelatedItemType> queryTypes = new ArrayList<>();
+        List<RelatedTypeDetails> queryDetails = new ArrayList<>();
+        for (AbstractMetadata md : mds) {
+            if (md == null || associatedById.containsKey(md.getId())) {
+                continue;
+            }
+            associatedById.put(md.getId(), new HashMap<>());
+            buildRelatedQueries(context, md, types).forEach((type, details) -> {
+                queryRecordIds.add(md.getId());
+                queryTypes.add(type);
+                queryDetails.add(details);
+            });
+        }
+        if (queryDetails.isEmpty()) {
+            return associatedById;
+        }
+
+        String portalFilter = getPortalFilter();
+        final MsearchResponse<ObjectNode> responses = searchMan.multiQuery(
+            queryDetails.stream().map(RelatedTypeDetails::getQuery).collect(Collectors.toList()),
+            buildPermissionsFilter(context),
+            portalFilter == null ? Collections.emptyMap() : Collections.singletonMap(PORTAL_QUERY_NAME, portalFilter),
+            FIELDLIST_RELATED,
+            FIELDLIST_RELATED_SCRIPTED,
+            start, size);
+
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < queryDetails.size(); i++) {
+            RelatedTypeDetails relatedTypeDetails = queryDetails.get(i);
+            List<Hit<ObjectNode>> hits = Collections.emptyList();
+            MultiSearchResponseItem<ObjectNode> response = responses == null ? null : responses.responses().get(i);
+            if (response != null && response.isResult()) {
+                hits = response.result().hits().hits();
+            } else if (response != null) {
+                LOGGER.warn("Failed to search {} records associated to record {}. Error is: {}",
+                    queryTypes.get(i), queryRecordIds.get(i), response.failure().error().reason());
+            }
+
+            List<AssociatedRecord> records = buildCatalogRecords(context, mapper, relatedTypeDetails, hits);
+            buildRemoteRecords(mapper, relatedTypeDetails, records);
+            associatedById.get(queryRecordIds.get(i)).put(queryTypes.get(i), records);
+        }
+
+        // TODO: Editable relation
+        return associatedById;
+    }
+
+    /**
+     * Build a query and the expected list of uuids for each type of association.
+     */
+    private static Map<RelatedItemType, RelatedTypeDetails> buildRelatedQueries(
+        ServiceContext context, AbstractMetadata md, RelatedItemType[] types) throws Exception {
+        DataManager dm = context.getBean(DataManager.class);
+        SettingManager settingManager = context.getBean(SettingManager.class);
+
         Element xml = dm.getMetadata(context, md.getId() + "",
             FOR_EDITING, WITH_VALIDATION_ERRORS, KEEP_XLINK_ATTRIBUTES);
 
@@ -328,80 +406,58 @@ public class MetadataUtils {
         });
 
 
-        Map<RelatedItemType, List<AssociatedRecord>> associated =
-            new HashMap<>();
-        Set<String> allCatalogueUuids = new HashSet<>();
+        return queries;
+    }
 
-        String privilegesFilter = buildPermissionsFilter(context);
-        ObjectMapper mapper = new ObjectMapper();
+    private static List<AssociatedRecord> buildCatalogRecords(ServiceContext context,
+                                                              ObjectMapper mapper,
+                                                              RelatedTypeDetails relatedTypeDetails,
+                                                              List<Hit<ObjectNode>> hits) {
+        Set<String> expectedUuids = relatedTypeDetails.getExpectedRecords();
+        Set<String> remoteRecords = relatedTypeDetails.getRemoteRecords();
 
-        for (Map.Entry<RelatedItemType,RelatedTypeDetails> entry : queries.entrySet()) {
-            // TODO: Use msearch ?
-            RelatedTypeDetails relatedTypeDetails = entry.getValue();
-            final SearchResponse result = searchMan.query(
-                relatedTypeDetails.getQuery(),
-                privilegesFilter,
-                FIELDLIST_RELATED,
-                FIELDLIST_RELATED_SCRIPTED,
-                start, size);
-            Set<String> expectedUuids = relatedTypeDetails.getExpectedRecords();
-            Set<String> remoteRecords = relatedTypeDetails.getRemoteRecords();
-
-            List<AssociatedRecord> records = new ArrayList<>();
-            if (!result.hits().hits().isEmpty()) {
-                for (Hit e : (List<Hit>) result.hits().hits()) {
-                    allCatalogueUuids.add(e.id());
-                    AssociatedRecord associatedRecord = new AssociatedRecord();
-                    associatedRecord.setUuid(e.id());
-                    // Set properties eg. remote, associationType, ...
-                    associatedRecord.setProperties(relatedTypeDetails.recordsProperties.get(e.id()));
-
-                    // Add scripted field values to the properties of the record
-                    if (!e.fields().isEmpty()) {
-                        FIELDLIST_RELATED_SCRIPTED.keySet().forEach(f -> {
-                            JsonData dc = (JsonData) e.fields().get(f);
-
-                            if (dc != null) {
-                                if (associatedRecord.getProperties() == null) {
-                                    associatedRecord.setProperties(new HashMap<>());
-                                }
-                                associatedRecord.getProperties().put(f, dc.toJson().asJsonArray().get(0).toString().replaceAll("^\"|\"$", ""));
-                            }
-                        });
-                    }
-
-                    JsonNode source = mapper.convertValue(e.source(), JsonNode.class);
-                    ObjectNode doc = mapper.createObjectNode();
-                    doc.set("_source", source);
-                    EsHTTPProxy.addUserInfo(doc, context);
-                    Iterator<String> fieldNames = doc.fieldNames();
-                    while (fieldNames.hasNext()) {
-                        String field = fieldNames.next();
-                        if (!"_source".equals(field)) {
-                            ((ObjectNode) source).set(field, doc.get(field));
+        List<AssociatedRecord> records = new ArrayList<>();
+        for (Hit<ObjectNode> e : hits) {
+            AssociatedRecord associatedRecord = new AssociatedRecord();
+            associatedRecord.setUuid(e.id());
+            // Set properties eg. remote, associationType, ...
+            associatedRecord.setProperties(relatedTypeDetails.recordsProperties.get(e.id()));
+
+            // Add scripted field values to the properties of the record
+            if (!e.fields().isEmpty()) {
+                FIELDLIST_RELATED_SCRIPTED.keySet().forEach(f -> {
+                    JsonData dc = e.fields().get(f);
+
+                    if (dc != null) {
+                        if (associatedRecord.getProperties() == null) {
+                            associatedRecord.setProperties(new HashMap<>());
                         }
+                        associatedRecord.getProperties().put(f, dc.toJson().asJsonArray().get(0).toString().replaceAll("^\"|\"$", ""));
                     }
-                    associatedRecord.setRecord(source);
-                    associatedRecord.setOrigin(RelatedItemOrigin.catalog.name());
-                    records.add(associatedRecord);
-                    if (expectedUuids.contains(e.id())) {
-                        expectedUuids.remove(e.id());
-                    }
-                    // Remote records may be found in current catalogue (eg. if harvested)
-                    if (remoteRecords.contains(e.id())) {
-                        remoteRecords.remove(e.id());
-                    }
-                }
+                });
             }
 
-            buildRemoteRecords(mapper, relatedTypeDetails, records);
-            associated.put(entry.getKey(), records);
+            JsonNode source = mapper.convertValue(e.source(), JsonNode.class);
+            ObjectNode doc = mapper.createObjectNode();
+            doc.set("_source", source);
+            EsHTTPProxy.addUserInfo(doc, context);
+            Iterator<String> fieldNames = doc.fieldNames();
+            while (fieldNames.hasNext()) {
+                String field = fieldNames.next();
+                if (!"_source".equals(field)) {
+                    ((ObjectNode) source).set(field, doc.get(field));
+                }
+            }
+            associatedRecord.setRecord(source);
+            associatedRecord.setOrigin(e.matchedQueries().contains(PORTAL_QUERY_NAME)
+                ? RelatedItemOrigin.portal.name()
+                : RelatedItemOrigin.catalog.name());
+            records.add(associatedRecord);
+            expectedUuids.remove(e.id());
+            // Remote records may be found in current catalogue (eg. if harvested)
+            remoteRecords.remove(e.id());
         }
-
-        assignPortalOrigin(start, size, searchMan, associated, allCatalogueUuids);
-
-        // TODO: Editable relation
-        return associated;
+        return records;
     }
 
     private static void buildRemoteRecords(ObjectMapper mapper,
@@ -418,37 +474,19 @@ public class MetadataUtils {
         }
     }
 
-    private static void assignPortalOrigin(int start, int size, EsSearchManager searchMan, Map<RelatedItemType, List<AssociatedRecord>> associated, Set<String> allCatalogueUuids) throws Exception {
-        String portalFilter;
+    /**
+     * @return the filter of the current portal, null for the main catalogue or a portal without filter.
+     */
+    private static String getPortalFilter() {
         SourceRepository sourceRepository = ApplicationContextHolder.get().getBean(SourceRepository.class);
         NodeInfo node = ApplicationContextHolder.get().getBean(NodeInfo.class);
         if (node != null && !NodeInfo.DEFAULT_NODE.equals(node.getId())) {
             final Optional<Source> portal = sourceRepository.findById(node.getId());
             if (portal.isPresent() && StringUtils.isNotEmpty(portal.get().getFilter())) {
-                portalFilter = portal.get().getFilter();
-
-                final SearchResponse recordsInPortal = searchMan.query(
-                    String.format("+uuid:(%s)",
-                        allCatalogueUuids.stream()
-                            .collect(Collectors.joining("\" OR \"", "\"", "\""))),
-                    portalFilter,
-                    FIELDLIST_UUID,
-                    start, size);
-
-                Set<String> allPortalUuids = new HashSet<>();
-                if (!recordsInPortal.hits().hits().isEmpty()) {
-                    for (Hit e : (List<Hit>) recordsInPortal.hits().hits()) {
-                        allPortalUuids.add(e.id());
-                    }
-                }
-
-                if (!allPortalUuids.isEmpty()) {
-                    associated.forEach((t, records) -> records.stream()
-                        .filter(r -> allPortalUuids.contains(r.getUuid()))
-                        .forEach(r -> r.setOrigin(RelatedItemOrigin.portal.name())));
-                }
+                return portal.get().getFilter();
             }
         }
+        return null;
     }
 
     private static String buildRemoteRecord(Map<String, String> props) {
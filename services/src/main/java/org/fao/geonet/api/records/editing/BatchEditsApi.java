@@ -197,11 +197,7 @@ public class BatchEditsApi implements ApplicationContextAware {
             SelectionManager selectionManager =
                 SelectionManager.getManager(serviceContext.getUserSession());
 
-            synchronized (
-                selectionManager.getSelection(bucket)) {
-                final Set<String> selection = selectionManager.getSelection(bucket);
-                setOfUuidsToEdit = Sets.newHashSet(selection);
-            }
+            setOfUuidsToEdit = selectionManager.getSelectedUuids(bucket);
         } else {
             setOfUuidsToEdit = Sets.newHashSet(Arrays.asList(uuids));
         }
@@ -36,6 +36,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Component;
 
+import javax.xml.transform.stream.StreamResult;
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -212,7 +213,7 @@ public class XsltFormatter implements FormatterImpl {
             }
         }
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        Xml.transform(root, fparams.viewFile, requestParameters, baos);
+        Xml.transform(Xml.toNodeInfo(root), fparams.viewFile, new StreamResult(baos), requestParameters);
         String transformed = baos.toString(StandardCharsets.UTF_8);
         return transformed.startsWith("<textResponse") ?
             Xml.loadString(transformed, false).getText() :
@@ -25,12 +25,14 @@ package org.fao.geonet.api.records.formatters.cache;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.Striped;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.lib.Lib;
 import org.fao.geonet.utils.IO;
 import org.fao.geonet.utils.Log;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -38,13 +40,29 @@ import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import static org.fao.geonet.constants.Params.Access.PRIVATE;
 import static org.fao.geonet.constants.Params.Access.PUBLIC;
@@ -52,6 +70,15 @@ import static org.fao.geonet.constants.Params.Access.PUBLIC;
 /**
  * A {@link org.fao.geonet.api.records.formatters.cache.PersistentStore} that saves the files to
  * disk.
+ * <p/>
+ * The information about the stored files (change date, published state, size and last access)
+ * is kept in memory so that reads never wait for each other or for the database. Files are
+ * written to a temporary file and moved in place, so readers see either the previous or the
+ * new file. Only writes of the same key are serialized.
+ * <p/>
+ * The in-memory index is checkpointed to a local H2 database in the background and on shutdown,
+ * and loaded from it on startup. When the store grows over its maximum size, the least recently
+ * used files are evicted in the background until it is down to half its maximum size.
  *
  * @author Jesse on 3/5/2015.
  */
@@ -59,33 +86,77 @@ public class FilesystemStore implements PersistentStore {
     public static final String WITHHELD_MD_DIRNAME = "withheld_md";
     public static final String FULL_MD_NAME = "full_md";
     private static final String BASE_CACHE_DIR = "formatter-cache";
+    // Files being written, outside of the private and public trees
+    private static final String TMP_DIR = "tmp";
     private static final String INFO_TABLE = "info";
     private static final String KEY = "keyhash";
     private static final String CHANGE_DATE = "changedate";
     private static final String PUBLISHED = "published";
     private static final String PATH = "path";
+    private static final String LAST_ACCESS = "lastaccess";
+    private static final String FILE_SIZE = "filesize";
     private static final String STATS_TABLE = "stats";
     private static final String NAME = "name";
     private static final String CURRENT_SIZE = "currentsize";
     private static final String VALUE = "statvalue";
     public static final String QUERY_SETCURRENT_SIZE = "MERGE INTO " + STATS_TABLE + " (" + NAME + ", " + VALUE + ") VALUES ('" + CURRENT_SIZE + "', ?)";
     public static final String QUERY_GETCURRENT_SIZE = "SELECT " + VALUE + " FROM " + STATS_TABLE + " WHERE " + NAME + " = '" + CURRENT_SIZE + "'";
-    private static final String QUERY_GET_INFO = "SELECT * FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
-    private static final String QUERY_GET_INFO_FOR_RESIZE = "SELECT " + KEY + "," + PATH + " FROM " + INFO_TABLE + " ORDER BY " + CHANGE_DATE + " ASC";
-    private static final String QUERY_PUT = "MERGE INTO " + INFO_TABLE + " (" + KEY + "," + CHANGE_DATE + "," + PUBLISHED + "," + PATH + ") VALUES (?,?,?, ?)";
+    private static final String QUERY_GET_ALL_INFO = "SELECT * FROM " + INFO_TABLE;
+    private static final String QUERY_PUT = "MERGE INTO " + INFO_TABLE + " (" + KEY + "," + CHANGE_DATE + "," + PUBLISHED + "," + PATH + "," + LAST_ACCESS + "," + FILE_SIZE + ") VALUES (?,?,?,?,?,?)";
     private static final String QUERY_REMOVE = "DELETE FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
     private static final String QUERY_CLEAR_INFO = "DELETE FROM " + INFO_TABLE;
     private static final String QUERY_CLEAR_STATS = "DELETE FROM " + STATS_TABLE;
+
+    /**
+     * Information about a stored file. Immutable except for the last access.
+     */
+    private static class Entry {
+        private final long changeDate;
+        private final boolean published;
+        private final Path path;
+        private final String uri;
+        private final long size;
+        private volatile long lastAccess;
+
+        private Entry(long changeDate, boolean published, Path path, String uri, long size, long lastAccess) {
+            this.changeDate = changeDate;
+            this.published = published;
+            this.path = path;
+            this.uri = uri;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
     @VisibleForTesting
     Connection metadataDb;
     @Autowired
     private GeonetworkDataDirectory geonetworkDataDir;
     private boolean testing = false;
     private volatile long maxSizeB = 10000;
-    private volatile long currentSize = 0;
     private volatile boolean initialized = false;
+    private long checkpointIntervalSeconds = 30;
+
+    private final Map<Integer, Entry> index = new ConcurrentHashMap<>();
+    // Keys whose information changed since the last checkpoint
+    private final Set<Integer> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicLong currentSize = new AtomicLong();
+    // Logical clock ordering the accesses
+    private final AtomicLong accessClock = new AtomicLong();
+    private final Striped<Lock> keyLocks = Striped.lock(64);
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final Object checkpointLock = new Object();
+    private ScheduledExecutorService scheduler;
+    private Executor evictionExecutor;
+
+    private void init() throws SQLException {
+        // Called on every access, only lock until the store is initialized
+        if (!initialized) {
+            initialize();
+        }
+    }
 
-    private synchronized void init() throws SQLException {
+    private synchronized void initialize() throws SQLException {
         if (!initialized) {
             // using a h2 database and not normal geonetwork DB to ensure that the accesses are always on localhost and therefore
             // hopefully quick.
@@ -99,6 +170,8 @@ public class FilesystemStore implements PersistentStore {
                 "CREATE SCHEMA IF NOT EXISTS " + INFO_TABLE,
                 "CREATE TABLE IF NOT EXISTS " + INFO_TABLE + "(" + KEY + " INT PRIMARY KEY, " + CHANGE_DATE + " BIGINT NOT NULL, " +
                     PUBLISHED + " BOOL NOT NULL, " + PATH + " CLOB  NOT NULL)",
+                "ALTER TABLE " + INFO_TABLE + " ADD COLUMN IF NOT EXISTS " + LAST_ACCESS + " BIGINT DEFAULT 0 NOT NULL",
+                "ALTER TABLE " + INFO_TABLE + " ADD COLUMN IF NOT EXISTS " + FILE_SIZE + " BIGINT DEFAULT -1 NOT NULL",
                 "CREATE TABLE IF NOT EXISTS " + STATS_TABLE + " (" + NAME + " VARCHAR(64) PRIMARY KEY, " + VALUE + " VARCHAR(32) NOT NULL)"
 
             };
@@ -106,13 +179,23 @@ public class FilesystemStore implements PersistentStore {
             String dbPath = testing ? "mem:" + UUID.randomUUID() : getBaseCacheDir().resolve("info-store").toString();
             metadataDb = DriverManager.getConnection("jdbc:h2:" + dbPath + init, "fsStore", "");
 
-            try (
-                Statement statement = metadataDb.createStatement();
-                ResultSet rs = statement.executeQuery(QUERY_GETCURRENT_SIZE)) {
-                if (rs.next()) {
-                    this.currentSize = Long.parseLong(rs.getString(1));
-                }
+            loadIndex();
+
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
+            threadFactory.setDaemon(true);
+            threadFactory.setThreadNamePrefix("FormatterCacheStore-");
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            if (evictionExecutor == null) {
+                evictionExecutor = scheduler;
             }
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                } catch (Exception e) {
+                    Log.error(Geonet.FORMATTER, "Error while saving the FilesystemStore index", e);
+                }
+            }, checkpointIntervalSeconds, checkpointIntervalSeconds, TimeUnit.SECONDS);
+
             Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
                 @Override
                 public void run() {
@@ -128,116 +211,211 @@ public class FilesystemStore implements PersistentStore {
 
     }
 
+    private void loadIndex() throws SQLException {
+        long maxLastAccess = 0;
+        try (
+            Statement statement = metadataDb.createStatement();
+            ResultSet rs = statement.executeQuery(QUERY_GET_ALL_INFO)) {
+            while (rs.next()) {
+                int keyHashCode = rs.getInt(KEY);
+                long lastAccess = rs.getLong(LAST_ACCESS);
+                long size = rs.getLong(FILE_SIZE);
+                String uri = rs.getString(PATH);
+                try {
+                    Path path = IO.toPath(new URI(uri));
+                    if (size < 0) {
+                        // Entry saved before the size was stored
+                        size = Files.size(path);
+                        dirtyKeys.add(keyHashCode);
+                    }
+                    index.put(keyHashCode, new Entry(rs.getLong(CHANGE_DATE), rs.getBoolean(PUBLISHED), path, uri, size, lastAccess));
+                    currentSize.addAndGet(size);
+                    maxLastAccess = Math.max(maxLastAccess, lastAccess);
+                } catch (URISyntaxException | IOException e) {
+                    // File is gone, drop the entry at next checkpoint
+                    dirtyKeys.add(keyHashCode);
+                }
+            }
+        }
+        accessClock.set(maxLastAccess);
+    }
+
     @PreDestroy
-    synchronized void close() throws ClassNotFoundException, SQLException {
+    void close() throws ClassNotFoundException, SQLException {
         Log.info(Geonet.FORMATTER, "Stopping the FileSystemStore");
-        if (metadataDb != null) {
-            metadataDb.close();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        synchronized (checkpointLock) {
+            if (metadataDb != null && !metadataDb.isClosed()) {
+                try {
+                    checkpoint();
+                } finally {
+                    metadataDb.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the information changed since the last checkpoint to the database.
+     */
+    @VisibleForTesting
+    void checkpoint() throws SQLException {
+        synchronized (checkpointLock) {
+            if (metadataDb == null || metadataDb.isClosed()) {
+                return;
+            }
+            try (
+                PreparedStatement put = metadataDb.prepareStatement(QUERY_PUT);
+                PreparedStatement remove = metadataDb.prepareStatement(QUERY_REMOVE)) {
+                for (Integer keyHashCode : dirtyKeys) {
+                    dirtyKeys.remove(keyHashCode);
+                    Entry entry = index.get(keyHashCode);
+                    if (entry == null) {
+                        remove.setInt(1, keyHashCode);
+                        remove.addBatch();
+                    } else {
+                        put.setInt(1, keyHashCode);
+                        put.setLong(2, entry.changeDate);
+                        put.setBoolean(3, entry.published);
+                        put.setString(4, entry.uri);
+                        put.setLong(5, entry.lastAccess);
+                        put.setLong(6, entry.size);
+                        put.addBatch();
+                    }
+                }
+                put.executeBatch();
+                remove.executeBatch();
+            }
+            try (PreparedStatement statement = metadataDb.prepareStatement(QUERY_SETCURRENT_SIZE)) {
+                statement.setString(1, String.valueOf(currentSize.get()));
+                statement.execute();
+            }
         }
     }
 
     @Override
-    public synchronized StoreInfoAndData get(@Nonnull Key key) throws IOException, SQLException {
+    public StoreInfoAndData get(@Nonnull Key key) throws IOException, SQLException {
         init();
-        StoreInfo info = getInfo(key);
-        if (info == null) {
+        Entry entry = index.get(key.hashCode());
+        if (entry == null) {
             return null;
         }
-        byte[] data = Files.readAllBytes(getPrivatePath(key));
-        return new StoreInfoAndData(info, data);
+        byte[] data;
+        try {
+            data = Files.readAllBytes(entry.path);
+        } catch (NoSuchFileException e) {
+            // Evicted or removed in the meantime
+            return null;
+        }
+        touch(key.hashCode(), entry);
+        return new StoreInfoAndData(data, entry.changeDate, entry.published);
     }
 
     @Override
-    public synchronized StoreInfo getInfo(@Nonnull Key key) throws SQLException {
+    public StoreInfo getInfo(@Nonnull Key key) throws SQLException {
         init();
-        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_GET_INFO)) {
-            statement.setInt(1, key.hashCode());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    long date = resultSet.getLong(CHANGE_DATE);
-                    boolean isPublished = resultSet.getBoolean(PUBLISHED);
-                    return new StoreInfo(date, isPublished);
-                } else {
-                    return null;
-                }
-            }
+        Entry entry = index.get(key.hashCode());
+        if (entry == null) {
+            return null;
         }
+        return new StoreInfo(entry.changeDate, entry.published);
     }
 
     @Override
-    public synchronized void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) throws IOException, SQLException {
+    public void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) throws IOException, SQLException {
         init();
-        resizeIfRequired(key, data);
+        final int keyHashCode = key.hashCode();
         final Path privatePath = getPrivatePath(key);
+        final Lock lock = keyLocks.get(keyHashCode);
+        lock.lock();
+        try {
+            Files.createDirectories(privatePath.getParent());
+            writeAtomically(privatePath, data.data);
+
+            Path publicPath = getPublicPath(key);
+            Files.deleteIfExists(publicPath);
+            // only publish if withheld (hidden) elements are hidden.
+            if (data.isPublished() && key.hideWithheld) {
+                Files.createDirectories(publicPath.getParent());
+                try {
+                    Files.createLink(publicPath, privatePath);
+                } catch (UnsupportedOperationException | SecurityException e) {
+                    // Link likely not supported on this FS use copy then.
+                    Files.copy(privatePath, publicPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
 
-        if (Files.exists(privatePath)) {
-            currentSize -= Files.size(privatePath);
+            Entry entry = new Entry(data.getChangeDate(), data.isPublished(), privatePath,
+                privatePath.toUri().toString(), data.data.length,
+                accessClock.incrementAndGet());
+            Entry previous = index.put(keyHashCode, entry);
+            currentSize.addAndGet(entry.size - (previous == null ? 0 : previous.size));
+            dirtyKeys.add(keyHashCode);
+        } finally {
+            lock.unlock();
         }
+        evictIfRequired();
+    }
 
-        Files.createDirectories(privatePath.getParent());
-        Files.write(privatePath, data.data);
-        currentSize += data.data.length;
-
-        updateDbCurrentSize();
-
-        Path publicPath = getPublicPath(key);
-        Files.deleteIfExists(publicPath);
-        // only publish if withheld (hidden) elements are hidden.
-        if (data.isPublished() && key.hideWithheld) {
-            Files.createDirectories(publicPath.getParent());
+    private void writeAtomically(Path path, byte[] data) throws IOException {
+        Path tmpDir = getBaseCacheDir().resolve(TMP_DIR);
+        Files.createDirectories(tmpDir);
+        Path tmpFile = Files.createTempFile(tmpDir, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmpFile, data);
             try {
-                Files.createLink(publicPath, privatePath);
-            } catch (UnsupportedOperationException | SecurityException e) {
-                // Link likely not supported on this FS use copy then.
-                Files.copy(privatePath, publicPath);
+                Files.move(tmpFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, path, StandardCopyOption.REPLACE_EXISTING);
             }
-        }
-        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_PUT)) {
-            statement.setInt(1, key.hashCode());
-            statement.setLong(2, data.getChangeDate());
-            statement.setBoolean(3, data.isPublished());
-            statement.setString(4, privatePath.toUri().toString());
-            statement.execute();
+        } finally {
+            Files.deleteIfExists(tmpFile);
         }
     }
 
-    private void updateDbCurrentSize() throws SQLException {
-        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_SETCURRENT_SIZE)) {
-            statement.setString(1, String.valueOf(currentSize));
-            statement.execute();
-        }
+    private void touch(int keyHashCode, Entry entry) {
+        entry.lastAccess = accessClock.incrementAndGet();
+        dirtyKeys.add(keyHashCode);
     }
 
-    private void resizeIfRequired(Key key, StoreInfoAndData data) throws IOException, SQLException {
-        if (this.currentSize + data.data.length > this.maxSizeB) {
-            final Path privatePath = getPrivatePath(key);
-            if (Files.exists(privatePath)) {
-                long fileSize = Files.size(privatePath);
-                if (currentSize - fileSize + data.data.length > this.maxSizeB) {
-                    resize();
-                }
-            } else {
-                resize();
+    private void evictIfRequired() {
+        if (currentSize.get() > maxSizeB && evicting.compareAndSet(false, true)) {
+            try {
+                evictionExecutor.execute(this::evict);
+            } catch (RuntimeException e) {
+                evicting.set(false);
+                Log.error(Geonet.FORMATTER, "Unable to start the Formatter cache eviction", e);
             }
         }
     }
 
-    private void resize() throws SQLException, IOException {
-        int targetSize = (int) (maxSizeB / 2);
-        Log.warning(Geonet.FORMATTER, "Resizing Formatter cache.  Required to reduce size by " + targetSize);
-        long startTime = System.currentTimeMillis();
-        try (
-            Statement statement = metadataDb.createStatement();
-            ResultSet resultSet = statement.executeQuery(QUERY_GET_INFO_FOR_RESIZE)
-        ) {
-            while (currentSize > targetSize && resultSet.next()) {
-                Path path = IO.toPath(new URI(resultSet.getString(PATH)));
-                doRemove(path, resultSet.getInt(KEY), false);
+    /**
+     * Remove the least recently used files until the store is down to half its maximum size.
+     */
+    private void evict() {
+        try {
+            long targetSize = maxSizeB / 2;
+            Log.warning(Geonet.FORMATTER, "Resizing Formatter cache.  Required to reduce size by " + (currentSize.get() - targetSize));
+            long startTime = System.currentTimeMillis();
+
+            List<Map.Entry<Integer, Entry>> entries = new ArrayList<>(index.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Integer, Entry> entry : entries) {
+                if (currentSize.get() <= targetSize) {
+                    break;
+                }
+                try {
+                    doRemove(entry.getKey(), entry.getValue());
+                } catch (IOException e) {
+                    Log.error(Geonet.FORMATTER, "Error removing " + entry.getValue().path + " from the Formatter cache", e);
+                }
             }
-        } catch (URISyntaxException e) {
-            throw new Error(e);
+            Log.warning(Geonet.FORMATTER, "Resize took " + (System.currentTimeMillis() - startTime) + "ms to complete");
+        } finally {
+            evicting.set(false);
         }
-        Log.warning(Geonet.FORMATTER, "Resize took " + (System.currentTimeMillis() - startTime) + "ms to complete");
     }
 
     @Nullable
@@ -249,19 +427,30 @@ public class FilesystemStore implements PersistentStore {
             throw new Error(e);
         }
         final Path publicPath = getPublicPath(key);
-        if (Files.exists(publicPath)) {
-            return Files.readAllBytes(publicPath);
-        } else {
+        try {
+            byte[] data = Files.readAllBytes(publicPath);
+            Entry entry = index.get(key.hashCode());
+            if (entry != null) {
+                touch(key.hashCode(), entry);
+            }
+            return data;
+        } catch (NoSuchFileException e) {
             return null;
         }
     }
 
     @Override
-    public synchronized void remove(@Nonnull Key key) throws IOException, SQLException {
+    public void remove(@Nonnull Key key) throws IOException, SQLException {
         init();
-        final Path path = getPrivatePath(key);
         final int keyHashCode = key.hashCode();
-        doRemove(path, keyHashCode, true);
+        Entry entry = index.get(keyHashCode);
+        if (entry != null) {
+            doRemove(keyHashCode, entry);
+        } else {
+            final Path privatePath = getPrivatePath(key);
+            Files.deleteIfExists(privatePath);
+            Files.deleteIfExists(toPublicPath(privatePath));
+        }
     }
 
     @Override
@@ -300,10 +489,14 @@ public class FilesystemStore implements PersistentStore {
     @Override
     public void clear() throws SQLException, IOException {
         init();
-        try (Statement statement = this.metadataDb.createStatement()) {
-            statement.execute(QUERY_CLEAR_INFO);
-            statement.execute(QUERY_CLEAR_STATS);
-            currentSize = 0;
+        synchronized (checkpointLock) {
+            index.clear();
+            dirtyKeys.clear();
+            currentSize.set(0);
+            try (Statement statement = this.metadataDb.createStatement()) {
+                statement.execute(QUERY_CLEAR_INFO);
+                statement.execute(QUERY_CLEAR_STATS);
+            }
             Files.walkFileTree(getBaseCacheDir(), new SimpleFileVisitor<Path>() {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
@@ -328,26 +521,25 @@ public class FilesystemStore implements PersistentStore {
         }
     }
 
-    private void doRemove(Path privatePath, int keyHashCode, boolean updateDbCurrentSize) throws IOException, SQLException {
+    /**
+     * Remove the file and its information unless it was replaced in the meantime.
+     */
+    private void doRemove(int keyHashCode, Entry entry) throws IOException {
+        final Lock lock = keyLocks.get(keyHashCode);
+        lock.lock();
         try {
-            if (Files.exists(privatePath)) {
-                currentSize -= Files.size(privatePath);
-                Files.delete(privatePath);
+            if (!index.remove(keyHashCode, entry)) {
+                return;
             }
-        } finally {
+            currentSize.addAndGet(-entry.size);
+            dirtyKeys.add(keyHashCode);
             try {
-                final Path publicPath = toPublicPath(privatePath);
-                Files.deleteIfExists(publicPath);
+                Files.deleteIfExists(entry.path);
             } finally {
-                try (PreparedStatement statement = metadataDb.prepareStatement(QUERY_REMOVE)) {
-                    statement.setInt(1, keyHashCode);
-                    statement.execute();
-                } finally {
-                    if (updateDbCurrentSize) {
-                        updateDbCurrentSize();
-                    }
-                }
+                Files.deleteIfExists(toPublicPath(entry.path));
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -395,4 +587,19 @@ public class FilesystemStore implements PersistentStore {
     public void setTesting(boolean testing) {
         this.testing = testing;
     }
+
+    /**
+     * @param checkpointIntervalSeconds delay between two saves of the in-memory index to the database.
+     */
+    public void setCheckpointIntervalSeconds(long checkpointIntervalSeconds) {
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+    }
+
+    /**
+     * Executor running the eviction, by default a background thread.
+     */
+    @VisibleForTesting
+    void setEvictionExecutor(Executor evictionExecutor) {
+        this.evictionExecutor = evictionExecutor;
+    }
 }
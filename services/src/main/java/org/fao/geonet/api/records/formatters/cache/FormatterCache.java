@@ -28,8 +28,6 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 import org.fao.geonet.domain.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
@@ -38,11 +36,10 @@ import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Caches Formatter html files in memory (keeping the most recent or most accessed X formatters) and
@@ -58,14 +55,18 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * parallel with writing to the cache.
  * <p/>
  * Note: The Persistent cache used can be configured.
+ * <p/>
+ * Concurrent requests for the same key which is not in the cache share a single load,
+ * requests for different keys are loaded in parallel. The persistent store is
+ * responsible for its own thread safety.
  *
  * @author Jesse on 3/5/2015.
  */
 public class FormatterCache {
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final PersistentStore persistentStore;
     private final Cache<Key, StoreInfoAndData> memoryCache;
-    private final Multimap<Integer, Pair<Key, StoreInfoAndData>> mdIdIndex = ArrayListMultimap.create();
+    private final ConcurrentMap<Integer, Set<Pair<Key, StoreInfoAndData>>> mdIdIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, CompletableFuture<StoreInfoAndDataLoadResult>> loading = new ConcurrentHashMap<>();
     private final ExecutorService executor;
     private final BlockingQueue<Pair<Key, StoreInfoAndDataLoadResult>> storeRequests;
     @Autowired
@@ -111,14 +112,8 @@ public class FormatterCache {
     }
 
     public void remove(Key key) throws IOException, SQLException {
-        final Lock writeLock = lock.writeLock();
-        try {
-            writeLock.lock();
-            this.memoryCache.invalidate(key);
-            this.persistentStore.remove(key);
-        } finally {
-            writeLock.unlock();
-        }
+        this.memoryCache.invalidate(key);
+        this.persistentStore.remove(key);
     }
 
     /**
@@ -138,52 +133,70 @@ public class FormatterCache {
     @Nullable
     public byte[] get(Key key, Validator validator, Callable<StoreInfoAndDataLoadResult> loader,
                       boolean writeToStoreInCurrentThread) throws Exception {
-        final Lock readLock = lock.readLock();
-        StoreInfoAndData cached;
-        try {
-            readLock.lock();
-            if (!cacheConfig.allowCaching(key)) {
-                return loader.call().data;
-            }
-
-            cached = memoryCache.getIfPresent(key);
-            boolean invalid = false;
-            if (cached != null && !validator.isCacheVersionValid(cached)) {
-                cached = null;
-                invalid = true;
-            }
+        if (!cacheConfig.allowCaching(key)) {
+            return loader.call().data;
+        }
 
-            if (!invalid && cached == null) {
-                cached = loadFromPersistentCache(key, validator);
-            }
+        StoreInfoAndData cached = memoryCache.getIfPresent(key);
+        boolean invalid = false;
+        if (cached != null && !validator.isCacheVersionValid(cached)) {
+            cached = null;
+            invalid = true;
+        }
 
-        } finally {
-            readLock.unlock();
+        if (!invalid && cached == null) {
+            cached = loadFromPersistentCache(key, validator);
         }
-        final Lock writeLock = lock.writeLock();
+
         if (cached == null) {
-            try {
-                writeLock.lock();
-                StoreInfoAndDataLoadResult loaded = loader.call();
-                cached = loaded;
-                push(key, loaded, writeToStoreInCurrentThread);
-            } finally {
-                writeLock.unlock();
-            }
+            cached = load(key, loader, writeToStoreInCurrentThread);
         }
 
         return cached.data;
+    }
+
+    /**
+     * Load the value with the loader and add it to the cache. If the same key is
+     * already being loaded by another thread, wait for its result instead.
+     */
+    private StoreInfoAndDataLoadResult load(Key key, Callable<StoreInfoAndDataLoadResult> loader,
+                                            boolean writeToStoreInCurrentThread) throws Exception {
+        final CompletableFuture<StoreInfoAndDataLoadResult> future = new CompletableFuture<>();
+        final CompletableFuture<StoreInfoAndDataLoadResult> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
 
+        try {
+            StoreInfoAndDataLoadResult loaded = loader.call();
+            push(key, loaded, writeToStoreInCurrentThread);
+            future.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
     }
 
     private void push(Key key, StoreInfoAndDataLoadResult cached,
                       boolean writeToStoreInCurrentThread) throws IOException, SQLException {
-        final Lock writeLock = lock.writeLock();
         try {
-            writeLock.lock();
-
+            final Pair<Key, StoreInfoAndData> entry = Pair.read(key, cached);
+            this.mdIdIndex.compute(key.mdId, (mdId, entries) -> {
+                Set<Pair<Key, StoreInfoAndData>> newEntries = entries == null ? new HashSet<>() : entries;
+                newEntries.add(entry);
+                return newEntries;
+            });
             this.memoryCache.put(key, cached);
-            this.mdIdIndex.put(key.mdId, Pair.read(key, cached));
             if (writeToStoreInCurrentThread) {
                 createPersistentStoreRunnable(storeRequests, persistentStore).processStoreRequest(Pair.read(key, cached));
             } else {
@@ -193,21 +206,13 @@ public class FormatterCache {
             }
         } catch (InterruptedException e) {
             // return
-        } finally {
-            writeLock.unlock();
         }
     }
 
     private StoreInfoAndData loadFromPersistentCache(Key key, Validator validator) throws IOException, SQLException {
-        final Lock readLock = lock.readLock();
-        try {
-            readLock.lock();
-            final StoreInfo info = persistentStore.getInfo(key);
-            if (info != null && validator.isCacheVersionValid(info)) {
-                return persistentStore.get(key);
-            }
-        } finally {
-            readLock.unlock();
+        final StoreInfo info = persistentStore.getInfo(key);
+        if (info != null && validator.isCacheVersionValid(info)) {
+            return persistentStore.get(key);
         }
         return null;
     }
@@ -226,13 +231,7 @@ public class FormatterCache {
      */
     @Nullable
     public byte[] getPublished(Key key) throws IOException, SQLException {
-        final Lock readLock = lock.readLock();
-        try {
-            readLock.lock();
-            return this.persistentStore.getPublished(key);
-        } finally {
-            readLock.unlock();
-        }
+        return this.persistentStore.getPublished(key);
     }
 
     /**
@@ -242,30 +241,21 @@ public class FormatterCache {
      * @param published  mark all cached values for this metadata
      */
     void setPublished(int metadataId, boolean published) throws IOException {
-        final Lock writeLock = lock.writeLock();
-        try {
-            writeLock.lock();
-            this.persistentStore.setPublished(metadataId, published);
-        } finally {
-            writeLock.unlock();
-        }
+        this.persistentStore.setPublished(metadataId, published);
     }
 
     /**
      * Remove all cached values related to the metadataId.
      */
-    public synchronized void removeAll(int metadataId) throws IOException, SQLException {
-        final Lock writeLock = lock.writeLock();
-        try {
-            writeLock.lock();
-            Collection<Pair<Key, StoreInfoAndData>> storeInfoAndDatas = this.mdIdIndex.removeAll(metadataId);
-            for (Pair<Key, StoreInfoAndData> storeInfoAndData : storeInfoAndDatas) {
-                final Key key = storeInfoAndData.one();
-                this.memoryCache.invalidate(key);
-                this.persistentStore.remove(key);
-            }
-        } finally {
-            writeLock.unlock();
+    public void removeAll(int metadataId) throws IOException, SQLException {
+        Set<Pair<Key, StoreInfoAndData>> storeInfoAndDatas = this.mdIdIndex.remove(metadataId);
+        if (storeInfoAndDatas == null) {
+            storeInfoAndDatas = Collections.emptySet();
+        }
+        for (Pair<Key, StoreInfoAndData> storeInfoAndData : storeInfoAndDatas) {
+            final Key key = storeInfoAndData.one();
+            this.memoryCache.invalidate(key);
+            this.persistentStore.remove(key);
         }
     }
 
@@ -273,20 +263,18 @@ public class FormatterCache {
      * Clear all records from the cache and backing persistent cache.
      */
     public void clear() throws IOException, SQLException {
-        final Lock writeLock = lock.writeLock();
-        try {
-            writeLock.lock();
-            this.memoryCache.invalidateAll();
-            this.persistentStore.clear();
-        } finally {
-            writeLock.unlock();
-        }
+        this.memoryCache.invalidateAll();
+        this.persistentStore.clear();
     }
 
     private class RemoveFromIndexListener implements RemovalListener<Key, StoreInfoAndData> {
         @Override
         public void onRemoval(RemovalNotification<Key, StoreInfoAndData> notification) {
-            mdIdIndex.remove(notification.getKey().mdId, notification.getValue());
+            final Pair<Key, StoreInfoAndData> entry = Pair.read(notification.getKey(), notification.getValue());
+            mdIdIndex.computeIfPresent(notification.getKey().mdId, (mdId, entries) -> {
+                entries.remove(entry);
+                return entries.isEmpty() ? null : entries;
+            });
         }
     }
 }
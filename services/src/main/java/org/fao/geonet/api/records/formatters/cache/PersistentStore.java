@@ -30,6 +30,9 @@ import java.sql.SQLException;
 
 /**
  * The strategy used by {@link PersistentStore} for storing each record in a persistent fashion.
+ * <p/>
+ * Implementations must be thread safe, {@link FormatterCache} accesses the store from
+ * concurrent requests without locking.
  *
  * @author Jesse on 3/5/2015.
  */
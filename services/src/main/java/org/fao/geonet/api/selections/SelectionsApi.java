@@ -96,9 +96,7 @@ public class SelectionsApi {
         SelectionManager selectionManager =
             SelectionManager.getManager(ApiUtils.getUserSession(httpSession));
 
-        synchronized (selectionManager.getSelection(bucket)) {
-            return selectionManager.getSelection(bucket);
-        }
+        return selectionManager.getSelectedUuids(bucket);
     }
 
 
@@ -141,6 +139,38 @@ public class SelectionsApi {
     }
 
 
+    @io.swagger.v3.oas.annotations.Operation(summary = "Keep only the selected items matching the current search")
+    @RequestMapping(
+        method = RequestMethod.PUT,
+        value = "/{bucket}/intersect",
+        produces = {
+            MediaType.APPLICATION_JSON_VALUE
+        })
+    public
+    @ResponseBody
+    ResponseEntity<Integer> intersect(
+        @Parameter(description = ApiParams.API_PARAM_BUCKET_NAME,
+            required = true,
+            example = "metadata")
+        @PathVariable
+            String bucket,
+        @Parameter(hidden = true)
+            HttpSession httpSession,
+        @Parameter(hidden = true)
+            HttpServletRequest request
+    )
+        throws Exception {
+
+        int nbSelected = SelectionManager.updateSelection(bucket,
+            ApiUtils.getUserSession(httpSession),
+            SelectionManager.INTERSECT_SELECTED,
+            null,
+            ApiUtils.createServiceContext(request));
+
+        return new ResponseEntity<>(nbSelected, HttpStatus.OK);
+    }
+
+
     @io.swagger.v3.oas.annotations.Operation(summary = "Clear selection or remove items")
     @RequestMapping(
         method = RequestMethod.DELETE,
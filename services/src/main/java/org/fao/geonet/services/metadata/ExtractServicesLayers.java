@@ -77,13 +77,7 @@ public class ExtractServicesLayers {
 
         // case #1 : #id parameter is undefined
         if (paramId == null) {
-            synchronized (sm.getSelection("metadata")) {
-                for (Iterator<String> iter = sm.getSelection("metadata").iterator(); iter.hasNext(); ) {
-                    String uuid = iter.next();
-                    String id = dm.getMetadataId(uuid);
-                    lst.add(id);
-                }
-            }
+            sm.getSelection("metadata").ids().forEach(id -> lst.add(String.valueOf(id)));
         } else { // case #2 : id parameter has been passed
             lst.add(paramId);
         }
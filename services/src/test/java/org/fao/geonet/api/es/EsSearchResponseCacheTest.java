@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.es;
+
+import org.apache.http.message.BasicHeader;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.events.md.MetadataIndexCompleted;
+import org.fao.geonet.events.md.MetadataIndexStarted;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EsSearchResponseCacheTest {
+
+    private static EsSearchResponseCache.CachedResponse response(String body) {
+        return new EsSearchResponseCache.CachedResponse("application/json",
+            List.of(new BasicHeader("X-elastic-product", "Elasticsearch")),
+            body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void disabledWithoutTimeToLive() {
+        EsSearchResponseCache cache = new EsSearchResponseCache(0, 10);
+        assertFalse(cache.isEnabled());
+        cache.put("key", response("{}"), cache.getGeneration());
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void clearedWhenRecordIsIndexed() {
+        EsSearchResponseCache cache = new EsSearchResponseCache(60, 10);
+        assertTrue(cache.isEnabled());
+        cache.put("key", response("{\"hits\":{}}"), cache.getGeneration());
+        assertNotNull(cache.get("key"));
+        assertEquals("{\"hits\":{}}", new String(cache.get("key").getBody(), StandardCharsets.UTF_8));
+        assertEquals("X-elastic-product", cache.get("key").getHeaders().get(0).getName());
+
+        cache.onApplicationEvent(new MetadataIndexStarted(new Metadata(), null));
+        assertNotNull(cache.get("key"));
+
+        cache.onApplicationEvent(new MetadataIndexCompleted(new Metadata()));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void responseComputedBeforeClearIsNotAdded() {
+        EsSearchResponseCache cache = new EsSearchResponseCache(60, 10);
+        long generation = cache.getGeneration();
+        cache.clear();
+        cache.put("key", response("{}"), generation);
+        assertNull(cache.get("key"));
+
+        cache.put("key", response("{}"), cache.getGeneration());
+        assertNotNull(cache.get("key"));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.es;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class StreamingResponseConsumerTest {
+
+    private static final int BUFFER_SIZE = 16;
+
+    /**
+     * Decoder returning the content by chunks, as received from the network.
+     */
+    private static class ChunkedDecoder implements ContentDecoder {
+        private final byte[] content;
+        private final int chunkSize;
+        private int position;
+
+        ChunkedDecoder(byte[] content, int chunkSize) {
+            this.content = content;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(ByteBuffer dst) {
+            int length = Math.min(Math.min(chunkSize, content.length - position), dst.remaining());
+            dst.put(content, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public synchronized boolean isCompleted() {
+            return position == content.length;
+        }
+    }
+
+    private static HttpResponse response(int status) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentType("application/json");
+        entity.setChunked(true);
+        entity.setContentLength(-1);
+        response.setEntity(entity);
+        return response;
+    }
+
+    private static String body(int length) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; body.length() < length; i++) {
+            body.append(i).append(',');
+        }
+        return body.toString();
+    }
+
+    @Test(timeout = 5000)
+    public void streamChunkedContent() throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(future, BUFFER_SIZE);
+        String body = body(10000);
+        ChunkedDecoder decoder = new ChunkedDecoder(body.getBytes(StandardCharsets.UTF_8), 7);
+        IOControl ioControl = mock(IOControl.class);
+
+        consumer.responseReceived(response(200));
+        assertTrue("The response is available once the headers are received", future.isDone());
+
+        // The I/O thread fills the buffer while the response is read
+        Thread ioThread = new Thread(() -> {
+            try {
+                while (!decoder.isCompleted()) {
+                    consumer.consumeContent(decoder, ioControl);
+                    Thread.yield();
+                }
+                consumer.responseCompleted(new BasicHttpContext());
+            } catch (IOException e) {
+                consumer.failed(e);
+            }
+        });
+        ioThread.start();
+
+        HttpResponse response = future.get();
+        assertEquals(body, EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+        ioThread.join();
+        assertSame(response, consumer.getResult());
+    }
+
+    @Test
+    public void bufferErrorResponse() throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(future, BUFFER_SIZE);
+        String body = body(100);
+        ChunkedDecoder decoder = new ChunkedDecoder(body.getBytes(StandardCharsets.UTF_8), 7);
+
+        consumer.responseReceived(response(400));
+        while (!decoder.isCompleted()) {
+            consumer.consumeContent(decoder, mock(IOControl.class));
+        }
+        consumer.responseCompleted(new BasicHttpContext());
+
+        // returned by the client once completed
+        assertFalse(future.isDone());
+        assertEquals(400, consumer.getResult().getStatusLine().getStatusCode());
+        assertEquals(body, EntityUtils.toString(consumer.getResult().getEntity(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void failureBeforeHeadersCompletesFuture() throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(future, BUFFER_SIZE);
+        IOException failure = new IOException("Connection refused");
+
+        consumer.failed(failure);
+
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("The failure is reported to the reader");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void cancelBeforeHeadersCompletesFuture() throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(future, BUFFER_SIZE);
+
+        consumer.cancel();
+
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("The cancellation is reported to the reader");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CancellationException);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void failureWhileStreamingStopsReader() throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(future, BUFFER_SIZE);
+        ChunkedDecoder decoder = new ChunkedDecoder(body(100).getBytes(StandardCharsets.UTF_8), 7);
+
+        consumer.responseReceived(response(200));
+        consumer.consumeContent(decoder, mock(IOControl.class));
+        InputStream content = future.get(1, TimeUnit.SECONDS).getEntity().getContent();
+        assertTrue(content.read() != -1);
+
+        // The reader waits for more data until the connection fails
+        Thread ioThread = new Thread(() -> consumer.failed(new IOException("Connection reset")));
+        ioThread.start();
+        try {
+            while (content.read() != -1) {
+                // read what was received
+            }
+        } catch (IOException e) {
+            // aborted
+        }
+        ioThread.join();
+        assertTrue(consumer.isDone());
+    }
+}
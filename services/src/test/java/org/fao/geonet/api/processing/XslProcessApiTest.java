@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.processing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jeeves.server.context.ServiceContext;
+import jeeves.transaction.TransactionManager;
+import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.events.md.MetadataIndexCompleted;
+import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
+import org.fao.geonet.kernel.datamanager.base.BaseMetadataIndexer;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.services.AbstractServiceIntegrationTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class XslProcessApiTest extends AbstractServiceIntegrationTest {
+    private static final String PROCESS = "add-resource-id";
+
+    @Autowired
+    private WebApplicationContext wac;
+    @Autowired
+    private MetadataRepository metadataRepository;
+    @Autowired
+    private IMetadataIndexer metadataIndexer;
+
+    private ServiceContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = createServiceContext();
+        loginAsAdmin(context);
+    }
+
+    @Test
+    public void processBatchWithFailingRecord() throws Exception {
+        // The records are committed as the batches are saved in their own transaction
+        List<AbstractMetadata> records = TransactionManager.runInTransaction("inject-xslprocess-records",
+            _applicationContext, TransactionManager.TransactionRequirement.CREATE_NEW,
+            TransactionManager.CommitBehavior.ALWAYS_COMMIT, false, transaction -> {
+                List<AbstractMetadata> injected = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    injected.add(injectMetadataInDb(getSample("kernel/holocene.xml"), context, true));
+                }
+                return injected;
+            });
+        AbstractMetadata failing = records.get(1);
+        List<String> dataBefore = new ArrayList<>();
+        for (AbstractMetadata record : records) {
+            dataBefore.add(metadataRepository.findOneByUuid(record.getUuid()).getData());
+        }
+
+        List<Integer> indexedIds = Collections.synchronizedList(new ArrayList<>());
+        Set<Integer> recordIds = ConcurrentHashMap.newKeySet();
+        records.forEach(r -> recordIds.add(r.getId()));
+        ((ConfigurableApplicationContext) wac).addApplicationListener(
+            (ApplicationListener<MetadataIndexCompleted>) event -> {
+                if (recordIds.contains(event.getMd().getId())) {
+                    indexedIds.add(event.getMd().getId());
+                }
+            });
+
+        JsonNode report;
+        // Saving is done by the request thread, the records are transformed by the workers
+        try (MockedStatic<XslProcessUtils> utils = Mockito.mockStatic(XslProcessUtils.class, Mockito.CALLS_REAL_METHODS)) {
+            utils.when(() -> XslProcessUtils.save(any(),
+                    argThat(processed -> processed != null && processed.getInfo().getId() == failing.getId()),
+                    anyBoolean()))
+                .thenThrow(new IllegalStateException("Record can not be saved"));
+
+            MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
+            MockHttpSession session = loginAsAdmin();
+            MvcResult result = mockMvc.perform(post("/srv/api/processes/" + PROCESS)
+                    .param("uuids", records.get(0).getUuid(), failing.getUuid(), records.get(2).getUuid())
+                    .session(session)
+                    .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+            report = new ObjectMapper().readTree(result.getResponse().getContentAsString());
+        }
+
+        // The other records of the batch are saved and reported
+        Set<Integer> reported = new HashSet<>();
+        report.get("metadata").forEach(id -> reported.add(id.asInt()));
+        assertEquals(Set.of(records.get(0).getId(), records.get(2).getId()), reported);
+        assertTrue(report.get("metadataErrors").has(String.valueOf(failing.getId())));
+        _entityManager.clear();
+        for (int i = 0; i < records.size(); i++) {
+            String data = metadataRepository.findOneByUuid(records.get(i).getUuid()).getData();
+            if (records.get(i) == failing) {
+                assertEquals(dataBefore.get(i), data);
+            } else {
+                assertNotEquals(dataBefore.get(i), data);
+            }
+        }
+
+        // The saved records are indexed once, at the end
+        BaseMetadataIndexer indexer = (BaseMetadataIndexer) metadataIndexer;
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (indexer.getIndexingPipeline().isIndexing() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(100);
+        }
+        assertFalse(indexer.getIndexingPipeline().isIndexing());
+        List<Integer> expected = new ArrayList<>(List.of(records.get(0).getId(), records.get(2).getId()));
+        List<Integer> actual = new ArrayList<>(indexedIds);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+}
@@ -217,5 +217,19 @@ public class MetadataAssociatedApiTest extends AbstractServiceIntegrationTest {
                 .accept(MediaType.APPLICATION_JSON))
             .andExpect(jsonPath("$.associated", hasSize(1)))
             .andExpect(jsonPath("$.associated[0]._source.uuid").value(SERIE_UUID));
+
+
+        // Associated resources of many records in one call
+        resultActions = mockMvc.perform(get("/srv/api/records/associated")
+                .param("uuids", SERIE_UUID, SOURCE_UUID, UUID.randomUUID().toString())
+                .param("type", "sources", "hassources")
+                .session(mockHttpSession)
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$['" + SERIE_UUID + "'].sources", hasSize(1)))
+            .andExpect(jsonPath("$['" + SERIE_UUID + "'].sources[0]._source.uuid").value(SOURCE_UUID))
+            .andExpect(jsonPath("$['" + SOURCE_UUID + "'].hassources", hasSize(1)))
+            .andExpect(jsonPath("$['" + SOURCE_UUID + "'].hassources[0]._source.uuid").value(SERIE_UUID));
     }
 }
@@ -85,8 +85,8 @@ public class MetadataWorkflowApiTest  extends AbstractServiceIntegrationTest {
 
         // Select the metadata
         UserSession session = ApiUtils.getUserSession( mockHttpSession);
-        SelectionManager.getManager(session).getSelection(SelectionManager.SELECTION_METADATA).add(this.uuid);
-        SelectionManager.getManager(session).getSelection(SelectionManager.SELECTION_METADATA).add(this.uuid2);
+        SelectionManager.getManager(session).addSelection(SelectionManager.SELECTION_METADATA, this.uuid);
+        SelectionManager.getManager(session).addSelection(SelectionManager.SELECTION_METADATA, this.uuid2);
         int selected = SelectionManager.getManager(session).getSelection(SelectionManager.SELECTION_METADATA).size();
         Assert.isTrue(selected == 2);
 
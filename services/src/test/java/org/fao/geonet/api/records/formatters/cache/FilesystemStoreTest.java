@@ -27,6 +27,7 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.Sets;
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.fao.geonet.api.records.formatters.FormatType;
 import org.fao.geonet.api.records.formatters.FormatterWidth;
@@ -46,7 +47,12 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -162,10 +168,20 @@ public class FilesystemStoreTest {
         Key[] keys = prepareDiskSizeRestrictionTests();
 
         store.put(keys[5], new StoreInfoAndData(new byte[200], 6, false));
-        assertStoreContains(keys, keys[3], keys[4], keys[5]);
+        assertStoreContains(keys, keys[4], keys[5]);
 
     }
 
+    @Test
+    public void testDiskSizeRestrictionEvictsLeastRecentlyUsed() throws Exception {
+        Key[] keys = prepareDiskSizeRestrictionTests();
+
+        assertNotNull(store.get(keys[0]));
+        store.put(keys[5], new StoreInfoAndData(new byte[200], 6, false));
+        assertStoreContains(keys, keys[0], keys[5]);
+        assertEquals(0, countFiles(store.getPrivatePath(keys[1])));
+    }
+
 
     @Test
     public void testDiskSizeRestrictionReplace() throws Exception {
@@ -181,6 +197,7 @@ public class FilesystemStoreTest {
         assertStoreContains(keys, keys[0], keys[1], keys[2], keys[3], keys[4]);
         store.put(keys[2], new StoreInfoAndData(new byte[200], 2, false));
         assertStoreContains(keys, keys[0], keys[1], keys[2], keys[3], keys[4]);
+        store.checkpoint();
         try (
             Statement statement = store.metadataDb.createStatement();
             ResultSet rs = statement.executeQuery(FilesystemStore.QUERY_GETCURRENT_SIZE)) {
@@ -200,8 +217,9 @@ public class FilesystemStoreTest {
         assertStoreContains(keys, keys[0], keys[1], keys[2], keys[3], keys[4]);
 
 
+        // Least recently used are 4, 0 and 1
         store.put(keys[2], new StoreInfoAndData(new byte[400], 2, false));
-        assertStoreContains(keys, keys[2], keys[3], keys[4]);
+        assertStoreContains(keys, keys[2], keys[3]);
     }
 
 
@@ -221,6 +239,39 @@ public class FilesystemStoreTest {
         assertStoreContains(keys, keys[0], keys[2], keys[3], keys[4]);
     }
 
+    @Test
+    public void testConcurrentPutAndGet() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final int mdId = i;
+                futures.add(executor.submit(() -> {
+                    final Key key = new Key(mdId, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+                    for (int j = 0; j < 50; j++) {
+                        store.put(key, new StoreInfoAndData("result" + j, j, j % 2 == 0));
+                        StoreInfoAndData loaded = store.get(key);
+                        assertEquals("result" + j, loaded.getDataAsString());
+                        assertEquals(j, loaded.getChangeDate());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        store.checkpoint();
+        try (
+            Statement statement = store.metadataDb.createStatement();
+            ResultSet rs = statement.executeQuery(FilesystemStore.QUERY_GETCURRENT_SIZE)) {
+            assertTrue(rs.next());
+            assertEquals(4 * "result49".length(), Long.parseLong(rs.getString(1)));
+        }
+    }
+
     private Key[] prepareDiskSizeRestrictionTests() throws IOException, SQLException {
         this.store.setMaxSizeKb(1);
         Key[] keys = {new Key(0, "eng", FormatType.html, "full_view", true, FormatterWidth._100),
@@ -353,6 +404,7 @@ public class FilesystemStoreTest {
     private void initStore() throws SQLException, ClassNotFoundException {
         this.store = new FilesystemStore();
         this.store.setTesting(true);
+        this.store.setEvictionExecutor(MoreExecutors.directExecutor());
         store.setGeonetworkDataDir(geonetworkDataDirectory);
     }
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2001-2025 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.records.formatters.cache;
+
+import org.fao.geonet.api.records.formatters.FormatType;
+import org.fao.geonet.api.records.formatters.FormatterWidth;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the formatter throughput with concurrent requests. A request is
+ * a memory cache hit or a cache miss rendering the record, the share of misses
+ * is set by the size of the memory cache compared to the number of records.
+ * The persistent store keeps nothing.
+ *
+ * Compile the test sources with the benchmark profile ({@code mvn test-compile -Pbenchmark})
+ * and run the main method with the test classpath. The throughput should
+ * increase with the number of threads up to the number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatterCacheBenchmark {
+
+    @Param({"1000"})
+    public int numberOfRecords;
+
+    @Param({"100"})
+    public int memoryCacheSize;
+
+    /**
+     * Amount of CPU work of a formatter rendering, see {@link Blackhole#consumeCPU(long)}.
+     */
+    @Param({"100000"})
+    public long renderingCost;
+
+    private FormatterCache formatterCache;
+    private Key[] keys;
+
+    @Setup
+    public void setup() {
+        formatterCache = new FormatterCache(new EmptyStore(), memoryCacheSize, 5000, key -> true);
+        keys = new Key[numberOfRecords];
+        for (int i = 0; i < numberOfRecords; i++) {
+            keys[i] = new Key(i, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        formatterCache.shutdown();
+    }
+
+    @Benchmark
+    public byte[] get() throws Exception {
+        final Key key = keys[ThreadLocalRandom.current().nextInt(numberOfRecords)];
+        return formatterCache.get(key, new ChangeDateValidator(0), () -> {
+            Blackhole.consumeCPU(renderingCost);
+            return new StoreInfoAndDataLoadResult("<div>" + key.mdId + "</div>", 0, false, null, null);
+        }, true);
+    }
+
+    private static class EmptyStore implements PersistentStore {
+        @Nullable
+        @Override
+        public StoreInfoAndData get(@Nonnull Key key) {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public StoreInfo getInfo(@Nonnull Key key) {
+            return null;
+        }
+
+        @Override
+        public void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) {
+            // ignore
+        }
+
+        @Nullable
+        @Override
+        public byte[] getPublished(@Nonnull Key key) {
+            return null;
+        }
+
+        @Override
+        public void remove(@Nonnull Key key) {
+            // ignore
+        }
+
+        @Override
+        public void setPublished(int metadataId, boolean published) {
+            // ignore
+        }
+
+        @Override
+        public void clear() {
+            // ignore
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                .include(FormatterCacheBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build()).run();
+        }
+    }
+}
@@ -39,10 +39,18 @@ import org.springframework.context.ConfigurableApplicationContext;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -51,6 +59,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class FormatterCacheTest {
 
@@ -282,4 +291,100 @@ public class FormatterCacheTest {
         assertNotNull(persistentStore.get(key));
     }
 
+    @Test(timeout = 10000L)
+    public void testConcurrentGetOfSameKeyLoadsOnce() throws Exception {
+        final MemoryPersistentStore persistentStore = new MemoryPersistentStore();
+        this.formatterCache = new FormatterCache(persistentStore, 100, 5000);
+
+        final long changeDate = new Date().getTime();
+        final Key key = new Key(1, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch allowLoad = new CountDownLatch(1);
+        final Callable<StoreInfoAndDataLoadResult> loader = new Callable<StoreInfoAndDataLoadResult>() {
+            @Override
+            public StoreInfoAndDataLoadResult call() throws Exception {
+                loads.incrementAndGet();
+                loading.countDown();
+                allowLoad.await();
+                return new TestLoader("result", changeDate, false).call();
+            }
+        };
+
+        ExecutorService requests = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(requests.submit(() -> getAsString(key, changeDate, loader)));
+            loading.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(requests.submit(() -> getAsString(key, changeDate, loader)));
+            }
+            // Let the other requests reach the cache
+            Thread.sleep(200);
+            allowLoad.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("result", result.get());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000L)
+    public void testConcurrentGetOfDifferentKeysLoadsInParallel() throws Exception {
+        final MemoryPersistentStore persistentStore = new MemoryPersistentStore();
+        this.formatterCache = new FormatterCache(persistentStore, 100, 5000);
+
+        final long changeDate = new Date().getTime();
+        final int numberOfKeys = 4;
+        // Each load only completes once all loads are started
+        final CountDownLatch allLoading = new CountDownLatch(numberOfKeys);
+
+        ExecutorService requests = Executors.newFixedThreadPool(numberOfKeys);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < numberOfKeys; i++) {
+                final Key key = new Key(i, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+                final String value = "result" + i;
+                results.add(requests.submit(() -> getAsString(key, changeDate, () -> {
+                    allLoading.countDown();
+                    assertTrue(allLoading.await(5, TimeUnit.SECONDS));
+                    return new TestLoader(value, changeDate, false).call();
+                })));
+            }
+            for (int i = 0; i < numberOfKeys; i++) {
+                assertEquals("result" + i, results.get(i).get());
+            }
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRemoveAll() throws Exception {
+        final MemoryPersistentStore persistentStore = new MemoryPersistentStore();
+        this.formatterCache = new FormatterCache(persistentStore, 100, 5000);
+
+        final long changeDate = new Date().getTime();
+        final Key key = new Key(1, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final Key key2 = new Key(1, "fre", FormatType.html, "full_view", true, FormatterWidth._100);
+        final Key otherKey = new Key(2, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        getAsString(key, changeDate, new TestLoader("result", changeDate, false));
+        getAsString(key2, changeDate, new TestLoader("result", changeDate, false));
+        getAsString(otherKey, changeDate, new TestLoader("other", changeDate, false));
+
+        formatterCache.removeAll(1);
+
+        assertNull(persistentStore.get(key));
+        assertNull(persistentStore.get(key2));
+        assertEquals("newVal", getAsString(key, changeDate, new TestLoader("newVal", changeDate, false)));
+        assertEquals("other", getAsString(otherKey, changeDate, new Callable<StoreInfoAndDataLoadResult>() {
+            @Override
+            public StoreInfoAndDataLoadResult call() throws Exception {
+                throw new AssertionError("Should not be called because cache should be up-to-date");
+            }
+        }));
+    }
 }
@@ -27,8 +27,8 @@ import com.google.common.collect.Lists;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -37,7 +37,7 @@ import javax.annotation.Nullable;
  * @author Jesse on 3/5/2015.
  */
 public class MemoryPersistentStore implements PersistentStore {
-    Map<Key, StoreInfoAndData> dataMap = new HashMap<>();
+    Map<Key, StoreInfoAndData> dataMap = new ConcurrentHashMap<>();
 
     @Override
     public StoreInfoAndData get(@Nonnull Key key) {
@@ -61,14 +61,24 @@ public class SelectionsApiTest  extends AbstractServiceIntegrationTest {
 
     private MockHttpSession mockHttpSession;
 
+    private String uuid1;
+    private String uuid2;
+    private String uuid3;
+
     @Before
     public void setUp() throws Exception {
         this.mockHttpSession = loginAsAdmin();
 
         UserSession session = ApiUtils.getUserSession( this.mockHttpSession);
 
-        String[] uuids = {"uuid1", "uuid2"};
         ServiceContext context = createServiceContext();
+        loginAsAdmin(context);
+        // Selections only contain records of the catalog
+        uuid1 = injectMetadataInDbDoNotRefreshHeader(getSampleMetadataXml(), context).getUuid();
+        uuid2 = injectMetadataInDbDoNotRefreshHeader(getSampleMetadataXml(), context).getUuid();
+        uuid3 = injectMetadataInDbDoNotRefreshHeader(getSampleMetadataXml(), context).getUuid();
+
+        String[] uuids = {uuid1, uuid2, "unknown-uuid"};
 
         int nbSelected = SelectionManager.updateSelection(SelectionManager.SELECTION_METADATA,
             session, SelectionManager.ADD_SELECTED, Arrays.asList(uuids), context);
@@ -95,7 +105,7 @@ public class SelectionsApiTest  extends AbstractServiceIntegrationTest {
         this.mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
 
         this.mockMvc.perform(put("/srv/api/selections/" + SelectionManager.SELECTION_METADATA)
-            .param("uuid", "uuid3")
+            .param("uuid", uuid3)
             .session(this.mockHttpSession)
             .accept(MediaType.parseMediaType("application/json")))
             .andExpect(status().is(201))
@@ -132,7 +142,7 @@ public class SelectionsApiTest  extends AbstractServiceIntegrationTest {
 
         // Remove only 1 item from the selection
         this.mockMvc.perform(delete("/srv/api/selections/" + SelectionManager.SELECTION_METADATA)
-            .param("uuid", "uuid1")
+            .param("uuid", uuid1)
             .session(this.mockHttpSession)
             .accept(MediaType.parseMediaType("application/json")))
             .andExpect(status().isOk())